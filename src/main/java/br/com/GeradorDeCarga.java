@@ -0,0 +1,322 @@
+package br.com;
+
+import br.com.dao.ClienteDao;
+import br.com.model.*;
+import br.com.service.CategoriaService;
+import br.com.service.ControleDeEstoque;
+import br.com.service.PedidoService;
+import br.com.service.ProdutoService;
+import br.com.service.VendaService;
+import br.com.util.HistogramaDeLatencia;
+import br.com.util.JPAUtil;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/* Gerador de carga: simula vários atendentes simultâneos (threads virtuais) usando os services reais, com uma
+   mistura configurável de consultas de produto, cadastro de pedidos com K itens, alteração de itens e relatórios.
+   A carga é descrita por um arquivo .properties (padrão: carga/misto.properties no classpath) e o sorteio usa uma
+   semente fixa, para que as execuções sejam reproduzíveis. Ao final, imprime vazão, percentis de latência
+   (p50/p99/p99.9) e taxa de erros por operação.
+   Uso: GeradorDeCarga [arquivo.properties]   (a unidade de persistência vem de -Dvendas.unidade, ver JPAUtil) */
+public class GeradorDeCarga {
+
+    private enum Operacao {
+        CONSULTAR_PRODUTO("consultarProduto"),
+        CADASTRAR_PEDIDO("cadastrarPedido"),
+        ALTERAR_ITEM("alterarItem"),
+        RELATORIO("relatorio");
+
+        private final String chave;
+
+        Operacao(String chave) {
+            this.chave = chave;
+        }
+    }
+
+    private static final Operacao[] OPERACOES = Operacao.values();
+
+    public static void main(String[] args) throws Exception {
+        Properties carga = carregarCarga(args.length > 0 ? args[0] : null);
+        int atendentes = Integer.parseInt(carga.getProperty("atendentes", "10"));
+        int operacoesPorAtendente = Integer.parseInt(carga.getProperty("operacoesPorAtendente", "100"));
+        long semente = Long.parseLong(carga.getProperty("semente", "1"));
+        int itensPorPedido = Integer.parseInt(carga.getProperty("itensPorPedido", "3"));
+        int quantidadeDeProdutos = Integer.parseInt(carga.getProperty("produtos", "100"));
+        long estoqueInicial = Long.parseLong(carga.getProperty("estoqueInicial", "100000"));
+        int[] pesos = new int[OPERACOES.length];
+        for (Operacao operacao : OPERACOES) {
+            pesos[operacao.ordinal()] = Integer.parseInt(carga.getProperty("mix." + operacao.chave, "0"));
+        }
+
+        EntityManagerFactory emf = JPAUtil.getEntityManagerFactory();
+        // Um só controle de estoque para todos os atendentes, como no Main e no ServidorHttp.
+        ControleDeEstoque controleDeEstoque = new ControleDeEstoque(emf, Duration.ofSeconds(1), Duration.ofMinutes(5));
+        try {
+            List<Long> produtos = prepararProdutos(emf, quantidadeDeProdutos, estoqueInicial);
+            Long idCliente = prepararCliente(emf);
+            controleDeEstoque.iniciar();
+
+            // Cada atendente recebe o seu gerador, derivado da semente sempre na mesma ordem.
+            SplittableRandom raiz = new SplittableRandom(semente);
+            List<Atendente> lista = new ArrayList<>();
+            for (int i = 0; i < atendentes; i++) {
+                lista.add(new Atendente(emf, controleDeEstoque, raiz.split(), pesos, operacoesPorAtendente,
+                        itensPorPedido, produtos, idCliente));
+            }
+
+            System.out.printf("Carga: %d atendentes x %d operações, %d itens por pedido, semente %d%n",
+                    atendentes, operacoesPorAtendente, itensPorPedido, semente);
+            long inicio = System.nanoTime();
+            try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                List<Future<?>> execucoes = new ArrayList<>();
+                for (Atendente atendente : lista) {
+                    execucoes.add(executor.submit(atendente));
+                }
+                for (Future<?> execucao : execucoes) {
+                    execucao.get();
+                }
+            }
+            double segundos = (System.nanoTime() - inicio) / 1e9;
+
+            imprimirResultado(lista, segundos);
+        } finally {
+            controleDeEstoque.close();
+            JPAUtil.fechar();
+        }
+    }
+
+    private static Properties carregarCarga(String arquivo) throws IOException {
+        Properties carga = new Properties();
+        try (InputStream entrada = arquivo != null
+                ? Files.newInputStream(Path.of(arquivo))
+                : GeradorDeCarga.class.getResourceAsStream("/carga/misto.properties")) {
+            if (entrada == null) {
+                throw new IOException("Arquivo de carga padrão (carga/misto.properties) não encontrado no classpath");
+            }
+            carga.load(entrada);
+        }
+        return carga;
+    }
+
+    // Garante um catálogo mínimo para a carga e devolve os IDs dos produtos disponíveis. Os produtos criados aqui
+    // começam com "estoqueInicial" unidades; os já existentes ficam com o estoque que têm.
+    private static List<Long> prepararProdutos(EntityManagerFactory emf, int quantidade, long estoqueInicial) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            ProdutoService produtoService = new ProdutoService(em);
+            List<Produto> existentes = produtoService.buscarTodosOsProdutos();
+            List<Long> ids = new ArrayList<>();
+            existentes.forEach(p -> ids.add(p.getId()));
+            if (ids.size() < quantidade) {
+                Categoria categoria = new Categoria("CARGA");
+                new CategoriaService(em).inserir(categoria);
+                for (int i = ids.size(); i < quantidade; i++) {
+                    Produto produto = new Produto("Produto de carga " + i, "Criado pelo gerador de carga",
+                            new BigDecimal(10 + i % 990), categoria);
+                    produto.setEstoque(estoqueInicial);
+                    produtoService.inserir(produto);
+                    ids.add(produto.getId());
+                }
+            }
+            return ids;
+        } finally {
+            em.close();
+        }
+    }
+
+    private static Long prepararCliente(EntityManagerFactory emf) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            ClienteDao clienteDao = new ClienteDao(em);
+            List<Cliente> clientes = clienteDao.buscarTodos();
+            if (!clientes.isEmpty()) {
+                return clientes.get(0).getId();
+            }
+            Cliente cliente = new Cliente("Cliente da carga", "00000000000");
+            clienteDao.cadastrar(cliente);
+            return cliente.getId();
+        } finally {
+            em.close();
+        }
+    }
+
+    private static void imprimirResultado(List<Atendente> atendentes, double segundos) {
+        HistogramaDeLatencia[] latencias = new HistogramaDeLatencia[OPERACOES.length];
+        long[] erros = new long[OPERACOES.length];
+        String[] primeiroErro = new String[OPERACOES.length];
+        for (int i = 0; i < OPERACOES.length; i++) {
+            latencias[i] = new HistogramaDeLatencia();
+        }
+        for (Atendente atendente : atendentes) {
+            for (int i = 0; i < OPERACOES.length; i++) {
+                latencias[i].mesclar(atendente.latencias[i]);
+                erros[i] += atendente.erros[i];
+                if (primeiroErro[i] == null) {
+                    primeiroErro[i] = atendente.primeiroErro[i];
+                }
+            }
+        }
+
+        System.out.printf("Duração: %.2f s%n", segundos);
+        System.out.printf("%-18s %8s %7s %8s %10s %9s %9s %9s %9s%n",
+                "Operação", "Total", "Erros", "Erro (%)", "Vazão/s", "p50 ms", "p99 ms", "p99.9 ms", "máx ms");
+        HistogramaDeLatencia geral = new HistogramaDeLatencia();
+        long errosGerais = 0;
+        for (int i = 0; i < OPERACOES.length; i++) {
+            imprimirLinha(OPERACOES[i].chave, latencias[i], erros[i], segundos);
+            geral.mesclar(latencias[i]);
+            errosGerais += erros[i];
+        }
+        imprimirLinha("total", geral, errosGerais, segundos);
+        for (int i = 0; i < OPERACOES.length; i++) {
+            if (primeiroErro[i] != null) {
+                System.out.println("Primeiro erro em " + OPERACOES[i].chave + ": " + primeiroErro[i]);
+            }
+        }
+    }
+
+    private static void imprimirLinha(String nome, HistogramaDeLatencia latencia, long erros, double segundos) {
+        long total = latencia.getTotal() + erros;
+        System.out.printf("%-18s %8d %7d %8.2f %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                nome, total, erros, total == 0 ? 0 : 100.0 * erros / total, total / segundos,
+                latencia.percentil(0.50) / 1e6, latencia.percentil(0.99) / 1e6,
+                latencia.percentil(0.999) / 1e6, latencia.getMaximo() / 1e6);
+    }
+
+    // Um atendente executa sua sequência de operações; cada operação usa um EntityManager próprio, como uma
+    // requisição independente. Latências e erros ficam no próprio atendente e são somados no final.
+    private static class Atendente implements Runnable {
+
+        private final EntityManagerFactory emf;
+        private final ControleDeEstoque controleDeEstoque;
+        private final SplittableRandom sorteio;
+        private final int[] pesos;
+        private final int pesoTotal;
+        private final int operacoes;
+        private final int itensPorPedido;
+        private final List<Long> produtos;
+        private final Long idCliente;
+        private final List<Long> pedidosCadastrados = new ArrayList<>();
+        private final HistogramaDeLatencia[] latencias = new HistogramaDeLatencia[OPERACOES.length];
+        private final long[] erros = new long[OPERACOES.length];
+        private final String[] primeiroErro = new String[OPERACOES.length];
+
+        Atendente(EntityManagerFactory emf, ControleDeEstoque controleDeEstoque, SplittableRandom sorteio, int[] pesos,
+                  int operacoes, int itensPorPedido, List<Long> produtos, Long idCliente) {
+            this.emf = emf;
+            this.controleDeEstoque = controleDeEstoque;
+            this.sorteio = sorteio;
+            this.pesos = pesos;
+            int soma = 0;
+            for (int peso : pesos) {
+                soma += peso;
+            }
+            this.pesoTotal = soma;
+            this.operacoes = operacoes;
+            this.itensPorPedido = itensPorPedido;
+            this.produtos = produtos;
+            this.idCliente = idCliente;
+            for (int i = 0; i < latencias.length; i++) {
+                latencias[i] = new HistogramaDeLatencia();
+            }
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < operacoes; i++) {
+                Operacao operacao = sortear();
+                // Sem pedido próprio ainda, a alteração vira cadastro (a sequência continua determinística).
+                if (operacao == Operacao.ALTERAR_ITEM && pedidosCadastrados.isEmpty()) {
+                    operacao = Operacao.CADASTRAR_PEDIDO;
+                }
+                long inicio = System.nanoTime();
+                EntityManager em = emf.createEntityManager();
+                try {
+                    executar(operacao, em);
+                    latencias[operacao.ordinal()].registrar(System.nanoTime() - inicio);
+                } catch (RuntimeException e) {
+                    erros[operacao.ordinal()]++;
+                    if (primeiroErro[operacao.ordinal()] == null) {
+                        primeiroErro[operacao.ordinal()] = e.toString();
+                    }
+                } finally {
+                    em.close();
+                }
+            }
+        }
+
+        private Operacao sortear() {
+            int valor = sorteio.nextInt(pesoTotal);
+            for (Operacao operacao : OPERACOES) {
+                valor -= pesos[operacao.ordinal()];
+                if (valor < 0) {
+                    return operacao;
+                }
+            }
+            return Operacao.CONSULTAR_PRODUTO;
+        }
+
+        private void executar(Operacao operacao, EntityManager em) {
+            switch (operacao) {
+                case CONSULTAR_PRODUTO -> new ProdutoService(em).buscarProdutoPorId(produtoAleatorio());
+                case CADASTRAR_PEDIDO -> cadastrarPedido(em);
+                case ALTERAR_ITEM -> alterarItem(em);
+                case RELATORIO -> {
+                    VendaService vendaService = new VendaService(em);
+                    if (sorteio.nextBoolean()) {
+                        vendaService.retornaProdutosMaisVendidos(10);
+                    } else {
+                        vendaService.retornaMelhoresClientes(10);
+                    }
+                }
+            }
+        }
+
+        private void cadastrarPedido(EntityManager em) {
+            ProdutoService produtoService = new ProdutoService(em);
+            Pedido pedido = new Pedido(em.getReference(Cliente.class, idCliente));
+            for (int i = 0; i < itensPorPedido; i++) {
+                Produto produto = produtoService.buscarProdutoPorId(produtoAleatorio());
+                pedido.adicionarItem(new PedidoItem(1 + sorteio.nextInt(5), pedido, produto));
+            }
+            pedidoService(em).inserir(pedido);
+            pedidosCadastrados.add(pedido.getId());
+        }
+
+        private void alterarItem(EntityManager em) {
+            PedidoService pedidoService = pedidoService(em);
+            Long id = pedidosCadastrados.get(sorteio.nextInt(pedidosCadastrados.size()));
+            Pedido pedido = pedidoService.buscarPedidoPorId(id);
+            PedidoItem item = pedido.getItens().get(sorteio.nextInt(pedido.getItens().size()));
+            // Mesma sequência do Main: o item sai e volta ao pedido para recalcular o valor total.
+            pedido.removerItem(item);
+            item.setQuantidade(1 + sorteio.nextInt(5));
+            pedido.adicionarItem(item);
+            pedidoService.alterar(pedido);
+        }
+
+        private PedidoService pedidoService(EntityManager em) {
+            PedidoService pedidoService = new PedidoService(em);
+            pedidoService.setControleDeEstoque(controleDeEstoque);
+            return pedidoService;
+        }
+
+        private long produtoAleatorio() {
+            return produtos.get(sorteio.nextInt(produtos.size()));
+        }
+    }
+}
@@ -0,0 +1,379 @@
+package br.com;
+
+import br.com.exception.DataAccessException;
+import br.com.util.JPAUtil;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Session;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/* Gerador de dados sintéticos: preenche categorias, produtos, clientes, pedidos e itens em volume de produção,
+   para reproduzir problemas de desempenho no H2 ou no PostgreSQL.
+   - Distribuições: popularidade dos produtos segue Zipf (poucos produtos concentram as vendas), as datas têm
+     sazonalidade (fins de semana e fim de ano mais fortes), itens por pedido e quantidades têm cauda geométrica
+     e os preços são log-normais.
+   - Determinístico: com a mesma semente e os mesmos parâmetros, o conteúdo é o mesmo, qualquer que seja o número
+     de threads. Os pedidos são divididos em blocos fixos e cada bloco tem o seu gerador, derivado da semente.
+   - Rápido: grava por JDBC em lotes (addBatch), com os IDs calculados aqui a partir do maior ID de cada tabela,
+     vários blocos em paralelo (uma conexão e uma transação por bloco). No fim, as colunas identity são
+     reposicionadas (RESTART WITH) para os cadastros seguintes pelo JPA. No PostgreSQL, reWriteBatchedInserts=true
+     na URL junta cada lote em um único INSERT.
+   - As gravações não passam pelos services: caches em memória (tabela de preços, contadores, esboços) devem ser
+     recarregados depois. Não use com shards (os IDs não seguem o intercalamento do RoteadorDeShards).
+   Uso: GeradorDeDados [arquivo.properties]   (padrão: carga/dados.properties; unidade de -Dvendas.unidade) */
+public class GeradorDeDados {
+
+    // Pedidos por bloco: a unidade de paralelismo e de transação, e o que fixa a sequência de sorteios.
+    private static final int PEDIDOS_POR_BLOCO = 2_000;
+
+    private final int categorias;
+    private final int produtos;
+    private final int clientes;
+    private final int pedidos;
+    private final double expoenteZipf;
+    private final double itensMedios;
+    private final int itensMaximos;
+    private final LocalDate dataFim;
+    private final int dias;
+    private final long semente;
+    private final int threads;
+    private final int lote;
+
+    public record Resumo(int categorias, int produtos, int clientes, int pedidos, long itens, double segundos) {
+        @Override
+        public String toString() {
+            return String.format("%d categorias, %d produtos, %d clientes, %d pedidos, %d itens em %.2f s (%.0f linhas/s)",
+                    categorias, produtos, clientes, pedidos, itens, segundos,
+                    (categorias + produtos + clientes + pedidos + itens) / Math.max(segundos, 1e-9));
+        }
+    }
+
+    // Parâmetros ausentes assumem os valores de carga/dados.properties.
+    public GeradorDeDados(Properties parametros) {
+        categorias = Integer.parseInt(parametros.getProperty("categorias", "20"));
+        produtos = Integer.parseInt(parametros.getProperty("produtos", "5000"));
+        clientes = Integer.parseInt(parametros.getProperty("clientes", "50000"));
+        pedidos = Integer.parseInt(parametros.getProperty("pedidos", "500000"));
+        expoenteZipf = Double.parseDouble(parametros.getProperty("zipf", "1.1"));
+        itensMedios = Double.parseDouble(parametros.getProperty("itensMedios", "3"));
+        itensMaximos = Integer.parseInt(parametros.getProperty("itensMaximos", "20"));
+        String fim = parametros.getProperty("dataFim", "");
+        dataFim = fim.isBlank() ? LocalDate.now() : LocalDate.parse(fim);
+        dias = Integer.parseInt(parametros.getProperty("dias", "730"));
+        semente = Long.parseLong(parametros.getProperty("semente", "1"));
+        threads = Integer.parseInt(parametros.getProperty("threads", String.valueOf(Runtime.getRuntime().availableProcessors())));
+        lote = Integer.parseInt(parametros.getProperty("lote", "1000"));
+        if (categorias < 1 || produtos < 1 || clientes < 1 || itensMaximos < 1 || dias < 1) {
+            throw new IllegalArgumentException("Categorias, produtos, clientes, itens e dias devem ser positivos");
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        GeradorDeDados gerador = new GeradorDeDados(carregarParametros(args.length > 0 ? args[0] : null));
+        EntityManagerFactory emf = JPAUtil.getEntityManagerFactory();
+        try {
+            System.out.println(gerador.gerar(emf));
+        } finally {
+            JPAUtil.fechar();
+        }
+    }
+
+    private static Properties carregarParametros(String arquivo) throws IOException {
+        Properties parametros = new Properties();
+        try (InputStream entrada = arquivo != null
+                ? Files.newInputStream(Path.of(arquivo))
+                : GeradorDeDados.class.getResourceAsStream("/carga/dados.properties")) {
+            if (entrada == null) {
+                throw new IOException("Arquivo de dados padrão (carga/dados.properties) não encontrado no classpath");
+            }
+            parametros.load(entrada);
+        }
+        return parametros;
+    }
+
+    // Acrescenta os dados às tabelas (os IDs continuam a partir dos existentes) e devolve o que foi gravado.
+    public Resumo gerar(EntityManagerFactory emf) {
+        long inicio = System.nanoTime();
+        long[] bases = executar(emf, conexao -> new long[]{maiorId(conexao, "categorias"), maiorId(conexao, "produtos"),
+                maiorId(conexao, "clientes"), maiorId(conexao, "pedidos"), maiorId(conexao, "pedido_itens")});
+        long baseCategorias = bases[0];
+        long baseProdutos = bases[1];
+        long baseClientes = bases[2];
+        long basePedidos = bases[3];
+        long baseItens = bases[4];
+
+        // Catálogo: preços log-normais e a ordem de popularidade (posição no Zipf -> produto) embaralhada.
+        SplittableRandom sorteioDoCatalogo = new SplittableRandom(semente);
+        BigDecimal[] precos = new BigDecimal[produtos];
+        for (int i = 0; i < produtos; i++) {
+            double preco = Math.exp(4 + sorteioDoCatalogo.nextDouble() * 2 + normal(sorteioDoCatalogo) * 0.5);
+            precos[i] = BigDecimal.valueOf(Math.min(20_000, Math.max(1, preco))).setScale(2, RoundingMode.HALF_UP);
+        }
+        int[] produtoDaPosicao = new int[produtos];
+        for (int i = 0; i < produtos; i++) {
+            int j = sorteioDoCatalogo.nextInt(i + 1);
+            produtoDaPosicao[i] = produtoDaPosicao[j];
+            produtoDaPosicao[j] = i;
+        }
+        executar(emf, conexao -> {
+            gravarCatalogo(conexao, baseCategorias, baseProdutos, baseClientes, precos, sorteioDoCatalogo);
+            return null;
+        });
+
+        double[] zipf = acumulada(produtos, posicao -> 1 / Math.pow(posicao + 1, expoenteZipf));
+        LocalDate dataIni = dataFim.minusDays(dias - 1L);
+        double[] sazonalidade = acumulada(dias, dia -> pesoDoDia(dataIni.plusDays(dia)));
+
+        // Primeira passada: a quantidade de itens de cada bloco, para dar a cada um a sua faixa de IDs de itens.
+        int blocos = (pedidos + PEDIDOS_POR_BLOCO - 1) / PEDIDOS_POR_BLOCO;
+        long[] primeiroItem = new long[blocos + 1];
+        for (int b = 0; b < blocos; b++) {
+            int[] itens = itensDoBloco(b);
+            primeiroItem[b + 1] = primeiroItem[b] + Arrays.stream(itens).sum();
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threads));
+        try {
+            List<Future<?>> tarefas = new ArrayList<>(blocos);
+            for (int b = 0; b < blocos; b++) {
+                int bloco = b;
+                tarefas.add(executor.submit(() -> executar(emf, conexao -> {
+                    gravarBloco(conexao, bloco, basePedidos, baseItens + primeiroItem[bloco], baseClientes,
+                            baseProdutos, precos, produtoDaPosicao, zipf, dataIni, sazonalidade);
+                    return null;
+                })));
+            }
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get();
+            }
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao gerar os pedidos", e);
+        } finally {
+            executor.shutdown();
+        }
+
+        executar(emf, conexao -> {
+            reiniciarIdentidade(conexao, "categorias", baseCategorias + categorias);
+            reiniciarIdentidade(conexao, "produtos", baseProdutos + produtos);
+            reiniciarIdentidade(conexao, "clientes", baseClientes + clientes);
+            reiniciarIdentidade(conexao, "pedidos", basePedidos + pedidos);
+            reiniciarIdentidade(conexao, "pedido_itens", baseItens + primeiroItem[blocos]);
+            return null;
+        });
+        return new Resumo(categorias, produtos, clientes, pedidos, primeiroItem[blocos],
+                (System.nanoTime() - inicio) / 1e9);
+    }
+
+    private void gravarCatalogo(Connection conexao, long baseCategorias, long baseProdutos, long baseClientes,
+                                BigDecimal[] precos, SplittableRandom sorteio) throws SQLException {
+        try (PreparedStatement insert = conexao.prepareStatement("INSERT INTO categorias (id, nome) VALUES (?, ?)")) {
+            for (int i = 1; i <= categorias; i++) {
+                insert.setLong(1, baseCategorias + i);
+                insert.setString(2, "Categoria " + (baseCategorias + i));
+                adicionar(insert, i);
+            }
+            insert.executeBatch();
+        }
+        try (PreparedStatement insert = conexao.prepareStatement(
+                "INSERT INTO produtos (id, nome, descricao, preco, estoque, categoria_id) VALUES (?, ?, ?, ?, ?, ?)")) {
+            for (int i = 1; i <= produtos; i++) {
+                insert.setLong(1, baseProdutos + i);
+                insert.setString(2, "Produto " + (baseProdutos + i));
+                insert.setString(3, "Produto gerado com a semente " + semente);
+                insert.setBigDecimal(4, precos[i - 1]);
+                insert.setLong(5, 1_000 + sorteio.nextInt(9_000));
+                insert.setLong(6, baseCategorias + 1 + sorteio.nextInt(categorias));
+                adicionar(insert, i);
+            }
+            insert.executeBatch();
+        }
+        try (PreparedStatement insert = conexao.prepareStatement("INSERT INTO clientes (id, nome, cpf) VALUES (?, ?, ?)")) {
+            for (int i = 1; i <= clientes; i++) {
+                long id = baseClientes + i;
+                insert.setLong(1, id);
+                insert.setString(2, "Cliente " + id);
+                // CPF sintético de 11 dígitos derivado do ID: único, como exige o índice.
+                insert.setString(3, String.format("%011d", id));
+                adicionar(insert, i);
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private void gravarBloco(Connection conexao, int bloco, long basePedidos, long primeiroItem, long baseClientes,
+                             long baseProdutos, BigDecimal[] precos, int[] produtoDaPosicao, double[] zipf,
+                             LocalDate dataIni, double[] sazonalidade) throws SQLException {
+        int[] itens = itensDoBloco(bloco);
+        SplittableRandom sorteio = new SplittableRandom(semente * 31 + 2L * bloco + 1);
+        int primeiroPedido = bloco * PEDIDOS_POR_BLOCO;
+        long idItem = primeiroItem;
+        try (PreparedStatement pedido = conexao.prepareStatement(
+                "INSERT INTO pedidos (id, valor_total, data, cliente_id) VALUES (?, ?, ?, ?)");
+             PreparedStatement item = conexao.prepareStatement(
+                     "INSERT INTO pedido_itens (id, preco_unitario, quantidade, pedido_id, produto_id) VALUES (?, ?, ?, ?, ?)")) {
+            int[] produtosDoPedido = new int[itensMaximos];
+            for (int p = 0; p < itens.length; p++) {
+                long idPedido = basePedidos + primeiroPedido + p + 1;
+                BigDecimal valorTotal = BigDecimal.ZERO;
+                for (int i = 0; i < itens[p]; i++) {
+                    // Produto repetido no pedido é sorteado de novo (algumas tentativas).
+                    int produto = produtoDaPosicao[sortear(zipf, sorteio)];
+                    for (int tentativa = 0; tentativa < 5 && contem(produtosDoPedido, i, produto); tentativa++) {
+                        produto = produtoDaPosicao[sortear(zipf, sorteio)];
+                    }
+                    produtosDoPedido[i] = produto;
+                    int quantidade = 1 + geometrica(sorteio, 0.6, 9);
+                    item.setLong(1, idItem++);
+                    item.setBigDecimal(2, precos[produto]);
+                    item.setInt(3, quantidade);
+                    item.setLong(4, idPedido);
+                    item.setLong(5, baseProdutos + produto + 1);
+                    item.addBatch();
+                    valorTotal = valorTotal.add(precos[produto].multiply(BigDecimal.valueOf(quantidade)));
+                }
+                pedido.setLong(1, idPedido);
+                pedido.setBigDecimal(2, valorTotal);
+                pedido.setDate(3, Date.valueOf(dataIni.plusDays(sortear(sazonalidade, sorteio))));
+                pedido.setLong(4, baseClientes + 1 + sorteio.nextInt(clientes));
+                pedido.addBatch();
+                // Os pedidos do lote vão antes dos seus itens (chave estrangeira).
+                if ((p + 1) % lote == 0) {
+                    pedido.executeBatch();
+                    item.executeBatch();
+                }
+            }
+            pedido.executeBatch();
+            item.executeBatch();
+        }
+    }
+
+    // Itens de cada pedido do bloco: 1 + geométrica com média "itensMedios", limitada a "itensMaximos".
+    private int[] itensDoBloco(int bloco) {
+        int quantidade = Math.min(PEDIDOS_POR_BLOCO, pedidos - bloco * PEDIDOS_POR_BLOCO);
+        SplittableRandom sorteio = new SplittableRandom(semente * 31 + 2L * bloco);
+        double continuar = 1 - 1 / Math.max(1, itensMedios);
+        int[] itens = new int[quantidade];
+        for (int i = 0; i < quantidade; i++) {
+            itens[i] = 1 + geometrica(sorteio, continuar, itensMaximos - 1);
+        }
+        return itens;
+    }
+
+    // Fins de semana 40% acima dos dias úteis; ciclo anual com pico no fim de dezembro e vale no meio do ano.
+    private static double pesoDoDia(LocalDate dia) {
+        double semana = dia.getDayOfWeek() == DayOfWeek.SATURDAY || dia.getDayOfWeek() == DayOfWeek.SUNDAY ? 1.4 : 1.0;
+        double ano = 1 + 0.5 * Math.cos(2 * Math.PI * (dia.getDayOfYear() - 355) / 365.25);
+        return semana * ano;
+    }
+
+    private interface Peso {
+        double de(int posicao);
+    }
+
+    // Distribuição acumulada normalizada (último valor 1), sorteada por busca binária.
+    private static double[] acumulada(int tamanho, Peso peso) {
+        double[] acumulada = new double[tamanho];
+        double soma = 0;
+        for (int i = 0; i < tamanho; i++) {
+            soma += peso.de(i);
+            acumulada[i] = soma;
+        }
+        for (int i = 0; i < tamanho; i++) {
+            acumulada[i] /= soma;
+        }
+        return acumulada;
+    }
+
+    private static int sortear(double[] acumulada, SplittableRandom sorteio) {
+        int posicao = Arrays.binarySearch(acumulada, sorteio.nextDouble());
+        return Math.min(acumulada.length - 1, posicao >= 0 ? posicao : -posicao - 1);
+    }
+
+    // Quantidade de "sucessos" seguidos com probabilidade "continuar", limitada a "maximo".
+    private static int geometrica(SplittableRandom sorteio, double continuar, int maximo) {
+        int valor = 0;
+        while (valor < maximo && sorteio.nextDouble() < continuar) {
+            valor++;
+        }
+        return valor;
+    }
+
+    // Box-Muller.
+    private static double normal(SplittableRandom sorteio) {
+        return Math.sqrt(-2 * Math.log(1 - sorteio.nextDouble())) * Math.cos(2 * Math.PI * sorteio.nextDouble());
+    }
+
+    private static boolean contem(int[] valores, int quantidade, int valor) {
+        for (int i = 0; i < quantidade; i++) {
+            if (valores[i] == valor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void adicionar(PreparedStatement insert, int linha) throws SQLException {
+        insert.addBatch();
+        if (linha % lote == 0) {
+            insert.executeBatch();
+        }
+    }
+
+    private static long maiorId(Connection conexao, String tabela) throws SQLException {
+        try (Statement consulta = conexao.createStatement();
+             ResultSet resultado = consulta.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + tabela)) {
+            resultado.next();
+            return resultado.getLong(1);
+        }
+    }
+
+    private static void reiniciarIdentidade(Connection conexao, String tabela, long maiorId) throws SQLException {
+        try (Statement comando = conexao.createStatement()) {
+            comando.executeUpdate("ALTER TABLE " + tabela + " ALTER COLUMN id RESTART WITH " + (maiorId + 1));
+        }
+    }
+
+    private interface TrabalhoJdbc<T> {
+        T executar(Connection conexao) throws SQLException;
+    }
+
+    // Executa o trabalho na conexão de um EntityManager próprio, dentro de uma transação.
+    private static <T> T executar(EntityManagerFactory emf, TrabalhoJdbc<T> trabalho) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            T resultado = em.unwrap(Session.class).doReturningWork(trabalho::executar);
+            em.getTransaction().commit();
+            return resultado;
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw new DataAccessException("Erro ao gravar os dados gerados", e);
+        } finally {
+            em.close();
+        }
+    }
+}
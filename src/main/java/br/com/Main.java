@@ -1,35 +1,70 @@
 package br.com;
 
 import br.com.model.*;
+import br.com.exception.CpfJaCadastradoException;
+import br.com.exception.EstoqueInsuficienteException;
+import br.com.service.ArquivamentoDePedidos;
 import br.com.service.CategoriaService;
+import br.com.service.ClienteService;
+import br.com.service.ContadoresDeVendas;
+import br.com.service.ControleDeEstoque;
+import br.com.service.CoocorrenciaDeProdutos;
+import br.com.service.EsbocosDeVendas;
+import br.com.service.ExpurgoDePedidosExcluidos;
 import br.com.service.PedidoService;
 import br.com.service.ProdutoService;
+import br.com.service.TabelaDePrecos;
 import br.com.service.VendaService;
+import br.com.util.EstatisticasDeConsultas;
+import br.com.util.Granularidade;
 import br.com.vo.*;
+import br.com.util.JPAUtil;
+import br.com.util.RoteadorDeLeitura;
+import br.com.util.TarefasPeriodicas;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
-import jakarta.persistence.Persistence;
 
+import java.lang.management.ManagementFactory;
 import java.math.BigDecimal;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.Period;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Stream;
 //TIP To <b>Run</b> code, press <shortcut actionId="Run"/> or
 // click the <icon src="AllIcons.Actions.Execute"/> icon in the gutter.
 public class Main {
 
     private static final Scanner scanner = new Scanner(System.in);
     private static EntityManager em;
+    private static RoteadorDeLeitura roteador;
+    private static CategoriaService categoriaService;
+    private static ClienteService clienteService;
+    private static ProdutoService produtoService;
+    private static PedidoService pedidoService;
+    private static VendaService vendaService;
+    private static TabelaDePrecos tabelaDePrecos;
+    private static ContadoresDeVendas contadoresDeVendas;
+    private static ControleDeEstoque controleDeEstoque;
+    private static EsbocosDeVendas esbocosDeVendas;
+    private static ArquivamentoDePedidos arquivamentoDePedidos;
+    private static ExpurgoDePedidosExcluidos expurgoDePedidosExcluidos;
+    private static ScheduledExecutorService cargaInicial;
 
     public static void main(String[] args) {
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("PostgresPU");
-        em = emf.createEntityManager();
+        if (args.length > 0 && args[0].equals("--treino")) {
+            executarTreino();
+            return;
+        }
 
-        CategoriaService categoriaService = new CategoriaService(em);
-        ProdutoService produtoService = new ProdutoService(em);
-        PedidoService pedidoService = new PedidoService(em);
-        VendaService vendaService =  new VendaService(em);
+        // O Hibernate é inicializado em segundo plano enquanto o menu é exibido;
+        // a conexão só é aguardada quando a primeira opção é escolhida.
+        JPAUtil.iniciarEmSegundoPlano();
 
         boolean continuar = true;
 
@@ -55,12 +90,29 @@ public class Main {
             System.out.println("18. Consultar Valor Total vendido");
             System.out.println("19. Consultar Relatório de Vendas");
             System.out.println("20. Consultar Relatório Financeiro");
+            System.out.println("21. Consultar Produtos Mais Vendidos (Top N)");
+            System.out.println("22. Consultar Melhores Clientes (Top N)");
+            System.out.println("23. Consultar Série de Vendas (dia/semana/mês)");
+            System.out.println("24. Consultar Estatísticas do Cache de Consultas");
+            System.out.println("25. Cadastrar Cliente");
+            System.out.println("26. Consultar Cliente por CPF");
+            System.out.println("27. Consultar Estatísticas do Filtro de CPFs");
+            System.out.println("28. Consultar Produtos Comprados Juntos");
+            System.out.println("29. Consultar Estimativas de Vendas do Período");
+            System.out.println("30. Reajustar Preços de uma Categoria");
+            System.out.println("31. Consultar Alterações de Preço do Período");
+            System.out.println("32. Repor Estoque de um Produto");
             System.out.println("0. Sair");
             System.out.print("Escolha uma opção: ");
 
             int opcao = scanner.nextInt();
             scanner.nextLine(); // Limpar o buffer
 
+            if (em == null && opcao != 0) {
+                conectar();
+                iniciarComponentesEmMemoria();
+            }
+
             switch (opcao) {
                 case 1 -> cadastrarCategoria(categoriaService);
                 case 2 -> alterarCategoria(categoriaService);
@@ -82,17 +134,120 @@ public class Main {
                 case 18 -> consultarValorTotalVendido(vendaService);
                 case 19 -> consultarRelatorioVendas(vendaService);
                 case 20 -> consultarRelatorioFinanceiro(vendaService);
+                case 21 -> consultarProdutosMaisVendidos(vendaService);
+                case 22 -> consultarMelhoresClientes(vendaService);
+                case 23 -> consultarSerieDeVendas(vendaService);
+                case 24 -> consultarEstatisticasDeConsultas();
+                case 25 -> cadastrarCliente(clienteService);
+                case 26 -> consultarClientePorCpf(clienteService);
+                case 27 -> System.out.println(clienteService.estatisticasDoFiltroDeCpfs());
+                case 28 -> consultarProdutosCompradosJuntos(produtoService);
+                case 29 -> consultarEstimativasDeVendas(vendaService);
+                case 30 -> reajustarPrecosDaCategoria(produtoService);
+                case 31 -> consultarAlteracoesDePreco(produtoService);
+                case 32 -> reporEstoque(produtoService);
                 case 0 -> continuar = false;
                 default -> System.out.println("Opção inválida!");
             }
         }
 
-        em.close();
-        emf.close();
+        if (em != null) {
+            TarefasPeriodicas.encerrar(cargaInicial, true);
+            contadoresDeVendas.close();
+            controleDeEstoque.close();
+            esbocosDeVendas.close();
+            arquivamentoDePedidos.close();
+            expurgoDePedidosExcluidos.close();
+            roteador.close();
+            em.close();
+        }
+        JPAUtil.fechar();
         System.out.println("Programa encerrado.");
 
     }
 
+    private static void conectar() {
+        em = JPAUtil.getEntityManager();
+        categoriaService = new CategoriaService(em);
+        clienteService = new ClienteService(em);
+        // Um só roteador para os três services: uma escrita de qualquer um deles faz as leituras seguintes de
+        // todos irem ao primário enquanto a réplica (se configurada) pode estar atrasada.
+        roteador = JPAUtil.criarRoteadorDeLeitura(em);
+        produtoService = new ProdutoService(roteador);
+        pedidoService = new PedidoService(roteador);
+        vendaService = new VendaService(roteador);
+
+        // A mesma tabela nos dois services: o de produtos a mantém atualizada e o de pedidos a consulta.
+        tabelaDePrecos = new TabelaDePrecos();
+        produtoService.setTabelaDePrecos(tabelaDePrecos);
+        pedidoService.setTabelaDePrecos(tabelaDePrecos);
+    }
+
+    /* Componentes que leem o banco inteiro na partida e as tarefas agendadas. As cargas rodam em segundo plano
+       e o menu fica disponível na hora: até o fim de cada uma, os relatórios vêm do banco, o cadastro confere
+       todo CPF no banco, as recomendações saem incompletas e as estimativas ficam indisponíveis. */
+    private static void iniciarComponentesEmMemoria() {
+        EntityManagerFactory emf = JPAUtil.getEntityManagerFactory();
+
+        // Totais de vendas em memória: atualizados a cada pedido e conferidos com o banco a cada 10 minutos.
+        contadoresDeVendas = new ContadoresDeVendas(emf, Duration.ofMinutes(10));
+        pedidoService.setContadoresDeVendas(contadoresDeVendas);
+        vendaService.setContadoresDeVendas(contadoresDeVendas);
+        contadoresDeVendas.iniciar();
+
+        // Reservas de estoque em memória: gravadas no banco a cada segundo e conferidas com ele a cada 5 minutos.
+        controleDeEstoque = new ControleDeEstoque(emf, Duration.ofSeconds(1), Duration.ofMinutes(5));
+        pedidoService.setControleDeEstoque(controleDeEstoque);
+        produtoService.setControleDeEstoque(controleDeEstoque);
+        controleDeEstoque.iniciar();
+
+        // "Comprados juntos": pares de produtos contados uma vez na partida e atualizados a cada pedido gravado.
+        CoocorrenciaDeProdutos coocorrencia = new CoocorrenciaDeProdutos();
+        produtoService.setCoocorrencia(coocorrencia);
+        pedidoService.setCoocorrencia(coocorrencia);
+
+        // Esboços diários (clientes distintos, pedidos e produtos mais vendidos), gravados a cada 5 minutos.
+        esbocosDeVendas = new EsbocosDeVendas(emf, Duration.ofMinutes(5));
+        pedidoService.setEsbocosDeVendas(esbocosDeVendas);
+        vendaService.setEsbocosDeVendas(esbocosDeVendas);
+        esbocosDeVendas.iniciar();
+
+        // Pedidos com mais de um ano vão para as tabelas arquivadas todo dia, das 2h às 5h, em lotes de 500.
+        arquivamentoDePedidos = new ArquivamentoDePedidos(emf, Period.ofYears(1), 500, Duration.ofMillis(200));
+        arquivamentoDePedidos.agendar(LocalTime.of(2, 0), LocalTime.of(5, 0));
+
+        // A exclusão de um pedido só o marca; as linhas marcadas são apagadas a cada 10 minutos, em lotes de 500.
+        expurgoDePedidosExcluidos = new ExpurgoDePedidosExcluidos(emf, 500, Duration.ofMillis(200));
+        expurgoDePedidosExcluidos.agendar(Duration.ofMinutes(10));
+
+        // Filtro de Bloom dos CPFs (o cadastro de um CPF novo dispensa a consulta ao banco) e coocorrência, num
+        // thread e num EntityManager próprios.
+        cargaInicial = TarefasPeriodicas.criarAgendador("carga-inicial");
+        cargaInicial.execute(TarefasPeriodicas.registrandoFalhas("carga do filtro de CPFs e da coocorrência", () -> {
+            EntityManager emDaCarga = emf.createEntityManager();
+            try {
+                clienteService.reconstruirFiltroDeCpfs(emDaCarga);
+                coocorrencia.carregar(emDaCarga);
+            } finally {
+                emDaCarga.close();
+            }
+        }));
+    }
+
+    /* Execução curta e não interativa: inicializa o JPA, faz uma consulta e termina, informando o tempo
+       desde a partida da JVM até a primeira consulta. Serve para medir a inicialização e para gerar o
+       arquivo de classes compartilhadas (AppCDS) no perfil "inicio-rapido" do Maven; por isso não inicia os
+       componentes em memória nem as tarefas agendadas, que leriam o banco inteiro. */
+    private static void executarTreino() {
+        conectar();
+        categoriaService.buscarTodosAsCategorias();
+        long tempo = ManagementFactory.getRuntimeMXBean().getUptime();
+        System.out.println("Tempo até a primeira consulta: " + tempo + " ms");
+        roteador.close();
+        em.close();
+        JPAUtil.fechar();
+    }
+
     private static void cadastrarCategoria(CategoriaService categoriaService) {
         System.out.print("Digite o nome da categoria: ");
         String nome = scanner.nextLine();
@@ -150,6 +305,9 @@ public class Main {
         System.out.print("Digite o preço do produto: ");
         BigDecimal preco = scanner.nextBigDecimal();
         scanner.nextLine();
+        System.out.print("Digite o estoque inicial do produto: ");
+        long estoque = scanner.nextLong();
+        scanner.nextLine();
         System.out.print("Digite o ID da categoria: ");
         Long categoriaId = scanner.nextLong();
         scanner.nextLine();
@@ -157,6 +315,7 @@ public class Main {
 
         if (categoria != null) {
             Produto produto = new Produto(nome, descricao, preco, categoria);
+            produto.setEstoque(estoque);
             produtoService.inserir(produto);
             System.out.println("Produto cadastrado com sucesso!");
         } else {
@@ -241,7 +400,8 @@ public class Main {
 
         Cliente cliente = em.find(Cliente.class, clienteId);
         if (cliente != null) {
-            Pedido pedido = new Pedido(cliente);
+            // Os itens guardam só o ID do produto; o preço vem da tabela de preços, sem carregar o produto.
+            List<ItemPedidoVo> itens = new ArrayList<>();
 
             boolean adicionarProduto;
             do {
@@ -249,15 +409,12 @@ public class Main {
                 Long produtoId = scanner.nextLong();
                 scanner.nextLine(); // consumir nova linha
 
-                Produto produto = produtoService.buscarProdutoPorId(produtoId);
-                if (produto != null) {
+                if (!tabelaDePrecos.precos(List.of(produtoId), em).isEmpty()) {
                     System.out.print("Digite a quantidade do produto: ");
                     int quantidade = scanner.nextInt();
                     scanner.nextLine(); // consumir nova linha
 
-                    PedidoItem pedidoItem = new PedidoItem(quantidade, pedido, produto);
-
-                    pedido.adicionarItem(pedidoItem);
+                    itens.add(new ItemPedidoVo(produtoId, quantidade));
                 } else {
                     System.out.println("Produto não encontrado.");
                 }
@@ -266,8 +423,16 @@ public class Main {
                 adicionarProduto = scanner.nextLine().equalsIgnoreCase("s");
             } while (adicionarProduto);
 
-            pedidoService.inserir(pedido);
-            System.out.println("Pedido cadastrado com sucesso!");
+            if (!itens.isEmpty()) {
+                try {
+                    pedidoService.inserirPorIds(clienteId, itens);
+                    System.out.println("Pedido cadastrado com sucesso!");
+                } catch (EstoqueInsuficienteException e) {
+                    System.out.println(e.getMessage());
+                }
+            } else {
+                System.out.println("Pedido sem itens não foi cadastrado.");
+            }
         }else{
             System.out.println("Cliente não encontrado.");
         }
@@ -321,7 +486,9 @@ public class Main {
         scanner.nextLine();
 
         Pedido pedido = pedidoService.buscarPedidoPorId(pedidoId);
-        if (pedido != null) {
+        if (pedido != null && pedido.isArquivado()) {
+            System.out.println("Pedido arquivado: disponível apenas para consulta.");
+        } else if (pedido != null) {
             System.out.print("Digite o ID do item do pedido que deseja alterar a quantidade: ");
             Long itemPedidoId = scanner.nextLong();
             scanner.nextLine();
@@ -337,8 +504,14 @@ public class Main {
                     pedido.removerItem(item);
                     item.setQuantidade(quantidade);
                     pedido.adicionarItem(item);
-                    pedidoService.alterar(pedido);
-                    System.out.println("Quantidade alterada com sucesso! ");
+                    try {
+                        pedidoService.alterar(pedido);
+                        System.out.println("Quantidade alterada com sucesso! ");
+                    } catch (EstoqueInsuficienteException e) {
+                        // Nada foi gravado: o pedido volta ao estado do banco para não ir num flush seguinte.
+                        em.refresh(pedido);
+                        System.out.println(e.getMessage());
+                    }
                     encontrou = true;
                     break;
                 }
@@ -358,7 +531,9 @@ public class Main {
         scanner.nextLine();
 
         Pedido pedido = pedidoService.buscarPedidoPorId(pedidoId);
-        if (pedido != null) {
+        if (pedido != null && pedido.isArquivado()) {
+            System.out.println("Pedido arquivado: disponível apenas para consulta.");
+        } else if (pedido != null) {
             System.out.print("Digite o ID do item do pedido que deseja excluir: ");
             Long itemPedidoId = scanner.nextLong();
             scanner.nextLine();
@@ -405,4 +580,170 @@ public class Main {
         System.out.println("Relatório Financeiro:");
         relatorioFinanceiro.forEach(System.out::println);
     }
-}
\ No newline at end of file
+
+    private static void consultarProdutosMaisVendidos(VendaService vendaService){
+        System.out.print("Quantos produtos deseja exibir? ");
+        int limite = scanner.nextInt();
+        scanner.nextLine();
+        System.out.print("Digite a data de início (yyyy-MM-dd) ou deixe em branco para todo o período: ");
+        String inicio = scanner.nextLine();
+
+        List<RelatorioDeVendasVo> ranking;
+        if (inicio.isBlank()) {
+            ranking = vendaService.retornaProdutosMaisVendidos(limite);
+        } else {
+            System.out.print("Digite a data de fim (yyyy-MM-dd): ");
+            LocalDate dataFim = LocalDate.parse(scanner.nextLine(), DateTimeFormatter.ISO_LOCAL_DATE);
+            ranking = vendaService.retornaProdutosMaisVendidos(
+                    LocalDate.parse(inicio, DateTimeFormatter.ISO_LOCAL_DATE), dataFim, limite);
+        }
+        System.out.println("Produtos mais vendidos:");
+        ranking.forEach(System.out::println);
+    }
+
+    private static void consultarMelhoresClientes(VendaService vendaService){
+        System.out.print("Quantos clientes deseja exibir? ");
+        int limite = scanner.nextInt();
+        scanner.nextLine();
+        System.out.print("Digite a data de início (yyyy-MM-dd) ou deixe em branco para todo o período: ");
+        String inicio = scanner.nextLine();
+
+        List<RelatorioFinanceiroVo> ranking;
+        if (inicio.isBlank()) {
+            ranking = vendaService.retornaMelhoresClientes(limite);
+        } else {
+            System.out.print("Digite a data de fim (yyyy-MM-dd): ");
+            LocalDate dataFim = LocalDate.parse(scanner.nextLine(), DateTimeFormatter.ISO_LOCAL_DATE);
+            ranking = vendaService.retornaMelhoresClientes(
+                    LocalDate.parse(inicio, DateTimeFormatter.ISO_LOCAL_DATE), dataFim, limite);
+        }
+        System.out.println("Melhores clientes:");
+        ranking.forEach(System.out::println);
+    }
+
+    private static void consultarSerieDeVendas(VendaService vendaService){
+        System.out.print("Digite a data de início (yyyy-MM-dd) do período de consulta: ");
+        LocalDate dataInicio = LocalDate.parse(scanner.nextLine(), DateTimeFormatter.ISO_LOCAL_DATE);
+        System.out.print("Digite a data de fim (yyyy-MM-dd)  do período de consulta: ");
+        LocalDate dataFim = LocalDate.parse(scanner.nextLine(), DateTimeFormatter.ISO_LOCAL_DATE);
+        System.out.print("Agrupar por (DIA, SEMANA ou MES): ");
+        Granularidade granularidade = Granularidade.valueOf(scanner.nextLine().trim().toUpperCase());
+        System.out.print("Detalhar por categoria? (s/n): ");
+        boolean porCategoria = scanner.nextLine().equalsIgnoreCase("s");
+
+        System.out.println("Série de Vendas:");
+        try (Stream<SerieDeVendasVo> serie = porCategoria
+                ? vendaService.retornaSerieDeVendasPorCategoria(dataInicio, dataFim, granularidade)
+                : vendaService.retornaSerieDeVendas(dataInicio, dataFim, granularidade)) {
+            serie.forEach(System.out::println);
+        }
+    }
+
+    private static void consultarEstatisticasDeConsultas(){
+        if (!JPAUtil.ESTATISTICAS) {
+            System.out.println("Estatísticas desligadas: execute com -Dvendas.estatisticas=true.");
+            return;
+        }
+        System.out.println(EstatisticasDeConsultas.cacheDePlanos(JPAUtil.getEntityManagerFactory()));
+    }
+
+    private static void cadastrarCliente(ClienteService clienteService) {
+        System.out.print("Digite o nome do cliente: ");
+        String nome = scanner.nextLine();
+        System.out.print("Digite o CPF do cliente: ");
+        String cpf = scanner.nextLine();
+
+        try {
+            Cliente cliente = new Cliente(nome, cpf);
+            clienteService.inserir(cliente);
+            System.out.println("Cliente cadastrado com sucesso! ID: " + cliente.getId());
+        } catch (CpfJaCadastradoException e) {
+            System.out.println(e.getMessage());
+        }
+    }
+
+    private static void consultarClientePorCpf(ClienteService clienteService) {
+        System.out.print("Digite o CPF do cliente: ");
+        String cpf = scanner.nextLine();
+
+        Cliente cliente = clienteService.buscarClientePorCpf(cpf);
+        if (cliente != null) {
+            System.out.println("Cliente encontrado: ID " + cliente.getId() + ", " + cliente.getNome());
+        } else {
+            System.out.println("Cliente não encontrado.");
+        }
+    }
+
+    private static void consultarProdutosCompradosJuntos(ProdutoService produtoService) {
+        System.out.print("Digite o ID do produto: ");
+        long id = scanner.nextLong();
+        System.out.print("Quantas recomendações deseja exibir? ");
+        int k = scanner.nextInt();
+        scanner.nextLine();
+
+        List<RecomendacaoVo> recomendacoes = produtoService.recomendarPara(id, k);
+        if (recomendacoes.isEmpty()) {
+            System.out.println("Nenhum produto comprado junto com este.");
+        }
+        for (RecomendacaoVo recomendacao : recomendacoes) {
+            System.out.println(recomendacao);
+        }
+    }
+
+    private static void consultarEstimativasDeVendas(VendaService vendaService) {
+        System.out.print("Digite a data de início (yyyy-MM-dd): ");
+        LocalDate dataIni = LocalDate.parse(scanner.nextLine(), DateTimeFormatter.ISO_LOCAL_DATE);
+        System.out.print("Digite a data de fim (yyyy-MM-dd): ");
+        LocalDate dataFim = LocalDate.parse(scanner.nextLine(), DateTimeFormatter.ISO_LOCAL_DATE);
+
+        if (esbocosDeVendas.isEmCarga()) {
+            System.out.println("Os esboços de vendas ainda estão sendo carregados; tente novamente em instantes.");
+            return;
+        }
+        System.out.println("Clientes distintos: " + vendaService.estimarClientesDistintos(dataIni, dataFim));
+        System.out.println("Pedidos: " + vendaService.estimarQuantidadeDePedidos(dataIni, dataFim));
+        System.out.println("Produtos mais vendidos (unidades):");
+        for (EstimativaVo produto : vendaService.estimarProdutosMaisVendidos(dataIni, dataFim, 10)) {
+            System.out.println(produto);
+        }
+    }
+
+    private static void reajustarPrecosDaCategoria(ProdutoService produtoService) {
+        System.out.print("Digite o ID da categoria: ");
+        long idCategoria = scanner.nextLong();
+        System.out.print("Digite o percentual de reajuste (negativo para reduzir): ");
+        BigDecimal percentual = scanner.nextBigDecimal();
+        scanner.nextLine();
+
+        System.out.println(produtoService.reajustarPrecosDaCategoria(idCategoria, percentual));
+    }
+
+    private static void consultarAlteracoesDePreco(ProdutoService produtoService) {
+        System.out.print("Digite a data de início (yyyy-MM-dd): ");
+        LocalDate dataIni = LocalDate.parse(scanner.nextLine(), DateTimeFormatter.ISO_LOCAL_DATE);
+        System.out.print("Digite a data de fim (yyyy-MM-dd): ");
+        LocalDate dataFim = LocalDate.parse(scanner.nextLine(), DateTimeFormatter.ISO_LOCAL_DATE);
+
+        List<AlteracaoDePrecoVo> alteracoes = produtoService.buscarAlteracoesDePreco(dataIni, dataFim);
+        if (alteracoes.isEmpty()) {
+            System.out.println("Nenhuma alteração de preço no período.");
+        }
+        for (AlteracaoDePrecoVo alteracao : alteracoes) {
+            System.out.println(alteracao);
+        }
+    }
+
+    private static void reporEstoque(ProdutoService produtoService) {
+        System.out.print("Digite o ID do produto: ");
+        long idProduto = scanner.nextLong();
+        System.out.print("Digite a quantidade recebida: ");
+        long quantidade = scanner.nextLong();
+        scanner.nextLine();
+
+        if (produtoService.reporEstoque(idProduto, quantidade)) {
+            System.out.println("Estoque reposto com sucesso!");
+        } else {
+            System.out.println("Produto não encontrado.");
+        }
+    }
+}
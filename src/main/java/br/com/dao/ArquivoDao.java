@@ -0,0 +1,312 @@
+package br.com.dao;
+
+import br.com.exception.DataAccessException;
+import br.com.model.MarcaDeArquivamento;
+import br.com.model.Pedido;
+import br.com.model.PedidoArquivado;
+import br.com.vo.RelatorioDeVendasVo;
+import br.com.vo.RelatorioFinanceiroVo;
+import br.com.vo.VendaDiariaVo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/* Acesso às tabelas de pedidos arquivados (ver PedidoArquivado) e à data de corte do arquivamento.
+   Usado pelo PedidoDao e pelo VendaDAO para completar as consultas, e pelo ArquivamentoDePedidos para mover os
+   lotes. A data de corte fica em memória, uma por EntityManagerFactory, compartilhada por todos os DAOs: as
+   consultas não vão ao banco para lê-la. avancarCorte a atualiza na hora, e ela é relida do banco quando tem mais de
+   VALIDADE_DO_CORTE, para enxergar o corte avançado por outro processo. */
+public class ArquivoDao {
+
+    // Idade máxima do corte em memória. Quem avança o corte espera esse tempo antes de mover pedidos (ver
+    // ArquivamentoDePedidos), para que nenhum processo consulte só a tabela ativa com um corte antigo.
+    public static final Duration VALIDADE_DO_CORTE = Duration.ofSeconds(1);
+
+    // Corte (null: nada arquivado) e o instante da leitura, em System.nanoTime().
+    private record CorteLido(LocalDate data, long lidoEm) {
+    }
+
+    private static final Map<EntityManagerFactory, CorteLido> cortes = new ConcurrentHashMap<>();
+
+    private EntityManager em;
+
+    public ArquivoDao(EntityManager em) {
+        this.em = em;
+    }
+
+    // Null enquanto nada tiver sido arquivado. Vem da memória; só vai ao banco se a leitura anterior expirou.
+    public LocalDate dataDeCorte() {
+        CorteLido lido = cortes.get(em.getEntityManagerFactory());
+        if (lido != null && System.nanoTime() - lido.lidoEm() < VALIDADE_DO_CORTE.toNanos()) {
+            return lido.data();
+        }
+        return lerCorte();
+    }
+
+    // O arquivo só precisa ser lido se o período começa antes do corte (dataIni nula: período sem início).
+    public boolean alcancaArquivo(LocalDate dataIni) {
+        LocalDate corte = dataDeCorte();
+        return corte != null && (dataIni == null || dataIni.isBefore(corte));
+    }
+
+    public Pedido buscarPorId(Long id) {
+        try{
+            List<PedidoArquivado> pedidos = em.createNamedQuery("Arquivo.buscarPorId", PedidoArquivado.class)
+                .setParameter("id", id)
+                .getResultList();
+            return pedidos.isEmpty() ? null : pedidos.get(0).paraPedido();
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao buscar o pedido arquivado: " + id, e);
+        }
+    }
+
+    public List<Pedido> buscarPedidosPorPeriodo(LocalDate dataIni, LocalDate dataFim) {
+        try{
+            return em.createNamedQuery("Arquivo.buscarPedidosPorPeriodo", PedidoArquivado.class)
+                .setParameter("dataIni", dataIni)
+                .setParameter("dataFim", dataFim)
+                .getResultStream()
+                .map(PedidoArquivado::paraPedido)
+                .toList();
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao buscar pedidos arquivados por período", e);
+        }
+    }
+
+    public List<Pedido> buscarPedidosDeUmCliente(Long id) {
+        try{
+            return em.createNamedQuery("Arquivo.buscarPedidosDeUmCliente", PedidoArquivado.class)
+                .setParameter("id", id)
+                .getResultStream()
+                .map(PedidoArquivado::paraPedido)
+                .toList();
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao buscar pedidos arquivados do cliente", e);
+        }
+    }
+
+    // Variantes que percorrem o cursor da consulta: o chamador deve fechar o Stream.
+    public Stream<Pedido> percorrerPedidosPorPeriodo(LocalDate dataIni, LocalDate dataFim) {
+        try{
+            return em.createNamedQuery("Arquivo.buscarPedidosPorPeriodo", PedidoArquivado.class)
+                .setParameter("dataIni", dataIni)
+                .setParameter("dataFim", dataFim)
+                .getResultStream()
+                .map(PedidoArquivado::paraPedido);
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao percorrer pedidos arquivados por período", e);
+        }
+    }
+
+    public Stream<Pedido> percorrerPedidosDeUmCliente(Long id) {
+        try{
+            return em.createNamedQuery("Arquivo.buscarPedidosDeUmCliente", PedidoArquivado.class)
+                .setParameter("id", id)
+                .getResultStream()
+                .map(PedidoArquivado::paraPedido);
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao percorrer pedidos arquivados do cliente", e);
+        }
+    }
+
+    public BigDecimal valorTotalVendidoEmUmPeriodo(LocalDate dataIni, LocalDate dataFim) {
+        try{
+            BigDecimal total = em.createNamedQuery("Arquivo.valorTotalVendidoEmUmPeriodo", BigDecimal.class)
+                .setParameter("dataIni", dataIni)
+                .setParameter("dataFim", dataFim)
+                .getSingleResult();
+            return total == null ? BigDecimal.ZERO : total;
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao retornar o valor total arquivado em um período", e);
+        }
+    }
+
+    public List<RelatorioDeVendasVo> relatorioDeVendas(LocalDate dataIni, LocalDate dataFim) {
+        return relatorioDeVendas(dataIni, dataFim, Integer.MAX_VALUE);
+    }
+
+    // Relatórios em ordem de ranking, limitados pelo banco (setMaxResults): as primeiras linhas do top N mesclado.
+    public List<RelatorioDeVendasVo> relatorioDeVendas(LocalDate dataIni, LocalDate dataFim, int limite) {
+        try{
+            if (dataIni == null) {
+                return em.createNamedQuery("Arquivo.relatorioDeVendas", RelatorioDeVendasVo.class)
+                    .setMaxResults(limite)
+                    .getResultList();
+            }
+            return em.createNamedQuery("Arquivo.relatorioDeVendasNoPeriodo", RelatorioDeVendasVo.class)
+                .setParameter("dataIni", dataIni)
+                .setParameter("dataFim", dataFim)
+                .setMaxResults(limite)
+                .getResultList();
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao retornar o relatório de vendas arquivadas", e);
+        }
+    }
+
+    public List<RelatorioDeVendasVo> relatorioDeVendasDosProdutos(Collection<Long> ids, LocalDate dataIni, LocalDate dataFim) {
+        try{
+            if (dataIni == null) {
+                return em.createNamedQuery("Arquivo.relatorioDeVendasDosProdutos", RelatorioDeVendasVo.class)
+                    .setParameter("ids", ids)
+                    .getResultList();
+            }
+            return em.createNamedQuery("Arquivo.relatorioDeVendasDosProdutosNoPeriodo", RelatorioDeVendasVo.class)
+                .setParameter("ids", ids)
+                .setParameter("dataIni", dataIni)
+                .setParameter("dataFim", dataFim)
+                .getResultList();
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao retornar as vendas arquivadas dos produtos", e);
+        }
+    }
+
+    public List<RelatorioFinanceiroVo> relatorioFinanceiro(LocalDate dataIni, LocalDate dataFim) {
+        return relatorioFinanceiro(dataIni, dataFim, Integer.MAX_VALUE);
+    }
+
+    public List<RelatorioFinanceiroVo> relatorioFinanceiro(LocalDate dataIni, LocalDate dataFim, int limite) {
+        try{
+            if (dataIni == null) {
+                return em.createNamedQuery("Arquivo.relatorioFinanceiro", RelatorioFinanceiroVo.class)
+                    .setMaxResults(limite)
+                    .getResultList();
+            }
+            return em.createNamedQuery("Arquivo.relatorioFinanceiroNoPeriodo", RelatorioFinanceiroVo.class)
+                .setParameter("dataIni", dataIni)
+                .setParameter("dataFim", dataFim)
+                .setMaxResults(limite)
+                .getResultList();
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao retornar o relatório financeiro arquivado", e);
+        }
+    }
+
+    public List<RelatorioFinanceiroVo> relatorioFinanceiroDosClientes(Collection<Long> ids, LocalDate dataIni, LocalDate dataFim) {
+        try{
+            if (dataIni == null) {
+                return em.createNamedQuery("Arquivo.relatorioFinanceiroDosClientes", RelatorioFinanceiroVo.class)
+                    .setParameter("ids", ids)
+                    .getResultList();
+            }
+            return em.createNamedQuery("Arquivo.relatorioFinanceiroDosClientesNoPeriodo", RelatorioFinanceiroVo.class)
+                .setParameter("ids", ids)
+                .setParameter("dataIni", dataIni)
+                .setParameter("dataFim", dataFim)
+                .getResultList();
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao retornar o relatório financeiro arquivado dos clientes", e);
+        }
+    }
+
+    public List<RelatorioFinanceiroVo> totaisPorCliente() {
+        try{
+            return em.createNamedQuery("Arquivo.totaisPorCliente", RelatorioFinanceiroVo.class).getResultList();
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao retornar os totais arquivados por cliente", e);
+        }
+    }
+
+    public List<VendaDiariaVo> vendasPorDia(LocalDate dataIni, LocalDate dataFim) {
+        try{
+            return em.createNamedQuery("Arquivo.vendasPorDia", VendaDiariaVo.class)
+                .setParameter("dataIni", dataIni)
+                .setParameter("dataFim", dataFim)
+                .getResultList();
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao retornar as vendas arquivadas por dia", e);
+        }
+    }
+
+    public List<VendaDiariaVo> vendasPorDiaECategoria(LocalDate dataIni, LocalDate dataFim) {
+        try{
+            return em.createNamedQuery("Arquivo.vendasPorDiaECategoria", VendaDiariaVo.class)
+                .setParameter("dataIni", dataIni)
+                .setParameter("dataFim", dataFim)
+                .getResultList();
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao retornar as vendas arquivadas por dia e categoria", e);
+        }
+    }
+
+    /* Avança a data de corte (nunca a recua) e devolve se ela mudou. Deve acontecer antes de mover os pedidos: assim,
+       durante o arquivamento, as consultas já leem as duas tabelas para o período afetado e nenhum pedido fica de
+       fora. Depois do commit, o corte em memória é relido, e as consultas desta factory passam a usá-lo na hora. */
+    public boolean avancarCorte(LocalDate corte) {
+        boolean avancou;
+        try {
+            em.getTransaction().begin();
+            int alteradas = em.createNamedQuery("MarcaDeArquivamento.avancar")
+                .setParameter("corte", corte)
+                .executeUpdate();
+            avancou = alteradas > 0;
+            if (!avancou && em.find(MarcaDeArquivamento.class, MarcaDeArquivamento.ID) == null) {
+                em.persist(new MarcaDeArquivamento(corte));
+                avancou = true;
+            }
+            em.getTransaction().commit();
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw new DataAccessException("Erro ao avançar a data de corte do arquivamento", e);
+        }
+        lerCorte();
+        return avancou;
+    }
+
+    /* Move até "tamanho" pedidos anteriores ao corte (com os itens) para as tabelas arquivadas, numa única
+       transação: cada pedido está sempre em exatamente uma das tabelas. Devolve quantos foram movidos. */
+    public int arquivarLote(LocalDate corte, int tamanho) {
+        try {
+            em.getTransaction().begin();
+            List<Long> ids = em.createNamedQuery("Arquivo.idsParaArquivar", Long.class)
+                .setParameter("corte", corte)
+                .setMaxResults(tamanho)
+                .getResultList();
+            if (!ids.isEmpty()) {
+                em.createNamedQuery("Arquivo.copiarPedidos").setParameter("ids", ids).executeUpdate();
+                em.createNamedQuery("Arquivo.copiarItens").setParameter("ids", ids).executeUpdate();
+                em.createNamedQuery("Arquivo.excluirItens").setParameter("ids", ids).executeUpdate();
+                em.createNamedQuery("Arquivo.excluirPedidos").setParameter("ids", ids).executeUpdate();
+            }
+            em.getTransaction().commit();
+            // Pedidos movidos que estivessem carregados neste EntityManager não existem mais na tabela ativa.
+            em.clear();
+            return ids.size();
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw new DataAccessException("Erro ao arquivar um lote de pedidos anteriores a " + corte, e);
+        }
+    }
+
+    /* Lê o corte do banco e o guarda em memória. O corte nunca recua: se outra leitura, feita antes de um avanço,
+       terminar depois dele, fica o maior dos dois. Desanexado, para que a próxima leitura volte ao banco. */
+    private LocalDate lerCorte() {
+        LocalDate data;
+        try{
+            MarcaDeArquivamento marca = em.find(MarcaDeArquivamento.class, MarcaDeArquivamento.ID);
+            data = marca == null ? null : marca.getDataDeCorte();
+            if (marca != null) {
+                em.detach(marca);
+            }
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao ler a data de corte do arquivamento", e);
+        }
+        CorteLido lido = new CorteLido(data, System.nanoTime());
+        // Factories fechadas não consultam mais: saem do mapa.
+        cortes.keySet().removeIf(emf -> !emf.isOpen());
+        return cortes.merge(em.getEntityManagerFactory(), lido, (atual, novo) ->
+                atual.data() != null && (novo.data() == null || atual.data().isAfter(novo.data()))
+                        ? new CorteLido(atual.data(), novo.lidoEm()) : novo).data();
+    }
+}
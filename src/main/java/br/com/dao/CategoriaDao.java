@@ -15,10 +15,8 @@ public class CategoriaDao extends GenericDao<Categoria>{
 	// Metodo para buscar categorias pelo nome.
 	public List<Categoria> buscarPorNome(String nome) {
 		try{
-			// Consulta JPQL para buscar categorias por nome.
-			String jpql = "SELECT c FROM Categoria c WHERE c.nome = :nome";
-
-			return em.createQuery(jpql, Categoria.class)
+			// Consulta nomeada (declarada na entidade Categoria) para buscar categorias por nome.
+			return em.createNamedQuery("Categoria.buscarPorNome", Categoria.class)
 				.setParameter("nome", nome) // Define o parâmetro "nome" na consulta.
 				.getResultList(); // Executa a consulta e retorna os resultados.
 
@@ -1,13 +1,58 @@
 package br.com.dao;
 
+import br.com.exception.DataAccessException;
 import br.com.model.Cliente;
 import jakarta.persistence.EntityManager;
 
-public class ClienteDao extends GenericDao<Cliente>{
+import java.util.List;
+import java.util.stream.Stream;
 
-	private EntityManager em;
+public class ClienteDao extends GenericDao<Cliente>{
 
 	public ClienteDao(EntityManager em) {
 		super(em, Cliente.class);
 	}
+
+	// Usa o índice único do CPF; devolve null se não houver cliente com o CPF.
+	public Cliente buscarPorCpf(String cpf) {
+		try{
+			List<Cliente> clientes = em.createNamedQuery("Cliente.buscarPorCpf", Cliente.class)
+				.setParameter("cpf", cpf)
+				.getResultList();
+			return clientes.isEmpty() ? null : clientes.get(0);
+		} catch (Exception e) {
+			throw new DataAccessException("Erro ao buscar cliente por CPF: " + cpf, e);
+		}
+	}
+
+	public long contar() {
+		try{
+			return em.createNamedQuery("Cliente.contar", Long.class).getSingleResult();
+		} catch (Exception e) {
+			throw new DataAccessException("Erro ao contar os clientes", e);
+		}
+	}
+
+	// Só o nome, sem montar a entidade; devolve null se não houver cliente com o ID.
+	public String buscarNome(Long id) {
+		try{
+			List<String> nomes = em.createNamedQuery("Cliente.nome", String.class)
+				.setParameter("id", id)
+				.getResultList();
+			return nomes.isEmpty() ? null : nomes.get(0);
+		} catch (Exception e) {
+			throw new DataAccessException("Erro ao buscar o nome do cliente: " + id, e);
+		}
+	}
+
+	// Percorre os CPFs sem montar as entidades; o stream deve ser fechado por quem o usa.
+	public Stream<String> buscarTodosOsCpfs() {
+		try{
+			return em.createNamedQuery("Cliente.cpfs", String.class)
+				.setHint("org.hibernate.fetchSize", 1000)
+				.getResultStream();
+		} catch (Exception e) {
+			throw new DataAccessException("Erro ao buscar os CPFs dos clientes", e);
+		}
+	}
 }
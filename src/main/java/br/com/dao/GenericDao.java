@@ -1,10 +1,14 @@
 package br.com.dao;
 
 import br.com.exception.DataAccessException;// Exceção personalizada
+import br.com.model.ExclusaoLogica;
+import br.com.util.UnidadeDeTrabalho;
 import jakarta.persistence.EntityManager;
 import java.util.List;
+import java.util.stream.Stream;
 
 // Classe genérica para operações CRUD no banco de dados.
+// Cada operação de escrita tem a sua própria transação, exceto dentro de uma UnidadeDeTrabalho, onde entra na dela.
 public abstract class GenericDao<T> {
 
     protected EntityManager em; // Gerenciador de entidades (JPA).
@@ -18,12 +22,9 @@ public abstract class GenericDao<T> {
     // Metodo para cadastrar uma nova entidade.
     public void cadastrar(T entity) {
         try {
-            em.getTransaction().begin();// Inicia a transação.
-            em.persist(entity);// Persiste a entidade no banco de dados.
-            em.getTransaction().commit();// Confirma a transação.
+            // Persiste a entidade no banco de dados; a transação é confirmada ou revertida pela UnidadeDeTrabalho.
+            UnidadeDeTrabalho.executar(em, () -> em.persist(entity));
         } catch (Exception e) {
-            em.getTransaction().rollback();// Reverte a transação em caso de erro.
-
             // Lança uma exceção personalizada com detalhes do erro.
             throw new DataAccessException("Erro ao cadastrar a entidade: " + entity.getClass().getSimpleName(), e);
         }
@@ -32,27 +33,48 @@ public abstract class GenericDao<T> {
     // Metodo para atualizar uma entidade existente.
     public void atualizar(T entity) {
         try {
-            em.getTransaction().begin();
-            em.merge(entity);
-            em.getTransaction().commit();
+            UnidadeDeTrabalho.executar(em, () -> em.merge(entity));
         } catch (Exception e) {
-            em.getTransaction().rollback();
             throw new DataAccessException("Erro ao atualizar a entidade: " + entity.getClass().getSimpleName(), e);
         }
     }
 
     // Metodo para remover uma entidade do banco de dados.
     public void remover(T entity) {
+        if (entity instanceof ExclusaoLogica) {
+            marcarComoExcluida(entity);
+            return;
+        }
         try {
-            em.getTransaction().begin();
-            em.remove(entity);
-            em.getTransaction().commit();
+            // A entidade pode ter sido lida por outro EntityManager (ex.: réplica de leitura): é anexada antes.
+            UnidadeDeTrabalho.executar(em, () -> em.remove(em.contains(entity) ? entity : em.merge(entity)));
         } catch (Exception e) {
-            em.getTransaction().rollback();
             throw new DataAccessException("Erro ao atualizar a entidade: " + entity.getClass().getSimpleName(), e);
         }
     }
 
+    /* Exclusão lógica: só a linha da entidade é atualizada, sem merge nem cascata sobre as associações, então o
+       custo não depende do tamanho delas. A entidade sai do contexto para que as próximas buscas já não a vejam. */
+    private void marcarComoExcluida(T entity) {
+        try {
+            T gerenciada = UnidadeDeTrabalho.executar(em, () -> {
+                Object id = em.getEntityManagerFactory().getPersistenceUnitUtil().getIdentifier(entity);
+                T encontrada = em.contains(entity) ? entity : em.find(entityClass, id);
+                if (encontrada != null) {
+                    ((ExclusaoLogica) encontrada).marcarComoExcluido();
+                }
+                return encontrada;
+            });
+            ((ExclusaoLogica) entity).marcarComoExcluido();
+            // Já gravada (pelo commit ou, numa unidade de trabalho, pelo flush): pode sair do contexto.
+            if (gerenciada != null) {
+                em.detach(gerenciada);
+            }
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao excluir a entidade: " + entity.getClass().getSimpleName(), e);
+        }
+    }
+
     // Metodo para buscar uma entidade pelo ID.
     public T buscarPorId(Long id) {
         try {
@@ -65,13 +87,20 @@ public abstract class GenericDao<T> {
     // Metodo para buscar todas as entidades de um tipo.
     public List<T> buscarTodos() {
         try {
-            // Monta uma consulta JPQL para buscar todas as entidades.
-            String jpql = "SELECT e FROM " + entityClass.getSimpleName() + " e";
-
-            return em.createQuery(jpql, entityClass).getResultList();
+            // Cada entidade declara a consulta nomeada "<Entidade>.buscarTodos", validada na inicialização.
+            return em.createNamedQuery(entityClass.getSimpleName() + ".buscarTodos", entityClass).getResultList();
 
         } catch (Exception e) {
             throw new DataAccessException("Erro ao buscar todos de: "+ entityClass.getSimpleName(), e);
         }
     }
+
+    // Como buscarTodos, mas percorrendo o cursor da consulta: o chamador deve fechar o Stream (try-with-resources).
+    public Stream<T> percorrerTodos() {
+        try {
+            return em.createNamedQuery(entityClass.getSimpleName() + ".buscarTodos", entityClass).getResultStream();
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao percorrer todos de: "+ entityClass.getSimpleName(), e);
+        }
+    }
 }
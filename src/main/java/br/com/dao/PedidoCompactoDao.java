@@ -0,0 +1,243 @@
+package br.com.dao;
+
+import br.com.exception.DataAccessException;
+import br.com.model.LinhaDePedido;
+import br.com.model.PedidoCompacto;
+import br.com.vo.RelatorioDeVendasVo;
+import br.com.vo.RelatorioFinanceiroVo;
+import br.com.vo.VendaDiariaVo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/* Acesso aos pedidos compactos (ver PedidoCompacto). Os relatórios espelham os do ArquivoDao, com os mesmos nomes
+   e o mesmo período opcional (dataIni nula: todas as datas), para que o VendaDAO os some aos da tabela ativa.
+   Os que dependem dos itens são calculados aqui, sobre a projeção normalizada (paraCadaLinha). */
+public class PedidoCompactoDao extends GenericDao<PedidoCompacto> {
+
+    // Limite de IDs por consulta "IN" na leitura dos produtos.
+    private static final int PRODUTOS_POR_CONSULTA = 500;
+
+    public PedidoCompactoDao(EntityManager em) {
+        super(em, PedidoCompacto.class);
+    }
+
+    // Recebe uma linha por item (ou uma linha com item nulo para o pedido sem itens), na ordem dos pedidos.
+    // O cliente é nulo nos pedidos sem cliente.
+    public interface ConsumidorDeLinhas {
+        void aceitar(long idPedido, LocalDate data, Long idCliente, LinhaDePedido linha);
+    }
+
+    public List<PedidoCompacto> buscarPedidosPorPeriodo(LocalDate dataIni, LocalDate dataFim) {
+        try{
+            return em.createNamedQuery("PedidoCompacto.buscarPedidosPorPeriodo", PedidoCompacto.class)
+                .setParameter("dataIni", dataIni)
+                .setParameter("dataFim", dataFim)
+                .getResultList();
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao buscar pedidos compactos por período", e);
+        }
+    }
+
+    // Dias com algum pedido compacto, em ordem.
+    public List<LocalDate> buscarDatasComPedidos() {
+        try{
+            return em.createNamedQuery("PedidoCompacto.datas", LocalDate.class).getResultList();
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao buscar os dias com pedidos compactos", e);
+        }
+    }
+
+    /* Projeção normalizada: desdobra a coluna de itens de cada pedido como se fossem linhas de pedido_itens.
+       Um único SELECT, sem montar entidades; as linhas são convertidas à medida que o cursor avança. */
+    public void paraCadaLinha(LocalDate dataIni, LocalDate dataFim, ConsumidorDeLinhas consumidor) {
+        TypedQuery<Object[]> consulta = dataIni == null
+                ? em.createNamedQuery("PedidoCompacto.linhas", Object[].class)
+                : em.createNamedQuery("PedidoCompacto.linhasDoPeriodo", Object[].class)
+                    .setParameter("dataIni", dataIni)
+                    .setParameter("dataFim", dataFim);
+        try (Stream<Object[]> pedidos = consulta.getResultStream()) {
+            pedidos.forEach(pedido -> {
+                long idPedido = (Long) pedido[0];
+                LocalDate data = (LocalDate) pedido[1];
+                Long idCliente = (Long) pedido[2];
+                @SuppressWarnings("unchecked")
+                List<LinhaDePedido> linhas = (List<LinhaDePedido>) pedido[3];
+                if (linhas == null || linhas.isEmpty()) {
+                    consumidor.aceitar(idPedido, data, idCliente, null);
+                    return;
+                }
+                for (LinhaDePedido linha : linhas) {
+                    consumidor.aceitar(idPedido, data, idCliente, linha);
+                }
+            });
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao percorrer os itens dos pedidos compactos", e);
+        }
+    }
+
+    public BigDecimal valorTotalVendidoEmUmPeriodo(LocalDate dataIni, LocalDate dataFim) {
+        try{
+            BigDecimal total = em.createNamedQuery("PedidoCompacto.valorTotalVendidoEmUmPeriodo", BigDecimal.class)
+                .setParameter("dataIni", dataIni)
+                .setParameter("dataFim", dataFim)
+                .getSingleResult();
+            return total == null ? BigDecimal.ZERO : total;
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao retornar o valor total dos pedidos compactos em um período", e);
+        }
+    }
+
+    public List<RelatorioDeVendasVo> relatorioDeVendas(LocalDate dataIni, LocalDate dataFim) {
+        Map<Long, long[]> unidadesPorProduto = new LinkedHashMap<>();
+        Map<Long, LocalDate> ultimaVenda = new HashMap<>();
+        paraCadaLinha(dataIni, dataFim, (idPedido, data, idCliente, linha) -> {
+            if (linha == null) {
+                return;
+            }
+            unidadesPorProduto.computeIfAbsent(linha.idProduto(), id -> new long[1])[0] += linha.quantidade();
+            ultimaVenda.merge(linha.idProduto(), data, (a, b) -> a.isAfter(b) ? a : b);
+        });
+        Map<Long, Object[]> produtos = produtos(unidadesPorProduto.keySet());
+        List<RelatorioDeVendasVo> relatorio = new ArrayList<>(unidadesPorProduto.size());
+        unidadesPorProduto.forEach((idProduto, unidades) -> relatorio.add(new RelatorioDeVendasVo(idProduto,
+                nome(produtos.get(idProduto), 1), unidades[0], ultimaVenda.get(idProduto))));
+        return relatorio;
+    }
+
+    public List<RelatorioFinanceiroVo> relatorioFinanceiro(LocalDate dataIni, LocalDate dataFim) {
+        return relatorioFinanceiro(dataIni, dataFim, Integer.MAX_VALUE);
+    }
+
+    public List<RelatorioFinanceiroVo> relatorioFinanceiro(LocalDate dataIni, LocalDate dataFim, int limite) {
+        try{
+            if (dataIni == null) {
+                return em.createNamedQuery("PedidoCompacto.relatorioFinanceiro", RelatorioFinanceiroVo.class)
+                    .setMaxResults(limite)
+                    .getResultList();
+            }
+            return em.createNamedQuery("PedidoCompacto.relatorioFinanceiroNoPeriodo", RelatorioFinanceiroVo.class)
+                .setParameter("dataIni", dataIni)
+                .setParameter("dataFim", dataFim)
+                .setMaxResults(limite)
+                .getResultList();
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao retornar o relatório financeiro dos pedidos compactos", e);
+        }
+    }
+
+    public List<RelatorioFinanceiroVo> relatorioFinanceiroDosClientes(Collection<Long> ids, LocalDate dataIni, LocalDate dataFim) {
+        try{
+            if (dataIni == null) {
+                return em.createNamedQuery("PedidoCompacto.relatorioFinanceiroDosClientes", RelatorioFinanceiroVo.class)
+                    .setParameter("ids", ids)
+                    .getResultList();
+            }
+            return em.createNamedQuery("PedidoCompacto.relatorioFinanceiroDosClientesNoPeriodo", RelatorioFinanceiroVo.class)
+                .setParameter("ids", ids)
+                .setParameter("dataIni", dataIni)
+                .setParameter("dataFim", dataFim)
+                .getResultList();
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao retornar o relatório financeiro dos pedidos compactos dos clientes", e);
+        }
+    }
+
+    public List<RelatorioFinanceiroVo> totaisPorCliente() {
+        try{
+            return em.createNamedQuery("PedidoCompacto.totaisPorCliente", RelatorioFinanceiroVo.class)
+                .getResultList();
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao retornar os totais por cliente dos pedidos compactos", e);
+        }
+    }
+
+    // Como em "Venda.vendasPorDia": pedidos sem itens contam como pedidos do dia, sem faturamento nem unidades.
+    public List<VendaDiariaVo> vendasPorDia(LocalDate dataIni, LocalDate dataFim) {
+        Map<LocalDate, long[]> porDia = new TreeMap<>();
+        long[] pedidoAnterior = {-1};
+        paraCadaLinha(dataIni, dataFim, (idPedido, data, idCliente, linha) -> {
+            long[] totais = porDia.computeIfAbsent(data, d -> new long[3]);
+            if (idPedido != pedidoAnterior[0]) {
+                totais[1]++;
+                pedidoAnterior[0] = idPedido;
+            }
+            if (linha != null) {
+                totais[0] += linha.precoUnitarioEmCentavos() * linha.quantidade();
+                totais[2] += linha.quantidade();
+            }
+        });
+        List<VendaDiariaVo> dias = new ArrayList<>(porDia.size());
+        porDia.forEach((data, totais) ->
+                dias.add(new VendaDiariaVo(data, BigDecimal.valueOf(totais[0], 2), totais[1], totais[2])));
+        return dias;
+    }
+
+    /* Como em "Venda.vendasPorDiaECategoria": só pedidos com itens, e cada pedido conta uma vez por categoria e dia.
+       As linhas do período ficam em memória até que as categorias dos produtos sejam lidas. */
+    public List<VendaDiariaVo> vendasPorDiaECategoria(LocalDate dataIni, LocalDate dataFim) {
+        List<Object[]> itens = new ArrayList<>();
+        paraCadaLinha(dataIni, dataFim, (idPedido, data, idCliente, linha) -> {
+            if (linha != null) {
+                itens.add(new Object[]{idPedido, data, linha});
+            }
+        });
+        List<Long> idsProdutos = itens.stream().map(item -> ((LinhaDePedido) item[2]).idProduto()).distinct().toList();
+        Map<Long, Object[]> produtos = produtos(idsProdutos);
+
+        Map<List<Object>, long[]> porDiaECategoria = new HashMap<>();
+        Map<List<Object>, String> nomes = new HashMap<>();
+        Map<List<Object>, Long> pedidoAnterior = new HashMap<>();
+        for (Object[] item : itens) {
+            LinhaDePedido linha = (LinhaDePedido) item[2];
+            Object[] produto = produtos.get(linha.idProduto());
+            Long idCategoria = produto == null ? null : (Long) produto[2];
+            List<Object> chave = Arrays.asList(item[1], idCategoria);
+            long[] totais = porDiaECategoria.computeIfAbsent(chave, c -> new long[3]);
+            nomes.putIfAbsent(chave, nome(produto, 3));
+            if (!item[0].equals(pedidoAnterior.put(chave, (Long) item[0]))) {
+                totais[1]++;
+            }
+            totais[0] += linha.precoUnitarioEmCentavos() * linha.quantidade();
+            totais[2] += linha.quantidade();
+        }
+        List<VendaDiariaVo> dias = new ArrayList<>(porDiaECategoria.size());
+        porDiaECategoria.forEach((chave, totais) -> dias.add(new VendaDiariaVo((LocalDate) chave.get(0),
+                (Long) chave.get(1), nomes.get(chave), BigDecimal.valueOf(totais[0], 2), totais[1], totais[2])));
+        return dias;
+    }
+
+    // (ID, nome, ID da categoria, nome da categoria) de cada produto, em consultas de até PRODUTOS_POR_CONSULTA IDs.
+    private Map<Long, Object[]> produtos(Collection<Long> ids) {
+        Map<Long, Object[]> produtos = new HashMap<>();
+        List<Long> lista = new ArrayList<>(ids);
+        try{
+            for (int inicio = 0; inicio < lista.size(); inicio += PRODUTOS_POR_CONSULTA) {
+                List<Long> lote = lista.subList(inicio, Math.min(inicio + PRODUTOS_POR_CONSULTA, lista.size()));
+                for (Object[] produto : em.createNamedQuery("PedidoCompacto.produtos", Object[].class)
+                        .setParameter("ids", lote)
+                        .getResultList()) {
+                    produtos.put((Long) produto[0], produto);
+                }
+            }
+            return produtos;
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao buscar os produtos dos pedidos compactos", e);
+        }
+    }
+
+    private static String nome(Object[] produto, int coluna) {
+        return produto == null ? null : (String) produto[coluna];
+    }
+}
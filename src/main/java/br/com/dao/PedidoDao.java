@@ -3,42 +3,211 @@ package br.com.dao;
 import br.com.exception.DataAccessException;
 import br.com.model.Pedido;
 import br.com.model.PedidoItem;
+import br.com.util.MapaDeLongs;
+import br.com.util.UnidadeDeTrabalho;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.FlushModeType;
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public class PedidoDao extends GenericDao<Pedido>{
 
+	private ArquivoDao arquivoDao;
+
 	public PedidoDao(EntityManager em) {
 		super(em, Pedido.class);
+		this.arquivoDao = new ArquivoDao(em);
+	}
+
+	// Pedido fora da tabela ativa pode ter sido arquivado: só então o arquivo é consultado.
+	@Override
+	public Pedido buscarPorId(Long id) {
+		Pedido pedido = super.buscarPorId(id);
+		if (pedido == null && arquivoDao.alcancaArquivo(null)) {
+			return arquivoDao.buscarPorId(id);
+		}
+		return pedido;
 	}
 
 	public void removerItem(PedidoItem pedidoItem){
-		this.em.getTransaction().begin();
-		this.em.remove(pedidoItem);
-		this.em.getTransaction().commit();
+		UnidadeDeTrabalho.executar(this.em, () ->
+				this.em.remove(this.em.contains(pedidoItem) ? pedidoItem : this.em.merge(pedidoItem)));
+	}
+
+	// Quantidades gravadas de cada item do pedido (ID do item -> quantidade). A consulta não dispara o flush
+	// automático, para devolver o que está no banco mesmo que o pedido em memória já tenha sido alterado.
+	public Map<Long, Integer> quantidadesDosItens(Long idPedido) {
+		try{
+			Map<Long, Integer> quantidades = new HashMap<>();
+			for (Object[] linha : em.createNamedQuery("PedidoItem.quantidadesDoPedido", Object[].class)
+					.setParameter("id", idPedido)
+					.setFlushMode(FlushModeType.COMMIT)
+					.getResultList()) {
+				quantidades.put((Long) linha[0], (Integer) linha[1]);
+			}
+			return quantidades;
+		} catch (Exception e) {
+			throw new DataAccessException("Erro ao buscar as quantidades dos itens do pedido: " + idPedido, e);
+		}
+	}
+
+	// Unidades gravadas de cada produto no pedido e o valor total gravado; como em quantidadesDosItens, sem flush.
+	public Map<Long, Long> unidadesPorProduto(Long idPedido) {
+		try{
+			Map<Long, Long> unidades = new HashMap<>();
+			for (Object[] linha : em.createNamedQuery("PedidoItem.unidadesPorProdutoDoPedido", Object[].class)
+					.setParameter("id", idPedido)
+					.setFlushMode(FlushModeType.COMMIT)
+					.getResultList()) {
+				unidades.put((Long) linha[0], (Long) linha[1]);
+			}
+			return unidades;
+		} catch (Exception e) {
+			throw new DataAccessException("Erro ao buscar as unidades por produto do pedido: " + idPedido, e);
+		}
+	}
+
+	public BigDecimal valorTotalGravado(Long idPedido) {
+		try{
+			List<BigDecimal> valor = em.createNamedQuery("Pedido.valorTotalGravado", BigDecimal.class)
+					.setParameter("id", idPedido)
+					.setFlushMode(FlushModeType.COMMIT)
+					.getResultList();
+			return valor.isEmpty() || valor.get(0) == null ? BigDecimal.ZERO : valor.get(0);
+		} catch (Exception e) {
+			throw new DataAccessException("Erro ao buscar o valor total gravado do pedido: " + idPedido, e);
+		}
+	}
+
+	// Percorre os pares (ID do pedido, ID do produto) de todos os itens, agrupados por pedido, sem montar entidades.
+	public void paraCadaProdutoPorPedido(MapaDeLongs.ConsumidorDeLongs consumidor) {
+		try (Stream<Object[]> linhas = em.createNamedQuery("PedidoItem.produtosPorPedido", Object[].class)
+				.getResultStream()) {
+			linhas.forEach(linha -> consumidor.aceitar((Long) linha[0], (Long) linha[1]));
+		} catch (Exception e) {
+			throw new DataAccessException("Erro ao percorrer os produtos dos pedidos", e);
+		}
+	}
+
+	// Dias com algum pedido na tabela ativa, em ordem.
+	public List<LocalDate> buscarDatasComPedidos() {
+		try{
+			return em.createNamedQuery("Pedido.datas", LocalDate.class).getResultList();
+		} catch (Exception e) {
+			throw new DataAccessException("Erro ao buscar os dias com pedidos", e);
+		}
 	}
 
+	// Recebe uma linha por item (ou uma linha com produto nulo para o pedido sem itens).
+	public interface ConsumidorDeItens {
+		void aceitar(LocalDate data, long idPedido, long idCliente, Long idProduto, int quantidade);
+	}
+
+	// Percorre os itens dos pedidos do período (só a tabela ativa), sem montar entidades.
+	public void paraCadaItemDoPeriodo(LocalDate dataIni, LocalDate dataFim, ConsumidorDeItens consumidor) {
+		try (Stream<Object[]> linhas = em.createNamedQuery("Pedido.itensDoPeriodo", Object[].class)
+				.setParameter("dataIni", dataIni)
+				.setParameter("dataFim", dataFim)
+				.getResultStream()) {
+			linhas.forEach(linha -> consumidor.aceitar((LocalDate) linha[0], (Long) linha[1], (Long) linha[2],
+					(Long) linha[3], linha[4] == null ? 0 : (Integer) linha[4]));
+		} catch (Exception e) {
+			throw new DataAccessException("Erro ao percorrer os itens dos pedidos do período", e);
+		}
+	}
+
+	// Os pedidos arquivados (anteriores ao corte) só são lidos quando o período começa antes do corte.
 	public List<Pedido> buscarPedidosPorPeriodo(LocalDate dataIni, LocalDate dataFim) {
+		List<Pedido> ativos;
 		try{
-			String jpql = "SELECT p FROM Pedido p WHERE p.data BETWEEN :dataIni AND :dataFim";
-			return em.createQuery(jpql, Pedido.class)
+			ativos = em.createNamedQuery("Pedido.buscarPedidosPorPeriodo", Pedido.class)
 				.setParameter("dataIni", dataIni)
 				.setParameter("dataFim", dataFim)
 				.getResultList();
 		} catch (Exception e) {
 			throw new DataAccessException("Erro ao buscar pedidos por período: ", e);
 		}
+		if (!arquivoDao.alcancaArquivo(dataIni)) {
+			return ativos;
+		}
+		List<Pedido> pedidos = new ArrayList<>(arquivoDao.buscarPedidosPorPeriodo(dataIni, dataFim));
+		pedidos.addAll(ativos);
+		return pedidos;
 	}
 
+	// Sem período: o histórico completo do cliente inclui os pedidos arquivados, se houver arquivo.
 	public List<Pedido> buscarPedidosDeUmCliente(Long id) {
+		List<Pedido> ativos;
 		try{
-			String jpql = "SELECT p FROM Pedido p JOIN FETCH p.cliente WHERE p.cliente.id = :id";
-			return em.createQuery(jpql, Pedido.class)
+			ativos = em.createNamedQuery("Pedido.buscarPedidosDeUmCliente", Pedido.class)
 				.setParameter("id", id)
 				.getResultList();
 		} catch (Exception e) {
 			throw new DataAccessException("Erro ao buscar pedidos por id de cliente", e);
 		}
+		if (!arquivoDao.alcancaArquivo(null)) {
+			return ativos;
+		}
+		List<Pedido> pedidos = new ArrayList<>(arquivoDao.buscarPedidosDeUmCliente(id));
+		pedidos.addAll(ativos);
+		return pedidos;
+	}
+
+	// Mesmas consultas, percorrendo o cursor (o chamador deve fechar o Stream). Os pedidos arquivados vêm primeiro,
+	// como nas listas; os itens de cada pedido são carregados sob demanda, então o Stream deve ser percorrido
+	// dentro de uma transação (fora dela, o Hibernate fecharia o cursor na primeira carga).
+	public Stream<Pedido> percorrerPedidosPorPeriodo(LocalDate dataIni, LocalDate dataFim) {
+		// Lido antes de abrir o cursor, como em VendaDAO.vendasPorDia.
+		boolean comArquivo = arquivoDao.alcancaArquivo(dataIni);
+		Stream<Pedido> ativos;
+		try{
+			ativos = em.createNamedQuery("Pedido.buscarPedidosPorPeriodo", Pedido.class)
+				.setParameter("dataIni", dataIni)
+				.setParameter("dataFim", dataFim)
+				.getResultStream();
+		} catch (Exception e) {
+			throw new DataAccessException("Erro ao percorrer pedidos por período: ", e);
+		}
+		return comArquivo ? Stream.concat(arquivoDao.percorrerPedidosPorPeriodo(dataIni, dataFim), ativos) : ativos;
+	}
+
+	public Stream<Pedido> percorrerPedidosDeUmCliente(Long id) {
+		boolean comArquivo = arquivoDao.alcancaArquivo(null);
+		Stream<Pedido> ativos;
+		try{
+			ativos = em.createNamedQuery("Pedido.buscarPedidosDeUmCliente", Pedido.class)
+				.setParameter("id", id)
+				.getResultStream();
+		} catch (Exception e) {
+			throw new DataAccessException("Erro ao percorrer pedidos por id de cliente", e);
+		}
+		return comArquivo ? Stream.concat(arquivoDao.percorrerPedidosDeUmCliente(id), ativos) : ativos;
+	}
+
+	// Remove fisicamente até "tamanho" pedidos excluídos (com os itens) em uma transação e devolve quantos foram.
+	public int expurgarLote(int tamanho) {
+		try {
+			em.getTransaction().begin();
+			List<Long> ids = new ArrayList<>();
+			for (Object id : em.createNamedQuery("Pedido.idsExcluidos").setMaxResults(tamanho).getResultList()) {
+				ids.add(((Number) id).longValue());
+			}
+			if (!ids.isEmpty()) {
+				em.createNamedQuery("Pedido.expurgarItens").setParameter("ids", ids).executeUpdate();
+				em.createNamedQuery("Pedido.expurgarPedidos").setParameter("ids", ids).executeUpdate();
+			}
+			em.getTransaction().commit();
+			return ids.size();
+		} catch (Exception e) {
+			if (em.getTransaction().isActive()) {
+				em.getTransaction().rollback();
+			}
+			throw new DataAccessException("Erro ao expurgar um lote de pedidos excluídos", e);
+		}
 	}
 }
@@ -1,9 +1,27 @@
 package br.com.dao;
 
+import br.com.evento.IntegradorDeEventos;
 import br.com.exception.DataAccessException;
 import br.com.model.Produto;
+import br.com.util.UnidadeDeTrabalho;
+import br.com.vo.AlteracaoDePrecoVo;
 import jakarta.persistence.EntityManager;
+import org.hibernate.Session;
+import org.hibernate.engine.spi.EntityKey;
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
 
 public class ProdutoDao extends GenericDao<Produto>{
 
@@ -11,10 +29,25 @@ public class ProdutoDao extends GenericDao<Produto>{
 		super(em, Produto.class);
 	}
 
+	// O cadastro, a alteração e a exclusão gravam também o histórico de preços, na mesma transação.
+	@Override
+	public void cadastrar(Produto produto) {
+		comHistorico(produto, () -> super.cadastrar(produto));
+	}
+
+	@Override
+	public void atualizar(Produto produto) {
+		comHistorico(produto, () -> super.atualizar(produto));
+	}
+
+	@Override
+	public void remover(Produto produto) {
+		comHistorico(produto, () -> super.remover(produto));
+	}
+
 	public List<Produto> buscarPorNome(String nome) {
 		try{
-			String jpql = "SELECT p FROM Produto p WHERE p.nome = :nome";
-			return em.createQuery(jpql, Produto.class)
+			return em.createNamedQuery("Produto.buscarPorNome", Produto.class)
 				.setParameter("nome", nome)
 				.getResultList();
 		} catch (Exception e) {
@@ -22,14 +55,248 @@ public class ProdutoDao extends GenericDao<Produto>{
 		}
 	}
 
+	// Só o nome, sem montar a entidade; devolve null se não houver produto com o ID.
+	public String buscarNome(Long id) {
+		try{
+			List<String> nomes = em.createNamedQuery("Produto.nome", String.class)
+				.setParameter("id", id)
+				.getResultList();
+			return nomes.isEmpty() ? null : nomes.get(0);
+		} catch (Exception e) {
+			throw new DataAccessException("Erro ao buscar o nome do produto: " + id, e);
+		}
+	}
+
 	public List<Produto> buscarPorCategoria(long idCategoria) {
 		try{
-			String jpql = "SELECT p FROM Produto p WHERE p.categoria.id = :id";
-			return em.createQuery(jpql, Produto.class)
+			return em.createNamedQuery("Produto.buscarPorCategoria", Produto.class)
 				.setParameter("id", idCategoria)
 				.getResultList();
 		} catch (Exception e) {
 			throw new DataAccessException("Erro ao buscar produto por categoria", e);
 		}
 	}
+
+	public Stream<Produto> percorrerPorNome(String nome) {
+		try{
+			return em.createNamedQuery("Produto.buscarPorNome", Produto.class)
+				.setParameter("nome", nome)
+				.getResultStream();
+		} catch (Exception e) {
+			throw new DataAccessException("Erro ao percorrer produtos por nome: " + nome, e);
+		}
+	}
+
+	public Stream<Produto> percorrerPorCategoria(long idCategoria) {
+		try{
+			return em.createNamedQuery("Produto.buscarPorCategoria", Produto.class)
+				.setParameter("id", idCategoria)
+				.getResultStream();
+		} catch (Exception e) {
+			throw new DataAccessException("Erro ao percorrer produtos por categoria", e);
+		}
+	}
+
+	// Projeção ID -> preço, sem montar as entidades (usada pela TabelaDePrecos).
+	public Map<Long, BigDecimal> buscarTodosOsPrecos() {
+		try{
+			return paraMapa(em.createNamedQuery("Produto.todosOsPrecos", Object[].class).getResultList());
+		} catch (Exception e) {
+			throw new DataAccessException("Erro ao buscar os preços dos produtos", e);
+		}
+	}
+
+	public Map<Long, BigDecimal> buscarPrecos(Collection<Long> ids) {
+		try{
+			return paraMapa(em.createNamedQuery("Produto.precos", Object[].class)
+				.setParameter("ids", ids)
+				.getResultList());
+		} catch (Exception e) {
+			throw new DataAccessException("Erro ao buscar os preços dos produtos", e);
+		}
+	}
+
+	public List<Long> buscarIdsDaCategoria(long idCategoria) {
+		try{
+			return em.createNamedQuery("Produto.idsDaCategoria", Long.class)
+				.setParameter("id", idCategoria)
+				.getResultList();
+		} catch (Exception e) {
+			throw new DataAccessException("Erro ao buscar os produtos da categoria: " + idCategoria, e);
+		}
+	}
+
+	/* Multiplica por "fator" os preços dos produtos informados com um único UPDATE (mais os dois comandos do histórico
+	   de preços, na mesma transação); devolve quantos foram alterados. */
+	public int reajustarPrecos(Collection<Long> ids, BigDecimal fator) {
+		int alterados;
+		try {
+			alterados = UnidadeDeTrabalho.executar(em, () -> {
+				int linhas = em.createNamedQuery("Produto.reajustarPrecos")
+					.setParameter("fator", fator)
+					.setParameter("ids", ids)
+					.executeUpdate();
+				registrarPrecos(ids);
+				registrarEventos(ids);
+				return linhas;
+			});
+		} catch (Exception e) {
+			throw new DataAccessException("Erro ao reajustar os preços dos produtos", e);
+		}
+		recarregarCarregados(ids);
+		return alterados;
+	}
+
+	// Soma "delta" ao estoque gravado com um UPDATE relativo, sem ler o valor atual; devolve false se o produto não existe.
+	public boolean ajustarEstoque(long id, long delta) {
+		try {
+			return UnidadeDeTrabalho.executar(em, () -> em.createNamedQuery("Produto.ajustarEstoque")
+				.setParameter("delta", delta)
+				.setParameter("id", id)
+				.executeUpdate() > 0);
+		} catch (Exception e) {
+			throw new DataAccessException("Erro ao ajustar o estoque do produto: " + id, e);
+		}
+	}
+
+	/* Grava os preços informados (ID -> preço) com um lote JDBC de UPDATEs, enviado de uma vez ao banco, e devolve
+	   os IDs que existiam e foram alterados. O histórico de preços é gravado em seguida, na mesma transação. */
+	public List<Long> definirPrecos(Map<Long, BigDecimal> precos) {
+		List<Long> ids = new ArrayList<>(precos.keySet());
+		List<Long> alterados = new ArrayList<>();
+		try {
+			int[] linhas = UnidadeDeTrabalho.executar(em, () -> {
+				int[] gravadas = em.unwrap(Session.class).doReturningWork(conexao -> {
+					try (PreparedStatement comando = conexao.prepareStatement("UPDATE produtos SET preco = ? WHERE id = ?")) {
+						for (Long id : ids) {
+							comando.setBigDecimal(1, precos.get(id));
+							comando.setLong(2, id);
+							comando.addBatch();
+						}
+						return comando.executeBatch();
+					}
+				});
+				registrarPrecos(ids);
+				registrarEventos(ids);
+				return gravadas;
+			});
+			for (int i = 0; i < linhas.length; i++) {
+				if (linhas[i] > 0 || linhas[i] == Statement.SUCCESS_NO_INFO) {
+					alterados.add(ids.get(i));
+				}
+			}
+		} catch (Exception e) {
+			throw new DataAccessException("Erro ao definir os preços dos produtos", e);
+		}
+		recarregarCarregados(alterados);
+		return alterados;
+	}
+
+	// Intervalos de preço de todos os produtos: (ID, preço, válido de, válido até), ordenados por produto e início.
+	public List<Object[]> buscarHistoricoDePrecos() {
+		try{
+			return em.createNamedQuery("HistoricoDePreco.intervalos", Object[].class).getResultList();
+		} catch (Exception e) {
+			throw new DataAccessException("Erro ao buscar o histórico de preços", e);
+		}
+	}
+
+	public List<Object[]> buscarHistoricoDePrecos(Collection<Long> ids) {
+		try{
+			return em.createNamedQuery("HistoricoDePreco.intervalosDosProdutos", Object[].class)
+				.setParameter("ids", ids)
+				.getResultList();
+		} catch (Exception e) {
+			throw new DataAccessException("Erro ao buscar o histórico de preços dos produtos", e);
+		}
+	}
+
+	// Preço que valia no instante informado, ou null se o produto não tinha preço registrado no histórico.
+	public BigDecimal buscarPrecoEm(long idProduto, LocalDateTime instante) {
+		try{
+			return em.createNamedQuery("HistoricoDePreco.precoEm", BigDecimal.class)
+				.setParameter("id", idProduto)
+				.setParameter("instante", instante)
+				.getResultStream()
+				.findFirst()
+				.orElse(null);
+		} catch (Exception e) {
+			throw new DataAccessException("Erro ao buscar o preço do produto " + idProduto + " em " + instante, e);
+		}
+	}
+
+	// Alterações de preço com início em [inicio, fim), em ordem cronológica.
+	public List<AlteracaoDePrecoVo> buscarAlteracoesDePreco(LocalDateTime inicio, LocalDateTime fim) {
+		try{
+			return em.createNamedQuery("HistoricoDePreco.alteracoesNoPeriodo", AlteracaoDePrecoVo.class)
+				.setParameter("inicio", inicio)
+				.setParameter("fim", fim)
+				.getResultList();
+		} catch (Exception e) {
+			throw new DataAccessException("Erro ao buscar as alterações de preço do período", e);
+		}
+	}
+
+	private void comHistorico(Produto produto, Runnable gravacao) {
+		try {
+			UnidadeDeTrabalho.executar(em, () -> {
+				gravacao.run();
+				registrarPrecos(List.of(produto.getId()));
+			});
+		} catch (DataAccessException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new DataAccessException("Erro ao gravar o histórico de preços do produto: " + produto.getId(), e);
+		}
+	}
+
+	/* Fecha o intervalo vigente dos produtos cujo preço mudou e abre um com o preço atual, no mesmo instante; os
+	   produtos com o preço inalterado não ganham linha nova. Dois comandos, qualquer que seja o número de IDs. */
+	private void registrarPrecos(Collection<Long> ids) {
+		/* Em UTC, para que o histórico não tenha intervalos sobrepostos na volta do horário de verão nem dependa do
+		   fuso de cada servidor; na precisão da coluna (microssegundos), para que o fim de um intervalo e o início do
+		   seguinte coincidam. */
+		LocalDateTime agora = LocalDateTime.now(ZoneOffset.UTC).truncatedTo(ChronoUnit.MICROS);
+		em.createNamedQuery("HistoricoDePreco.fecharVigentes")
+			.setParameter("agora", agora)
+			.setParameter("ids", ids)
+			.executeUpdate();
+		em.createNamedQuery("HistoricoDePreco.abrirVigentes")
+			.setParameter("agora", agora)
+			.setParameter("ids", ids)
+			.executeUpdate();
+	}
+
+	/* As alterações em massa não passam pelos ouvintes do diário de eventos: com o diário ativo, os produtos
+	   alterados são relidos (uma consulta) e registrados no diário se a transação do lote for confirmada. */
+	private void registrarEventos(Collection<Long> ids) {
+		Session sessao = em.unwrap(Session.class);
+		if (IntegradorDeEventos.diarioAtivo(sessao)) {
+			IntegradorDeEventos.registrarProdutosAlterados(sessao, em.createNamedQuery("Produto.categoriasEPrecos", Object[].class)
+				.setParameter("ids", ids)
+				.getResultList());
+		}
+	}
+
+	/* As alterações em massa não passam pelas entidades: os produtos alterados que já estavam carregados neste
+	   EntityManager são relidos (para que um merge posterior não grave o preço antigo) e saem do cache de
+	   segundo nível, se houver um. */
+	private void recarregarCarregados(Collection<Long> ids) {
+		Set<Object> alterados = new HashSet<>(ids);
+		for (Object item : em.unwrap(Session.class).getStatistics().getEntityKeys()) {
+			EntityKey chave = (EntityKey) item;
+			if (chave.getEntityName().equals(Produto.class.getName()) && alterados.contains(chave.getIdentifier())) {
+				em.refresh(em.find(Produto.class, chave.getIdentifier()));
+			}
+		}
+		em.getEntityManagerFactory().getCache().evict(Produto.class);
+	}
+
+	private static Map<Long, BigDecimal> paraMapa(List<Object[]> linhas) {
+		Map<Long, BigDecimal> precos = new HashMap<>();
+		for (Object[] linha : linhas) {
+			precos.put((Long) linha[0], (BigDecimal) linha[1]);
+		}
+		return precos;
+	}
 }
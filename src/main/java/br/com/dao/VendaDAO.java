@@ -1,31 +1,76 @@
 package br.com.dao;
 
 import br.com.exception.DataAccessException;
+import br.com.util.TopN;
 import br.com.vo.RelatorioDeVendasVo;
 import br.com.vo.RelatorioFinanceiroVo;
+import br.com.vo.VendaDiariaVo;
 import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 public class VendaDAO {
 
+    /* As consultas são nomeadas e declaradas na entidade Pedido (prefixo "Venda."): o Hibernate as interpreta
+       e valida uma única vez, na inicialização. */
     private EntityManager em;
 
+    /* Pedidos anteriores à data de corte podem estar arquivados (ver ArquivoDao). Quando o período consultado
+       alcança o corte, o mesmo relatório é calculado sobre as tabelas arquivadas e os dois resultados são
+       somados aqui, pela chave de cada linha; caso contrário, só a tabela ativa é consultada. */
+    private ArquivoDao arquivoDao;
+
+    /* Opcional: com os pedidos compactos (ver PedidoCompacto), cada relatório também é calculado sobre eles e somado
+       da mesma forma que o do arquivo. Nulo quando o modo compacto não é usado, sem nenhuma consulta a mais. */
+    private PedidoCompactoDao pedidoCompactoDao;
+
+    private static final Comparator<VendaDiariaVo> POR_CATEGORIA_E_DATA = Comparator
+            .comparing(VendaDiariaVo::getIdCategoria, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(VendaDiariaVo::getData);
+
+    // Uma tabela na mescla do top N: as suas primeiras linhas do ranking e a leitura das linhas de outras chaves.
+    private record Fonte<T>(List<T> primeiras, Function<Set<Long>, List<T>> dasChaves) {
+    }
+
     public VendaDAO(EntityManager em) {
         this.em = em;
+        this.arquivoDao = new ArquivoDao(em);
+    }
+
+    public VendaDAO(EntityManager em, boolean comPedidosCompactos) {
+        this(em);
+        this.pedidoCompactoDao = comPedidosCompactos ? new PedidoCompactoDao(em) : null;
     }
 
     public BigDecimal retornaValorTotalVendidoEmUmPeriodo(LocalDate dataIni, LocalDate dataFim) {
         try{
-            String jpql = "SELECT SUM(p.valorTotal) FROM Pedido p WHERE p.data BETWEEN :dataIni AND :dataFim";
-            BigDecimal total = em.createQuery(jpql, BigDecimal.class)
+            BigDecimal total = em.createNamedQuery("Venda.valorTotalVendidoEmUmPeriodo", BigDecimal.class)
                 .setParameter("dataIni", dataIni)
                 .setParameter("dataFim", dataFim)
                 .getSingleResult();
             if (total == null) {
-                return BigDecimal.ZERO;
+                total = BigDecimal.ZERO;
+            }
+            if (arquivoDao.alcancaArquivo(dataIni)) {
+                total = total.add(arquivoDao.valorTotalVendidoEmUmPeriodo(dataIni, dataFim));
+            }
+            if (pedidoCompactoDao != null) {
+                total = total.add(pedidoCompactoDao.valorTotalVendidoEmUmPeriodo(dataIni, dataFim));
             }
             return total;
         } catch (Exception e) {
@@ -39,36 +84,302 @@ public class VendaDAO {
        Resumindo: utiliza-se o select new quando o resultado da consulta não é uma entidade mapeada,
        desta forma, é necessário indicar a classe que será retornada. */
     public List<RelatorioDeVendasVo> relatorioDeVendas() {
+        List<RelatorioDeVendasVo> ativos;
         try{
-            String jpql = "SELECT new br.com.vo.RelatorioDeVendasVo("
-                + "produto.nome, "
-                + "SUM(item.quantidade), "
-                + "MAX(pedido.data)) "
-                + "FROM Pedido pedido "
-                + "JOIN pedido.itens item "
-                + "JOIN item.produto produto "
-                + "GROUP BY produto.nome "
-                + "ORDER BY SUM(item.quantidade) DESC";
-            return em.createQuery(jpql, RelatorioDeVendasVo.class)
+            ativos = em.createNamedQuery("Venda.relatorioDeVendas", RelatorioDeVendasVo.class)
                 .getResultList();
         } catch (Exception e) {
             throw new DataAccessException("Erro ao retornar o relatório de vendas", e);
         }
+        boolean comArquivo = arquivoDao.alcancaArquivo(null);
+        if (!comArquivo && pedidoCompactoDao == null) {
+            return ativos;
+        }
+        return ordenar(somar(ativos, complementos(comArquivo, () -> arquivoDao.relatorioDeVendas(null, null),
+                () -> pedidoCompactoDao.relatorioDeVendas(null, null)),
+                RelatorioDeVendasVo::getIdProduto, RelatorioDeVendasVo::somar), RelatorioDeVendasVo.RANKING);
+    }
+
+    /* Variante top N: o LIMIT é aplicado pelo próprio banco (setMaxResults), assim só trafegam as linhas que serão
+       exibidas, independente do tamanho do catálogo. Com pedidos arquivados ou compactos, cada tabela devolve só as suas
+       primeiras linhas e a mescla é verificada (ver mesclarTopN). */
+    public List<RelatorioDeVendasVo> relatorioDeVendas(int limite) {
+        return topDeVendas(null, null, limite);
+    }
+
+    public List<RelatorioDeVendasVo> relatorioDeVendas(LocalDate dataIni, LocalDate dataFim, int limite) {
+        return topDeVendas(dataIni, dataFim, limite);
     }
 
     public List<RelatorioFinanceiroVo> relatorioFinanceiro() {
+        List<RelatorioFinanceiroVo> ativos;
         try{
-            String jpql = "SELECT new br.com.vo.RelatorioFinanceiroVo("
-                + "cliente.nome, "
-                + "SUM(pedido.valorTotal)) "
-                + "FROM Pedido pedido "
-                + "JOIN pedido.cliente cliente "
-                + "GROUP BY cliente.nome "
-                + "ORDER BY SUM(pedido.valorTotal) DESC";
-            return em.createQuery(jpql, RelatorioFinanceiroVo.class)
+            ativos = em.createNamedQuery("Venda.relatorioFinanceiro", RelatorioFinanceiroVo.class)
                 .getResultList();
         } catch (Exception e) {
             throw new DataAccessException("Erro ao retornar o relatório financeiro", e);
         }
+        boolean comArquivo = arquivoDao.alcancaArquivo(null);
+        if (!comArquivo && pedidoCompactoDao == null) {
+            return ativos;
+        }
+        return ordenar(somar(ativos, complementos(comArquivo, () -> arquivoDao.relatorioFinanceiro(null, null),
+                () -> pedidoCompactoDao.relatorioFinanceiro(null, null)),
+                RelatorioFinanceiroVo::getIdCliente, RelatorioFinanceiroVo::somar), RelatorioFinanceiroVo.RANKING);
+    }
+
+    public List<RelatorioFinanceiroVo> relatorioFinanceiro(int limite) {
+        return topFinanceiro(null, null, limite);
+    }
+
+    public List<RelatorioFinanceiroVo> relatorioFinanceiro(LocalDate dataIni, LocalDate dataFim, int limite) {
+        return topFinanceiro(dataIni, dataFim, limite);
+    }
+
+    // Total comprado e quantidade de pedidos de cada cliente, sem ordem (carga dos ContadoresDeVendas).
+    public List<RelatorioFinanceiroVo> totaisPorCliente() {
+        List<RelatorioFinanceiroVo> ativos;
+        try{
+            ativos = em.createNamedQuery("Venda.totaisPorCliente", RelatorioFinanceiroVo.class)
+                .getResultList();
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao retornar os totais por cliente", e);
+        }
+        boolean comArquivo = arquivoDao.alcancaArquivo(null);
+        if (!comArquivo && pedidoCompactoDao == null) {
+            return ativos;
+        }
+        return new ArrayList<>(somar(ativos, complementos(comArquivo, arquivoDao::totaisPorCliente,
+                () -> pedidoCompactoDao.totaisPorCliente()),
+                RelatorioFinanceiroVo::getIdCliente, RelatorioFinanceiroVo::somar));
+    }
+
+    // Os métodos que retornam Stream mantêm o cursor da consulta aberto: o chamador deve fechá-lo (try-with-resources).
+    // Com pedidos arquivados no período (ou pedidos compactos), os dias das tabelas são somados em memória (um total por dia).
+    public Stream<VendaDiariaVo> vendasPorDia(LocalDate dataIni, LocalDate dataFim) {
+        // Lido antes de abrir o cursor: outra consulta no meio da leitura fecharia o ResultSet.
+        boolean comArquivo = arquivoDao.alcancaArquivo(dataIni);
+        Stream<VendaDiariaVo> ativos;
+        try{
+            ativos = em.createNamedQuery("Venda.vendasPorDia", VendaDiariaVo.class)
+                .setParameter("dataIni", dataIni)
+                .setParameter("dataFim", dataFim)
+                .getResultStream();
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao retornar as vendas por dia", e);
+        }
+        if (!comArquivo && pedidoCompactoDao == null) {
+            return ativos;
+        }
+        Map<LocalDate, VendaDiariaVo> porDia = new TreeMap<>();
+        try (ativos) {
+            ativos.forEach(dia -> porDia.merge(dia.getData(), dia, VendaDiariaVo::somar));
+        }
+        complementos(comArquivo, () -> arquivoDao.vendasPorDia(dataIni, dataFim),
+                () -> pedidoCompactoDao.vendasPorDia(dataIni, dataFim))
+                .forEach(dia -> porDia.merge(dia.getData(), dia, VendaDiariaVo::somar));
+        return porDia.values().stream();
+    }
+
+    public Stream<VendaDiariaVo> vendasPorDiaECategoria(LocalDate dataIni, LocalDate dataFim) {
+        // Lido antes de abrir o cursor: outra consulta no meio da leitura fecharia o ResultSet.
+        boolean comArquivo = arquivoDao.alcancaArquivo(dataIni);
+        Stream<VendaDiariaVo> ativos;
+        try{
+            ativos = em.createNamedQuery("Venda.vendasPorDiaECategoria", VendaDiariaVo.class)
+                .setParameter("dataIni", dataIni)
+                .setParameter("dataFim", dataFim)
+                .getResultStream();
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao retornar as vendas por dia e categoria", e);
+        }
+        if (!comArquivo && pedidoCompactoDao == null) {
+            return ativos;
+        }
+        Map<VendaDiariaVo, VendaDiariaVo> porCategoriaEDia = new TreeMap<>(POR_CATEGORIA_E_DATA);
+        try (ativos) {
+            ativos.forEach(dia -> porCategoriaEDia.merge(dia, dia, VendaDiariaVo::somar));
+        }
+        complementos(comArquivo, () -> arquivoDao.vendasPorDiaECategoria(dataIni, dataFim),
+                () -> pedidoCompactoDao.vendasPorDiaECategoria(dataIni, dataFim))
+                .forEach(dia -> porCategoriaEDia.merge(dia, dia, VendaDiariaVo::somar));
+        return porCategoriaEDia.values().stream();
+    }
+
+    // Período nulo (dataIni nula): todas as datas, como nos relatórios do ArquivoDao e do PedidoCompactoDao.
+    private List<RelatorioDeVendasVo> topDeVendas(LocalDate dataIni, LocalDate dataFim, int limite) {
+        boolean comArquivo = arquivoDao.alcancaArquivo(dataIni);
+        int linhas = comArquivo || pedidoCompactoDao != null ? linhasPorTabela(limite) : limite;
+        List<Fonte<RelatorioDeVendasVo>> fontes = new ArrayList<>();
+        try{
+            fontes.add(new Fonte<>(consulta("Venda.relatorioDeVendas", RelatorioDeVendasVo.class, dataIni, dataFim)
+                    .setMaxResults(linhas)
+                    .getResultList(),
+                    ids -> dasChaves("Venda.relatorioDeVendasDosProdutos", RelatorioDeVendasVo.class, ids, dataIni, dataFim)));
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao retornar o relatório de vendas (top " + limite + ")", e);
+        }
+        if (comArquivo) {
+            fontes.add(new Fonte<>(arquivoDao.relatorioDeVendas(dataIni, dataFim, linhas),
+                    ids -> arquivoDao.relatorioDeVendasDosProdutos(ids, dataIni, dataFim)));
+        }
+        if (pedidoCompactoDao != null) {
+            // Somado em memória sobre os itens, sem LIMIT no banco: as primeiras linhas e as demais saem da mesma lista.
+            List<RelatorioDeVendasVo> compactos = ordenar(pedidoCompactoDao.relatorioDeVendas(dataIni, dataFim),
+                    RelatorioDeVendasVo.RANKING);
+            fontes.add(new Fonte<>(compactos.subList(0, Math.min(linhas, compactos.size())),
+                    ids -> compactos.stream().filter(linha -> ids.contains(linha.getIdProduto())).toList()));
+        }
+        return mesclarTopN(limite, fontes, RelatorioDeVendasVo::getIdProduto, RelatorioDeVendasVo::somar,
+                RelatorioDeVendasVo.POR_QUANTIDADE_VENDIDA, RelatorioDeVendasVo.RANKING,
+                () -> relatorioDeVendasCompleto(dataIni, dataFim));
+    }
+
+    private List<RelatorioFinanceiroVo> topFinanceiro(LocalDate dataIni, LocalDate dataFim, int limite) {
+        boolean comArquivo = arquivoDao.alcancaArquivo(dataIni);
+        int linhas = comArquivo || pedidoCompactoDao != null ? linhasPorTabela(limite) : limite;
+        List<Fonte<RelatorioFinanceiroVo>> fontes = new ArrayList<>();
+        try{
+            fontes.add(new Fonte<>(consulta("Venda.relatorioFinanceiro", RelatorioFinanceiroVo.class, dataIni, dataFim)
+                    .setMaxResults(linhas)
+                    .getResultList(),
+                    ids -> dasChaves("Venda.relatorioFinanceiroDosClientes", RelatorioFinanceiroVo.class, ids, dataIni, dataFim)));
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao retornar o relatório financeiro (top " + limite + ")", e);
+        }
+        if (comArquivo) {
+            fontes.add(new Fonte<>(arquivoDao.relatorioFinanceiro(dataIni, dataFim, linhas),
+                    ids -> arquivoDao.relatorioFinanceiroDosClientes(ids, dataIni, dataFim)));
+        }
+        if (pedidoCompactoDao != null) {
+            fontes.add(new Fonte<>(pedidoCompactoDao.relatorioFinanceiro(dataIni, dataFim, linhas),
+                    ids -> pedidoCompactoDao.relatorioFinanceiroDosClientes(ids, dataIni, dataFim)));
+        }
+        return mesclarTopN(limite, fontes, RelatorioFinanceiroVo::getIdCliente, RelatorioFinanceiroVo::somar,
+                RelatorioFinanceiroVo.POR_TOTAL_DE_PEDIDOS, RelatorioFinanceiroVo.RANKING,
+                () -> relatorioFinanceiroCompleto(dataIni, dataFim));
+    }
+
+    // Relatórios inteiros, somados entre as tabelas: só usados quando a mescla do top N não pode ser verificada.
+    private List<RelatorioDeVendasVo> relatorioDeVendasCompleto(LocalDate dataIni, LocalDate dataFim) {
+        if (dataIni == null) {
+            return relatorioDeVendas();
+        }
+        List<RelatorioDeVendasVo> ativos;
+        try{
+            ativos = consulta("Venda.relatorioDeVendas", RelatorioDeVendasVo.class, dataIni, dataFim).getResultList();
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao retornar o relatório de vendas do período", e);
+        }
+        return new ArrayList<>(somar(ativos, complementos(arquivoDao.alcancaArquivo(dataIni),
+                () -> arquivoDao.relatorioDeVendas(dataIni, dataFim),
+                () -> pedidoCompactoDao.relatorioDeVendas(dataIni, dataFim)),
+                RelatorioDeVendasVo::getIdProduto, RelatorioDeVendasVo::somar));
+    }
+
+    private List<RelatorioFinanceiroVo> relatorioFinanceiroCompleto(LocalDate dataIni, LocalDate dataFim) {
+        if (dataIni == null) {
+            return relatorioFinanceiro();
+        }
+        List<RelatorioFinanceiroVo> ativos;
+        try{
+            ativos = consulta("Venda.relatorioFinanceiro", RelatorioFinanceiroVo.class, dataIni, dataFim).getResultList();
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao retornar o relatório financeiro do período", e);
+        }
+        return new ArrayList<>(somar(ativos, complementos(arquivoDao.alcancaArquivo(dataIni),
+                () -> arquivoDao.relatorioFinanceiro(dataIni, dataFim),
+                () -> pedidoCompactoDao.relatorioFinanceiro(dataIni, dataFim)),
+                RelatorioFinanceiroVo::getIdCliente, RelatorioFinanceiroVo::somar));
+    }
+
+    // Consulta nomeada da tabela ativa; com período, a variante "NoPeriodo" da mesma consulta.
+    private <T> TypedQuery<T> consulta(String nome, Class<T> tipo, LocalDate dataIni, LocalDate dataFim) {
+        if (dataIni == null) {
+            return em.createNamedQuery(nome, tipo);
+        }
+        return em.createNamedQuery(nome + "NoPeriodo", tipo)
+            .setParameter("dataIni", dataIni)
+            .setParameter("dataFim", dataFim);
+    }
+
+    private <T> List<T> dasChaves(String nome, Class<T> tipo, Collection<Long> ids, LocalDate dataIni, LocalDate dataFim) {
+        try{
+            return consulta(nome, tipo, dataIni, dataFim)
+                .setParameter("ids", ids)
+                .getResultList();
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao completar o top N com a tabela ativa", e);
+        }
+    }
+
+    // Linhas lidas de cada tabela para a mescla: uma além do limite, que limita o valor das chaves não vistas.
+    private static int linhasPorTabela(int limite) {
+        return limite == Integer.MAX_VALUE ? limite : limite + 1;
+    }
+
+    /* Mescla exata do top N a partir das primeiras linhas de cada tabela (limite + 1). Uma chave fora do top N de cada
+       tabela pode estar no top N da soma, então o resultado é verificado:
+       1. as chaves vistas em alguma lista são completadas, com uma consulta "IN" (no máximo uma por tabela), nas
+          tabelas cheias (mais linhas que o limite) em que não apareceram; uma tabela que não encheu veio inteira e
+          não tem linha para elas. Assim toda chave vista tem o total exato;
+       2. uma chave não vista em lista nenhuma soma, no máximo, a última linha de cada tabela cheia (o teto);
+       3. se a N-ésima chave vista passa do teto, nenhuma chave não vista entra no top N e o resultado é exato. No
+          empate, uma chave não vista de ID menor poderia vencer, por isso a comparação é estrita.
+       Quando a verificação falha (rankings achatados, em que as chaves seguintes valem quase o mesmo que as do topo),
+       o relatório é calculado inteiro, como antes: custa as consultas da mescla mais as do relatório completo. */
+    private static <T> List<T> mesclarTopN(int limite, List<Fonte<T>> fontes, Function<T, Long> chave,
+                                           BinaryOperator<T> soma, Comparator<T> porValor, Comparator<T> ranking,
+                                           Supplier<List<T>> completo) {
+        if (fontes.size() == 1) {
+            return fontes.getFirst().primeiras();
+        }
+        Map<Long, T> vistas = new LinkedHashMap<>();
+        fontes.forEach(fonte -> fonte.primeiras().forEach(linha -> vistas.merge(chave.apply(linha), linha, soma)));
+        T teto = null;
+        for (Fonte<T> fonte : fontes) {
+            if (fonte.primeiras().size() <= limite) {
+                continue;
+            }
+            T ultima = fonte.primeiras().getLast();
+            teto = teto == null ? ultima : soma.apply(teto, ultima);
+            Set<Long> ausentes = new HashSet<>(vistas.keySet());
+            fonte.primeiras().forEach(linha -> ausentes.remove(chave.apply(linha)));
+            if (!ausentes.isEmpty()) {
+                fonte.dasChaves().apply(ausentes).forEach(linha -> vistas.merge(chave.apply(linha), linha, soma));
+            }
+        }
+        List<T> ordenadas = ordenar(vistas.values(), ranking);
+        List<T> topo = new ArrayList<>(ordenadas.subList(0, Math.min(limite, ordenadas.size())));
+        if (teto == null || topo.isEmpty() || porValor.compare(topo.getLast(), teto) > 0) {
+            return topo;
+        }
+        return TopN.mesclar(limite, ranking, List.of(completo.get()));
+    }
+
+    // Linhas do mesmo relatório nas outras tabelas: as arquivadas (se o período alcança o corte) e as compactas.
+    private <T> List<T> complementos(boolean comArquivo, Supplier<List<T>> arquivados, Supplier<List<T>> compactos) {
+        List<T> linhas = new ArrayList<>();
+        if (comArquivo) {
+            linhas.addAll(arquivados.get());
+        }
+        if (pedidoCompactoDao != null) {
+            linhas.addAll(compactos.get());
+        }
+        return linhas;
+    }
+
+    private static <T, K> Collection<T> somar(List<T> ativos, List<T> outros, Function<T, K> chave,
+                                              BinaryOperator<T> soma) {
+        Map<K, T> porChave = new LinkedHashMap<>();
+        ativos.forEach(linha -> porChave.merge(chave.apply(linha), linha, soma));
+        outros.forEach(linha -> porChave.merge(chave.apply(linha), linha, soma));
+        return porChave.values();
+    }
+
+    private static <T> List<T> ordenar(Collection<T> linhas, Comparator<T> ranking) {
+        List<T> ordenadas = new ArrayList<>(linhas);
+        ordenadas.sort(ranking.reversed());
+        return ordenadas;
     }
 }
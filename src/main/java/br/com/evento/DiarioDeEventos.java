@@ -0,0 +1,209 @@
+package br.com.evento;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+
+/* Diário de eventos só de acréscimo, em arquivos mapeados em memória (ver FormatoDoDiario).
+   - Gravar um evento é copiar 56 bytes para o segmento mapeado: sem chamada de sistema nem serialização.
+   - Cheio o segmento, outro é criado; os segmentos mais antigos que a retenção são apagados na troca.
+   - Os dados ficam no cache de páginas do sistema operacional assim que gravados, portanto sobrevivem a uma
+     queda da aplicação; para sobreviver a uma queda da máquina, sincronizar() os força para o disco.
+   - Um único escritor por diretório (trava de arquivo); os leitores (LeitorDeEventos) podem ser outros
+     processos e não precisam de trava. */
+public class DiarioDeEventos implements AutoCloseable {
+
+    public static final int EVENTOS_POR_SEGMENTO_PADRAO = 65_536;
+
+    private final Path diretorio;
+    private final int eventosPorSegmento;
+    private final Duration retencao;
+    private final FileChannel canalDaTrava;
+    private final FileLock trava;
+
+    private MappedByteBuffer segmento;
+    private long inicioDoSegmento;
+    private int capacidadeDoSegmento;
+    private long proximoOffset;
+
+    // Retenção nula ou zero: os segmentos nunca são apagados.
+    public DiarioDeEventos(Path diretorio, int eventosPorSegmento, Duration retencao) {
+        this.diretorio = diretorio;
+        this.eventosPorSegmento = eventosPorSegmento;
+        this.retencao = retencao;
+        FileChannel canal = null;
+        try {
+            Files.createDirectories(diretorio);
+            canal = FileChannel.open(diretorio.resolve("diario.trava"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock travaObtida;
+            try {
+                travaObtida = canal.tryLock();
+            } catch (OverlappingFileLockException e) {
+                // A trava já pertence a esta mesma JVM (outro diário aberto no mesmo diretório).
+                travaObtida = null;
+            }
+            if (travaObtida == null) {
+                throw new IllegalStateException("O diário de eventos em " + diretorio + " já está aberto por outro escritor.");
+            }
+            canalDaTrava = canal;
+            trava = travaObtida;
+            recuperar();
+        } catch (IOException | RuntimeException e) {
+            // Fechar o canal também libera a trava, se ela tiver sido obtida.
+            fecharSemFalhar(canal, e);
+            if (e instanceof IOException erroDeEs) {
+                throw new UncheckedIOException("Erro ao abrir o diário de eventos em " + diretorio, erroDeEs);
+            }
+            throw (RuntimeException) e;
+        }
+    }
+
+    // Acrescenta um evento e devolve o seu offset.
+    public synchronized long registrar(TipoDeEvento tipo, EntidadeDoEvento entidade, long id, long idRelacionado,
+                                       long idSecundario, long valorEmCentavos, int quantidade) {
+        if (segmento == null) {
+            throw new IllegalStateException("O diário de eventos está fechado.");
+        }
+        if (proximoOffset - inicioDoSegmento == capacidadeDoSegmento) {
+            abrirSegmento(proximoOffset);
+            aplicarRetencao();
+        }
+        int posicao = (int) (proximoOffset - inicioDoSegmento) * FormatoDoDiario.REGISTRO;
+        FormatoDoDiario.escrever(segmento, posicao, proximoOffset, tipo, entidade, System.currentTimeMillis(), id,
+                idRelacionado, idSecundario, valorEmCentavos, quantidade);
+        return proximoOffset++;
+    }
+
+    // Offset que o próximo evento vai receber (ou seja, a quantidade de eventos já gravados desde o início).
+    public synchronized long getProximoOffset() {
+        return proximoOffset;
+    }
+
+    public Path getDiretorio() {
+        return diretorio;
+    }
+
+    // Força para o disco o que já foi gravado no segmento atual.
+    public synchronized void sincronizar() {
+        if (segmento != null) {
+            segmento.force();
+        }
+    }
+
+    /* Apaga os segmentos completos cujo evento mais recente é anterior à retenção. O segmento atual nunca é
+       apagado. Devolve quantos segmentos foram apagados. */
+    public synchronized int aplicarRetencao() {
+        if (retencao == null || retencao.isZero()) {
+            return 0;
+        }
+        long limite = System.currentTimeMillis() - retencao.toMillis();
+        int apagados = 0;
+        try {
+            for (long inicio : FormatoDoDiario.segmentos(diretorio)) {
+                if (inicio >= inicioDoSegmento) {
+                    break;
+                }
+                Path arquivo = FormatoDoDiario.arquivoDoSegmento(diretorio, inicio);
+                if (instanteDoUltimoEvento(arquivo) >= limite) {
+                    // Os seguintes são mais novos.
+                    break;
+                }
+                Files.deleteIfExists(arquivo);
+                apagados++;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao aplicar a retenção do diário de eventos", e);
+        }
+        return apagados;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (segmento == null) {
+            return;
+        }
+        segmento.force();
+        segmento = null;
+        try {
+            trava.release();
+            canalDaTrava.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao fechar o diário de eventos", e);
+        }
+    }
+
+    private static void fecharSemFalhar(FileChannel canal, Exception erro) {
+        if (canal == null) {
+            return;
+        }
+        try {
+            canal.close();
+        } catch (IOException e) {
+            erro.addSuppressed(e);
+        }
+    }
+
+    // Continua do primeiro registro não confirmado do último segmento (um registro incompleto é sobrescrito).
+    private void recuperar() throws IOException {
+        List<Long> segmentos = FormatoDoDiario.segmentos(diretorio);
+        if (segmentos.isEmpty()) {
+            abrirSegmento(0);
+            return;
+        }
+        long inicio = segmentos.getLast();
+        mapear(inicio);
+        int posicao = 0;
+        while (posicao < capacidadeDoSegmento
+                && FormatoDoDiario.confirmado(segmento, posicao * FormatoDoDiario.REGISTRO, inicio + posicao)) {
+            posicao++;
+        }
+        proximoOffset = inicio + posicao;
+    }
+
+    /* O arquivo é criado com o tamanho final sob um nome temporário e só então renomeado: um leitor nunca vê um
+       segmento pela metade e calcula a capacidade pelo tamanho do arquivo. */
+    private void abrirSegmento(long inicio) {
+        Path arquivo = FormatoDoDiario.arquivoDoSegmento(diretorio, inicio);
+        Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+        try {
+            try (RandomAccessFile novo = new RandomAccessFile(temporario.toFile(), "rw")) {
+                novo.setLength((long) eventosPorSegmento * FormatoDoDiario.REGISTRO);
+            }
+            Files.move(temporario, arquivo, StandardCopyOption.ATOMIC_MOVE);
+            mapear(inicio);
+            proximoOffset = inicio;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao criar o segmento " + arquivo, e);
+        }
+    }
+
+    private void mapear(long inicio) throws IOException {
+        Path arquivo = FormatoDoDiario.arquivoDoSegmento(diretorio, inicio);
+        if (segmento != null) {
+            segmento.force();
+        }
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // O mapeamento continua válido depois que o canal é fechado.
+            segmento = canal.map(FileChannel.MapMode.READ_WRITE, 0, canal.size());
+        }
+        inicioDoSegmento = inicio;
+        capacidadeDoSegmento = (int) (segmento.capacity() / FormatoDoDiario.REGISTRO);
+    }
+
+    private static long instanteDoUltimoEvento(Path arquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ)) {
+            MappedByteBuffer dados = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            return FormatoDoDiario.instante(dados, (int) (canal.size() - FormatoDoDiario.REGISTRO));
+        }
+    }
+}
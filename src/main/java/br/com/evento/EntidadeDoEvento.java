@@ -0,0 +1,31 @@
+package br.com.evento;
+
+/* Entidade alterada; o código é o byte gravado no diário. O significado dos campos do Evento depende dela:
+   - PEDIDO:      idRelacionado = cliente, valorEmCentavos = valor total
+   - PEDIDO_ITEM: idRelacionado = pedido,  valorEmCentavos = preço unitário, quantidade = quantidade do item,
+                  idSecundario = produto
+   - PRODUTO:     idRelacionado = categoria, valorEmCentavos = preço */
+public enum EntidadeDoEvento {
+    PEDIDO(1),
+    PEDIDO_ITEM(2),
+    PRODUTO(3);
+
+    private final byte codigo;
+
+    EntidadeDoEvento(int codigo) {
+        this.codigo = (byte) codigo;
+    }
+
+    public byte getCodigo() {
+        return codigo;
+    }
+
+    public static EntidadeDoEvento doCodigo(byte codigo) {
+        for (EntidadeDoEvento entidade : values()) {
+            if (entidade.codigo == codigo) {
+                return entidade;
+            }
+        }
+        throw new IllegalArgumentException("Entidade de evento desconhecida: " + codigo);
+    }
+}
@@ -0,0 +1,87 @@
+package br.com.evento;
+
+import java.time.Instant;
+
+// Uma alteração confirmada em Pedido, PedidoItem ou Produto, como lida do diário (ver EntidadeDoEvento).
+public final class Evento {
+
+    private final long offset;
+    private final TipoDeEvento tipo;
+    private final EntidadeDoEvento entidade;
+    private final long instante;
+    private final long id;
+    private final long idRelacionado;
+    private final long idSecundario;
+    private final long valorEmCentavos;
+    private final int quantidade;
+
+    public Evento(long offset, TipoDeEvento tipo, EntidadeDoEvento entidade, long instante, long id,
+                  long idRelacionado, long idSecundario, long valorEmCentavos, int quantidade) {
+        this.offset = offset;
+        this.tipo = tipo;
+        this.entidade = entidade;
+        this.instante = instante;
+        this.id = id;
+        this.idRelacionado = idRelacionado;
+        this.idSecundario = idSecundario;
+        this.valorEmCentavos = valorEmCentavos;
+        this.quantidade = quantidade;
+    }
+
+    // Posição do evento no diário: sequencial, começando em zero, sem lacunas.
+    public long getOffset() {
+        return offset;
+    }
+
+    public TipoDeEvento getTipo() {
+        return tipo;
+    }
+
+    public EntidadeDoEvento getEntidade() {
+        return entidade;
+    }
+
+    // Momento da gravação no diário (logo após o commit), em milissegundos desde 1970.
+    public Instant getInstante() {
+        return Instant.ofEpochMilli(instante);
+    }
+
+    long getInstanteEmMilissegundos() {
+        return instante;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public long getIdRelacionado() {
+        return idRelacionado;
+    }
+
+    public long getIdSecundario() {
+        return idSecundario;
+    }
+
+    public long getValorEmCentavos() {
+        return valorEmCentavos;
+    }
+
+    public int getQuantidade() {
+        return quantidade;
+    }
+
+    @Override
+    public String toString() {
+        return "Evento{" +
+                "offset=" + offset +
+                ", tipo=" + tipo +
+                ", entidade=" + entidade +
+                ", id=" + id +
+                ", idRelacionado=" + idRelacionado +
+                ", idSecundario=" + idSecundario +
+                ", valorEmCentavos=" + valorEmCentavos +
+                ", quantidade=" + quantidade +
+                ", instante=" + getInstante() +
+                '}';
+    }
+}
@@ -0,0 +1,91 @@
+package br.com.evento;
+
+import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/* Formato em disco do diário, comum ao DiarioDeEventos (escrita) e ao LeitorDeEventos.
+   O diário é uma sequência de segmentos "<primeiro offset com 20 dígitos>.eventos", cada um com espaço para um
+   número fixo de eventos. Todo evento ocupa REGISTRO bytes, então a posição de um offset é calculada, sem
+   índice. O byte "confirmado" é gravado por último: um registro com ele zerado ainda não foi (ou não terminou de
+   ser) escrito.
+     0 confirmado (byte)   1 tipo (byte)   2 entidade (byte)   3 reservado   4 quantidade (int)
+     8 offset   16 instante   24 id   32 idRelacionado   40 idSecundario   48 valorEmCentavos   (longs) */
+final class FormatoDoDiario {
+
+    static final int REGISTRO = 56;
+    static final String EXTENSAO = ".eventos";
+
+    private static final byte CONFIRMADO = 1;
+
+    private FormatoDoDiario() {
+    }
+
+    static Path arquivoDoSegmento(Path diretorio, long primeiroOffset) {
+        return diretorio.resolve(String.format("%020d", primeiroOffset) + EXTENSAO);
+    }
+
+    // Primeiros offsets dos segmentos existentes, em ordem crescente.
+    static List<Long> segmentos(Path diretorio) throws IOException {
+        List<Long> inicios = new ArrayList<>();
+        if (!Files.isDirectory(diretorio)) {
+            return inicios;
+        }
+        try (Stream<Path> arquivos = Files.list(diretorio)) {
+            arquivos.map(arquivo -> arquivo.getFileName().toString())
+                    .filter(nome -> nome.endsWith(EXTENSAO))
+                    .map(nome -> Long.parseLong(nome.substring(0, nome.length() - EXTENSAO.length())))
+                    .sorted()
+                    .forEach(inicios::add);
+        }
+        return inicios;
+    }
+
+    static void escrever(ByteBuffer segmento, int posicao, long offset, TipoDeEvento tipo, EntidadeDoEvento entidade,
+                         long instante, long id, long idRelacionado, long idSecundario, long valorEmCentavos,
+                         int quantidade) {
+        segmento.put(posicao + 1, tipo.getCodigo());
+        segmento.put(posicao + 2, entidade.getCodigo());
+        segmento.putInt(posicao + 4, quantidade);
+        segmento.putLong(posicao + 8, offset);
+        segmento.putLong(posicao + 16, instante);
+        segmento.putLong(posicao + 24, id);
+        segmento.putLong(posicao + 32, idRelacionado);
+        segmento.putLong(posicao + 40, idSecundario);
+        segmento.putLong(posicao + 48, valorEmCentavos);
+        // Por último, depois de uma barreira: só agora o registro fica visível para os leitores.
+        VarHandle.releaseFence();
+        segmento.put(posicao, CONFIRMADO);
+    }
+
+    // Registro completo na posição, com o offset esperado.
+    static boolean confirmado(ByteBuffer segmento, int posicao, long offset) {
+        if (segmento.get(posicao) != CONFIRMADO) {
+            return false;
+        }
+        VarHandle.acquireFence();
+        return segmento.getLong(posicao + 8) == offset;
+    }
+
+    static Evento ler(ByteBuffer segmento, int posicao) {
+        return new Evento(
+                segmento.getLong(posicao + 8),
+                TipoDeEvento.doCodigo(segmento.get(posicao + 1)),
+                EntidadeDoEvento.doCodigo(segmento.get(posicao + 2)),
+                segmento.getLong(posicao + 16),
+                segmento.getLong(posicao + 24),
+                segmento.getLong(posicao + 32),
+                segmento.getLong(posicao + 40),
+                segmento.getLong(posicao + 48),
+                segmento.getInt(posicao + 4));
+    }
+
+    static long instante(ByteBuffer segmento, int posicao) {
+        return segmento.getLong(posicao + 16);
+    }
+}
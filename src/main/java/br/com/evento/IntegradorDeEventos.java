@@ -0,0 +1,92 @@
+package br.com.evento;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.Metadata;
+import org.hibernate.boot.spi.BootstrapContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.integrator.spi.Integrator;
+import org.hibernate.service.spi.SessionFactoryServiceRegistry;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/* Liga o diário de eventos a um EntityManagerFactory. Carregado pelo Hibernate via
+   META-INF/services/org.hibernate.integrator.spi.Integrator, mas só age quando a unidade de persistência (ou as
+   propriedades passadas ao criá-la, ver JPAUtil) define o diretório do diário:
+     vendas.eventos.diretorio            diretório dos segmentos (obrigatório para ativar)
+     vendas.eventos.eventosPorSegmento   padrão DiarioDeEventos.EVENTOS_POR_SEGMENTO_PADRAO
+     vendas.eventos.retencaoEmHoras      padrão 168 (7 dias); 0 guarda tudo
+   As alterações em massa, que não passam pelos ouvintes, são registradas por quem as faz com
+   registrarProdutosAlterados(). */
+public class IntegradorDeEventos implements Integrator {
+
+    public static final String DIRETORIO = "vendas.eventos.diretorio";
+    public static final String EVENTOS_POR_SEGMENTO = "vendas.eventos.eventosPorSegmento";
+    public static final String RETENCAO_EM_HORAS = "vendas.eventos.retencaoEmHoras";
+
+    // Estático: o Hibernate pode criar mais de uma instância do integrador, e as alterações em massa consultam o mapa.
+    private static final Map<SessionFactory, DiarioDeEventos> diarios = new ConcurrentHashMap<>();
+
+    @Override
+    public void integrate(Metadata metadata, BootstrapContext bootstrapContext, SessionFactoryImplementor sessionFactory) {
+        Map<String, Object> propriedades = sessionFactory.getProperties();
+        Object diretorio = propriedades.get(DIRETORIO);
+        if (diretorio == null || diretorio.toString().isBlank()) {
+            return;
+        }
+        DiarioDeEventos diario = new DiarioDeEventos(Path.of(diretorio.toString()),
+                inteiro(propriedades.get(EVENTOS_POR_SEGMENTO), DiarioDeEventos.EVENTOS_POR_SEGMENTO_PADRAO),
+                Duration.ofHours(inteiro(propriedades.get(RETENCAO_EM_HORAS), 168)));
+        diarios.put(sessionFactory, diario);
+
+        OuvinteDeEventos ouvinte = new OuvinteDeEventos(diario);
+        EventListenerRegistry registro = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        registro.appendListeners(EventType.POST_COMMIT_INSERT, ouvinte);
+        registro.appendListeners(EventType.POST_COMMIT_UPDATE, ouvinte);
+        registro.appendListeners(EventType.POST_COMMIT_DELETE, ouvinte);
+    }
+
+    @Override
+    public void disintegrate(SessionFactoryImplementor sessionFactory, SessionFactoryServiceRegistry serviceRegistry) {
+        DiarioDeEventos diario = diarios.remove(sessionFactory);
+        if (diario != null) {
+            diario.close();
+        }
+    }
+
+    // Verdadeiro se o EntityManagerFactory da sessão tem diário: sem ele, não vale ler os dados dos eventos.
+    public static boolean diarioAtivo(Session sessao) {
+        return diarios.containsKey(sessao.getSessionFactory());
+    }
+
+    /* Registra como ALTERACAO de produto cada linha (ID, ID da categoria ou null, preço) de uma alteração em massa
+       (UPDATE por HQL ou JDBC), como o ouvinte faria para cada entidade. Deve ser chamado dentro da transação da
+       alteração: os eventos só são gravados se ela for confirmada. */
+    public static void registrarProdutosAlterados(Session sessao, List<Object[]> produtos) {
+        DiarioDeEventos diario = diarios.get(sessao.getSessionFactory());
+        if (diario == null || produtos.isEmpty()) {
+            return;
+        }
+        sessao.unwrap(SessionImplementor.class).getActionQueue().registerProcess((confirmada, sessaoConcluida) -> {
+            if (confirmada) {
+                for (Object[] produto : produtos) {
+                    diario.registrar(TipoDeEvento.ALTERACAO, EntidadeDoEvento.PRODUTO, (Long) produto[0],
+                            produto[1] == null ? 0 : (Long) produto[1], 0,
+                            OuvinteDeEventos.centavos((BigDecimal) produto[2]), 0);
+                }
+            }
+        });
+    }
+
+    private static int inteiro(Object valor, int padrao) {
+        return valor == null ? padrao : Integer.parseInt(valor.toString().trim());
+    }
+}
@@ -0,0 +1,159 @@
+package br.com.evento;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/* Acompanha o diário de eventos a partir de um offset, sem consultar o banco.
+   - ler() devolve os eventos já gravados a partir da posição atual e avança; aguardar() espera os próximos.
+   - Com um nome de consumidor, a posição confirmada (confirmar) fica gravada em "consumidores/<nome>.offset"
+     dentro do diretório do diário, e a leitura recomeça dali na próxima execução.
+   - Se a retenção já apagou o segmento da posição atual, a leitura salta para o evento mais antigo disponível;
+     o consumidor percebe a lacuna pelo offset do primeiro evento devolvido.
+   Não é thread-safe: cada consumidor usa o seu leitor. */
+public class LeitorDeEventos implements AutoCloseable {
+
+    private static final long ESPERA_ENTRE_VERIFICACOES = TimeUnit.MILLISECONDS.toNanos(5);
+
+    private final Path diretorio;
+    private final Path arquivoDoOffset;
+    private long offset;
+
+    private MappedByteBuffer segmento;
+    private long inicioDoSegmento;
+    private int capacidadeDoSegmento;
+
+    // Leitor sem nome: começa no evento mais antigo disponível e não guarda a posição.
+    public LeitorDeEventos(Path diretorio) {
+        this.diretorio = diretorio;
+        this.arquivoDoOffset = null;
+    }
+
+    public LeitorDeEventos(Path diretorio, String consumidor) {
+        this.diretorio = diretorio;
+        this.arquivoDoOffset = diretorio.resolve("consumidores").resolve(consumidor + ".offset");
+        try {
+            if (Files.exists(arquivoDoOffset)) {
+                offset = Long.parseLong(Files.readString(arquivoDoOffset, StandardCharsets.UTF_8).trim());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao ler a posição do consumidor " + consumidor, e);
+        }
+    }
+
+    // Offset do próximo evento a ser lido.
+    public long getOffset() {
+        return offset;
+    }
+
+    public void posicionar(long offset) {
+        this.offset = offset;
+    }
+
+    // Devolve até "maximo" eventos a partir da posição atual (lista vazia se ainda não houver nenhum) e avança.
+    public List<Evento> ler(int maximo) {
+        List<Evento> eventos = new ArrayList<>();
+        while (eventos.size() < maximo && localizar()) {
+            int posicao = (int) (offset - inicioDoSegmento) * FormatoDoDiario.REGISTRO;
+            if (!FormatoDoDiario.confirmado(segmento, posicao, offset)) {
+                break;
+            }
+            eventos.add(FormatoDoDiario.ler(segmento, posicao));
+            offset++;
+        }
+        return eventos;
+    }
+
+    // Como ler(), mas espera até "tempoMaximo" pelo primeiro evento.
+    public List<Evento> aguardar(int maximo, Duration tempoMaximo) {
+        long prazo = System.nanoTime() + tempoMaximo.toNanos();
+        List<Evento> eventos = ler(maximo);
+        while (eventos.isEmpty() && System.nanoTime() < prazo && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(ESPERA_ENTRE_VERIFICACOES);
+            eventos = ler(maximo);
+        }
+        return eventos;
+    }
+
+    // Grava a posição atual do consumidor (troca atômica do arquivo, para não deixá-lo pela metade).
+    public void confirmar() {
+        if (arquivoDoOffset == null) {
+            throw new IllegalStateException("Leitor sem nome de consumidor não guarda a posição.");
+        }
+        try {
+            Files.createDirectories(arquivoDoOffset.getParent());
+            Path temporario = arquivoDoOffset.resolveSibling(arquivoDoOffset.getFileName() + ".tmp");
+            Files.writeString(temporario, Long.toString(offset), StandardCharsets.UTF_8);
+            Files.move(temporario, arquivoDoOffset, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao gravar a posição do consumidor", e);
+        }
+    }
+
+    // Offset do evento mais antigo ainda retido (ou 0 se o diário estiver vazio).
+    public long primeiroOffsetDisponivel() {
+        try {
+            List<Long> segmentos = FormatoDoDiario.segmentos(diretorio);
+            return segmentos.isEmpty() ? 0 : segmentos.getFirst();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao listar os segmentos do diário de eventos", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        segmento = null;
+    }
+
+    // Deixa mapeado o segmento que contém o offset atual; false se ele ainda não existir.
+    private boolean localizar() {
+        if (segmento != null && offset >= inicioDoSegmento && offset - inicioDoSegmento < capacidadeDoSegmento) {
+            return true;
+        }
+        try {
+            List<Long> segmentos = FormatoDoDiario.segmentos(diretorio);
+            if (segmentos.isEmpty()) {
+                return false;
+            }
+            if (offset < segmentos.getFirst()) {
+                offset = segmentos.getFirst();
+            }
+            long inicio = -1;
+            for (long candidato : segmentos) {
+                if (candidato <= offset) {
+                    inicio = candidato;
+                }
+            }
+            mapear(inicio);
+            return offset - inicioDoSegmento < capacidadeDoSegmento;
+        } catch (NoSuchFileException e) {
+            // Apagado pela retenção entre a listagem e a abertura: a próxima chamada lista de novo.
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Erro ao abrir o diário de eventos em " + diretorio, e);
+        }
+    }
+
+    private void mapear(long inicio) throws IOException {
+        if (segmento != null && inicio == inicioDoSegmento) {
+            return;
+        }
+        try (FileChannel canal = FileChannel.open(FormatoDoDiario.arquivoDoSegmento(diretorio, inicio), StandardOpenOption.READ)) {
+            segmento = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+        }
+        inicioDoSegmento = inicio;
+        capacidadeDoSegmento = (int) (segmento.capacity() / FormatoDoDiario.REGISTRO);
+    }
+}
@@ -0,0 +1,90 @@
+package br.com.evento;
+
+import br.com.model.ExclusaoLogica;
+import br.com.model.Pedido;
+import br.com.model.PedidoItem;
+import br.com.model.Produto;
+import org.hibernate.event.spi.PostCommitDeleteEventListener;
+import org.hibernate.event.spi.PostCommitInsertEventListener;
+import org.hibernate.event.spi.PostCommitUpdateEventListener;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/* Grava no diário as inclusões, alterações e exclusões de Pedido, PedidoItem e Produto. Registrado nos eventos
+   "post-commit" do Hibernate: só é chamado depois que a transação foi confirmada, então nada de uma transação
+   desfeita chega ao diário. Alterações em massa por HQL (UPDATE/DELETE) não passam pelos ouvintes; as de preço
+   são registradas pelo ProdutoDao (ver IntegradorDeEventos.registrarProdutosAlterados).
+   A exclusão lógica (ExclusaoLogica) chega como alteração e é registrada como exclusão; o expurgo posterior das
+   linhas, por SQL nativo, não gera eventos. */
+class OuvinteDeEventos implements PostCommitInsertEventListener, PostCommitUpdateEventListener,
+        PostCommitDeleteEventListener {
+
+    private final DiarioDeEventos diario;
+
+    OuvinteDeEventos(DiarioDeEventos diario) {
+        this.diario = diario;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent evento) {
+        registrar(TipoDeEvento.INCLUSAO, evento.getEntity(), evento.getId());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent evento) {
+        Object entidade = evento.getEntity();
+        boolean excluida = entidade instanceof ExclusaoLogica exclusao && exclusao.isExcluido();
+        registrar(excluida ? TipoDeEvento.EXCLUSAO : TipoDeEvento.ALTERACAO, entidade, evento.getId());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent evento) {
+        registrar(TipoDeEvento.EXCLUSAO, evento.getEntity(), evento.getId());
+    }
+
+    // Transação desfeita: não há o que registrar.
+    @Override
+    public void onPostInsertCommitFailed(PostInsertEvent evento) {
+    }
+
+    @Override
+    public void onPostUpdateCommitFailed(PostUpdateEvent evento) {
+    }
+
+    @Override
+    public void onPostDeleteCommitFailed(PostDeleteEvent evento) {
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        Class<?> classe = persister.getMappedClass();
+        return classe == Pedido.class || classe == PedidoItem.class || classe == Produto.class;
+    }
+
+    // Os IDs das associações vêm dos proxies, sem carregá-los.
+    private void registrar(TipoDeEvento tipo, Object entidade, Object id) {
+        if (entidade instanceof Pedido pedido) {
+            diario.registrar(tipo, EntidadeDoEvento.PEDIDO, (Long) id,
+                    pedido.getCliente() == null ? 0 : pedido.getCliente().getId(), 0,
+                    centavos(pedido.getValorTotal()), 0);
+        } else if (entidade instanceof PedidoItem item) {
+            diario.registrar(tipo, EntidadeDoEvento.PEDIDO_ITEM, (Long) id,
+                    item.getPedido() == null ? 0 : item.getPedido().getId(),
+                    item.getProduto() == null ? 0 : item.getProduto().getId(),
+                    centavos(item.getPrecoUnitario()), item.getQuantidade());
+        } else if (entidade instanceof Produto produto) {
+            diario.registrar(tipo, EntidadeDoEvento.PRODUTO, (Long) id,
+                    produto.getCategoria() == null ? 0 : produto.getCategoria().getId(), 0,
+                    centavos(produto.getPreco()), 0);
+        }
+    }
+
+    static long centavos(BigDecimal valor) {
+        return valor == null ? 0 : valor.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
@@ -0,0 +1,27 @@
+package br.com.evento;
+
+// Operação que gerou o evento; o código é o byte gravado no diário.
+public enum TipoDeEvento {
+    INCLUSAO(1),
+    ALTERACAO(2),
+    EXCLUSAO(3);
+
+    private final byte codigo;
+
+    TipoDeEvento(int codigo) {
+        this.codigo = (byte) codigo;
+    }
+
+    public byte getCodigo() {
+        return codigo;
+    }
+
+    public static TipoDeEvento doCodigo(byte codigo) {
+        for (TipoDeEvento tipo : values()) {
+            if (tipo.codigo == codigo) {
+                return tipo;
+            }
+        }
+        throw new IllegalArgumentException("Tipo de evento desconhecido: " + codigo);
+    }
+}
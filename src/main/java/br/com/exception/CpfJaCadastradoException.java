@@ -0,0 +1,16 @@
+package br.com.exception;
+
+// Lançada ao cadastrar um cliente com um CPF que já pertence a outro cliente.
+public class CpfJaCadastradoException extends RuntimeException {
+
+    private final String cpf;
+
+    public CpfJaCadastradoException(String cpf) {
+        super("Já existe um cliente cadastrado com o CPF " + cpf + ".");
+        this.cpf = cpf;
+    }
+
+    public String getCpf() {
+        return cpf;
+    }
+}
@@ -0,0 +1,23 @@
+package br.com.exception;
+
+// Lançada quando a reserva de um item de pedido pede mais unidades do que o produto tem disponíveis.
+public class EstoqueInsuficienteException extends RuntimeException {
+
+    private final Long idProduto;
+    private final long quantidadeSolicitada;
+
+    public EstoqueInsuficienteException(Long idProduto, long quantidadeSolicitada, long quantidadeDisponivel) {
+        super("Estoque insuficiente para o produto " + idProduto + ": solicitado " + quantidadeSolicitada
+                + ", disponível " + quantidadeDisponivel + ".");
+        this.idProduto = idProduto;
+        this.quantidadeSolicitada = quantidadeSolicitada;
+    }
+
+    public Long getIdProduto() {
+        return idProduto;
+    }
+
+    public long getQuantidadeSolicitada() {
+        return quantidadeSolicitada;
+    }
+}
@@ -0,0 +1,10 @@
+package br.com.exception;
+
+// Lançada quando a fila de entrada de pedidos não tem espaço disponível dentro do tempo de espera.
+// Indica ao chamador que o sistema está sobrecarregado e que o pedido deve ser reenviado mais tarde.
+public class FilaCheiaException extends RuntimeException {
+
+    public FilaCheiaException(String message) {
+        super(message);
+    }
+}
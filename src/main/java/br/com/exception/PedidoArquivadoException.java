@@ -0,0 +1,16 @@
+package br.com.exception;
+
+// Lançada ao alterar ou excluir um pedido arquivado: a cópia devolvida pelas consultas é somente leitura.
+public class PedidoArquivadoException extends RuntimeException {
+
+    private final Long idPedido;
+
+    public PedidoArquivadoException(Long idPedido) {
+        super("O pedido " + idPedido + " está arquivado e não pode ser alterado nem excluído.");
+        this.idPedido = idPedido;
+    }
+
+    public Long getIdPedido() {
+        return idPedido;
+    }
+}
@@ -0,0 +1,158 @@
+package br.com.http;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+// Escritor de JSON incremental: cada valor vai direto para o Writer, então uma lista grande é enviada ao cliente
+// enquanto é percorrida, sem montar o documento inteiro em memória. As vírgulas são controladas por nível.
+public class EscritorJson {
+
+	private final Writer saida;
+	private boolean[] primeiroDoNivel = new boolean[16];
+	private int nivel;
+	private boolean aposNome;
+
+	public EscritorJson(Writer saida) {
+		this.saida = saida;
+	}
+
+	public EscritorJson abrirObjeto() {
+		return abrir('{');
+	}
+
+	public EscritorJson fecharObjeto() {
+		return fechar('}');
+	}
+
+	public EscritorJson abrirLista() {
+		return abrir('[');
+	}
+
+	public EscritorJson fecharLista() {
+		return fechar(']');
+	}
+
+	public EscritorJson nome(String nome) {
+		separar();
+		escreverTexto(nome);
+		escrever(":");
+		aposNome = true;
+		return this;
+	}
+
+	public EscritorJson valor(String valor) {
+		separar();
+		if (valor == null) {
+			escrever("null");
+		} else {
+			escreverTexto(valor);
+		}
+		return this;
+	}
+
+	public EscritorJson valor(Number valor) {
+		separar();
+		escrever(valor == null ? "null"
+				: valor instanceof BigDecimal decimal ? decimal.toPlainString() : valor.toString());
+		return this;
+	}
+
+	public EscritorJson valor(boolean valor) {
+		separar();
+		escrever(Boolean.toString(valor));
+		return this;
+	}
+
+	public EscritorJson valor(LocalDate valor) {
+		return valor(valor == null ? null : valor.toString());
+	}
+
+	public EscritorJson campo(String nome, String valor) {
+		return nome(nome).valor(valor);
+	}
+
+	public EscritorJson campo(String nome, Number valor) {
+		return nome(nome).valor(valor);
+	}
+
+	public EscritorJson campo(String nome, boolean valor) {
+		return nome(nome).valor(valor);
+	}
+
+	public EscritorJson campo(String nome, LocalDate valor) {
+		return nome(nome).valor(valor);
+	}
+
+	public void flush() {
+		try {
+			saida.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private EscritorJson abrir(char caractere) {
+		separar();
+		escrever(String.valueOf(caractere));
+		nivel++;
+		if (nivel == primeiroDoNivel.length) {
+			primeiroDoNivel = Arrays.copyOf(primeiroDoNivel, nivel * 2);
+		}
+		primeiroDoNivel[nivel] = true;
+		return this;
+	}
+
+	private EscritorJson fechar(char caractere) {
+		nivel--;
+		escrever(String.valueOf(caractere));
+		return this;
+	}
+
+	// Antes de cada valor (ou nome) do mesmo nível, exceto o primeiro, vai uma vírgula; depois de um nome, não.
+	private void separar() {
+		if (aposNome) {
+			aposNome = false;
+			return;
+		}
+		if (nivel > 0) {
+			if (!primeiroDoNivel[nivel]) {
+				escrever(",");
+			}
+			primeiroDoNivel[nivel] = false;
+		}
+	}
+
+	private void escreverTexto(String texto) {
+		StringBuilder sb = new StringBuilder(texto.length() + 2).append('"');
+		for (int i = 0; i < texto.length(); i++) {
+			char c = texto.charAt(i);
+			switch (c) {
+				case '"' -> sb.append("\\\"");
+				case '\\' -> sb.append("\\\\");
+				case '\n' -> sb.append("\\n");
+				case '\r' -> sb.append("\\r");
+				case '\t' -> sb.append("\\t");
+				default -> {
+					if (c < 0x20) {
+						sb.append(String.format("\\u%04x", (int) c));
+					} else {
+						sb.append(c);
+					}
+				}
+			}
+		}
+		escrever(sb.append('"').toString());
+	}
+
+	private void escrever(String texto) {
+		try {
+			saida.write(texto);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
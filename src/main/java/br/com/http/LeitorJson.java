@@ -0,0 +1,163 @@
+package br.com.http;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Leitor mínimo de JSON para os corpos das requisições: objetos viram Map, listas viram List, números viram
+// BigDecimal e o restante String, Boolean ou null. Entradas malformadas geram IllegalArgumentException.
+public class LeitorJson {
+
+	private final String texto;
+	private int posicao;
+
+	private LeitorJson(String texto) {
+		this.texto = texto;
+	}
+
+	@SuppressWarnings("unchecked")
+	public static Map<String, Object> lerObjeto(String texto) {
+		LeitorJson leitor = new LeitorJson(texto);
+		Object valor = leitor.lerValor();
+		leitor.pularEspacos();
+		if (!(valor instanceof Map) || leitor.posicao != texto.length()) {
+			throw new IllegalArgumentException("O corpo da requisição deve ser um objeto JSON");
+		}
+		return (Map<String, Object>) valor;
+	}
+
+	private Object lerValor() {
+		pularEspacos();
+		if (posicao >= texto.length()) {
+			throw erro("fim inesperado");
+		}
+		char c = texto.charAt(posicao);
+		return switch (c) {
+			case '{' -> lerObjeto();
+			case '[' -> lerLista();
+			case '"' -> lerTexto();
+			case 't' -> lerLiteral("true", Boolean.TRUE);
+			case 'f' -> lerLiteral("false", Boolean.FALSE);
+			case 'n' -> lerLiteral("null", null);
+			default -> lerNumero();
+		};
+	}
+
+	private Map<String, Object> lerObjeto() {
+		Map<String, Object> objeto = new LinkedHashMap<>();
+		posicao++;
+		pularEspacos();
+		if (consumir('}')) {
+			return objeto;
+		}
+		do {
+			pularEspacos();
+			if (posicao >= texto.length() || texto.charAt(posicao) != '"') {
+				throw erro("nome de campo esperado");
+			}
+			String nome = lerTexto();
+			pularEspacos();
+			if (!consumir(':')) {
+				throw erro("':' esperado");
+			}
+			objeto.put(nome, lerValor());
+			pularEspacos();
+		} while (consumir(','));
+		if (!consumir('}')) {
+			throw erro("'}' esperado");
+		}
+		return objeto;
+	}
+
+	private List<Object> lerLista() {
+		List<Object> lista = new ArrayList<>();
+		posicao++;
+		pularEspacos();
+		if (consumir(']')) {
+			return lista;
+		}
+		do {
+			lista.add(lerValor());
+			pularEspacos();
+		} while (consumir(','));
+		if (!consumir(']')) {
+			throw erro("']' esperado");
+		}
+		return lista;
+	}
+
+	private String lerTexto() {
+		StringBuilder sb = new StringBuilder();
+		posicao++;
+		while (posicao < texto.length()) {
+			char c = texto.charAt(posicao++);
+			if (c == '"') {
+				return sb.toString();
+			}
+			if (c == '\\') {
+				if (posicao >= texto.length()) {
+					break;
+				}
+				char escape = texto.charAt(posicao++);
+				switch (escape) {
+					case 'n' -> sb.append('\n');
+					case 'r' -> sb.append('\r');
+					case 't' -> sb.append('\t');
+					case 'b' -> sb.append('\b');
+					case 'f' -> sb.append('\f');
+					case 'u' -> {
+						if (posicao + 4 > texto.length()) {
+							throw erro("escape unicode incompleto");
+						}
+						sb.append((char) Integer.parseInt(texto.substring(posicao, posicao + 4), 16));
+						posicao += 4;
+					}
+					default -> sb.append(escape);
+				}
+			} else {
+				sb.append(c);
+			}
+		}
+		throw erro("texto não terminado");
+	}
+
+	private Object lerLiteral(String literal, Object valor) {
+		if (!texto.startsWith(literal, posicao)) {
+			throw erro("valor inválido");
+		}
+		posicao += literal.length();
+		return valor;
+	}
+
+	private BigDecimal lerNumero() {
+		int inicio = posicao;
+		while (posicao < texto.length() && "+-0123456789.eE".indexOf(texto.charAt(posicao)) >= 0) {
+			posicao++;
+		}
+		try {
+			return new BigDecimal(texto.substring(inicio, posicao));
+		} catch (NumberFormatException e) {
+			throw erro("número inválido");
+		}
+	}
+
+	private boolean consumir(char esperado) {
+		if (posicao < texto.length() && texto.charAt(posicao) == esperado) {
+			posicao++;
+			return true;
+		}
+		return false;
+	}
+
+	private void pularEspacos() {
+		while (posicao < texto.length() && Character.isWhitespace(texto.charAt(posicao))) {
+			posicao++;
+		}
+	}
+
+	private IllegalArgumentException erro(String motivo) {
+		return new IllegalArgumentException("JSON inválido na posição " + posicao + ": " + motivo);
+	}
+}
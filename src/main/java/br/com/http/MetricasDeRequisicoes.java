@@ -0,0 +1,60 @@
+package br.com.http;
+
+import br.com.util.HistogramaDeLatencia;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Latência por rota (ex.: "GET /produtos/{id}"), contagem de erros e requisições em andamento do ServidorHttp.
+// Cada rota tem o seu histograma; o registro é sincronizado por rota, então rotas diferentes não disputam trava.
+public class MetricasDeRequisicoes {
+
+	private final Map<String, Rota> rotas = new ConcurrentHashMap<>();
+	private final AtomicInteger emAndamento = new AtomicInteger();
+
+	public void iniciar() {
+		emAndamento.incrementAndGet();
+	}
+
+	public void registrar(String rota, int status, long nanos) {
+		emAndamento.decrementAndGet();
+		Rota metricas = rotas.computeIfAbsent(rota, r -> new Rota());
+		synchronized (metricas) {
+			metricas.latencias.registrar(nanos);
+			if (status >= 500) {
+				metricas.erros++;
+			} else if (status >= 400) {
+				metricas.rejeitadas++;
+			}
+		}
+	}
+
+	public void escrever(EscritorJson json) {
+		json.abrirObjeto().campo("emAndamento", emAndamento.get()).nome("rotas").abrirLista();
+		for (Map.Entry<String, Rota> entrada : new TreeMap<>(rotas).entrySet()) {
+			Rota metricas = entrada.getValue();
+			synchronized (metricas) {
+				HistogramaDeLatencia latencias = metricas.latencias;
+				json.abrirObjeto()
+						.campo("rota", entrada.getKey())
+						.campo("total", latencias.getTotal())
+						.campo("erros", metricas.erros)
+						.campo("rejeitadas", metricas.rejeitadas)
+						.campo("p50Ms", latencias.percentil(0.50) / 1e6)
+						.campo("p99Ms", latencias.percentil(0.99) / 1e6)
+						.campo("p999Ms", latencias.percentil(0.999) / 1e6)
+						.campo("maxMs", latencias.getMaximo() / 1e6)
+						.fecharObjeto();
+			}
+		}
+		json.fecharLista().fecharObjeto();
+	}
+
+	private static class Rota {
+		private final HistogramaDeLatencia latencias = new HistogramaDeLatencia();
+		private long erros;
+		private long rejeitadas;
+	}
+}
@@ -0,0 +1,609 @@
+package br.com.http;
+
+import br.com.exception.DataAccessException;
+import br.com.exception.EstoqueInsuficienteException;
+import br.com.exception.FilaCheiaException;
+import br.com.exception.PedidoArquivadoException;
+import br.com.model.*;
+import br.com.service.CategoriaService;
+import br.com.service.ControleDeEstoque;
+import br.com.service.PedidoService;
+import br.com.service.ProdutoService;
+import br.com.service.VendaService;
+import br.com.util.Granularidade;
+import br.com.util.JPAUtil;
+import br.com.vo.RelatorioDeVendasVo;
+import br.com.vo.RelatorioFinanceiroVo;
+import br.com.vo.SerieDeVendasVo;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/* API HTTP/JSON embutida, sobre o HttpServer do JDK, com um thread virtual por requisição. Cada requisição usa o
+   seu próprio EntityManager e os services de sempre. Milhares de conexões podem ficar abertas ao mesmo tempo,
+   mas só "conexoesDoBanco" requisições usam o banco simultaneamente (as demais esperam num semáforo, sem
+   ocupar threads de plataforma), para não estourar o pool de conexões.
+   As listas são enviadas em partes (chunked) enquanto são percorridas, e GET /metricas mostra as latências
+   por rota. Uso: ServidorHttp [porta] [conexoesDoBanco]   (a unidade de persistência vem do JPAUtil). */
+public class ServidorHttp {
+
+    // Fila de conexões pendentes do socket: folgada para picos de milhares de conexões simultâneas.
+    private static final int BACKLOG = 4096;
+
+    private final EntityManagerFactory emf;
+    private final Semaphore acessoAoBanco;
+    // Compartilhado por todas as requisições: as reservas de um produto disputam o mesmo saldo em memória.
+    private final ControleDeEstoque controleDeEstoque;
+    private final MetricasDeRequisicoes metricas = new MetricasDeRequisicoes();
+    private final List<Rota> rotas = new ArrayList<>();
+    private HttpServer servidor;
+    private ExecutorService executor;
+
+    public ServidorHttp(EntityManagerFactory emf, int conexoesDoBanco) {
+        this.emf = emf;
+        this.acessoAoBanco = new Semaphore(conexoesDoBanco, true);
+        this.controleDeEstoque = new ControleDeEstoque(emf, Duration.ofSeconds(1), Duration.ofMinutes(5));
+        registrarRotas();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int porta = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int conexoesDoBanco = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        ServidorHttp servidor = new ServidorHttp(JPAUtil.getEntityManagerFactory(), conexoesDoBanco);
+        servidor.iniciar(porta);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            servidor.parar();
+            JPAUtil.fechar();
+        }));
+        System.out.println("Servidor HTTP ouvindo na porta " + servidor.getPorta());
+    }
+
+    public void iniciar(int porta) throws IOException {
+        controleDeEstoque.iniciar();
+        servidor = HttpServer.create(new InetSocketAddress(porta), BACKLOG);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        servidor.setExecutor(executor);
+        servidor.createContext("/", this::atender);
+        servidor.start();
+    }
+
+    public int getPorta() {
+        return servidor.getAddress().getPort();
+    }
+
+    public void parar() {
+        servidor.stop(1);
+        executor.close();
+        controleDeEstoque.close();
+    }
+
+    private void registrarRotas() {
+        rota("GET", "/categorias", r -> r.responderLista(
+                () -> new CategoriaService(r.em()).percorrerTodasAsCategorias(), ServidorHttp::escreverCategoria));
+        rota("GET", "/categorias/{id}", r -> {
+            Categoria categoria = existente(new CategoriaService(r.em()).buscarCategoriaPorId(r.idDoCaminho(1)));
+            r.responder(200, json -> escreverCategoria(json, categoria));
+        });
+        rota("POST", "/categorias", r -> {
+            Categoria categoria = new Categoria(r.texto("nome"));
+            new CategoriaService(r.em()).inserir(categoria);
+            r.responder(201, json -> escreverCategoria(json, categoria));
+        });
+        rota("PUT", "/categorias/{id}", r -> {
+            CategoriaService categoriaService = new CategoriaService(r.em());
+            Categoria categoria = existente(categoriaService.buscarCategoriaPorId(r.idDoCaminho(1)));
+            categoria.setNome(r.texto("nome"));
+            categoriaService.alterar(categoria);
+            r.responder(200, json -> escreverCategoria(json, categoria));
+        });
+        rota("DELETE", "/categorias/{id}", r -> {
+            CategoriaService categoriaService = new CategoriaService(r.em());
+            categoriaService.excluir(existente(categoriaService.buscarCategoriaPorId(r.idDoCaminho(1))));
+            r.responderSemConteudo();
+        });
+
+        rota("GET", "/produtos", r -> {
+            ProdutoService produtoService = produtoService(r.em());
+            String nome = r.parametro("nome");
+            String categoria = r.parametro("categoria");
+            Long idCategoria = nome == null && categoria != null ? Long.parseLong(categoria) : null;
+            r.responderLista(() -> nome != null ? produtoService.percorrerProdutosPorNome(nome)
+                    : idCategoria != null ? produtoService.percorrerProdutosDaCategoria(idCategoria)
+                    : produtoService.percorrerTodosOsProdutos(), ServidorHttp::escreverProduto);
+        });
+        rota("GET", "/produtos/{id}", r -> {
+            Produto produto = existente(produtoService(r.em()).buscarProdutoPorId(r.idDoCaminho(1)));
+            r.responder(200, json -> escreverProduto(json, produto));
+        });
+        rota("POST", "/produtos", r -> {
+            Categoria categoria = existente(new CategoriaService(r.em()).buscarCategoriaPorId(r.numero("idCategoria").longValue()));
+            Produto produto = new Produto(r.texto("nome"), (String) r.corpo().get("descricao"), r.numero("preco"), categoria);
+            if (r.corpo().containsKey("estoque")) {
+                produto.setEstoque(r.numero("estoque").longValueExact());
+            }
+            produtoService(r.em()).inserir(produto);
+            r.responder(201, json -> escreverProduto(json, produto));
+        });
+        rota("PUT", "/produtos/{id}", r -> {
+            ProdutoService produtoService = produtoService(r.em());
+            Produto produto = existente(produtoService.buscarProdutoPorId(r.idDoCaminho(1)));
+            Map<String, Object> corpo = r.corpo();
+            if (corpo.containsKey("nome")) {
+                produto.setNome(r.texto("nome"));
+            }
+            if (corpo.containsKey("descricao")) {
+                produto.setDescricao((String) corpo.get("descricao"));
+            }
+            if (corpo.containsKey("preco")) {
+                produto.setPreco(r.numero("preco"));
+            }
+            produtoService.alterar(produto);
+            r.responder(200, json -> escreverProduto(json, produto));
+        });
+        rota("POST", "/produtos/{id}/estoque", r -> {
+            if (!produtoService(r.em()).reporEstoque(r.idDoCaminho(1), r.numero("quantidade").longValueExact())) {
+                throw new ErroHttp(404, "Registro não encontrado");
+            }
+            r.responderSemConteudo();
+        });
+        rota("DELETE", "/produtos/{id}", r -> {
+            ProdutoService produtoService = produtoService(r.em());
+            produtoService.excluir(existente(produtoService.buscarProdutoPorId(r.idDoCaminho(1))));
+            r.responderSemConteudo();
+        });
+
+        rota("GET", "/pedidos", r -> {
+            PedidoService pedidoService = pedidoService(r.em());
+            if (r.parametro("cliente") != null) {
+                long idCliente = Long.parseLong(r.parametro("cliente"));
+                r.responderLista(() -> pedidoService.percorrerPedidosDeUmCliente(idCliente), ServidorHttp::escreverPedido);
+            } else {
+                LocalDate inicio = r.data("inicio");
+                LocalDate fim = r.data("fim");
+                r.responderLista(() -> pedidoService.percorrerPedidosPorPeriodo(inicio, fim), ServidorHttp::escreverPedido);
+            }
+        });
+        rota("GET", "/pedidos/{id}", r -> {
+            Pedido pedido = existente(pedidoService(r.em()).buscarPedidoPorId(r.idDoCaminho(1)));
+            r.responder(200, json -> escreverPedido(json, pedido));
+        });
+        rota("POST", "/pedidos", r -> {
+            EntityManager em = r.em();
+            Pedido pedido = new Pedido(existente(em.find(Cliente.class, r.numero("idCliente").longValue())));
+            Object itens = r.corpo().get("itens");
+            if (!(itens instanceof List<?> lista) || lista.isEmpty()) {
+                throw new IllegalArgumentException("O pedido deve ter ao menos um item");
+            }
+            ProdutoService produtoService = produtoService(em);
+            for (Object elemento : lista) {
+                if (!(elemento instanceof Map<?, ?> item)
+                        || !(item.get("idProduto") instanceof BigDecimal idProduto)
+                        || !(item.get("quantidade") instanceof BigDecimal quantidade)) {
+                    throw new IllegalArgumentException("Cada item deve ter idProduto e quantidade");
+                }
+                Produto produto = existente(produtoService.buscarProdutoPorId(idProduto.longValue()));
+                pedido.adicionarItem(new PedidoItem(quantidade.intValueExact(), pedido, produto));
+            }
+            pedidoService(em).inserir(pedido);
+            r.responder(201, json -> escreverPedido(json, pedido));
+        });
+        rota("DELETE", "/pedidos/{id}", r -> {
+            PedidoService pedidoService = pedidoService(r.em());
+            pedidoService.excluir(existente(pedidoService.buscarPedidoPorId(r.idDoCaminho(1))));
+            r.responderSemConteudo();
+        });
+        rota("PUT", "/pedidos/{id}/itens/{idItem}", r -> {
+            PedidoService pedidoService = pedidoService(r.em());
+            Pedido pedido = existente(pedidoService.buscarPedidoPorId(r.idDoCaminho(1)));
+            PedidoItem item = itemDoPedido(pedido, r.idDoCaminho(3));
+            // Mesma sequência do Main: o item sai e volta ao pedido para recalcular o valor total.
+            pedido.removerItem(item);
+            item.setQuantidade(r.numero("quantidade").intValueExact());
+            pedido.adicionarItem(item);
+            pedidoService.alterar(pedido);
+            r.responder(200, json -> escreverPedido(json, pedido));
+        });
+        rota("DELETE", "/pedidos/{id}/itens/{idItem}", r -> {
+            PedidoService pedidoService = pedidoService(r.em());
+            Pedido pedido = existente(pedidoService.buscarPedidoPorId(r.idDoCaminho(1)));
+            PedidoItem item = itemDoPedido(pedido, r.idDoCaminho(3));
+            pedido.removerItem(item);
+            pedidoService.alterar(pedido);
+            pedidoService.excluirItem(item);
+            r.responderSemConteudo();
+        });
+
+        rota("GET", "/vendas/total", r -> {
+            BigDecimal total = new VendaService(r.em()).retornaValorTotalVendido(r.data("inicio"), r.data("fim"));
+            r.responder(200, json -> json.abrirObjeto().campo("total", total).fecharObjeto());
+        });
+        rota("GET", "/vendas/produtos", r -> {
+            VendaService vendaService = new VendaService(r.em());
+            int limite = r.limite();
+            List<RelatorioDeVendasVo> relatorio = r.parametro("inicio") == null
+                    ? vendaService.retornaProdutosMaisVendidos(limite)
+                    : vendaService.retornaProdutosMaisVendidos(r.data("inicio"), r.data("fim"), limite);
+            r.responderLista(relatorio, (json, vo) -> json.abrirObjeto()
+                    .campo("idProduto", vo.getIdProduto())
+                    .campo("nomeProduto", vo.getNomeProduto())
+                    .campo("quantidadeVendida", vo.getQuantidadeVendida())
+                    .campo("dataUltimaVenda", vo.getDataUltimaVenda())
+                    .fecharObjeto());
+        });
+        rota("GET", "/vendas/clientes", r -> {
+            VendaService vendaService = new VendaService(r.em());
+            int limite = r.limite();
+            List<RelatorioFinanceiroVo> relatorio = r.parametro("inicio") == null
+                    ? vendaService.retornaMelhoresClientes(limite)
+                    : vendaService.retornaMelhoresClientes(r.data("inicio"), r.data("fim"), limite);
+            r.responderLista(relatorio, (json, vo) -> json.abrirObjeto()
+                    .campo("idCliente", vo.getIdCliente())
+                    .campo("nomeCliente", vo.getNomeCliente())
+                    .campo("totalPedidosDoCliente", vo.getTotalPedidosDoCliente())
+                    .fecharObjeto());
+        });
+        rota("GET", "/vendas/serie", r -> {
+            VendaService vendaService = new VendaService(r.em());
+            LocalDate inicio = r.data("inicio");
+            LocalDate fim = r.data("fim");
+            Granularidade granularidade = Granularidade.valueOf(
+                    r.parametro("granularidade") == null ? "DIA" : r.parametro("granularidade").toUpperCase());
+            try (Stream<SerieDeVendasVo> serie = Boolean.parseBoolean(r.parametro("porCategoria"))
+                    ? vendaService.retornaSerieDeVendasPorCategoria(inicio, fim, granularidade)
+                    : vendaService.retornaSerieDeVendas(inicio, fim, granularidade)) {
+                r.responder(200, json -> {
+                    json.abrirLista();
+                    serie.forEach(vo -> json.abrirObjeto()
+                            .campo("inicioDoIntervalo", vo.getInicioDoIntervalo())
+                            .campo("idCategoria", vo.getIdCategoria())
+                            .campo("nomeCategoria", vo.getNomeCategoria())
+                            .campo("faturamento", vo.getFaturamento())
+                            .campo("quantidadePedidos", vo.getQuantidadePedidos())
+                            .campo("unidadesVendidas", vo.getUnidadesVendidas())
+                            .fecharObjeto());
+                    json.fecharLista();
+                });
+            }
+        });
+
+        rota("GET", "/metricas", r -> r.responder(200, metricas::escrever));
+    }
+
+    private PedidoService pedidoService(EntityManager em) {
+        PedidoService pedidoService = new PedidoService(em);
+        pedidoService.setControleDeEstoque(controleDeEstoque);
+        return pedidoService;
+    }
+
+    private ProdutoService produtoService(EntityManager em) {
+        ProdutoService produtoService = new ProdutoService(em);
+        produtoService.setControleDeEstoque(controleDeEstoque);
+        return produtoService;
+    }
+
+    private void rota(String metodo, String padrao, Acao acao) {
+        rotas.add(new Rota(metodo, padrao, acao));
+    }
+
+    private void atender(HttpExchange troca) {
+        long inicio = System.nanoTime();
+        metricas.iniciar();
+        Requisicao requisicao = new Requisicao(troca);
+        String nomeDaRota = troca.getRequestMethod() + " (sem rota)";
+        try {
+            Rota rota = encontrarRota(troca.getRequestMethod(), requisicao.segmentos);
+            if (rota == null) {
+                throw new ErroHttp(404, "Rota não encontrada: " + troca.getRequestURI().getPath());
+            }
+            nomeDaRota = rota.metodo + " " + rota.padrao;
+            rota.acao.executar(requisicao);
+        } catch (ErroHttp e) {
+            requisicao.responderErro(e.status, e.getMessage());
+        } catch (IllegalArgumentException | ArithmeticException | DateTimeParseException | ClassCastException e) {
+            requisicao.responderErro(400, e.getMessage());
+        } catch (PedidoArquivadoException | EstoqueInsuficienteException e) {
+            requisicao.responderErro(409, e.getMessage());
+        } catch (FilaCheiaException e) {
+            requisicao.responderErro(503, e.getMessage());
+        } catch (DataAccessException e) {
+            requisicao.responderErro(500, e.getMessage());
+        } catch (Exception e) {
+            requisicao.responderErro(500, e.toString());
+        } finally {
+            requisicao.encerrar();
+            metricas.registrar(nomeDaRota, requisicao.status, System.nanoTime() - inicio);
+        }
+    }
+
+    private Rota encontrarRota(String metodo, String[] segmentos) {
+        for (Rota rota : rotas) {
+            if (rota.metodo.equals(metodo) && rota.atende(segmentos)) {
+                return rota;
+            }
+        }
+        return null;
+    }
+
+    private static <T> T existente(T entidade) {
+        if (entidade == null) {
+            throw new ErroHttp(404, "Registro não encontrado");
+        }
+        return entidade;
+    }
+
+    private static PedidoItem itemDoPedido(Pedido pedido, long idItem) {
+        for (PedidoItem item : pedido.getItens()) {
+            if (item.getId().equals(idItem)) {
+                return item;
+            }
+        }
+        throw new ErroHttp(404, "Item do pedido não encontrado");
+    }
+
+    private static void escreverCategoria(EscritorJson json, Categoria categoria) {
+        json.abrirObjeto().campo("id", categoria.getId()).campo("nome", categoria.getNome()).fecharObjeto();
+    }
+
+    private static void escreverProduto(EscritorJson json, Produto produto) {
+        json.abrirObjeto()
+                .campo("id", produto.getId())
+                .campo("nome", produto.getNome())
+                .campo("preco", produto.getPreco())
+                .campo("idCategoria", produto.getCategoria() == null ? null : produto.getCategoria().getId())
+                .fecharObjeto();
+    }
+
+    private static void escreverPedido(EscritorJson json, Pedido pedido) {
+        json.abrirObjeto()
+                .campo("id", pedido.getId())
+                .campo("data", pedido.getData())
+                .campo("valorTotal", pedido.getValorTotal())
+                .campo("idCliente", pedido.getCliente() == null ? null : pedido.getCliente().getId())
+                .nome("itens").abrirLista();
+        for (PedidoItem item : pedido.getItens()) {
+            json.abrirObjeto()
+                    .campo("id", item.getId())
+                    .campo("idProduto", item.getProduto().getId())
+                    .campo("quantidade", item.getQuantidade())
+                    .campo("precoUnitario", item.getPrecoUnitario())
+                    .fecharObjeto();
+        }
+        json.fecharLista().fecharObjeto();
+    }
+
+    @FunctionalInterface
+    private interface Acao {
+        void executar(Requisicao requisicao) throws IOException;
+    }
+
+    private static class Rota {
+        private final String metodo;
+        private final String padrao;
+        private final String[] segmentos;
+        private final Acao acao;
+
+        Rota(String metodo, String padrao, Acao acao) {
+            this.metodo = metodo;
+            this.padrao = padrao;
+            this.segmentos = padrao.substring(1).split("/");
+            this.acao = acao;
+        }
+
+        // Segmentos entre chaves (ex.: {id}) aceitam qualquer valor; os demais devem ser iguais.
+        boolean atende(String[] caminho) {
+            if (caminho.length != segmentos.length) {
+                return false;
+            }
+            for (int i = 0; i < segmentos.length; i++) {
+                if (!segmentos[i].startsWith("{") && !segmentos[i].equals(caminho[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class ErroHttp extends RuntimeException {
+        private final int status;
+
+        ErroHttp(int status, String mensagem) {
+            super(mensagem);
+            this.status = status;
+        }
+    }
+
+    // Estado de uma requisição: caminho, parâmetros, corpo, o EntityManager (aberto só se a rota usar o banco,
+    // depois de obter vaga no semáforo) e a resposta.
+    private class Requisicao {
+        private final HttpExchange troca;
+        private final String[] segmentos;
+        private Map<String, String> parametros;
+        private Map<String, Object> corpo;
+        private EntityManager em;
+        private boolean respondida;
+        private int status = 500;
+
+        Requisicao(HttpExchange troca) {
+            this.troca = troca;
+            String caminho = troca.getRequestURI().getPath();
+            while (caminho.length() > 1 && caminho.endsWith("/")) {
+                caminho = caminho.substring(0, caminho.length() - 1);
+            }
+            this.segmentos = caminho.substring(1).split("/");
+        }
+
+        EntityManager em() {
+            if (em == null) {
+                try {
+                    acessoAoBanco.acquire();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new ErroHttp(503, "Requisição interrompida aguardando o banco");
+                }
+                try {
+                    em = emf.createEntityManager();
+                } catch (RuntimeException e) {
+                    acessoAoBanco.release();
+                    throw e;
+                }
+            }
+            return em;
+        }
+
+        long idDoCaminho(int indice) {
+            return Long.parseLong(segmentos[indice]);
+        }
+
+        String parametro(String nome) {
+            if (parametros == null) {
+                parametros = new HashMap<>();
+                String consulta = troca.getRequestURI().getRawQuery();
+                if (consulta != null) {
+                    for (String par : consulta.split("&")) {
+                        int igual = par.indexOf('=');
+                        if (igual > 0) {
+                            parametros.put(URLDecoder.decode(par.substring(0, igual), StandardCharsets.UTF_8),
+                                    URLDecoder.decode(par.substring(igual + 1), StandardCharsets.UTF_8));
+                        }
+                    }
+                }
+            }
+            return parametros.get(nome);
+        }
+
+        LocalDate data(String nome) {
+            String valor = parametro(nome);
+            if (valor == null) {
+                throw new IllegalArgumentException("Parâmetro obrigatório: " + nome + " (yyyy-MM-dd)");
+            }
+            return LocalDate.parse(valor);
+        }
+
+        int limite() {
+            return parametro("limite") == null ? 10 : Integer.parseInt(parametro("limite"));
+        }
+
+        Map<String, Object> corpo() throws IOException {
+            if (corpo == null) {
+                try (InputStream entrada = troca.getRequestBody()) {
+                    corpo = LeitorJson.lerObjeto(new String(entrada.readAllBytes(), StandardCharsets.UTF_8));
+                }
+            }
+            return corpo;
+        }
+
+        String texto(String campo) throws IOException {
+            if (!(corpo().get(campo) instanceof String valor) || valor.isBlank()) {
+                throw new IllegalArgumentException("Campo obrigatório: " + campo);
+            }
+            return valor;
+        }
+
+        BigDecimal numero(String campo) throws IOException {
+            if (!(corpo().get(campo) instanceof BigDecimal valor)) {
+                throw new IllegalArgumentException("Campo numérico obrigatório: " + campo);
+            }
+            return valor;
+        }
+
+        // A resposta é enviada em partes: o corpo vai sendo escrito enquanto o escritor é alimentado.
+        void responder(int status, Consumer<EscritorJson> conteudo) throws IOException {
+            this.status = status;
+            troca.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            troca.sendResponseHeaders(status, 0);
+            respondida = true;
+            Writer saida = new BufferedWriter(new OutputStreamWriter(troca.getResponseBody(), StandardCharsets.UTF_8));
+            EscritorJson json = new EscritorJson(saida);
+            conteudo.accept(json);
+            json.flush();
+        }
+
+        <T> void responderLista(List<T> itens, BiConsumer<EscritorJson, T> escreverItem) throws IOException {
+            responder(200, json -> {
+                json.abrirLista();
+                for (T item : itens) {
+                    escreverItem.accept(json, item);
+                }
+                json.fecharLista();
+            });
+        }
+
+        // Escreve cada registro enquanto o cursor da consulta é percorrido, sem montar a lista. A leitura acontece
+        // numa transação (desfeita no final, nada é gravado): fora dela, o Hibernate fecharia o cursor assim que
+        // uma associação lazy (ex.: os itens de um pedido) fosse carregada no meio da escrita.
+        <T> void responderLista(Supplier<Stream<T>> consulta, BiConsumer<EscritorJson, T> escreverItem) throws IOException {
+            EntityTransaction transacao = em().getTransaction();
+            transacao.begin();
+            try (Stream<T> itens = consulta.get()) {
+                responder(200, json -> {
+                    json.abrirLista();
+                    itens.forEach(item -> escreverItem.accept(json, item));
+                    json.fecharLista();
+                });
+            } finally {
+                transacao.rollback();
+            }
+        }
+
+        void responderSemConteudo() throws IOException {
+            status = 204;
+            troca.sendResponseHeaders(204, -1);
+            respondida = true;
+        }
+
+        void responderErro(int status, String mensagem) {
+            if (respondida) {
+                // O cabeçalho já foi enviado: resta interromper a resposta em andamento.
+                this.status = Math.max(this.status, status);
+                return;
+            }
+            try {
+                responder(status, json -> json.abrirObjeto().campo("erro", mensagem).fecharObjeto());
+            } catch (IOException | RuntimeException e) {
+                this.status = status;
+            }
+        }
+
+        // A vaga do semáforo é devolvida mesmo se o close falhar; caso contrário, ela se perderia para sempre.
+        void encerrar() {
+            try {
+                if (em != null) {
+                    try {
+                        em.close();
+                    } finally {
+                        acessoAoBanco.release();
+                    }
+                }
+            } finally {
+                troca.close();
+            }
+        }
+    }
+}
@@ -4,6 +4,8 @@ import jakarta.persistence.*;
 
 @Entity
 @Table(name = "categorias")
+@NamedQuery(name = "Categoria.buscarTodos", query = "SELECT c FROM Categoria c")
+@NamedQuery(name = "Categoria.buscarPorNome", query = "SELECT c FROM Categoria c WHERE c.nome = :nome")
 public class Categoria {
 	
 	@Id
@@ -3,9 +3,17 @@ package br.com.model;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "clientes")
+// O índice único no CPF atende a busca por CPF e impede duplicatas mesmo com cadastros simultâneos.
+@Table(name = "clientes", uniqueConstraints = @UniqueConstraint(name = Cliente.CPF_UNICO, columnNames = "cpf"))
+@NamedQuery(name = "Cliente.buscarTodos", query = "SELECT c FROM Cliente c")
+@NamedQuery(name = "Cliente.buscarPorCpf", query = "SELECT c FROM Cliente c WHERE c.cpf = :cpf")
+@NamedQuery(name = "Cliente.contar", query = "SELECT COUNT(c) FROM Cliente c")
+@NamedQuery(name = "Cliente.cpfs", query = "SELECT c.cpf FROM Cliente c")
+@NamedQuery(name = "Cliente.nome", query = "SELECT c.nome FROM Cliente c WHERE c.id = :id")
 public class Cliente {
 
+	public static final String CPF_UNICO = "uk_clientes_cpf";
+
 	@Id
 	@GeneratedValue(strategy = GenerationType.IDENTITY)
 	private Long id;
@@ -31,4 +39,8 @@ public class Cliente {
 	public String getNome() {
 		return nome;
 	}
+
+	public String getCpf() {
+		return cpf;
+	}
 }
@@ -0,0 +1,60 @@
+package br.com.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+/* Esboços probabilísticos das vendas de um dia, gravados pelo EsbocosDeVendas: HyperLogLog dos clientes e dos
+   pedidos, Count-Min das unidades por produto e os IDs dos produtos candidatos ao topo do dia. Cerca de 16 KB
+   por dia, qualquer que seja o volume de pedidos. */
+@Entity
+@Table(name = "esbocos_de_vendas")
+@NamedQuery(name = "EsbocoDeVendas.todos", query = "SELECT e FROM EsbocoDeVendas e")
+public class EsbocoDeVendas {
+
+    @Id
+    private LocalDate data;
+
+    @Column(length = 8192)
+    private byte[] clientes;
+
+    @Column(length = 8192)
+    private byte[] pedidos;
+
+    @Column(length = 16384)
+    private byte[] produtos;
+
+    @Column(length = 1024)
+    private byte[] candidatos;
+
+    public EsbocoDeVendas() {
+    }
+
+    public EsbocoDeVendas(LocalDate data, byte[] clientes, byte[] pedidos, byte[] produtos, byte[] candidatos) {
+        this.data = data;
+        this.clientes = clientes;
+        this.pedidos = pedidos;
+        this.produtos = produtos;
+        this.candidatos = candidatos;
+    }
+
+    public LocalDate getData() {
+        return data;
+    }
+
+    public byte[] getClientes() {
+        return clientes;
+    }
+
+    public byte[] getPedidos() {
+        return pedidos;
+    }
+
+    public byte[] getProdutos() {
+        return produtos;
+    }
+
+    public byte[] getCandidatos() {
+        return candidatos;
+    }
+}
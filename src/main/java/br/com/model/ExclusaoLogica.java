@@ -0,0 +1,10 @@
+package br.com.model;
+
+/* Entidade com exclusão lógica: GenericDao.remover apenas a marca como excluída (uma atualização de uma linha),
+   as consultas deixam de vê-la e a remoção física fica para um expurgo em segundo plano. */
+public interface ExclusaoLogica {
+
+    boolean isExcluido();
+
+    void marcarComoExcluido();
+}
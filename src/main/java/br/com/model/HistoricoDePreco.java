@@ -0,0 +1,98 @@
+package br.com.model;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/* Histórico de preços: cada linha é um preço e o intervalo em que ele valeu, [validoDe, validoAte). A linha do
+   preço atual tem validoAte nulo. O ProdutoDao grava o histórico em toda alteração de preço (cadastro, merge,
+   reajuste em massa e lote JDBC), na mesma transação, com dois comandos por operação ("fecharVigentes" e
+   "abrirVigentes"), sem carregar os produtos. Os instantes são gravados em UTC.
+   - O produto é só um ID, sem chave estrangeira: o histórico é de auditoria e continua depois que o produto é
+     excluído (a exclusão fecha o intervalo vigente).
+   - Produtos cadastrados antes do histórico (ou pelo GeradorDeDados) só aparecem a partir da primeira alteração. */
+@Entity
+@Table(name = "historico_de_precos", indexes = {
+        @Index(name = "ix_historico_de_precos_produto", columnList = "id_produto, valido_de"),
+        @Index(name = "ix_historico_de_precos_valido_de", columnList = "valido_de")})
+// Fecha o intervalo vigente dos produtos cujo preço mudou (ou que não existem mais / ficaram sem preço).
+@NamedQuery(name = "HistoricoDePreco.fecharVigentes",
+        query = "UPDATE HistoricoDePreco h SET h.validoAte = :agora "
+                + "WHERE h.idProduto IN :ids AND h.validoAte IS NULL "
+                + "AND NOT EXISTS (SELECT 1 FROM Produto p WHERE p.id = h.idProduto AND p.preco = h.preco)")
+// Abre um intervalo para os produtos com preço e sem intervalo vigente: os alterados e os recém-cadastrados.
+@NamedQuery(name = "HistoricoDePreco.abrirVigentes",
+        query = "INSERT INTO HistoricoDePreco (idProduto, preco, validoDe) "
+                + "SELECT p.id, p.preco, :agora FROM Produto p "
+                + "WHERE p.id IN :ids AND p.preco IS NOT NULL "
+                + "AND NOT EXISTS (SELECT 1 FROM HistoricoDePreco h WHERE h.idProduto = p.id AND h.validoAte IS NULL)")
+@NamedQuery(name = "HistoricoDePreco.precoEm",
+        query = "SELECT h.preco FROM HistoricoDePreco h WHERE h.idProduto = :id AND h.validoDe <= :instante "
+                + "AND (h.validoAte IS NULL OR h.validoAte > :instante)")
+// Projeções para o índice em memória (HistoricoDePrecos), na ordem dos intervalos de cada produto.
+@NamedQuery(name = "HistoricoDePreco.intervalos",
+        query = "SELECT h.idProduto, h.preco, h.validoDe, h.validoAte FROM HistoricoDePreco h "
+                + "ORDER BY h.idProduto, h.validoDe, h.id")
+@NamedQuery(name = "HistoricoDePreco.intervalosDosProdutos",
+        query = "SELECT h.idProduto, h.preco, h.validoDe, h.validoAte FROM HistoricoDePreco h "
+                + "WHERE h.idProduto IN :ids ORDER BY h.idProduto, h.validoDe, h.id")
+// Alterações no período: o preço anterior é o da linha anterior do mesmo produto (IDs crescem com o tempo).
+@NamedQuery(name = "HistoricoDePreco.alteracoesNoPeriodo",
+        query = "SELECT new br.com.vo.AlteracaoDePrecoVo(h.idProduto, p.nome, "
+                + "(SELECT a.preco FROM HistoricoDePreco a WHERE a.id = "
+                + "(SELECT MAX(b.id) FROM HistoricoDePreco b WHERE b.idProduto = h.idProduto AND b.id < h.id)), "
+                + "h.preco, h.validoDe) "
+                + "FROM HistoricoDePreco h LEFT JOIN Produto p ON p.id = h.idProduto "
+                + "WHERE h.validoDe >= :inicio AND h.validoDe < :fim ORDER BY h.validoDe, h.id")
+public class HistoricoDePreco {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "id_produto", nullable = false)
+    private Long idProduto;
+
+    @Column(nullable = false)
+    private BigDecimal preco;
+
+    @Column(name = "valido_de", nullable = false)
+    private LocalDateTime validoDe;
+
+    @Column(name = "valido_ate")
+    private LocalDateTime validoAte;
+
+    public HistoricoDePreco() {
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Long getIdProduto() {
+        return idProduto;
+    }
+
+    public BigDecimal getPreco() {
+        return preco;
+    }
+
+    public LocalDateTime getValidoDe() {
+        return validoDe;
+    }
+
+    public LocalDateTime getValidoAte() {
+        return validoAte;
+    }
+
+    @Override
+    public String toString() {
+        return "HistoricoDePreco{" +
+                "idProduto=" + idProduto +
+                ", preco=" + preco +
+                ", validoDe=" + validoDe +
+                ", validoAte=" + validoAte +
+                '}';
+    }
+}
@@ -0,0 +1,30 @@
+package br.com.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/* Item de um PedidoCompacto. Não é entidade: as linhas são gravadas juntas, em uma coluna do próprio pedido
+   (ver ConversorDeLinhasDePedido), sem ID nem tabela. O preço fica em centavos, como no formato gravado. */
+public record LinhaDePedido(long idProduto, int quantidade, long precoUnitarioEmCentavos) {
+
+    public LinhaDePedido {
+        if (quantidade <= 0) {
+            throw new IllegalArgumentException("A quantidade do item deve ser positiva: " + quantidade);
+        }
+        if (precoUnitarioEmCentavos < 0) {
+            throw new IllegalArgumentException("O preço do item não pode ser negativo: " + precoUnitarioEmCentavos);
+        }
+    }
+
+    public LinhaDePedido(long idProduto, int quantidade, BigDecimal precoUnitario) {
+        this(idProduto, quantidade, precoUnitario.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+    }
+
+    public BigDecimal getPrecoUnitario() {
+        return BigDecimal.valueOf(precoUnitarioEmCentavos, 2);
+    }
+
+    public BigDecimal getValor() {
+        return BigDecimal.valueOf(precoUnitarioEmCentavos * quantidade, 2);
+    }
+}
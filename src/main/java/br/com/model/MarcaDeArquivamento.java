@@ -0,0 +1,39 @@
+package br.com.model;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDate;
+
+/* Linha única (ID 1) com a data de corte do arquivamento: pedidos com data anterior a ela podem estar nas
+   tabelas arquivadas. As consultas só leem o arquivo quando o período pedido começa antes do corte. */
+@Entity
+@Table(name = "arquivamento")
+@NamedQuery(name = "MarcaDeArquivamento.avancar",
+        query = "UPDATE MarcaDeArquivamento m SET m.dataDeCorte = :corte "
+                + "WHERE m.id = " + MarcaDeArquivamento.ID + " AND (m.dataDeCorte IS NULL OR m.dataDeCorte < :corte)")
+public class MarcaDeArquivamento {
+
+    public static final long ID = 1;
+
+    @Id
+    private Long id;
+
+    @Column(name = "data_de_corte")
+    private LocalDate dataDeCorte;
+
+    public MarcaDeArquivamento() {
+    }
+
+    public MarcaDeArquivamento(LocalDate dataDeCorte) {
+        this.id = ID;
+        this.dataDeCorte = dataDeCorte;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public LocalDate getDataDeCorte() {
+        return dataDeCorte;
+    }
+}
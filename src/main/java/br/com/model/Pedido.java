@@ -1,6 +1,9 @@
 package br.com.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.SQLRestriction;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -9,7 +12,94 @@ import java.util.List;
 
 @Entity
 @Table(name = "pedidos")
-public class Pedido {
+// Pedidos excluídos (ver ExclusaoLogica) ficam fora de todas as consultas e associações até serem expurgados.
+@SQLRestriction("excluido = false")
+@NamedQuery(name = "Pedido.buscarTodos", query = "SELECT p FROM Pedido p")
+@NamedQuery(name = "Pedido.buscarPedidosPorPeriodo",
+        query = "SELECT p FROM Pedido p LEFT JOIN FETCH p.cliente WHERE p.data BETWEEN :dataIni AND :dataFim "
+                + "ORDER BY p.data, p.id")
+@NamedQuery(name = "Pedido.buscarPedidosDeUmCliente",
+        query = "SELECT p FROM Pedido p JOIN FETCH p.cliente WHERE p.cliente.id = :id")
+@NamedQuery(name = "Pedido.valorTotalGravado", query = "SELECT p.valorTotal FROM Pedido p WHERE p.id = :id")
+@NamedQuery(name = "Pedido.datas", query = "SELECT DISTINCT p.data FROM Pedido p ORDER BY p.data")
+@NamedQuery(name = "Pedido.itensDoPeriodo",
+        query = "SELECT p.data, p.id, p.cliente.id, i.produto.id, i.quantidade "
+                + "FROM Pedido p LEFT JOIN p.itens i WHERE p.data BETWEEN :dataIni AND :dataFim")
+/* Consultas do VendaDAO. Os relatórios agrupam pelo ID (e não apenas pelo nome), pois dois produtos ou clientes
+   podem ter o mesmo nome e seriam somados como se fossem um só. */
+@NamedQuery(name = "Venda.valorTotalVendidoEmUmPeriodo",
+        query = "SELECT SUM(p.valorTotal) FROM Pedido p WHERE p.data BETWEEN :dataIni AND :dataFim")
+@NamedQuery(name = "Venda.relatorioDeVendas",
+        query = "SELECT new br.com.vo.RelatorioDeVendasVo(produto.id, produto.nome, SUM(item.quantidade), MAX(pedido.data)) "
+                + "FROM Pedido pedido JOIN pedido.itens item JOIN item.produto produto "
+                + "GROUP BY produto.id, produto.nome "
+                + "ORDER BY SUM(item.quantidade) DESC, produto.id")
+@NamedQuery(name = "Venda.relatorioDeVendasNoPeriodo",
+        query = "SELECT new br.com.vo.RelatorioDeVendasVo(produto.id, produto.nome, SUM(item.quantidade), MAX(pedido.data)) "
+                + "FROM Pedido pedido JOIN pedido.itens item JOIN item.produto produto "
+                + "WHERE pedido.data BETWEEN :dataIni AND :dataFim "
+                + "GROUP BY produto.id, produto.nome "
+                + "ORDER BY SUM(item.quantidade) DESC, produto.id")
+@NamedQuery(name = "Venda.relatorioFinanceiro",
+        query = "SELECT new br.com.vo.RelatorioFinanceiroVo(cliente.id, cliente.nome, SUM(pedido.valorTotal)) "
+                + "FROM Pedido pedido JOIN pedido.cliente cliente "
+                + "GROUP BY cliente.id, cliente.nome "
+                + "ORDER BY SUM(pedido.valorTotal) DESC, cliente.id")
+@NamedQuery(name = "Venda.relatorioFinanceiroNoPeriodo",
+        query = "SELECT new br.com.vo.RelatorioFinanceiroVo(cliente.id, cliente.nome, SUM(pedido.valorTotal)) "
+                + "FROM Pedido pedido JOIN pedido.cliente cliente "
+                + "WHERE pedido.data BETWEEN :dataIni AND :dataFim "
+                + "GROUP BY cliente.id, cliente.nome "
+                + "ORDER BY SUM(pedido.valorTotal) DESC, cliente.id")
+// Linhas de chaves escolhidas, para completar o top N mesclado com as outras tabelas (ver VendaDAO).
+@NamedQuery(name = "Venda.relatorioDeVendasDosProdutos",
+        query = "SELECT new br.com.vo.RelatorioDeVendasVo(produto.id, produto.nome, SUM(item.quantidade), MAX(pedido.data)) "
+                + "FROM Pedido pedido JOIN pedido.itens item JOIN item.produto produto "
+                + "WHERE produto.id IN :ids "
+                + "GROUP BY produto.id, produto.nome")
+@NamedQuery(name = "Venda.relatorioDeVendasDosProdutosNoPeriodo",
+        query = "SELECT new br.com.vo.RelatorioDeVendasVo(produto.id, produto.nome, SUM(item.quantidade), MAX(pedido.data)) "
+                + "FROM Pedido pedido JOIN pedido.itens item JOIN item.produto produto "
+                + "WHERE produto.id IN :ids AND pedido.data BETWEEN :dataIni AND :dataFim "
+                + "GROUP BY produto.id, produto.nome")
+@NamedQuery(name = "Venda.relatorioFinanceiroDosClientes",
+        query = "SELECT new br.com.vo.RelatorioFinanceiroVo(cliente.id, cliente.nome, SUM(pedido.valorTotal)) "
+                + "FROM Pedido pedido JOIN pedido.cliente cliente "
+                + "WHERE cliente.id IN :ids "
+                + "GROUP BY cliente.id, cliente.nome")
+@NamedQuery(name = "Venda.relatorioFinanceiroDosClientesNoPeriodo",
+        query = "SELECT new br.com.vo.RelatorioFinanceiroVo(cliente.id, cliente.nome, SUM(pedido.valorTotal)) "
+                + "FROM Pedido pedido JOIN pedido.cliente cliente "
+                + "WHERE cliente.id IN :ids AND pedido.data BETWEEN :dataIni AND :dataFim "
+                + "GROUP BY cliente.id, cliente.nome")
+@NamedQuery(name = "Venda.totaisPorCliente",
+        query = "SELECT new br.com.vo.RelatorioFinanceiroVo(cliente.id, cliente.nome, SUM(pedido.valorTotal), COUNT(pedido)) "
+                + "FROM Pedido pedido JOIN pedido.cliente cliente "
+                + "GROUP BY cliente.id, cliente.nome")
+// Totais por dia em uma única consulta agrupada; o faturamento é somado pelos itens para não ser
+// multiplicado pela junção com pedido_itens.
+@NamedQuery(name = "Venda.vendasPorDia",
+        query = "SELECT new br.com.vo.VendaDiariaVo(pedido.data, SUM(item.precoUnitario * item.quantidade), "
+                + "COUNT(DISTINCT pedido.id), SUM(item.quantidade)) "
+                + "FROM Pedido pedido LEFT JOIN pedido.itens item "
+                + "WHERE pedido.data BETWEEN :dataIni AND :dataFim "
+                + "GROUP BY pedido.data "
+                + "ORDER BY pedido.data")
+@NamedQuery(name = "Venda.vendasPorDiaECategoria",
+        query = "SELECT new br.com.vo.VendaDiariaVo(pedido.data, categoria.id, categoria.nome, "
+                + "SUM(item.precoUnitario * item.quantidade), COUNT(DISTINCT pedido.id), SUM(item.quantidade)) "
+                + "FROM Pedido pedido JOIN pedido.itens item JOIN item.produto produto "
+                + "LEFT JOIN produto.categoria categoria "
+                + "WHERE pedido.data BETWEEN :dataIni AND :dataFim "
+                + "GROUP BY categoria.id, categoria.nome, pedido.data "
+                + "ORDER BY categoria.id, pedido.data")
+/* Expurgo dos pedidos excluídos (ExpurgoDePedidosExcluidos). Consultas nativas, pois as consultas HQL sobre
+   Pedido já não enxergam os excluídos. */
+@NamedNativeQuery(name = "Pedido.idsExcluidos", query = "SELECT id FROM pedidos WHERE excluido = true ORDER BY id")
+@NamedNativeQuery(name = "Pedido.expurgarItens", query = "DELETE FROM pedido_itens WHERE pedido_id IN (:ids)")
+@NamedNativeQuery(name = "Pedido.expurgarPedidos",
+        query = "DELETE FROM pedidos WHERE id IN (:ids) AND excluido = true")
+public class Pedido implements ExclusaoLogica {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -23,9 +113,20 @@ public class Pedido {
     @ManyToOne(fetch = FetchType.LAZY)
     private Cliente cliente;
 
+    @Column(nullable = false)
+    @ColumnDefault("false")
+    private boolean excluido;
+
+    // Ao percorrer uma lista de pedidos, os itens de até 50 pedidos são carregados em um único SELECT (evita N+1).
     @OneToMany(mappedBy = "pedido", cascade = CascadeType.ALL)
+    @BatchSize(size = 50)
     private List<PedidoItem> itens = new ArrayList<>();
 
+    // Cópia de um PedidoArquivado (ver PedidoArquivado.paraPedido): só existe para leitura, e o PedidoService
+    // recusa alterá-la ou excluí-la.
+    @Transient
+    private boolean arquivado;
+
     public Pedido() {
     }
 
@@ -34,9 +135,10 @@ public class Pedido {
     }
 
     public void adicionarItem(PedidoItem item) {
+        // Os dois lados são ligados aqui (o enriquecimento de bytecode não gerencia associações).
         item.setPedido(this);
         this.getItens().add(item);
-        processaValorTotal();
+        this.valorTotal = this.valorTotal.add(item.getValor());
     }
 
     public void removerItem(PedidoItem item) {
@@ -56,6 +158,14 @@ public class Pedido {
         return valorTotal;
     }
 
+    public Cliente getCliente() {
+        return cliente;
+    }
+
+    public LocalDate getData() {
+        return data;
+    }
+
     public void setData(LocalDate data) {
         this.data = data;
     }
@@ -64,6 +174,24 @@ public class Pedido {
         return itens;
     }
 
+    public boolean isArquivado() {
+        return arquivado;
+    }
+
+    void marcarComoArquivado() {
+        this.arquivado = true;
+    }
+
+    @Override
+    public boolean isExcluido() {
+        return excluido;
+    }
+
+    @Override
+    public void marcarComoExcluido() {
+        this.excluido = true;
+    }
+
     @Override
     public String toString() {
         StringBuilder sb = new StringBuilder();
@@ -71,7 +199,7 @@ public class Pedido {
                 .append("id=").append(id)
                 .append(", valorTotal=").append(valorTotal)
                 .append(", data=").append(data)
-                .append(", cliente=").append(cliente.getNome())
+                .append(", cliente=").append(cliente == null ? null : cliente.getNome())
                 .append(", itens=[");
 
         for (int i = 0; i < itens.size(); i++) {
@@ -0,0 +1,151 @@
+package br.com.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/* Pedido antigo movido de "pedidos" para "pedidos_arquivados" pelo ArquivamentoDePedidos (mesmo ID e mesmos
+   dados). Somente leitura: as linhas são gravadas por INSERT ... SELECT no arquivamento.
+   As consultas "Arquivo." espelham as de Pedido (inclusive as de relatório "Venda.") sobre as tabelas arquivadas;
+   o PedidoDao e o VendaDAO as somam às da tabela ativa quando o período pedido alcança a data de corte. */
+@Entity
+@Immutable
+@Table(name = "pedidos_arquivados", indexes = {
+        @Index(name = "ix_pedidos_arquivados_data", columnList = "data"),
+        @Index(name = "ix_pedidos_arquivados_cliente", columnList = "cliente_id")})
+@NamedQuery(name = "Arquivo.buscarPorId",
+        query = "SELECT p FROM PedidoArquivado p LEFT JOIN FETCH p.itens WHERE p.id = :id")
+@NamedQuery(name = "Arquivo.buscarPedidosPorPeriodo",
+        query = "SELECT p FROM PedidoArquivado p LEFT JOIN FETCH p.itens WHERE p.data BETWEEN :dataIni AND :dataFim")
+@NamedQuery(name = "Arquivo.buscarPedidosDeUmCliente",
+        query = "SELECT p FROM PedidoArquivado p JOIN FETCH p.cliente LEFT JOIN FETCH p.itens WHERE p.cliente.id = :id")
+@NamedQuery(name = "Arquivo.valorTotalVendidoEmUmPeriodo",
+        query = "SELECT SUM(p.valorTotal) FROM PedidoArquivado p WHERE p.data BETWEEN :dataIni AND :dataFim")
+@NamedQuery(name = "Arquivo.relatorioDeVendas",
+        query = "SELECT new br.com.vo.RelatorioDeVendasVo(produto.id, produto.nome, SUM(item.quantidade), MAX(pedido.data)) "
+                + "FROM PedidoArquivado pedido JOIN pedido.itens item JOIN item.produto produto "
+                + "GROUP BY produto.id, produto.nome "
+                + "ORDER BY SUM(item.quantidade) DESC, produto.id")
+@NamedQuery(name = "Arquivo.relatorioDeVendasNoPeriodo",
+        query = "SELECT new br.com.vo.RelatorioDeVendasVo(produto.id, produto.nome, SUM(item.quantidade), MAX(pedido.data)) "
+                + "FROM PedidoArquivado pedido JOIN pedido.itens item JOIN item.produto produto "
+                + "WHERE pedido.data BETWEEN :dataIni AND :dataFim "
+                + "GROUP BY produto.id, produto.nome "
+                + "ORDER BY SUM(item.quantidade) DESC, produto.id")
+@NamedQuery(name = "Arquivo.relatorioFinanceiro",
+        query = "SELECT new br.com.vo.RelatorioFinanceiroVo(cliente.id, cliente.nome, SUM(pedido.valorTotal)) "
+                + "FROM PedidoArquivado pedido JOIN pedido.cliente cliente "
+                + "GROUP BY cliente.id, cliente.nome "
+                + "ORDER BY SUM(pedido.valorTotal) DESC, cliente.id")
+@NamedQuery(name = "Arquivo.totaisPorCliente",
+        query = "SELECT new br.com.vo.RelatorioFinanceiroVo(cliente.id, cliente.nome, SUM(pedido.valorTotal), COUNT(pedido)) "
+                + "FROM PedidoArquivado pedido JOIN pedido.cliente cliente "
+                + "GROUP BY cliente.id, cliente.nome")
+@NamedQuery(name = "Arquivo.relatorioFinanceiroNoPeriodo",
+        query = "SELECT new br.com.vo.RelatorioFinanceiroVo(cliente.id, cliente.nome, SUM(pedido.valorTotal)) "
+                + "FROM PedidoArquivado pedido JOIN pedido.cliente cliente "
+                + "WHERE pedido.data BETWEEN :dataIni AND :dataFim "
+                + "GROUP BY cliente.id, cliente.nome "
+                + "ORDER BY SUM(pedido.valorTotal) DESC, cliente.id")
+@NamedQuery(name = "Arquivo.relatorioDeVendasDosProdutos",
+        query = "SELECT new br.com.vo.RelatorioDeVendasVo(produto.id, produto.nome, SUM(item.quantidade), MAX(pedido.data)) "
+                + "FROM PedidoArquivado pedido JOIN pedido.itens item JOIN item.produto produto "
+                + "WHERE produto.id IN :ids "
+                + "GROUP BY produto.id, produto.nome")
+@NamedQuery(name = "Arquivo.relatorioDeVendasDosProdutosNoPeriodo",
+        query = "SELECT new br.com.vo.RelatorioDeVendasVo(produto.id, produto.nome, SUM(item.quantidade), MAX(pedido.data)) "
+                + "FROM PedidoArquivado pedido JOIN pedido.itens item JOIN item.produto produto "
+                + "WHERE produto.id IN :ids AND pedido.data BETWEEN :dataIni AND :dataFim "
+                + "GROUP BY produto.id, produto.nome")
+@NamedQuery(name = "Arquivo.relatorioFinanceiroDosClientes",
+        query = "SELECT new br.com.vo.RelatorioFinanceiroVo(cliente.id, cliente.nome, SUM(pedido.valorTotal)) "
+                + "FROM PedidoArquivado pedido JOIN pedido.cliente cliente "
+                + "WHERE cliente.id IN :ids "
+                + "GROUP BY cliente.id, cliente.nome")
+@NamedQuery(name = "Arquivo.relatorioFinanceiroDosClientesNoPeriodo",
+        query = "SELECT new br.com.vo.RelatorioFinanceiroVo(cliente.id, cliente.nome, SUM(pedido.valorTotal)) "
+                + "FROM PedidoArquivado pedido JOIN pedido.cliente cliente "
+                + "WHERE cliente.id IN :ids AND pedido.data BETWEEN :dataIni AND :dataFim "
+                + "GROUP BY cliente.id, cliente.nome")
+@NamedQuery(name = "Arquivo.vendasPorDia",
+        query = "SELECT new br.com.vo.VendaDiariaVo(pedido.data, SUM(item.precoUnitario * item.quantidade), "
+                + "COUNT(DISTINCT pedido.id), SUM(item.quantidade)) "
+                + "FROM PedidoArquivado pedido LEFT JOIN pedido.itens item "
+                + "WHERE pedido.data BETWEEN :dataIni AND :dataFim "
+                + "GROUP BY pedido.data "
+                + "ORDER BY pedido.data")
+@NamedQuery(name = "Arquivo.vendasPorDiaECategoria",
+        query = "SELECT new br.com.vo.VendaDiariaVo(pedido.data, categoria.id, categoria.nome, "
+                + "SUM(item.precoUnitario * item.quantidade), COUNT(DISTINCT pedido.id), SUM(item.quantidade)) "
+                + "FROM PedidoArquivado pedido JOIN pedido.itens item JOIN item.produto produto "
+                + "LEFT JOIN produto.categoria categoria "
+                + "WHERE pedido.data BETWEEN :dataIni AND :dataFim "
+                + "GROUP BY categoria.id, categoria.nome, pedido.data "
+                + "ORDER BY categoria.id, pedido.data")
+// Arquivamento de um lote: cópia para as tabelas arquivadas e exclusão das ativas, na mesma transação.
+@NamedQuery(name = "Arquivo.idsParaArquivar",
+        query = "SELECT p.id FROM Pedido p WHERE p.data < :corte ORDER BY p.id")
+@NamedQuery(name = "Arquivo.copiarPedidos",
+        query = "INSERT INTO PedidoArquivado (id, valorTotal, data, cliente) "
+                + "SELECT p.id, p.valorTotal, p.data, p.cliente FROM Pedido p WHERE p.id IN :ids")
+@NamedQuery(name = "Arquivo.copiarItens",
+        query = "INSERT INTO PedidoItemArquivado (id, precoUnitario, quantidade, idPedido, produto) "
+                + "SELECT i.id, i.precoUnitario, i.quantidade, i.pedido.id, i.produto FROM PedidoItem i "
+                + "WHERE i.pedido.id IN :ids")
+@NamedQuery(name = "Arquivo.excluirItens", query = "DELETE FROM PedidoItem i WHERE i.pedido.id IN :ids")
+@NamedQuery(name = "Arquivo.excluirPedidos", query = "DELETE FROM Pedido p WHERE p.id IN :ids")
+public class PedidoArquivado {
+
+    @Id
+    private Long id;
+
+    @Column(name = "valor_total")
+    private BigDecimal valorTotal;
+
+    private LocalDate data;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Cliente cliente;
+
+    @OneToMany(mappedBy = "pedido")
+    private List<PedidoItemArquivado> itens = new ArrayList<>();
+
+    public Long getId() {
+        return id;
+    }
+
+    public BigDecimal getValorTotal() {
+        return valorTotal;
+    }
+
+    public LocalDate getData() {
+        return data;
+    }
+
+    public Cliente getCliente() {
+        return cliente;
+    }
+
+    public List<PedidoItemArquivado> getItens() {
+        return itens;
+    }
+
+    /* Cópia como Pedido, para que as consultas devolvam pedidos ativos e arquivados do mesmo tipo. A cópia não
+       está no banco com esse ID na tabela ativa: é marcada como arquivada e serve só para leitura. */
+    public Pedido paraPedido() {
+        Pedido pedido = new Pedido(cliente);
+        pedido.marcarComoArquivado();
+        pedido.setId(id);
+        pedido.setData(data);
+        for (PedidoItemArquivado item : itens) {
+            PedidoItem copia = new PedidoItem(item.getQuantidade(), pedido, item.getProduto(), item.getPrecoUnitario());
+            copia.setId(item.getId());
+            pedido.adicionarItem(copia);
+        }
+        return pedido;
+    }
+}
@@ -0,0 +1,150 @@
+package br.com.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Mutability;
+import org.hibernate.type.descriptor.java.Immutability;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/* Modo de gravação alternativo para pedidos pequenos: os itens ficam dentro da própria linha do pedido, em uma
+   coluna binária (ver ConversorDeLinhasDePedido), em vez de uma linha por item em pedido_itens. Gravar o pedido é
+   um único INSERT, e lê-lo não precisa de junção nem de um segundo SELECT para os itens.
+   Em troca, os itens não podem ser consultados pelo banco: as consultas "PedidoCompacto.linhas" devolvem a coluna
+   e o PedidoCompactoDao a desdobra em uma linha por item (projeção normalizada), que o VendaDAO soma aos
+   relatórios. Os totais que dependem só do pedido (valor total, cliente) continuam sendo somados pelo banco. */
+@Entity
+@Table(name = "pedidos_compactos", indexes = {
+        @Index(name = "ix_pedidos_compactos_data", columnList = "data"),
+        @Index(name = "ix_pedidos_compactos_cliente", columnList = "cliente_id")})
+@NamedQuery(name = "PedidoCompacto.buscarTodos", query = "SELECT p FROM PedidoCompacto p")
+@NamedQuery(name = "PedidoCompacto.buscarPedidosPorPeriodo",
+        query = "SELECT p FROM PedidoCompacto p JOIN FETCH p.cliente WHERE p.data BETWEEN :dataIni AND :dataFim")
+@NamedQuery(name = "PedidoCompacto.datas", query = "SELECT DISTINCT p.data FROM PedidoCompacto p ORDER BY p.data")
+// Projeção das linhas: a coluna de itens vem já convertida, sem montar as entidades.
+@NamedQuery(name = "PedidoCompacto.linhas",
+        query = "SELECT p.id, p.data, p.cliente.id, p.itens FROM PedidoCompacto p")
+@NamedQuery(name = "PedidoCompacto.linhasDoPeriodo",
+        query = "SELECT p.id, p.data, p.cliente.id, p.itens FROM PedidoCompacto p "
+                + "WHERE p.data BETWEEN :dataIni AND :dataFim")
+// Nome e categoria dos produtos que aparecem nas linhas, lidos uma única vez por relatório.
+@NamedQuery(name = "PedidoCompacto.produtos",
+        query = "SELECT p.id, p.nome, c.id, c.nome FROM Produto p LEFT JOIN p.categoria c WHERE p.id IN :ids")
+@NamedQuery(name = "PedidoCompacto.valorTotalVendidoEmUmPeriodo",
+        query = "SELECT SUM(p.valorTotal) FROM PedidoCompacto p WHERE p.data BETWEEN :dataIni AND :dataFim")
+@NamedQuery(name = "PedidoCompacto.relatorioFinanceiro",
+        query = "SELECT new br.com.vo.RelatorioFinanceiroVo(cliente.id, cliente.nome, SUM(pedido.valorTotal)) "
+                + "FROM PedidoCompacto pedido JOIN pedido.cliente cliente "
+                + "GROUP BY cliente.id, cliente.nome "
+                + "ORDER BY SUM(pedido.valorTotal) DESC, cliente.id")
+@NamedQuery(name = "PedidoCompacto.relatorioFinanceiroNoPeriodo",
+        query = "SELECT new br.com.vo.RelatorioFinanceiroVo(cliente.id, cliente.nome, SUM(pedido.valorTotal)) "
+                + "FROM PedidoCompacto pedido JOIN pedido.cliente cliente "
+                + "WHERE pedido.data BETWEEN :dataIni AND :dataFim "
+                + "GROUP BY cliente.id, cliente.nome "
+                + "ORDER BY SUM(pedido.valorTotal) DESC, cliente.id")
+@NamedQuery(name = "PedidoCompacto.relatorioFinanceiroDosClientes",
+        query = "SELECT new br.com.vo.RelatorioFinanceiroVo(cliente.id, cliente.nome, SUM(pedido.valorTotal)) "
+                + "FROM PedidoCompacto pedido JOIN pedido.cliente cliente "
+                + "WHERE cliente.id IN :ids "
+                + "GROUP BY cliente.id, cliente.nome")
+@NamedQuery(name = "PedidoCompacto.relatorioFinanceiroDosClientesNoPeriodo",
+        query = "SELECT new br.com.vo.RelatorioFinanceiroVo(cliente.id, cliente.nome, SUM(pedido.valorTotal)) "
+                + "FROM PedidoCompacto pedido JOIN pedido.cliente cliente "
+                + "WHERE cliente.id IN :ids AND pedido.data BETWEEN :dataIni AND :dataFim "
+                + "GROUP BY cliente.id, cliente.nome")
+@NamedQuery(name = "PedidoCompacto.totaisPorCliente",
+        query = "SELECT new br.com.vo.RelatorioFinanceiroVo(cliente.id, cliente.nome, SUM(pedido.valorTotal), COUNT(pedido)) "
+                + "FROM PedidoCompacto pedido JOIN pedido.cliente cliente "
+                + "GROUP BY cliente.id, cliente.nome")
+public class PedidoCompacto {
+
+    // Limite do modo compacto; pedidos maiores devem usar Pedido. Mantém a coluna abaixo de "length".
+    public static final int MAXIMO_DE_ITENS = 100;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "valor_total")
+    private BigDecimal valorTotal = BigDecimal.ZERO;
+
+    private LocalDate data = LocalDate.now();
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Cliente cliente;
+
+    // A lista nunca é alterada no lugar (é sempre substituída), então o Hibernate só compara a referência.
+    @Convert(converter = ConversorDeLinhasDePedido.class)
+    @Mutability(Immutability.class)
+    @Column(name = "itens", length = 4096)
+    private List<LinhaDePedido> itens = List.of();
+
+    public PedidoCompacto() {
+    }
+
+    public PedidoCompacto(Cliente cliente) {
+        this.cliente = cliente;
+    }
+
+    public void adicionarItem(Produto produto, int quantidade) {
+        adicionarItem(new LinhaDePedido(produto.getId(), quantidade, produto.getPreco()));
+    }
+
+    public void adicionarItem(LinhaDePedido linha) {
+        if (itens.size() >= MAXIMO_DE_ITENS) {
+            throw new IllegalStateException("Um pedido compacto aceita até " + MAXIMO_DE_ITENS + " itens.");
+        }
+        List<LinhaDePedido> novos = new ArrayList<>(itens);
+        novos.add(linha);
+        definirItens(novos);
+    }
+
+    public void removerItem(LinhaDePedido linha) {
+        List<LinhaDePedido> novos = new ArrayList<>(itens);
+        if (novos.remove(linha)) {
+            definirItens(novos);
+        }
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public BigDecimal getValorTotal() {
+        return valorTotal;
+    }
+
+    public Cliente getCliente() {
+        return cliente;
+    }
+
+    public LocalDate getData() {
+        return data;
+    }
+
+    public void setData(LocalDate data) {
+        this.data = data;
+    }
+
+    public List<LinhaDePedido> getItens() {
+        return itens;
+    }
+
+    @Override
+    public String toString() {
+        return "PedidoCompacto{" +
+                "id=" + id +
+                ", valorTotal=" + valorTotal +
+                ", data=" + data +
+                ", itens=" + itens +
+                '}';
+    }
+
+    private void definirItens(List<LinhaDePedido> novos) {
+        this.itens = List.copyOf(novos);
+        this.valorTotal = itens.stream().map(LinhaDePedido::getValor).reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+}
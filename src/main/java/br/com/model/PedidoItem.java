@@ -6,6 +6,12 @@ import java.math.BigDecimal;
 
 @Entity
 @Table(name = "pedido_itens")
+@NamedQuery(name = "PedidoItem.quantidadesDoPedido",
+		query = "SELECT i.id, i.quantidade FROM PedidoItem i WHERE i.pedido.id = :id")
+@NamedQuery(name = "PedidoItem.produtosPorPedido",
+		query = "SELECT p.id, i.produto.id FROM PedidoItem i JOIN i.pedido p ORDER BY p.id")
+@NamedQuery(name = "PedidoItem.unidadesPorProdutoDoPedido",
+		query = "SELECT i.produto.id, SUM(i.quantidade) FROM PedidoItem i WHERE i.pedido.id = :id GROUP BY i.produto.id")
 public class PedidoItem {
 
 	@Id
@@ -33,6 +39,14 @@ public class PedidoItem {
 		this.produto = produto;
 	}
 
+	// Usado quando o preço já é conhecido (ex.: pedidos reprocessados), sem precisar carregar o produto.
+	public PedidoItem(int quantidade, Pedido pedido, Produto produto, BigDecimal precoUnitario) {
+		this.quantidade = quantidade;
+		this.pedido = pedido;
+		this.precoUnitario = precoUnitario;
+		this.produto = produto;
+	}
+
 	public Long getId() {
 		return id;
 	}
@@ -49,6 +63,10 @@ public class PedidoItem {
 		this.quantidade = quantidade;
 	}
 
+	public Pedido getPedido() {
+		return pedido;
+	}
+
 	public void setPedido(Pedido pedido) {
 		this.pedido = pedido;
 	}
@@ -57,6 +75,10 @@ public class PedidoItem {
 		return produto;
 	}
 
+	public BigDecimal getPrecoUnitario() {
+		return precoUnitario;
+	}
+
 	public BigDecimal getValor() {
 		return precoUnitario.multiply(new BigDecimal(quantidade));
 	}
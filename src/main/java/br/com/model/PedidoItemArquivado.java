@@ -0,0 +1,52 @@
+package br.com.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+
+// Item de um PedidoArquivado (tabela "pedido_itens_arquivados"), com o mesmo ID que tinha em "pedido_itens".
+@Entity
+@Immutable
+@Table(name = "pedido_itens_arquivados", indexes = @Index(name = "ix_pedido_itens_arquivados_pedido", columnList = "pedido_id"))
+public class PedidoItemArquivado {
+
+    @Id
+    private Long id;
+
+    @Column(name = "preco_unitario")
+    private BigDecimal precoUnitario;
+
+    private int quantidade;
+
+    // A coluna é preenchida pelo INSERT ... SELECT do arquivamento (idPedido); a associação é só para leitura.
+    @Column(name = "pedido_id")
+    private Long idPedido;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "pedido_id", insertable = false, updatable = false)
+    private PedidoArquivado pedido;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    private Produto produto;
+
+    public Long getId() {
+        return id;
+    }
+
+    public BigDecimal getPrecoUnitario() {
+        return precoUnitario;
+    }
+
+    public int getQuantidade() {
+        return quantidade;
+    }
+
+    public Long getIdPedido() {
+        return idPedido;
+    }
+
+    public Produto getProduto() {
+        return produto;
+    }
+}
@@ -1,22 +1,48 @@
 package br.com.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.BatchSize;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 
 @Entity
 @Table(name = "produtos")
-
+@NamedQuery(name = "Produto.buscarTodos", query = "SELECT p FROM Produto p")
+@NamedQuery(name = "Produto.buscarPorNome", query = "SELECT p FROM Produto p WHERE p.nome = :nome")
+@NamedQuery(name = "Produto.nome", query = "SELECT p.nome FROM Produto p WHERE p.id = :id")
+@NamedQuery(name = "Produto.buscarPorCategoria", query = "SELECT p FROM Produto p WHERE p.categoria.id = :id")
+@NamedQuery(name = "Produto.estoque", query = "SELECT p.id, p.estoque FROM Produto p WHERE p.id IN :ids")
+@NamedQuery(name = "Produto.ajustarEstoque",
+		query = "UPDATE Produto p SET p.estoque = COALESCE(p.estoque, 0) + :delta WHERE p.id = :id")
+@NamedQuery(name = "Produto.todosOsPrecos", query = "SELECT p.id, p.preco FROM Produto p")
+@NamedQuery(name = "Produto.precos", query = "SELECT p.id, p.preco FROM Produto p WHERE p.id IN :ids")
+@NamedQuery(name = "Produto.categoriasEPrecos",
+        query = "SELECT p.id, c.id, p.preco FROM Produto p LEFT JOIN p.categoria c WHERE p.id IN :ids")
+// Reajuste em massa (ProdutoService.reajustarPrecosDaCategoria): IDs da categoria e um UPDATE por lote de IDs.
+@NamedQuery(name = "Produto.idsDaCategoria",
+		query = "SELECT p.id FROM Produto p WHERE p.categoria.id = :id ORDER BY p.id")
+@NamedQuery(name = "Produto.reajustarPrecos",
+		query = "UPDATE Produto p SET p.preco = ROUND(p.preco * :fator, 2) WHERE p.id IN :ids AND p.preco IS NOT NULL")
+
+// Produtos referenciados pelos itens de vários pedidos são carregados em lotes, não um a um.
+@BatchSize(size = 50)
 public class Produto {
 
 	@Id
 	@GeneratedValue(strategy = GenerationType.IDENTITY)
 	private Long id;
 	private String nome;
+	// Carregada só quando acessada (requer o enriquecimento de bytecode configurado no pom.xml).
+	@Basic(fetch = FetchType.LAZY)
 	private String descricao;
 	private BigDecimal preco;
 
+	// Estoque gravado no banco. Depois do cadastro, só é alterado por atualizações relativas do ControleDeEstoque e da
+	// reposição (estoque = estoque + delta); por isso fica fora do UPDATE da entidade, e um merge não sobrescreve reservas.
+	@Column(updatable = false)
+	private Long estoque = 0L;
+
 	@ManyToOne(fetch = FetchType.LAZY)
 	@JoinColumn(name = "categoria_id")
 	private Categoria categoria;
@@ -51,6 +77,19 @@ public class Produto {
 		return preco;
 	}
 
+	public Long getEstoque() {
+		return estoque;
+	}
+
+	// Só tem efeito antes do cadastro (estoque inicial); depois, use ProdutoService.reporEstoque.
+	public void setEstoque(Long estoque) {
+		this.estoque = estoque;
+	}
+
+	public Categoria getCategoria() {
+		return categoria;
+	}
+
 	public void setDescricao(String descricao) {
 		this.descricao = descricao;
 	}
@@ -67,6 +106,7 @@ public class Produto {
 		.append(", nome=").append(nome)
 		.append(", descricao=").append(descricao)
 		.append(", preco=").append(preco)
+		.append(", estoque=").append(estoque)
 		.append(", categoria=").append(categoria)
 		.append('}');
 		return sb.toString();
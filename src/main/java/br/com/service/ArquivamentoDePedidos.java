@@ -0,0 +1,117 @@
+package br.com.service;
+
+import br.com.dao.ArquivoDao;
+import br.com.util.TarefasPeriodicas;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.Period;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* Move os pedidos antigos (com os itens) das tabelas ativas para as tabelas arquivadas (ver PedidoArquivado).
+   - Primeiro a data de corte é avançada; depois os pedidos anteriores a ela são movidos em lotes pequenos, cada
+     um na sua transação, com uma pausa entre eles para não disputar o banco com os pedidos do dia. Se o corte mudou,
+     o primeiro lote espera ArquivoDao.VALIDADE_DO_CORTE, o tempo para o corte em memória dos outros processos
+     ser relido.
+   - Enquanto os lotes são movidos, PedidoDao e VendaDAO já leem as duas tabelas para períodos anteriores ao corte,
+     então nenhuma consulta deixa de ver um pedido. Períodos posteriores ao corte continuam lendo só a tabela ativa.
+   - agendar() roda o arquivamento uma vez por dia dentro de uma janela de pouco movimento; se a janela acabar no
+     meio, o restante fica para o dia seguinte. */
+public class ArquivamentoDePedidos implements AutoCloseable {
+
+    private final EntityManagerFactory emf;
+    private final Period idadeMinima;
+    private final int pedidosPorLote;
+    private final Duration pausaEntreLotes;
+    private ScheduledExecutorService agendador;
+    private volatile LocalTime fimDaJanela;
+
+    private final AtomicLong pedidosArquivados = new AtomicLong();
+
+    public ArquivamentoDePedidos(EntityManagerFactory emf, Period idadeMinima, int pedidosPorLote, Duration pausaEntreLotes) {
+        this.emf = emf;
+        this.idadeMinima = idadeMinima;
+        this.pedidosPorLote = pedidosPorLote;
+        this.pausaEntreLotes = pausaEntreLotes;
+    }
+
+    // Arquiva os pedidos com mais de "idadeMinima".
+    public int arquivar() {
+        return arquivarAte(LocalDate.now().minus(idadeMinima));
+    }
+
+    // Arquiva os pedidos anteriores a "corte" e devolve quantos foram movidos.
+    public synchronized int arquivarAte(LocalDate corte) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            ArquivoDao arquivoDao = new ArquivoDao(em);
+            if (arquivoDao.avancarCorte(corte) && !aguardar(ArquivoDao.VALIDADE_DO_CORTE)) {
+                return 0;
+            }
+            int total = 0;
+            while (dentroDaJanela()) {
+                int movidos = arquivoDao.arquivarLote(corte, pedidosPorLote);
+                total += movidos;
+                pedidosArquivados.addAndGet(movidos);
+                if (movidos < pedidosPorLote) {
+                    break;
+                }
+                if (!aguardar(pausaEntreLotes)) {
+                    break;
+                }
+            }
+            return total;
+        } finally {
+            em.close();
+        }
+    }
+
+    // Roda arquivar() todo dia às "inicioDaJanela", parando entre lotes se passar de "fimDaJanela".
+    public void agendar(LocalTime inicioDaJanela, LocalTime fimDaJanela) {
+        this.fimDaJanela = fimDaJanela;
+        agendador = TarefasPeriodicas.criarAgendador("arquivamento-de-pedidos");
+        LocalDateTime agora = LocalDateTime.now();
+        LocalDateTime primeira = agora.toLocalDate().atTime(inicioDaJanela);
+        if (!primeira.isAfter(agora)) {
+            primeira = primeira.plusDays(1);
+        }
+        // Numa falha, os lotes já movidos ficam; o restante é tentado na próxima janela.
+        agendador.scheduleAtFixedRate(TarefasPeriodicas.registrandoFalhas("arquivamento de pedidos", this::arquivar),
+                Duration.between(agora, primeira).toMillis(), TimeUnit.DAYS.toMillis(1), TimeUnit.MILLISECONDS);
+    }
+
+    public long getPedidosArquivados() {
+        return pedidosArquivados.get();
+    }
+
+    @Override
+    public void close() {
+        TarefasPeriodicas.encerrar(agendador, true);
+    }
+
+    // Sem agendamento (chamada direta), não há janela: arquiva até o fim.
+    private boolean dentroDaJanela() {
+        LocalTime fim = fimDaJanela;
+        return agendador == null || fim == null || LocalTime.now().isBefore(fim);
+    }
+
+    // Falso se o thread foi interrompido (encerramento): o arquivamento para, e o restante fica para a próxima vez.
+    private boolean aguardar(Duration tempo) {
+        if (tempo.isZero()) {
+            return true;
+        }
+        try {
+            Thread.sleep(tempo);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package br.com.service;
+
+import br.com.exception.DataAccessException;
+import br.com.util.RoteadorDeShards;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+
+import java.util.List;
+
+// Cadastro de Categoria, Produto e Cliente quando os pedidos estão particionados.
+// A entidade é gravada no shard do catálogo, onde recebe o ID, e então copiada (upsert com o mesmo ID)
+// para os demais shards, que precisam dela por causa das chaves estrangeiras dos pedidos.
+public class CatalogoReplicado {
+
+    private final RoteadorDeShards roteador;
+
+    public CatalogoReplicado(RoteadorDeShards roteador) {
+        this.roteador = roteador;
+    }
+
+    public void inserir(Object entidade) {
+        EntityManager em = roteador.getShardDoCatalogo().createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.persist(entidade);
+            em.getTransaction().commit();
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw new DataAccessException("Erro ao cadastrar no catálogo: " + entidade.getClass().getSimpleName(), e);
+        } finally {
+            em.close();
+        }
+        replicar(entidade);
+    }
+
+    public <T> T alterar(T entidade) {
+        T atualizada;
+        EntityManager em = roteador.getShardDoCatalogo().createEntityManager();
+        try {
+            em.getTransaction().begin();
+            atualizada = em.merge(entidade);
+            em.getTransaction().commit();
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw new DataAccessException("Erro ao atualizar no catálogo: " + entidade.getClass().getSimpleName(), e);
+        } finally {
+            em.close();
+        }
+        replicar(atualizada);
+        return atualizada;
+    }
+
+    private void replicar(Object entidade) {
+        List<EntityManagerFactory> shards = roteador.getShards();
+        for (int i = 1; i < shards.size(); i++) {
+            StatelessSession sessao = shards.get(i).unwrap(SessionFactory.class).openStatelessSession();
+            try {
+                sessao.beginTransaction();
+                sessao.upsert(entidade);
+                sessao.getTransaction().commit();
+            } catch (Exception e) {
+                if (sessao.getTransaction().isActive()) {
+                    sessao.getTransaction().rollback();
+                }
+                throw new DataAccessException("Erro ao replicar " + entidade.getClass().getSimpleName()
+                        + " para o shard " + i, e);
+            } finally {
+                sessao.close();
+            }
+        }
+    }
+}
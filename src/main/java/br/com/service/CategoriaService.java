@@ -5,6 +5,7 @@ import br.com.model.Categoria;
 import jakarta.persistence.EntityManager;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public class CategoriaService {
     private CategoriaDao categoriaDao;
@@ -32,4 +33,9 @@ public class CategoriaService {
     public List<Categoria> buscarTodosAsCategorias(){
         return categoriaDao.buscarTodos();
     }
+
+    // Percorre o cursor da consulta, sem montar a lista: o Stream deve ser fechado após o uso.
+    public Stream<Categoria> percorrerTodasAsCategorias(){
+        return categoriaDao.percorrerTodos();
+    }
 }
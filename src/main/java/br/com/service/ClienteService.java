@@ -0,0 +1,135 @@
+package br.com.service;
+
+import br.com.dao.ClienteDao;
+import br.com.exception.CpfJaCadastradoException;
+import br.com.exception.DataAccessException;
+import br.com.model.Cliente;
+import br.com.util.FiltroDeBloom;
+import br.com.vo.EstatisticasDoFiltroDeCpfsVo;
+import jakarta.persistence.EntityManager;
+import org.hibernate.exception.ConstraintViolationException;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/* Cadastro de clientes com verificação de CPF duplicado.
+   Com o filtro de Bloom dos CPFs carregado (reconstruirFiltroDeCpfs), um CPF que o filtro descarta é com certeza
+   novo e o cadastro vai direto ao INSERT; só quando o filtro responde "talvez" o banco é consultado. O índice
+   único do CPF continua sendo a garantia final, inclusive para dois cadastros simultâneos do mesmo CPF. */
+public class ClienteService {
+
+    // Folga do filtro em relação à quantidade de clientes na reconstrução, para absorver os cadastros seguintes.
+    private static final int FOLGA = 2;
+    private static final long MINIMO_DE_CPFS = 10_000;
+    private static final double TAXA_DE_FALSOS_POSITIVOS = 0.01;
+
+    private ClienteDao clienteDao;
+    private volatile FiltroDeBloom filtroDeCpfs;
+    private final LongAdder consultasEvitadas = new LongAdder();
+    private final LongAdder falsosPositivos = new LongAdder();
+
+    public ClienteService(EntityManager em){
+        clienteDao = new ClienteDao(em);
+    }
+
+    // Lê todos os CPFs do banco (só a coluna) e troca o filtro em uso por um novo, dimensionado para eles.
+    public void reconstruirFiltroDeCpfs(){
+        reconstruirFiltroDeCpfs(clienteDao);
+    }
+
+    /* O mesmo, com outro EntityManager: permite reconstruir o filtro em segundo plano enquanto o service é usado.
+       Um CPF cadastrado durante a leitura e que fique fora do filtro novo ainda é barrado pelo índice único. */
+    public void reconstruirFiltroDeCpfs(EntityManager em){
+        reconstruirFiltroDeCpfs(new ClienteDao(em));
+    }
+
+    private void reconstruirFiltroDeCpfs(ClienteDao clienteDao){
+        FiltroDeBloom novo = new FiltroDeBloom(Math.max(MINIMO_DE_CPFS, clienteDao.contar() * FOLGA),
+                TAXA_DE_FALSOS_POSITIVOS);
+        try (Stream<String> cpfs = clienteDao.buscarTodosOsCpfs()) {
+            cpfs.forEach(cpf -> {
+                if (cpf != null) {
+                    novo.adicionar(cpf);
+                }
+            });
+        }
+        filtroDeCpfs = novo;
+    }
+
+    public void inserir(Cliente cliente){
+        String cpf = cliente.getCpf();
+        if (cpf != null && !cpfCertamenteNovo(cpf)) {
+            if (clienteDao.buscarPorCpf(cpf) != null) {
+                throw new CpfJaCadastradoException(cpf);
+            }
+            // O filtro respondeu "talvez", mas o banco não tem o CPF.
+            if (filtroDeCpfs != null) {
+                falsosPositivos.increment();
+            }
+        }
+        try {
+            clienteDao.cadastrar(cliente);
+        } catch (DataAccessException e) {
+            if (violouCpfUnico(e)) {
+                throw new CpfJaCadastradoException(cpf);
+            }
+            throw e;
+        }
+        FiltroDeBloom filtro = filtroDeCpfs;
+        if (filtro != null && cpf != null) {
+            filtro.adicionar(cpf);
+        }
+    }
+
+    public void alterar(Cliente cliente){
+        clienteDao.atualizar(cliente);
+    }
+
+    public void excluir(Cliente cliente){
+        clienteDao.remover(cliente);
+    }
+
+    public Cliente buscarClientePorId(long id){
+        return clienteDao.buscarPorId(id);
+    }
+
+    // Sempre no banco (pelo índice): o filtro pode não conhecer clientes cadastrados por outro processo.
+    public Cliente buscarClientePorCpf(String cpf){
+        return clienteDao.buscarPorCpf(cpf);
+    }
+
+    public List<Cliente> buscarTodosOsClientes(){
+        return clienteDao.buscarTodos();
+    }
+
+    // Null enquanto o filtro não tiver sido construído.
+    public EstatisticasDoFiltroDeCpfsVo estatisticasDoFiltroDeCpfs(){
+        FiltroDeBloom filtro = filtroDeCpfs;
+        if (filtro == null) {
+            return null;
+        }
+        return new EstatisticasDoFiltroDeCpfsVo(filtro.getElementos(), filtro.getBits(), filtro.getFuncoes(),
+                filtro.getTaxaDeFalsosPositivosEstimada(), consultasEvitadas.sum(), falsosPositivos.sum());
+    }
+
+    // Só o filtro pode garantir que o CPF é novo; sem ele, todo CPF precisa ser conferido no banco.
+    private boolean cpfCertamenteNovo(String cpf){
+        FiltroDeBloom filtro = filtroDeCpfs;
+        if (filtro != null && !filtro.talvezContenha(cpf)) {
+            consultasEvitadas.increment();
+            return true;
+        }
+        return false;
+    }
+
+    private static boolean violouCpfUnico(Throwable erro){
+        for (Throwable causa = erro; causa != null; causa = causa.getCause()) {
+            if (causa instanceof ConstraintViolationException violacao && violacao.getConstraintName() != null
+                    && violacao.getConstraintName().toLowerCase().contains(Cliente.CPF_UNICO)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
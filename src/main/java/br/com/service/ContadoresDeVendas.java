@@ -0,0 +1,394 @@
+package br.com.service;
+
+import br.com.dao.ClienteDao;
+import br.com.dao.ProdutoDao;
+import br.com.dao.VendaDAO;
+import br.com.model.Cliente;
+import br.com.model.LinhaDePedido;
+import br.com.model.Pedido;
+import br.com.model.PedidoCompacto;
+import br.com.model.PedidoItem;
+import br.com.model.Produto;
+import br.com.util.TarefasPeriodicas;
+import br.com.util.TopN;
+import br.com.vo.RelatorioDeVendasVo;
+import br.com.vo.RelatorioFinanceiroVo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/* Totais de vendas de toda a história, mantidos em memória: por cliente (valor comprado e quantidade de pedidos)
+   e por produto (unidades vendidas e data da última venda). Com eles, o relatório de vendas e o financeiro sem
+   período saem dos contadores, sem consulta ao banco.
+   - Cada total é um LongAdder (valores em centavos): pedidos simultâneos do mesmo cliente ou produto não disputam
+     um único contador. A data da última venda só avança (máximo atômico).
+   - O PedidoService aplica a variação de cada pedido depois do commit (inclusão, alteração, exclusão), e também a
+     inclusão dos pedidos compactos (PedidoCompacto).
+   - carregar() reconstrói tudo a partir do banco (inclusive dos pedidos arquivados e compactos); verificar() compara o banco
+     com a memória e corrige a diferença, para cobrir pedidos gravados por fora do PedidoService.
+   - Cada cliente e produto conta as gravações iniciadas e concluídas que o envolvem: a comparação só corrige os
+     que não tiveram gravação em andamento durante a leitura do banco; os demais ficam para a próxima rodada.
+   - Um ID visto pela primeira vez numa referência (getReference), sem a entidade carregada, tem o nome buscado
+     uma única vez por uma consulta só do nome. */
+public class ContadoresDeVendas implements AutoCloseable {
+
+    // Identifica o cliente e os produtos de uma gravação em andamento (ver iniciarGravacao).
+    public record Gravacao(Long idCliente, Collection<Long> idsProdutos) {
+    }
+
+    // Comum a clientes e produtos; campos sem "private" para serem lidos pelas subclasses.
+    private static class Totais {
+        volatile String nome;
+        final LongAdder gravacoesIniciadas = new LongAdder();
+        final LongAdder gravacoesConcluidas = new LongAdder();
+    }
+
+    private static class TotaisDoCliente extends Totais {
+        private final LongAdder centavos = new LongAdder();
+        private final LongAdder pedidos = new LongAdder();
+    }
+
+    private static class TotaisDoProduto extends Totais {
+        private final LongAdder unidades = new LongAdder();
+        // Dia (epochDay) da última venda; Long.MIN_VALUE enquanto não houver venda.
+        private final AtomicLong ultimaVenda = new AtomicLong(Long.MIN_VALUE);
+    }
+
+    private final EntityManagerFactory emf;
+    private final Duration intervaloDeVerificacao;
+    private final Map<Long, TotaisDoCliente> clientes = new ConcurrentHashMap<>();
+    private final Map<Long, TotaisDoProduto> produtos = new ConcurrentHashMap<>();
+    private ScheduledExecutorService agendador;
+    // Verdadeiro do iniciar() até a primeira comparação com o banco: até lá, os totais estão incompletos.
+    private volatile boolean emCarga;
+    private final AtomicLong correcoes = new AtomicLong();
+
+    public ContadoresDeVendas(EntityManagerFactory emf, Duration intervaloDeVerificacao) {
+        this.emf = emf;
+        this.intervaloDeVerificacao = intervaloDeVerificacao;
+    }
+
+    /* Carrega os totais do banco em segundo plano e agenda a verificação periódica. Os pedidos gravados durante
+       a carga já são contados (a carga só ajusta quem não teve gravação em andamento); os relatórios devem
+       consultar o banco enquanto isEmCarga() for verdadeiro. */
+    public void iniciar() {
+        emCarga = true;
+        agendador = TarefasPeriodicas.criarAgendador("verificador-de-contadores");
+        agendador.execute(TarefasPeriodicas.registrandoFalhas("carga dos contadores de vendas", this::carregar));
+        agendador.scheduleWithFixedDelay(TarefasPeriodicas.registrandoFalhas("verificação dos contadores de vendas", this::verificar),
+                intervaloDeVerificacao.toMillis(), intervaloDeVerificacao.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /* Recalcula os totais a partir do banco. Os valores são ajustados no lugar, sem esvaziar os mapas, para não
+       perder a marcação das gravações em andamento: os clientes e produtos com gravação durante a leitura ficam
+       para a próxima verificação. */
+    public synchronized void carregar() {
+        reconciliar();
+    }
+
+    /* Compara os totais do banco com os da memória e aplica a diferença (de forma relativa, para não apagar
+       variações concorrentes). Antes da leitura, guarda quantas gravações cada cliente e produto já tinha
+       iniciado; depois, só corrige os que não tinham gravação em andamento e não iniciaram outra nesse meio
+       tempo, pois para eles o banco lido e a memória refletem os mesmos pedidos. Devolve a quantidade de clientes
+       e produtos corrigidos. */
+    public synchronized int verificar() {
+        int corrigidos = reconciliar();
+        correcoes.addAndGet(corrigidos);
+        return corrigidos;
+    }
+
+    /* Deve ser chamado antes de gravar um pedido, com o cliente e todos os produtos que a gravação pode alterar
+       (numa alteração, os de antes e os de depois), e concluirGravacao() depois (no finally). */
+    public Gravacao iniciarGravacao(Long idCliente, Collection<Long> idsProdutos) {
+        Gravacao gravacao = new Gravacao(idCliente, Set.copyOf(idsProdutos));
+        if (idCliente != null) {
+            clientes.computeIfAbsent(idCliente, id -> new TotaisDoCliente()).gravacoesIniciadas.increment();
+        }
+        for (Long idProduto : gravacao.idsProdutos()) {
+            produtos.computeIfAbsent(idProduto, id -> new TotaisDoProduto()).gravacoesIniciadas.increment();
+        }
+        return gravacao;
+    }
+
+    public void concluirGravacao(Gravacao gravacao) {
+        if (gravacao.idCliente() != null) {
+            clientes.computeIfAbsent(gravacao.idCliente(), id -> new TotaisDoCliente()).gravacoesConcluidas.increment();
+        }
+        for (Long idProduto : gravacao.idsProdutos()) {
+            produtos.computeIfAbsent(idProduto, id -> new TotaisDoProduto()).gravacoesConcluidas.increment();
+        }
+    }
+
+    // Pedido incluído (sinal 1) ou excluído (sinal -1). A data da última venda não recua na exclusão: fica para verificar().
+    public void registrarPedido(Pedido pedido, int sinal) {
+        TotaisDoCliente cliente = cliente(pedido.getCliente());
+        cliente.centavos.add(sinal * centavos(pedido.getValorTotal()));
+        cliente.pedidos.add(sinal);
+        for (PedidoItem item : pedido.getItens()) {
+            TotaisDoProduto produto = produto(item.getProduto().getId(), item.getProduto());
+            produto.unidades.add((long) sinal * item.getQuantidade());
+            if (sinal > 0) {
+                produto.ultimaVenda.accumulateAndGet(pedido.getData().toEpochDay(), Math::max);
+            }
+        }
+    }
+
+    // Pedido compacto incluído: como registrarPedido(pedido, 1). Sem cliente, só os produtos são contados,
+    // como nos relatórios do banco.
+    public void registrarPedido(PedidoCompacto pedido) {
+        if (pedido.getCliente() != null) {
+            TotaisDoCliente cliente = cliente(pedido.getCliente());
+            cliente.centavos.add(centavos(pedido.getValorTotal()));
+            cliente.pedidos.increment();
+        }
+        for (LinhaDePedido linha : pedido.getItens()) {
+            TotaisDoProduto produto = produto(linha.idProduto(), null);
+            produto.unidades.add(linha.quantidade());
+            produto.ultimaVenda.accumulateAndGet(pedido.getData().toEpochDay(), Math::max);
+        }
+    }
+
+    // Pedido alterado: aplica a diferença entre o que estava gravado antes e depois (valor total e unidades por produto).
+    public void registrarAlteracao(Pedido pedido, BigDecimal valorAnterior, Map<Long, Long> unidadesAnteriores,
+                                   BigDecimal valorAtual, Map<Long, Long> unidadesAtuais) {
+        cliente(pedido.getCliente()).centavos.add(centavos(valorAtual) - centavos(valorAnterior));
+        Set<Long> idsProdutos = new HashSet<>(unidadesAnteriores.keySet());
+        idsProdutos.addAll(unidadesAtuais.keySet());
+        for (Long idProduto : idsProdutos) {
+            long variacao = unidadesAtuais.getOrDefault(idProduto, 0L) - unidadesAnteriores.getOrDefault(idProduto, 0L);
+            if (variacao != 0) {
+                TotaisDoProduto produto = produto(idProduto, null);
+                produto.unidades.add(variacao);
+                if (variacao > 0) {
+                    produto.ultimaVenda.accumulateAndGet(pedido.getData().toEpochDay(), Math::max);
+                }
+            }
+        }
+    }
+
+    // Mesmo conteúdo e ordem de VendaDAO.relatorioDeVendas(), calculado só com os contadores.
+    public List<RelatorioDeVendasVo> relatorioDeVendas() {
+        List<RelatorioDeVendasVo> relatorio = linhasDeProdutos();
+        relatorio.sort(RelatorioDeVendasVo.RANKING.reversed());
+        return relatorio;
+    }
+
+    public List<RelatorioDeVendasVo> relatorioDeVendas(int limite) {
+        return TopN.mesclar(limite, RelatorioDeVendasVo.RANKING, List.of(linhasDeProdutos()));
+    }
+
+    public List<RelatorioFinanceiroVo> relatorioFinanceiro() {
+        List<RelatorioFinanceiroVo> relatorio = linhasDeClientes();
+        relatorio.sort(RelatorioFinanceiroVo.RANKING.reversed());
+        return relatorio;
+    }
+
+    public List<RelatorioFinanceiroVo> relatorioFinanceiro(int limite) {
+        return TopN.mesclar(limite, RelatorioFinanceiroVo.RANKING, List.of(linhasDeClientes()));
+    }
+
+    public boolean isEmCarga() {
+        return emCarga;
+    }
+
+    public long getCorrecoes() {
+        return correcoes.get();
+    }
+
+    @Override
+    public void close() {
+        TarefasPeriodicas.encerrar(agendador, false);
+    }
+
+    // Só entram clientes e produtos com venda, como nas consultas agrupadas.
+    private List<RelatorioDeVendasVo> linhasDeProdutos() {
+        List<RelatorioDeVendasVo> linhas = new ArrayList<>(produtos.size());
+        produtos.forEach((id, totais) -> {
+            long unidades = totais.unidades.sum();
+            long ultimaVenda = totais.ultimaVenda.get();
+            if (unidades != 0 && ultimaVenda != Long.MIN_VALUE) {
+                linhas.add(new RelatorioDeVendasVo(id, totais.nome, unidades, LocalDate.ofEpochDay(ultimaVenda)));
+            }
+        });
+        return linhas;
+    }
+
+    private List<RelatorioFinanceiroVo> linhasDeClientes() {
+        List<RelatorioFinanceiroVo> linhas = new ArrayList<>(clientes.size());
+        clientes.forEach((id, totais) -> {
+            long pedidos = totais.pedidos.sum();
+            if (pedidos > 0) {
+                linhas.add(new RelatorioFinanceiroVo(id, totais.nome,
+                        BigDecimal.valueOf(totais.centavos.sum(), 2), pedidos));
+            }
+        });
+        return linhas;
+    }
+
+    private int reconciliar() {
+        Map<Long, Long> clientesEstaveis = semGravacaoEmAndamento(clientes);
+        Map<Long, Long> produtosEstaveis = semGravacaoEmAndamento(produtos);
+        List<RelatorioFinanceiroVo> totaisDosClientes;
+        List<RelatorioDeVendasVo> totaisDosProdutos;
+        EntityManager em = emf.createEntityManager();
+        try {
+            VendaDAO vendaDAO = new VendaDAO(em, true);
+            totaisDosClientes = vendaDAO.totaisPorCliente();
+            totaisDosProdutos = vendaDAO.relatorioDeVendas();
+        } finally {
+            em.close();
+        }
+        int corrigidos = corrigir(totaisDosClientes, totaisDosProdutos, clientesEstaveis, produtosEstaveis);
+        emCarga = false;
+        return corrigidos;
+    }
+
+    // Gravações iniciadas de cada ID sem gravação em andamento no momento da leitura.
+    private static Map<Long, Long> semGravacaoEmAndamento(Map<Long, ? extends Totais> totais) {
+        Map<Long, Long> estaveis = new HashMap<>();
+        totais.forEach((id, memoria) -> {
+            long concluidas = memoria.gravacoesConcluidas.sum();
+            long iniciadas = memoria.gravacoesIniciadas.sum();
+            if (iniciadas == concluidas) {
+                estaveis.put(id, iniciadas);
+            }
+        });
+        return estaveis;
+    }
+
+    // Nenhuma gravação em andamento na primeira leitura nem iniciada desde então (um ID novo começa em zero).
+    private static boolean estavel(Map<Long, Long> estaveis, Long id, Totais memoria) {
+        Long iniciadas = estaveis.get(id);
+        if (iniciadas == null) {
+            if (memoria.gravacoesIniciadas.sum() != 0) {
+                return false;
+            }
+            iniciadas = 0L;
+        }
+        return memoria.gravacoesIniciadas.sum() == iniciadas && memoria.gravacoesConcluidas.sum() == iniciadas;
+    }
+
+    private int corrigir(List<RelatorioFinanceiroVo> totaisDosClientes, List<RelatorioDeVendasVo> totaisDosProdutos,
+                         Map<Long, Long> clientesEstaveis, Map<Long, Long> produtosEstaveis) {
+        int corrigidos = 0;
+        Map<Long, RelatorioFinanceiroVo> bancoDeClientes = new HashMap<>();
+        totaisDosClientes.forEach(totais -> bancoDeClientes.put(totais.getIdCliente(), totais));
+        for (RelatorioFinanceiroVo banco : totaisDosClientes) {
+            TotaisDoCliente memoria = clientes.computeIfAbsent(banco.getIdCliente(), id -> new TotaisDoCliente());
+            memoria.nome = banco.getNomeCliente();
+            if (estavel(clientesEstaveis, banco.getIdCliente(), memoria)
+                    && ajustar(memoria.centavos, centavos(banco.getTotalPedidosDoCliente()))
+                    | ajustar(memoria.pedidos, banco.getQuantidadePedidos())) {
+                corrigidos++;
+            }
+        }
+        // Na memória e não mais no banco (ex.: pedidos excluídos por fora): zera.
+        for (Map.Entry<Long, TotaisDoCliente> memoria : clientes.entrySet()) {
+            if (!bancoDeClientes.containsKey(memoria.getKey())
+                    && estavel(clientesEstaveis, memoria.getKey(), memoria.getValue())
+                    && (ajustar(memoria.getValue().centavos, 0) | ajustar(memoria.getValue().pedidos, 0))) {
+                corrigidos++;
+            }
+        }
+
+        Map<Long, RelatorioDeVendasVo> bancoDeProdutos = new HashMap<>();
+        totaisDosProdutos.forEach(totais -> bancoDeProdutos.put(totais.getIdProduto(), totais));
+        for (RelatorioDeVendasVo banco : totaisDosProdutos) {
+            TotaisDoProduto memoria = produtos.computeIfAbsent(banco.getIdProduto(), id -> new TotaisDoProduto());
+            memoria.nome = banco.getNomeProduto();
+            if (estavel(produtosEstaveis, banco.getIdProduto(), memoria)
+                    && ajustar(memoria.unidades, banco.getQuantidadeVendida())
+                    | ajustarUltimaVenda(memoria.ultimaVenda, banco.getDataUltimaVenda().toEpochDay())) {
+                corrigidos++;
+            }
+        }
+        for (Map.Entry<Long, TotaisDoProduto> memoria : produtos.entrySet()) {
+            if (!bancoDeProdutos.containsKey(memoria.getKey())
+                    && estavel(produtosEstaveis, memoria.getKey(), memoria.getValue())
+                    && (ajustar(memoria.getValue().unidades, 0) | ajustarUltimaVenda(memoria.getValue().ultimaVenda, Long.MIN_VALUE))) {
+                corrigidos++;
+            }
+        }
+        return corrigidos;
+    }
+
+    private static boolean ajustar(LongAdder contador, long valorDoBanco) {
+        long diferenca = valorDoBanco - contador.sum();
+        if (diferenca == 0) {
+            return false;
+        }
+        contador.add(diferenca);
+        return true;
+    }
+
+    // Recua a data só se ninguém a tiver avançado entretanto (uma venda nova vale mais que o banco lido antes dela).
+    private static boolean ajustarUltimaVenda(AtomicLong ultimaVenda, long diaDoBanco) {
+        long atual = ultimaVenda.get();
+        if (atual == diaDoBanco) {
+            return false;
+        }
+        if (diaDoBanco > atual) {
+            ultimaVenda.accumulateAndGet(diaDoBanco, Math::max);
+            return true;
+        }
+        return ultimaVenda.compareAndSet(atual, diaDoBanco);
+    }
+
+    /* Na primeira vez que um ID aparece sem nome: se a entidade estiver carregada, o nome vem dela; se for uma
+       referência (getReference), ler o nome faria um SELECT da entidade inteira, então só o nome é consultado. */
+    private TotaisDoCliente cliente(Cliente cliente) {
+        TotaisDoCliente totais = clientes.computeIfAbsent(cliente.getId(), id -> new TotaisDoCliente());
+        if (totais.nome == null) {
+            if (Persistence.getPersistenceUtil().isLoaded(cliente)) {
+                totais.nome = cliente.getNome();
+            } else {
+                EntityManager em = emf.createEntityManager();
+                try {
+                    totais.nome = new ClienteDao(em).buscarNome(cliente.getId());
+                } finally {
+                    em.close();
+                }
+            }
+        }
+        return totais;
+    }
+
+    // "produto" pode ser null (alteração, em que só o ID é conhecido).
+    private TotaisDoProduto produto(Long idProduto, Produto produto) {
+        TotaisDoProduto totais = produtos.computeIfAbsent(idProduto, id -> new TotaisDoProduto());
+        if (totais.nome == null) {
+            if (produto != null && Persistence.getPersistenceUtil().isLoaded(produto)) {
+                totais.nome = produto.getNome();
+            } else {
+                EntityManager em = emf.createEntityManager();
+                try {
+                    totais.nome = new ProdutoDao(em).buscarNome(idProduto);
+                } finally {
+                    em.close();
+                }
+            }
+        }
+        return totais;
+    }
+
+    private static long centavos(BigDecimal valor) {
+        return valor == null ? 0 : valor.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
@@ -0,0 +1,295 @@
+package br.com.service;
+
+import br.com.exception.DataAccessException;
+import br.com.exception.EstoqueInsuficienteException;
+import br.com.util.TarefasPeriodicas;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/* Reserva de estoque em memória, sem travar a linha do produto no banco a cada pedido.
+   - O saldo disponível de cada produto fica dividido em faixas (uma por núcleo, em linhas de cache separadas).
+     Cada thread reserva da sua faixa com um compareAndSet; só quando a faixa não basta ela junta o que falta das
+     outras. Assim, pedidos simultâneos de um mesmo produto muito vendido não disputam um único contador.
+   - Nenhuma faixa fica negativa, então o total reservado nunca passa do estoque (não há venda além do saldo).
+     Em disputa, uma reserva pode falhar mesmo havendo saldo somado em trânsito entre faixas; basta repeti-la.
+   - As variações ainda não gravadas acumulam em um LongAdder por produto. Um thread em segundo plano as grava com
+     UPDATE relativo (estoque = estoque + delta), sem ler nem sobrescrever o valor do banco.
+   - A reconciliação compara o banco com a memória e aplica a diferença como ajuste (ex.: reposição feita
+     diretamente no banco), também de forma relativa, para não apagar reservas concorrentes. */
+public class ControleDeEstoque implements AutoCloseable {
+
+    private static final int FAIXAS = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1));
+    // 8 longs = 64 bytes: cada faixa fica na sua própria linha de cache (evita false sharing).
+    private static final int ESPACAMENTO = 8;
+
+    // Saldo de um produto em memória.
+    private static class Saldo {
+        private final AtomicLongArray faixas = new AtomicLongArray(FAIXAS * ESPACAMENTO);
+        private final LongAdder pendente = new LongAdder();
+        // Operações iniciadas e concluídas: iguais e estáveis indicam que nada mudou durante a reconciliação.
+        private final LongAdder iniciadas = new LongAdder();
+        private final LongAdder concluidas = new LongAdder();
+
+        Saldo(long inicial) {
+            // O saldo inicial é repartido entre as faixas, para que cada thread comece com a sua parte.
+            long parte = inicial / FAIXAS;
+            for (int i = 0; i < FAIXAS; i++) {
+                faixas.set(i * ESPACAMENTO, parte);
+            }
+            faixas.addAndGet(0, inicial - parte * FAIXAS);
+        }
+
+        // Retira até "maximo" unidades da faixa e devolve quanto conseguiu.
+        long retirarAte(int faixa, long maximo) {
+            int indice = faixa * ESPACAMENTO;
+            while (true) {
+                long atual = faixas.get(indice);
+                long retirada = Math.min(atual, maximo);
+                if (retirada <= 0) {
+                    return 0;
+                }
+                if (faixas.compareAndSet(indice, atual, atual - retirada)) {
+                    return retirada;
+                }
+            }
+        }
+
+        void devolver(int faixa, long quantidade) {
+            faixas.addAndGet(faixa * ESPACAMENTO, quantidade);
+        }
+
+        long total() {
+            long total = 0;
+            for (int i = 0; i < FAIXAS; i++) {
+                total += faixas.get(i * ESPACAMENTO);
+            }
+            return total;
+        }
+    }
+
+    private final EntityManagerFactory emf;
+    private final Map<Long, Saldo> saldos = new ConcurrentHashMap<>();
+    private final Duration intervaloDeGravacao;
+    private final Duration intervaloDeReconciliacao;
+    private ScheduledExecutorService agendador;
+
+    // Métricas (LongAdder: um contador comum seria, ele mesmo, o ponto de disputa que as faixas evitam).
+    private final LongAdder reservas = new LongAdder();
+    private final LongAdder reservasRecusadas = new LongAdder();
+    private final AtomicLong ajustesDeReconciliacao = new AtomicLong();
+
+    public ControleDeEstoque(EntityManagerFactory emf, Duration intervaloDeGravacao, Duration intervaloDeReconciliacao) {
+        this.emf = emf;
+        this.intervaloDeGravacao = intervaloDeGravacao;
+        this.intervaloDeReconciliacao = intervaloDeReconciliacao;
+    }
+
+    // Inicia a gravação periódica das variações e a reconciliação com o banco.
+    public void iniciar() {
+        agendador = TarefasPeriodicas.criarAgendador("gravador-de-estoque");
+        agendador.scheduleWithFixedDelay(TarefasPeriodicas.registrandoFalhas(
+                "gravação do estoque (nova tentativa no próximo ciclo)", this::gravarPendentes),
+                intervaloDeGravacao.toMillis(), intervaloDeGravacao.toMillis(), TimeUnit.MILLISECONDS);
+        agendador.scheduleWithFixedDelay(TarefasPeriodicas.registrandoFalhas("reconciliação do estoque", this::reconciliar),
+                intervaloDeReconciliacao.toMillis(), intervaloDeReconciliacao.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void reservar(Long idProduto, long quantidade) {
+        Saldo saldo = saldo(idProduto);
+        int propria = faixaDoThread();
+        saldo.iniciadas.increment();
+        try {
+            long obtido = saldo.retirarAte(propria, quantidade);
+            for (int i = 1; i < FAIXAS && obtido < quantidade; i++) {
+                obtido += saldo.retirarAte((propria + i) & (FAIXAS - 1), quantidade - obtido);
+            }
+            if (obtido < quantidade) {
+                saldo.devolver(propria, obtido);
+                reservasRecusadas.increment();
+                throw new EstoqueInsuficienteException(idProduto, quantidade, saldo.total());
+            }
+            saldo.pendente.add(-quantidade);
+            reservas.increment();
+        } finally {
+            saldo.concluidas.increment();
+        }
+    }
+
+    // Devolve ao estoque uma reserva desfeita (item ou pedido excluído, cadastro que falhou).
+    public void liberar(Long idProduto, long quantidade) {
+        Saldo saldo = saldo(idProduto);
+        saldo.iniciadas.increment();
+        saldo.devolver(faixaDoThread(), quantidade);
+        saldo.pendente.add(quantidade);
+        saldo.concluidas.increment();
+    }
+
+    /* Entrada de mercadoria: grava no banco na hora, com UPDATE relativo, e soma ao disponível. O saldo é carregado
+       antes do UPDATE, para que a reposição não entre duas vezes; com o monitor da reconciliação, ela não vê o banco
+       já alterado e a memória ainda não. Devolve false se o produto não existe. */
+    public synchronized boolean repor(Long idProduto, long quantidade) {
+        Saldo saldo = saldo(idProduto);
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            int linhas = em.createNamedQuery("Produto.ajustarEstoque")
+                    .setParameter("delta", quantidade)
+                    .setParameter("id", idProduto)
+                    .executeUpdate();
+            em.getTransaction().commit();
+            if (linhas == 0) {
+                saldos.remove(idProduto, saldo);
+                return false;
+            }
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw new DataAccessException("Erro ao repor o estoque do produto " + idProduto, e);
+        } finally {
+            em.close();
+        }
+        saldo.devolver(faixaDoThread(), quantidade);
+        return true;
+    }
+
+    public long disponivel(Long idProduto) {
+        return saldo(idProduto).total();
+    }
+
+    // Grava no banco, com UPDATE relativo, as variações acumuladas desde a última gravação.
+    public synchronized void gravarPendentes() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            for (Map.Entry<Long, Saldo> entrada : saldos.entrySet()) {
+                LongAdder pendente = entrada.getValue().pendente;
+                long delta = pendente.sumThenReset();
+                if (delta == 0) {
+                    continue;
+                }
+                try {
+                    em.getTransaction().begin();
+                    em.createNamedQuery("Produto.ajustarEstoque")
+                            .setParameter("delta", delta)
+                            .setParameter("id", entrada.getKey())
+                            .executeUpdate();
+                    em.getTransaction().commit();
+                } catch (RuntimeException e) {
+                    if (em.getTransaction().isActive()) {
+                        em.getTransaction().rollback();
+                    }
+                    // A variação volta para a próxima gravação.
+                    pendente.add(delta);
+                    throw new DataAccessException("Erro ao gravar o estoque do produto " + entrada.getKey(), e);
+                }
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    /* Compara o estoque do banco com o saldo em memória (descontadas as variações ainda não gravadas) e aplica a
+       diferença ao saldo em memória. Produtos com reserva em andamento ou com movimento durante a leitura do banco
+       ficam para a próxima rodada, pois a comparação não seria consistente. Devolve a quantidade de produtos
+       ajustados. */
+    public synchronized int reconciliar() {
+        gravarPendentes();
+        Map<Long, Long> paradas = new HashMap<>();
+        for (Map.Entry<Long, Saldo> entrada : saldos.entrySet()) {
+            Saldo saldo = entrada.getValue();
+            long concluidas = saldo.concluidas.sum();
+            long iniciadas = saldo.iniciadas.sum();
+            if (iniciadas == concluidas) {
+                paradas.put(entrada.getKey(), iniciadas);
+            }
+        }
+        if (paradas.isEmpty()) {
+            return 0;
+        }
+        Map<Long, Long> banco = lerEstoqueDoBanco(new ArrayList<>(paradas.keySet()));
+        int ajustados = 0;
+        for (Map.Entry<Long, Long> parada : paradas.entrySet()) {
+            Saldo saldo = saldos.get(parada.getKey());
+            if (saldo.iniciadas.sum() != parada.getValue()) {
+                continue;
+            }
+            long diferenca = banco.getOrDefault(parada.getKey(), 0L) + saldo.pendente.sum() - saldo.total();
+            if (diferenca > 0) {
+                saldo.devolver(faixaDoThread(), diferenca);
+            } else if (diferenca < 0) {
+                long restante = -diferenca;
+                for (int i = 0; i < FAIXAS && restante > 0; i++) {
+                    restante -= saldo.retirarAte(i, restante);
+                }
+            }
+            if (diferenca != 0) {
+                ajustados++;
+                ajustesDeReconciliacao.incrementAndGet();
+            }
+        }
+        return ajustados;
+    }
+
+    public long getReservas() {
+        return reservas.sum();
+    }
+
+    public long getReservasRecusadas() {
+        return reservasRecusadas.sum();
+    }
+
+    public long getAjustesDeReconciliacao() {
+        return ajustesDeReconciliacao.get();
+    }
+
+    // Para as tarefas em segundo plano e grava o que ainda estiver pendente.
+    @Override
+    public void close() {
+        TarefasPeriodicas.encerrar(agendador, false);
+        gravarPendentes();
+    }
+
+    // Na primeira reserva de um produto, o saldo é carregado do banco.
+    private Saldo saldo(Long idProduto) {
+        Saldo saldo = saldos.get(idProduto);
+        if (saldo != null) {
+            return saldo;
+        }
+        return saldos.computeIfAbsent(idProduto,
+                id -> new Saldo(lerEstoqueDoBanco(List.of(id)).getOrDefault(id, 0L)));
+    }
+
+    private Map<Long, Long> lerEstoqueDoBanco(List<Long> ids) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            Map<Long, Long> estoque = new HashMap<>();
+            for (Object[] linha : em.createNamedQuery("Produto.estoque", Object[].class)
+                    .setParameter("ids", ids)
+                    .getResultList()) {
+                estoque.put((Long) linha[0], linha[1] == null ? 0L : (Long) linha[1]);
+            }
+            return estoque;
+        } catch (Exception e) {
+            throw new DataAccessException("Erro ao ler o estoque dos produtos", e);
+        } finally {
+            em.close();
+        }
+    }
+
+    private static int faixaDoThread() {
+        long id = Thread.currentThread().threadId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 40) & (FAIXAS - 1);
+    }
+}
@@ -0,0 +1,340 @@
+package br.com.service;
+
+import br.com.dao.PedidoCompactoDao;
+import br.com.dao.PedidoDao;
+import br.com.util.MapaDeLongs;
+import br.com.vo.RecomendacaoVo;
+import jakarta.persistence.EntityManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/* "Comprados juntos": para cada par de produtos, em quantos pedidos os dois aparecem.
+   - Cada produto tem o seu MapaDeLongs de vizinhos (ID do outro produto -> pedidos em comum): a estrutura é
+     esparsa (só pares que já aconteceram) e sem objetos por par. O par é guardado nos dois sentidos, para que a
+     recomendação percorra só os vizinhos do produto pedido.
+   - A carga inicial lê os itens agrupados por pedido (os de Pedido e depois os de PedidoCompacto) para vetores
+     primitivos e conta os pares em paralelo (fork-join): cada tarefa conta uma faixa de pedidos no seu próprio
+     grafo e os grafos são somados na volta.
+   - O PedidoService soma os pares de cada pedido gravado (e os subtrai na exclusão). Os registrados durante a
+     carga também são guardados e reaplicados ao grafo novo, então ela pode rodar em segundo plano.
+   - Muitas leituras e poucas alterações: um ReadWriteLock deixa as recomendações em paralelo (ver TabelaDePrecos). */
+public class CoocorrenciaDeProdutos {
+
+    // Tamanho mínimo (em itens) de uma faixa para valer a divisão em duas tarefas.
+    public static final int ITENS_POR_TAREFA = 8_192;
+
+    private final ReadWriteLock trava = new ReentrantReadWriteLock();
+    private final int itensPorTarefa;
+    private Grafo grafo = new Grafo();
+    // Alterações feitas durante a carga (null fora dela), reaplicadas ao grafo carregado; protegidas pela trava.
+    private List<Consumer<Grafo>> alteracoesDuranteACarga;
+
+    public CoocorrenciaDeProdutos() {
+        this(ITENS_POR_TAREFA);
+    }
+
+    public CoocorrenciaDeProdutos(int itensPorTarefa) {
+        this.itensPorTarefa = itensPorTarefa;
+    }
+
+    private static class Grafo {
+        // ID do produto -> posição em "vizinhos" e, no sentido inverso, posição -> ID do produto.
+        private final MapaDeLongs posicoes = new MapaDeLongs(256);
+        private MapaDeLongs[] vizinhos = new MapaDeLongs[256];
+        private long[] idsPorPosicao = new long[256];
+        // Posições ocupadas: sempre as primeiras "produtos" de "vizinhos", sem buracos.
+        private int produtos;
+        // ID do produto -> quantidade de pedidos em que ele aparece.
+        private final MapaDeLongs pedidos = new MapaDeLongs(256);
+
+        MapaDeLongs vizinhosDe(long idProduto) {
+            long posicao = posicoes.get(idProduto, -1);
+            return posicao < 0 ? null : vizinhos[(int) posicao];
+        }
+
+        // Produtos distintos de um pedido, já ordenados (cada par conta uma vez por pedido).
+        void somarPedido(long[] idsProdutos, int quantidade, long delta) {
+            for (int i = 0; i < quantidade; i++) {
+                somarPedidos(idsProdutos[i], delta);
+                for (int j = i + 1; j < quantidade; j++) {
+                    somarPar(idsProdutos[i], idsProdutos[j], delta);
+                    somarPar(idsProdutos[j], idsProdutos[i], delta);
+                }
+            }
+        }
+
+        void somarTudo(Grafo outro) {
+            outro.pedidos.paraCada(this::somarPedidos);
+            outro.posicoes.paraCada((idProduto, posicao) ->
+                    outro.vizinhos[(int) posicao].paraCada((vizinho, vezes) -> somarPar(idProduto, vizinho, vezes)));
+        }
+
+        // A posição liberada recebe o último produto, para "vizinhos" continuar compacto.
+        void removerProduto(long idProduto) {
+            long posicao = posicoes.get(idProduto, -1);
+            if (posicao >= 0) {
+                vizinhos[(int) posicao].paraCada((vizinho, vezes) -> {
+                    MapaDeLongs doVizinho = vizinhosDe(vizinho);
+                    if (doVizinho != null) {
+                        doVizinho.remover(idProduto);
+                    }
+                });
+                int ultima = --produtos;
+                if (posicao != ultima) {
+                    vizinhos[(int) posicao] = vizinhos[ultima];
+                    idsPorPosicao[(int) posicao] = idsPorPosicao[ultima];
+                    posicoes.put(idsPorPosicao[ultima], posicao);
+                }
+                vizinhos[ultima] = null;
+                posicoes.remover(idProduto);
+            }
+            pedidos.remover(idProduto);
+        }
+
+        private void somarPedidos(long idProduto, long delta) {
+            if (pedidos.somar(idProduto, delta) <= 0) {
+                pedidos.remover(idProduto);
+            }
+        }
+
+        // Par que chega a zero sai do mapa, para a estrutura continuar esparsa.
+        private void somarPar(long idProduto, long vizinho, long delta) {
+            MapaDeLongs mapa = vizinhosDe(idProduto);
+            if (mapa == null) {
+                if (delta <= 0) {
+                    return;
+                }
+                if (produtos == vizinhos.length) {
+                    vizinhos = Arrays.copyOf(vizinhos, produtos * 2);
+                    idsPorPosicao = Arrays.copyOf(idsPorPosicao, produtos * 2);
+                }
+                mapa = new MapaDeLongs(8);
+                vizinhos[produtos] = mapa;
+                idsPorPosicao[produtos] = idProduto;
+                posicoes.put(idProduto, produtos++);
+            }
+            if (mapa.somar(vizinho, delta) <= 0) {
+                mapa.remover(vizinho);
+            }
+        }
+    }
+
+    // Itens (pedido, produto) lidos do banco, em ordem de pedido.
+    private static class Itens implements MapaDeLongs.ConsumidorDeLongs {
+        private long[] pedidos = new long[1024];
+        private long[] produtos = new long[1024];
+        private int tamanho;
+
+        @Override
+        public void aceitar(long idPedido, long idProduto) {
+            if (tamanho == pedidos.length) {
+                pedidos = Arrays.copyOf(pedidos, tamanho * 2);
+                produtos = Arrays.copyOf(produtos, tamanho * 2);
+            }
+            pedidos[tamanho] = idPedido;
+            produtos[tamanho++] = idProduto;
+        }
+    }
+
+    // Conta os pares dos itens [inicio, fim); a faixa é dividida só na troca de pedido.
+    private static class Contagem extends RecursiveTask<Grafo> {
+        private final Itens itens;
+        private final int inicio;
+        private final int fim;
+        private final int itensPorTarefa;
+
+        Contagem(Itens itens, int inicio, int fim, int itensPorTarefa) {
+            this.itens = itens;
+            this.inicio = inicio;
+            this.fim = fim;
+            this.itensPorTarefa = itensPorTarefa;
+        }
+
+        @Override
+        protected Grafo compute() {
+            int meio = inicio + (fim - inicio) / 2;
+            while (meio < fim && meio > inicio && itens.pedidos[meio] == itens.pedidos[meio - 1]) {
+                meio++;
+            }
+            if (fim - inicio <= itensPorTarefa || meio >= fim) {
+                return contar();
+            }
+            Contagem esquerda = new Contagem(itens, inicio, meio, itensPorTarefa);
+            esquerda.fork();
+            Grafo direita = new Contagem(itens, meio, fim, itensPorTarefa).compute();
+            Grafo grafo = esquerda.join();
+            grafo.somarTudo(direita);
+            return grafo;
+        }
+
+        private Grafo contar() {
+            Grafo grafo = new Grafo();
+            long[] produtosDoPedido = new long[16];
+            int i = inicio;
+            while (i < fim) {
+                int j = i;
+                while (j < fim && itens.pedidos[j] == itens.pedidos[i]) {
+                    j++;
+                }
+                if (j - i > produtosDoPedido.length) {
+                    produtosDoPedido = new long[j - i];
+                }
+                System.arraycopy(itens.produtos, i, produtosDoPedido, 0, j - i);
+                grafo.somarPedido(produtosDoPedido, distintos(produtosDoPedido, j - i), 1);
+                i = j;
+            }
+            return grafo;
+        }
+    }
+
+    /* Recalcula todos os pares a partir dos itens gravados. Os pedidos registrados enquanto isso são reaplicados
+       ao grafo novo antes da troca; só um pedido confirmado pouco antes da leitura e registrado depois do início
+       da carga pode contar duas vezes. */
+    public void carregar(EntityManager em) {
+        trava.writeLock().lock();
+        try {
+            alteracoesDuranteACarga = new ArrayList<>();
+        } finally {
+            trava.writeLock().unlock();
+        }
+        Grafo novo = null;
+        try {
+            Itens itens = new Itens();
+            new PedidoDao(em).paraCadaProdutoPorPedido(itens);
+            // Os pedidos compactos têm IDs próprios: entram com o ID negado (~id) para não se juntar a um Pedido.
+            new PedidoCompactoDao(em).paraCadaLinha(null, null, (idPedido, data, idCliente, linha) -> {
+                if (linha != null) {
+                    itens.aceitar(~idPedido, linha.idProduto());
+                }
+            });
+            novo = itens.tamanho == 0 ? new Grafo()
+                    : ForkJoinPool.commonPool().invoke(new Contagem(itens, 0, itens.tamanho, itensPorTarefa));
+        } finally {
+            trava.writeLock().lock();
+            try {
+                if (novo != null) {
+                    for (Consumer<Grafo> alteracao : alteracoesDuranteACarga) {
+                        alteracao.accept(novo);
+                    }
+                    grafo = novo;
+                }
+                alteracoesDuranteACarga = null;
+            } finally {
+                trava.writeLock().unlock();
+            }
+        }
+    }
+
+    // Soma (delta 1) ou subtrai (delta -1) os pares dos produtos de um pedido.
+    public void registrarPedido(Collection<Long> idsProdutos, int delta) {
+        long[] ids = new long[idsProdutos.size()];
+        int i = 0;
+        for (Long id : idsProdutos) {
+            ids[i++] = id;
+        }
+        int quantidade = distintos(ids, ids.length);
+        alterar(grafo -> grafo.somarPedido(ids, quantidade, delta));
+    }
+
+    public void removerProduto(long idProduto) {
+        alterar(grafo -> grafo.removerProduto(idProduto));
+    }
+
+    private void alterar(Consumer<Grafo> alteracao) {
+        trava.writeLock().lock();
+        try {
+            alteracao.accept(grafo);
+            if (alteracoesDuranteACarga != null) {
+                alteracoesDuranteACarga.add(alteracao);
+            }
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    /* Os "k" produtos que mais aparecem nos mesmos pedidos que o informado (empate: menor ID primeiro). Percorre
+       só os vizinhos do produto, guardando os k maiores em vetores ordenados. */
+    public List<RecomendacaoVo> recomendarPara(long idProduto, int k) {
+        long[] ids = new long[k];
+        long[] vezes = new long[k];
+        int[] encontrados = new int[1];
+        long pedidosDoProduto;
+        trava.readLock().lock();
+        try {
+            MapaDeLongs vizinhos = grafo.vizinhosDe(idProduto);
+            if (vizinhos == null || k <= 0) {
+                return List.of();
+            }
+            pedidosDoProduto = grafo.pedidos.get(idProduto, 0);
+            vizinhos.paraCada((vizinho, pedidosEmComum) -> {
+                int n = encontrados[0];
+                if (n == k && !antes(pedidosEmComum, vizinho, vezes[k - 1], ids[k - 1])) {
+                    return;
+                }
+                int posicao = n == k ? k - 1 : n;
+                while (posicao > 0 && antes(pedidosEmComum, vizinho, vezes[posicao - 1], ids[posicao - 1])) {
+                    ids[posicao] = ids[posicao - 1];
+                    vezes[posicao] = vezes[posicao - 1];
+                    posicao--;
+                }
+                ids[posicao] = vizinho;
+                vezes[posicao] = pedidosEmComum;
+                encontrados[0] = Math.min(n + 1, k);
+            });
+        } finally {
+            trava.readLock().unlock();
+        }
+        List<RecomendacaoVo> recomendacoes = new ArrayList<>(encontrados[0]);
+        for (int i = 0; i < encontrados[0]; i++) {
+            recomendacoes.add(new RecomendacaoVo(ids[i], vezes[i],
+                    pedidosDoProduto == 0 ? 0 : (double) vezes[i] / pedidosDoProduto));
+        }
+        return recomendacoes;
+    }
+
+    // Quantidade de produtos com posição no grafo (já tiveram algum par e não foram removidos).
+    public int produtos() {
+        trava.readLock().lock();
+        try {
+            return grafo.produtos;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    // Quantidade de pares distintos guardados (cada par conta uma vez).
+    public long pares() {
+        trava.readLock().lock();
+        try {
+            long[] total = new long[1];
+            grafo.posicoes.paraCada((idProduto, posicao) -> total[0] += grafo.vizinhos[(int) posicao].tamanho());
+            return total[0] / 2;
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    private static boolean antes(long vezes, long id, long outrasVezes, long outroId) {
+        return vezes > outrasVezes || (vezes == outrasVezes && id < outroId);
+    }
+
+    // Ordena os primeiros "quantidade" IDs e remove os repetidos; devolve quantos distintos ficaram no início.
+    private static int distintos(long[] ids, int quantidade) {
+        Arrays.sort(ids, 0, quantidade);
+        int distintos = 0;
+        for (int i = 0; i < quantidade; i++) {
+            if (distintos == 0 || ids[i] != ids[distintos - 1]) {
+                ids[distintos++] = ids[i];
+            }
+        }
+        return distintos;
+    }
+}
@@ -0,0 +1,413 @@
+package br.com.service;
+
+import br.com.dao.PedidoCompactoDao;
+import br.com.dao.PedidoDao;
+import br.com.model.EsbocoDeVendas;
+import br.com.model.LinhaDePedido;
+import br.com.model.Pedido;
+import br.com.model.PedidoCompacto;
+import br.com.model.PedidoItem;
+import br.com.util.CountMin;
+import br.com.util.HyperLogLog;
+import br.com.util.MapaDeLongs;
+import br.com.util.TarefasPeriodicas;
+import br.com.util.TopN;
+import br.com.vo.EstimativaVo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/* Esboços probabilísticos das vendas, um por dia: clientes distintos e pedidos (HyperLogLog) e unidades por
+   produto (Count-Min, com os produtos candidatos ao topo do dia). Respondem em memória, sem COUNT(DISTINCT) nem
+   GROUP BY, e um período é a união dos seus dias.
+   - O PedidoService registra cada pedido incluído (também os compactos) e as unidades acrescentadas nas
+     alterações. Os pedidos compactos entram no HyperLogLog com o ID negado (~id), pois a numeração deles é
+     independente da de Pedido. Exclusões não são descontadas (o HyperLogLog não tem remoção): para um período com muitas exclusões, use reconstruir().
+   - iniciar() carrega os esboços gravados e preenche, uma vez, os dias com pedidos que ainda não têm esboço
+     gravado, tudo em segundo plano; os pedidos registrados enquanto isso são somados aos dias carregados.
+   - Os dias alterados são gravados em "esbocos_de_vendas" (cerca de 16 KB por dia) a cada intervalo e no close().
+   - Erros: clientes e pedidos com erro padrão de 1,6% (intervalo de 2 erros padrão, 95%); unidades por produto
+     acima do real em no máximo 1,06% do total de unidades do período, com 98% de confiança. */
+public class EsbocosDeVendas implements AutoCloseable {
+
+    public static final int PRECISAO = 12;
+    public static final int LARGURA = 256;
+    public static final int PROFUNDIDADE = 4;
+    // Produtos acompanhados por dia; os rankings de um período saem dos candidatos dos seus dias.
+    public static final int CANDIDATOS_POR_DIA = 64;
+    private static final double CONFIANCA_DOS_DISTINTOS = 0.95;
+
+    private static final Comparator<EstimativaVo> RANKING = Comparator
+            .comparingLong(EstimativaVo::getEstimativa)
+            .thenComparing(EstimativaVo::getIdProduto, Comparator.reverseOrder());
+
+    private static class EsbocoDoDia {
+        private final HyperLogLog clientes;
+        private final HyperLogLog pedidos;
+        private final CountMin produtos;
+        // ID do produto -> unidades estimadas quando entrou ou foi atualizado entre os candidatos.
+        private final MapaDeLongs candidatos = new MapaDeLongs(CANDIDATOS_POR_DIA * 2);
+
+        EsbocoDoDia() {
+            this(new HyperLogLog(PRECISAO), new HyperLogLog(PRECISAO), new CountMin(LARGURA, PROFUNDIDADE));
+        }
+
+        EsbocoDoDia(HyperLogLog clientes, HyperLogLog pedidos, CountMin produtos) {
+            this.clientes = clientes;
+            this.pedidos = pedidos;
+            this.produtos = produtos;
+        }
+
+        static EsbocoDoDia deEntidade(EsbocoDeVendas entidade) {
+            EsbocoDoDia dia = new EsbocoDoDia(HyperLogLog.deBytes(entidade.getClientes()),
+                    HyperLogLog.deBytes(entidade.getPedidos()), CountMin.deBytes(entidade.getProdutos()));
+            ByteBuffer candidatos = ByteBuffer.wrap(entidade.getCandidatos());
+            while (candidatos.hasRemaining()) {
+                long idProduto = candidatos.getLong();
+                dia.candidatos.put(idProduto, dia.produtos.estimar(idProduto));
+            }
+            return dia;
+        }
+
+        // Sem cliente (idCliente nulo), só o pedido é contado.
+        synchronized void registrarPedido(long idPedido, Long idCliente) {
+            pedidos.adicionar(idPedido);
+            if (idCliente != null) {
+                clientes.adicionar(idCliente);
+            }
+        }
+
+        synchronized void registrarUnidades(long idProduto, long unidades) {
+            produtos.adicionar(idProduto, unidades);
+            atualizarCandidato(idProduto);
+        }
+
+        // Soma os registros de outro esboço do mesmo dia; os candidatos dele disputam lugar com os deste.
+        synchronized void unir(EsbocoDoDia outro) {
+            synchronized (outro) {
+                clientes.unir(outro.clientes);
+                pedidos.unir(outro.pedidos);
+                produtos.unir(outro.produtos);
+                outro.candidatos.paraCada((idProduto, unidades) -> atualizarCandidato(idProduto));
+            }
+        }
+
+        // Heavy hitters: o produto entra nos candidatos se couber ou se superar o menor deles.
+        private void atualizarCandidato(long idProduto) {
+            long estimativa = produtos.estimar(idProduto);
+            if (candidatos.contem(idProduto) || candidatos.tamanho() < CANDIDATOS_POR_DIA) {
+                candidatos.put(idProduto, estimativa);
+                return;
+            }
+            long[] menor = {0, Long.MAX_VALUE};
+            candidatos.paraCada((id, valor) -> {
+                if (valor < menor[1]) {
+                    menor[0] = id;
+                    menor[1] = valor;
+                }
+            });
+            if (estimativa > menor[1]) {
+                candidatos.remover(menor[0]);
+                candidatos.put(idProduto, estimativa);
+            }
+        }
+
+        synchronized void somarEm(HyperLogLog clientesDoPeriodo, HyperLogLog pedidosDoPeriodo,
+                                  CountMin produtosDoPeriodo, Set<Long> candidatosDoPeriodo) {
+            if (clientesDoPeriodo != null) {
+                clientesDoPeriodo.unir(clientes);
+            }
+            if (pedidosDoPeriodo != null) {
+                pedidosDoPeriodo.unir(pedidos);
+            }
+            if (produtosDoPeriodo != null) {
+                produtosDoPeriodo.unir(produtos);
+                candidatos.paraCada((idProduto, unidades) -> candidatosDoPeriodo.add(idProduto));
+            }
+        }
+
+        synchronized EsbocoDeVendas paraEntidade(LocalDate data) {
+            ByteBuffer ids = ByteBuffer.allocate(candidatos.tamanho() * Long.BYTES);
+            candidatos.paraCada((idProduto, unidades) -> ids.putLong(idProduto));
+            return new EsbocoDeVendas(data, clientes.paraBytes(), pedidos.paraBytes(), produtos.paraBytes(), ids.array());
+        }
+    }
+
+    private final EntityManagerFactory emf;
+    private final Duration intervaloDeGravacao;
+    private final ConcurrentSkipListMap<LocalDate, EsbocoDoDia> dias = new ConcurrentSkipListMap<>();
+    private final Set<LocalDate> alterados = ConcurrentHashMap.newKeySet();
+    // Período em reconstrução (null fora dela) e os pedidos registrados nesses dias enquanto o banco é lido.
+    private volatile LocalDate[] emReconstrucao;
+    // Verdadeiro do iniciar() até o fim da carga: até lá, as estimativas dos dias já gravados estão incompletas.
+    private volatile boolean emCarga;
+    private final Map<LocalDate, EsbocoDoDia> registradosNaReconstrucao = new ConcurrentHashMap<>();
+    private ScheduledExecutorService agendador;
+
+    public EsbocosDeVendas(EntityManagerFactory emf, Duration intervaloDeGravacao) {
+        this.emf = emf;
+        this.intervaloDeGravacao = intervaloDeGravacao;
+    }
+
+    /* Agenda, em segundo plano, a carga dos esboços gravados e o preenchimento dos dias sem esboço (uma vez cada)
+       e a gravação periódica dos dias alterados. */
+    public void iniciar() {
+        emCarga = true;
+        agendador = TarefasPeriodicas.criarAgendador("gravador-de-esbocos");
+        agendador.execute(TarefasPeriodicas.registrandoFalhas("carga dos esboços de vendas", this::carregar));
+        agendador.execute(TarefasPeriodicas.registrandoFalhas("preenchimento dos dias sem esboço", this::preencherDiasSemEsboco));
+        agendador.scheduleWithFixedDelay(TarefasPeriodicas.registrandoFalhas("gravação dos esboços de vendas", this::gravar),
+                intervaloDeGravacao.toMillis(), intervaloDeGravacao.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /* Soma os esboços gravados aos pedidos registrados desde a criação (os gravados não os contêm): deve rodar uma
+       vez, na inicialização. Os dias lidos só são marcados como alterados se já tinham registros novos. */
+    public synchronized void carregar() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            for (EsbocoDeVendas entidade : em.createNamedQuery("EsbocoDeVendas.todos", EsbocoDeVendas.class).getResultList()) {
+                EsbocoDoDia gravado = EsbocoDoDia.deEntidade(entidade);
+                dias.compute(entidade.getData(), (d, atual) -> {
+                    if (atual != null) {
+                        gravado.unir(atual);
+                    }
+                    return gravado;
+                });
+            }
+        } finally {
+            em.close();
+        }
+        emCarga = false;
+    }
+
+    /* Refaz os esboços dos dias do período a partir dos pedidos gravados (tabela ativa e pedidos compactos). Serve para a carga
+       inicial e para descontar exclusões. Os pedidos registrados nesses dias enquanto o banco é lido são guardados
+       à parte e somados ao resultado, que então toma o lugar do esboço de cada dia. */
+    public synchronized void reconstruir(LocalDate dataIni, LocalDate dataFim) {
+        registradosNaReconstrucao.clear();
+        emReconstrucao = new LocalDate[] {dataIni, dataFim};
+        Map<LocalDate, EsbocoDoDia> novos = new HashMap<>();
+        try {
+            EntityManager em = emf.createEntityManager();
+            try {
+                new PedidoDao(em).paraCadaItemDoPeriodo(dataIni, dataFim, (data, idPedido, idCliente, idProduto, quantidade) -> {
+                    EsbocoDoDia dia = novos.computeIfAbsent(data, d -> new EsbocoDoDia());
+                    // Uma linha por item: repetir o pedido e o cliente não muda o HyperLogLog.
+                    dia.registrarPedido(idPedido, idCliente);
+                    if (idProduto != null) {
+                        dia.registrarUnidades(idProduto, quantidade);
+                    }
+                });
+                new PedidoCompactoDao(em).paraCadaLinha(dataIni, dataFim, (idPedido, data, idCliente, linha) -> {
+                    EsbocoDoDia dia = novos.computeIfAbsent(data, d -> new EsbocoDoDia());
+                    dia.registrarPedido(~idPedido, idCliente);
+                    if (linha != null) {
+                        dia.registrarUnidades(linha.idProduto(), linha.quantidade());
+                    }
+                });
+            } finally {
+                em.close();
+            }
+            for (LocalDate data : dias.subMap(dataIni, true, dataFim, true).keySet()) {
+                novos.putIfAbsent(data, new EsbocoDoDia());
+            }
+            // A troca de cada dia é atômica com os registros (ver registrar()): nenhum pedido fica só no esboço antigo.
+            novos.forEach((data, novo) -> dias.compute(data, (d, atual) -> {
+                EsbocoDoDia durante = registradosNaReconstrucao.remove(d);
+                if (durante != null) {
+                    novo.unir(durante);
+                }
+                return novo;
+            }));
+            alterados.addAll(novos.keySet());
+        } finally {
+            emReconstrucao = null;
+            registradosNaReconstrucao.clear();
+        }
+    }
+
+    /* Reconstrói os dias que têm pedidos (na tabela ativa ou compactos) e nenhum esboço (ex.: pedidos de antes dos esboços ou
+       gravados por fora do PedidoService), agrupando os dias seguidos numa só leitura. Devolve quantos dias foram
+       preenchidos. */
+    public int preencherDiasSemEsboco() {
+        List<LocalDate> faltantes = new ArrayList<>();
+        EntityManager em = emf.createEntityManager();
+        try {
+            // Os dias são escolhidos antes de qualquer reconstrução: um pedido novo criaria o esboço do dia.
+            Set<LocalDate> datas = new TreeSet<>(new PedidoDao(em).buscarDatasComPedidos());
+            datas.addAll(new PedidoCompactoDao(em).buscarDatasComPedidos());
+            for (LocalDate data : datas) {
+                if (!dias.containsKey(data)) {
+                    faltantes.add(data);
+                }
+            }
+        } finally {
+            em.close();
+        }
+        int i = 0;
+        while (i < faltantes.size()) {
+            // Encerramento (close) durante o preenchimento: o que faltar fica para a próxima inicialização.
+            if (Thread.currentThread().isInterrupted()) {
+                return i;
+            }
+            int j = i + 1;
+            while (j < faltantes.size() && faltantes.get(j).equals(faltantes.get(j - 1).plusDays(1))) {
+                j++;
+            }
+            reconstruir(faltantes.get(i), faltantes.get(j - 1));
+            i = j;
+        }
+        return faltantes.size();
+    }
+
+    public void registrarPedido(Pedido pedido) {
+        registrar(pedido.getData(), dia -> {
+            dia.registrarPedido(pedido.getId(), pedido.getCliente().getId());
+            for (PedidoItem item : pedido.getItens()) {
+                dia.registrarUnidades(item.getProduto().getId(), item.getQuantidade());
+            }
+        });
+        alterados.add(pedido.getData());
+    }
+
+    public void registrarPedido(PedidoCompacto pedido) {
+        Long idCliente = pedido.getCliente() == null ? null : pedido.getCliente().getId();
+        registrar(pedido.getData(), dia -> {
+            dia.registrarPedido(~pedido.getId(), idCliente);
+            for (LinhaDePedido linha : pedido.getItens()) {
+                dia.registrarUnidades(linha.idProduto(), linha.quantidade());
+            }
+        });
+        alterados.add(pedido.getData());
+    }
+
+    // Pedido alterado: só as unidades acrescentadas entram (reduções não são descontadas, como as exclusões).
+    public void registrarAlteracao(Pedido pedido, Map<Long, Long> unidadesAnteriores, Map<Long, Long> unidadesAtuais) {
+        Map<Long, Long> acrescimos = new HashMap<>();
+        for (Map.Entry<Long, Long> atual : unidadesAtuais.entrySet()) {
+            long acrescimo = atual.getValue() - unidadesAnteriores.getOrDefault(atual.getKey(), 0L);
+            if (acrescimo > 0) {
+                acrescimos.put(atual.getKey(), acrescimo);
+            }
+        }
+        if (!acrescimos.isEmpty()) {
+            registrar(pedido.getData(), dia -> acrescimos.forEach(dia::registrarUnidades));
+            alterados.add(pedido.getData());
+        }
+    }
+
+    public boolean isEmCarga() {
+        return emCarga;
+    }
+
+    public EstimativaVo estimarClientesDistintos(LocalDate dataIni, LocalDate dataFim) {
+        HyperLogLog clientes = new HyperLogLog(PRECISAO);
+        for (EsbocoDoDia dia : dias.subMap(dataIni, true, dataFim, true).values()) {
+            dia.somarEm(clientes, null, null, null);
+        }
+        return distintos(clientes);
+    }
+
+    public EstimativaVo estimarPedidos(LocalDate dataIni, LocalDate dataFim) {
+        HyperLogLog pedidos = new HyperLogLog(PRECISAO);
+        for (EsbocoDoDia dia : dias.subMap(dataIni, true, dataFim, true).values()) {
+            dia.somarEm(null, pedidos, null, null);
+        }
+        return distintos(pedidos);
+    }
+
+    /* Os produtos com mais unidades no período, entre os candidatos dos seus dias, em ordem decrescente.
+       A estimativa é o Count-Min do período (nunca abaixo do real); o limite inferior desconta o erro máximo. */
+    public List<EstimativaVo> estimarProdutosMaisVendidos(LocalDate dataIni, LocalDate dataFim, int limite) {
+        CountMin produtos = new CountMin(LARGURA, PROFUNDIDADE);
+        Set<Long> candidatos = new HashSet<>();
+        for (EsbocoDoDia dia : dias.subMap(dataIni, true, dataFim, true).values()) {
+            dia.somarEm(null, null, produtos, candidatos);
+        }
+        long erro = produtos.getErroMaximo();
+        TopN<EstimativaVo> ranking = new TopN<>(limite, RANKING);
+        for (Long idProduto : candidatos) {
+            long estimativa = produtos.estimar(idProduto);
+            ranking.adicionar(new EstimativaVo(idProduto, estimativa, Math.max(0, estimativa - erro), estimativa,
+                    produtos.getConfianca()));
+        }
+        return ranking.resultado();
+    }
+
+    /* Grava os dias alterados desde a última gravação; devolve quantos foram gravados. Nada é gravado antes do
+       fim da carga (nem se ela falhar): o esboço em memória de um dia ainda sem os gravados substituiria a linha. */
+    public synchronized int gravar() {
+        if (emCarga) {
+            return 0;
+        }
+        List<EsbocoDeVendas> entidades = new ArrayList<>();
+        for (LocalDate data : List.copyOf(alterados)) {
+            alterados.remove(data);
+            entidades.add(dias.get(data).paraEntidade(data));
+        }
+        if (entidades.isEmpty()) {
+            return 0;
+        }
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            entidades.forEach(em::merge);
+            em.getTransaction().commit();
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            entidades.forEach(entidade -> alterados.add(entidade.getData()));
+            throw e;
+        } finally {
+            em.close();
+        }
+        return entidades.size();
+    }
+
+    @Override
+    public void close() {
+        // Com interrupção: o preenchimento dos dias sem esboço para entre uma leitura e outra.
+        TarefasPeriodicas.encerrar(agendador, true);
+        gravar();
+    }
+
+    /* Aplica o registro ao esboço do dia e, se o dia estiver em reconstrução, também à cópia à parte. Roda dentro
+       do compute() do dia, como a troca no fim de reconstruir(). O dia só é marcado como alterado depois da
+       atualização, para a gravação não levar um esboço incompleto. */
+    private void registrar(LocalDate data, Consumer<EsbocoDoDia> registro) {
+        dias.compute(data, (d, dia) -> {
+            EsbocoDoDia esboco = dia == null ? new EsbocoDoDia() : dia;
+            registro.accept(esboco);
+            LocalDate[] periodo = emReconstrucao;
+            if (periodo != null && !d.isBefore(periodo[0]) && !d.isAfter(periodo[1])) {
+                registro.accept(registradosNaReconstrucao.computeIfAbsent(d, x -> new EsbocoDoDia()));
+            }
+            return esboco;
+        });
+    }
+
+    // Intervalo de dois erros padrão em torno da estimativa.
+    private static EstimativaVo distintos(HyperLogLog esboco) {
+        long estimativa = esboco.estimar();
+        double margem = 2 * esboco.getErroPadrao() * estimativa;
+        return new EstimativaVo(estimativa, Math.max(0, (long) Math.floor(estimativa - margem)),
+                (long) Math.ceil(estimativa + margem), CONFIANCA_DOS_DISTINTOS);
+    }
+}
@@ -0,0 +1,82 @@
+package br.com.service;
+
+import br.com.dao.PedidoDao;
+import br.com.util.TarefasPeriodicas;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* Remove fisicamente os pedidos excluídos (ver ExclusaoLogica), que o PedidoService apenas marca ao excluir.
+   - Os pedidos e os seus itens são apagados em lotes pequenos, cada um na sua transação, com uma pausa entre eles
+     para não disputar o banco com os pedidos do dia; um pedido com muitos itens não pesa mais na exclusão do usuário.
+   - Enquanto não são expurgados, os pedidos excluídos já não aparecem em nenhuma consulta nem relatório.
+   - agendar() roda o expurgo periodicamente em uma thread própria. */
+public class ExpurgoDePedidosExcluidos implements AutoCloseable {
+
+    private final EntityManagerFactory emf;
+    private final int pedidosPorLote;
+    private final Duration pausaEntreLotes;
+    private ScheduledExecutorService agendador;
+
+    private final AtomicLong pedidosExpurgados = new AtomicLong();
+
+    public ExpurgoDePedidosExcluidos(EntityManagerFactory emf, int pedidosPorLote, Duration pausaEntreLotes) {
+        this.emf = emf;
+        this.pedidosPorLote = pedidosPorLote;
+        this.pausaEntreLotes = pausaEntreLotes;
+    }
+
+    // Expurga todos os pedidos excluídos até agora e devolve quantos foram removidos.
+    public synchronized int expurgar() {
+        EntityManager em = emf.createEntityManager();
+        try {
+            PedidoDao pedidoDao = new PedidoDao(em);
+            int total = 0;
+            while (true) {
+                int removidos = pedidoDao.expurgarLote(pedidosPorLote);
+                total += removidos;
+                pedidosExpurgados.addAndGet(removidos);
+                if (removidos < pedidosPorLote || !pausar()) {
+                    return total;
+                }
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    // Roda expurgar() a cada "intervalo", contado do fim da execução anterior.
+    public void agendar(Duration intervalo) {
+        agendador = TarefasPeriodicas.criarAgendador("expurgo-de-pedidos");
+        // Numa falha, os lotes já removidos ficam; o restante é tentado na próxima execução.
+        agendador.scheduleWithFixedDelay(TarefasPeriodicas.registrandoFalhas("expurgo de pedidos excluídos", this::expurgar),
+                intervalo.toMillis(), intervalo.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    public long getPedidosExpurgados() {
+        return pedidosExpurgados.get();
+    }
+
+    @Override
+    public void close() {
+        TarefasPeriodicas.encerrar(agendador, true);
+    }
+
+    private boolean pausar() {
+        if (pausaEntreLotes.isZero()) {
+            return true;
+        }
+        try {
+            Thread.sleep(pausaEntreLotes);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package br.com.service;
+
+import br.com.exception.FilaCheiaException;
+import br.com.model.Cliente;
+import br.com.model.Pedido;
+import br.com.model.PedidoItem;
+import br.com.model.Produto;
+import br.com.util.DiarioDePedidos;
+import br.com.vo.MetricasDaFilaVo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityNotFoundException;
+import org.hibernate.PropertyValueException;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.exception.DataException;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/* Modo opcional de entrada de pedidos com escrita adiada (write-behind).
+   Em vez de cada pedido abrir e confirmar a sua própria transação, os pedidos entram numa fila limitada
+   em memória e recebem um CompletableFuture com o ID que terão no banco. Um único thread gravador
+   esvazia a fila em lotes e confirma vários pedidos por transação (group commit), diluindo o custo do commit.
+   - Contrapressão: quando a fila está cheia, o chamador espera até esperaMaximaPorVaga e então recebe FilaCheiaException.
+   - Durabilidade: antes de devolver o futuro, o pedido é gravado no DiarioDePedidos; ao reiniciar, os pedidos
+     que não chegaram ao banco são reprocessados (pelo menos uma vez: um pedido pode ser gravado em dobro se o
+     sistema cair entre o commit e o registro da gravação no diário).
+   - Falhas: só um pedido que o banco recusa por si mesmo (restrição, dado inválido) é descartado do diário.
+     Falhas transitórias (conexão perdida, timeout de trava, banco fora do ar) devolvem o pedido à fila, após
+     uma pausa; se a fila estiver encerrando, o pedido fica no diário e é reprocessado na próxima inicialização.
+     Um erro inesperado no gravador descarta do diário os pedidos do lote ainda não gravados antes de falhar os
+     futuros: quem recebeu a falha não terá o pedido gravado depois.
+   - Encerramento: cada pedido aceito entra na fila antes de close() parar de aceitar (trava de leitura e escrita),
+     então todo futuro devolvido é completado pelo gravador. */
+public class FilaDePedidos implements AutoCloseable {
+
+    // Um pedido na fila: o objeto original (entrada normal) ou apenas o registro do diário (reprocessamento).
+    private static class Solicitacao {
+        private final DiarioDePedidos.Registro registro;
+        private final Pedido pedido;
+        private final CompletableFuture<Long> futuro = new CompletableFuture<>();
+
+        Solicitacao(DiarioDePedidos.Registro registro, Pedido pedido) {
+            this.registro = registro;
+            this.pedido = pedido;
+        }
+    }
+
+    private final EntityManagerFactory emf;
+    private final DiarioDePedidos diario;
+    private final ArrayBlockingQueue<Solicitacao> fila;
+    private final int tamanhoMaximoDoLote;
+    private final Duration esperaMaximaPorVaga;
+    private final AtomicLong proximoTicket = new AtomicLong();
+    private Thread gravador;
+    private volatile boolean ativa;
+    // Leitura: enfileirar (vários ao mesmo tempo); escrita: close, que espera os que estão entrando na fila.
+    private final ReadWriteLock entrada = new ReentrantReadWriteLock();
+    private boolean houveFalhaTransitoria; // Só acessado pelo thread gravador.
+
+    // Métricas.
+    private final AtomicLong pedidosGravados = new AtomicLong();
+    private final AtomicLong pedidosComFalha = new AtomicLong();
+    private static final Duration PAUSA_APOS_FALHA_TRANSITORIA = Duration.ofSeconds(1);
+    private final AtomicLong lotesGravados = new AtomicLong();
+    private final AtomicInteger maiorLote = new AtomicInteger();
+    private volatile int ultimoLote;
+
+    public FilaDePedidos(EntityManagerFactory emf, Path arquivoDoDiario, int capacidade, int tamanhoMaximoDoLote,
+                         Duration esperaMaximaPorVaga) {
+        this.emf = emf;
+        this.diario = new DiarioDePedidos(arquivoDoDiario);
+        this.fila = new ArrayBlockingQueue<>(capacidade);
+        this.tamanhoMaximoDoLote = tamanhoMaximoDoLote;
+        this.esperaMaximaPorVaga = esperaMaximaPorVaga;
+    }
+
+    // Abre o diário, recoloca na fila os pedidos pendentes da execução anterior e inicia o thread gravador.
+    public void iniciar() {
+        List<DiarioDePedidos.Registro> pendentes = diario.abrir();
+        proximoTicket.set(diario.getUltimoTicket() + 1);
+
+        ativa = true;
+        gravador = new Thread(this::gravarEnquantoAtiva, "gravador-de-pedidos");
+        gravador.setDaemon(true);
+        gravador.start();
+
+        for (DiarioDePedidos.Registro registro : pendentes) {
+            try {
+                // Os pendentes já estão no diário; aqui a espera por vaga é ilimitada para não perdê-los.
+                fila.put(new Solicitacao(registro, null));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Aceita o pedido (já com cliente e itens) e devolve o futuro que será completado com o ID gravado no banco.
+    public CompletableFuture<Long> enfileirar(Pedido pedido) {
+        entrada.readLock().lock();
+        try {
+            if (!ativa) {
+                throw new IllegalStateException("A fila de pedidos não está ativa.");
+            }
+            Solicitacao solicitacao = new Solicitacao(paraRegistro(proximoTicket.getAndIncrement(), pedido), pedido);
+            diario.registrarPedido(solicitacao.registro);
+
+            boolean aceito;
+            try {
+                aceito = fila.offer(solicitacao, esperaMaximaPorVaga.toNanos(), TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                aceito = false;
+            }
+            if (!aceito) {
+                diario.registrarDescartes(List.of(solicitacao.registro.getTicket()));
+                throw new FilaCheiaException("Fila de pedidos cheia (" + fila.size() + " pedidos aguardando gravação).");
+            }
+            return solicitacao.futuro;
+        } finally {
+            entrada.readLock().unlock();
+        }
+    }
+
+    public MetricasDaFilaVo metricas() {
+        return new MetricasDaFilaVo(fila.size(), fila.size() + fila.remainingCapacity(), pedidosGravados.get(),
+                pedidosComFalha.get(), lotesGravados.get(), ultimoLote, maiorLote.get());
+    }
+
+    // Para de aceitar pedidos, grava o que ainda está na fila e fecha o diário.
+    @Override
+    public void close() {
+        // Espera os pedidos que estão entrando: depois daqui, nenhum é aceito e os aceitos já estão na fila.
+        entrada.writeLock().lock();
+        try {
+            ativa = false;
+        } finally {
+            entrada.writeLock().unlock();
+        }
+        if (gravador != null) {
+            try {
+                gravador.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        diario.close();
+    }
+
+    private void gravarEnquantoAtiva() {
+        List<Solicitacao> lote = new ArrayList<>(tamanhoMaximoDoLote);
+        while (ativa || !fila.isEmpty()) {
+            try {
+                Solicitacao primeira = fila.poll(100, TimeUnit.MILLISECONDS);
+                if (primeira == null) {
+                    continue;
+                }
+                lote.add(primeira);
+                fila.drainTo(lote, tamanhoMaximoDoLote - 1);
+                gravarLote(lote);
+                if (houveFalhaTransitoria) {
+                    // Os pedidos voltaram para a fila: espera o banco se recuperar em vez de insistir em laço.
+                    houveFalhaTransitoria = false;
+                    Thread.sleep(PAUSA_APOS_FALHA_TRANSITORIA.toMillis());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // Nunca deixa o gravador morrer. Os pedidos do lote ainda não gravados (nem devolvidos à fila) são
+                // descartados do diário antes de o chamador saber da falha, para não serem gravados ao reiniciar.
+                descartar(lote, e);
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    private void gravarLote(List<Solicitacao> lote) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            List<Pedido> pedidos = new ArrayList<>(lote.size());
+            em.getTransaction().begin();
+            for (Solicitacao solicitacao : lote) {
+                Pedido pedido = paraPedido(em, solicitacao);
+                em.persist(pedido);
+                pedidos.add(pedido);
+            }
+            em.getTransaction().commit();
+            confirmar(lote, pedidos);
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            // Um pedido inválido não pode derrubar o lote inteiro: regrava um a um para isolar o problema.
+            em.clear();
+            for (Solicitacao solicitacao : lote) {
+                gravarIndividualmente(em, solicitacao);
+            }
+        } finally {
+            em.close();
+        }
+    }
+
+    private void gravarIndividualmente(EntityManager em, Solicitacao solicitacao) {
+        try {
+            Pedido pedido = paraPedido(em, solicitacao);
+            em.getTransaction().begin();
+            em.persist(pedido);
+            em.getTransaction().commit();
+            confirmar(List.of(solicitacao), List.of(pedido));
+        } catch (RuntimeException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            em.clear();
+            if (falhaPermanente(e)) {
+                pedidosComFalha.incrementAndGet();
+                diario.registrarDescartes(List.of(solicitacao.registro.getTicket()));
+                solicitacao.futuro.completeExceptionally(e);
+                return;
+            }
+            houveFalhaTransitoria = true;
+            if (!ativa || !fila.offer(solicitacao)) {
+                // Sem vaga (ou encerrando): o pedido continua no diário e será reprocessado ao reiniciar.
+                pedidosComFalha.incrementAndGet();
+                solicitacao.futuro.completeExceptionally(e);
+            }
+        }
+    }
+
+    private void descartar(List<Solicitacao> lote, RuntimeException erro) {
+        List<Solicitacao> pendentes = lote.stream().filter(s -> !s.futuro.isDone() && !fila.contains(s)).toList();
+        try {
+            diario.registrarDescartes(pendentes.stream().map(s -> s.registro.getTicket()).toList());
+        } catch (RuntimeException e) {
+            erro.addSuppressed(e);
+        }
+        pedidosComFalha.addAndGet(pendentes.size());
+        pendentes.forEach(s -> s.futuro.completeExceptionally(erro));
+    }
+
+    // Recusas do próprio banco ou do mapeamento: gravar de novo daria o mesmo erro.
+    private static boolean falhaPermanente(Throwable erro) {
+        for (Throwable causa = erro; causa != null; causa = causa.getCause()) {
+            if (causa instanceof ConstraintViolationException || causa instanceof DataException
+                    || causa instanceof PropertyValueException || causa instanceof EntityNotFoundException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void confirmar(List<Solicitacao> lote, List<Pedido> pedidos) {
+        Map<Long, Long> gravados = new LinkedHashMap<>();
+        for (int i = 0; i < lote.size(); i++) {
+            gravados.put(lote.get(i).registro.getTicket(), pedidos.get(i).getId());
+        }
+        diario.registrarGravacoes(gravados);
+
+        pedidosGravados.addAndGet(lote.size());
+        lotesGravados.incrementAndGet();
+        ultimoLote = lote.size();
+        maiorLote.accumulateAndGet(lote.size(), Math::max);
+        for (int i = 0; i < lote.size(); i++) {
+            lote.get(i).futuro.complete(pedidos.get(i).getId());
+        }
+    }
+
+    // Pedidos reprocessados só existem no diário: são remontados com referências (sem SELECT) ao cliente e aos produtos.
+    private Pedido paraPedido(EntityManager em, Solicitacao solicitacao) {
+        if (solicitacao.pedido != null) {
+            limparIds(solicitacao.pedido);
+            return solicitacao.pedido;
+        }
+        DiarioDePedidos.Registro registro = solicitacao.registro;
+        Pedido pedido = new Pedido(em.getReference(Cliente.class, registro.getIdCliente()));
+        pedido.setData(registro.getData());
+        for (DiarioDePedidos.Item item : registro.getItens()) {
+            Produto produto = em.getReference(Produto.class, item.getIdProduto());
+            pedido.adicionarItem(new PedidoItem(item.getQuantidade(), pedido, produto, item.getPrecoUnitario()));
+        }
+        return pedido;
+    }
+
+    // Uma tentativa que falhou pode ter deixado IDs gerados nos objetos; eles são limpos antes de gravar de novo.
+    private void limparIds(Pedido pedido) {
+        if (pedido == null) {
+            return;
+        }
+        pedido.setId(null);
+        pedido.getItens().forEach(item -> item.setId(null));
+    }
+
+    private DiarioDePedidos.Registro paraRegistro(long ticket, Pedido pedido) {
+        if (pedido.getCliente() == null || pedido.getCliente().getId() == null) {
+            throw new IllegalArgumentException("O pedido precisa de um cliente já cadastrado para entrar na fila.");
+        }
+        List<DiarioDePedidos.Item> itens = new ArrayList<>(pedido.getItens().size());
+        for (PedidoItem item : pedido.getItens()) {
+            itens.add(new DiarioDePedidos.Item(item.getProduto().getId(), item.getQuantidade(), item.getPrecoUnitario()));
+        }
+        return new DiarioDePedidos.Registro(ticket, pedido.getCliente().getId(), pedido.getData(), itens);
+    }
+}
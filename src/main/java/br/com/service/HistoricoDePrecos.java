@@ -0,0 +1,168 @@
+package br.com.service;
+
+import br.com.dao.ProdutoDao;
+import jakarta.persistence.EntityManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/* Índice em memória do histórico de preços (ver HistoricoDePreco), para responder "quanto custava o produto X no
+   instante T" sem consultar o banco.
+   - Cada produto tem uma série: dois vetores ordenados, com o início de cada intervalo (em microssegundos) e o
+     preço em centavos. A consulta é uma busca binária, O(log n) no número de alterações do produto.
+   - O fim de um intervalo sem sucessor (produto excluído, ou que ficou sem preço) entra na série como SEM_PRECO.
+   - As séries são imutáveis e ficam num ConcurrentHashMap: as leituras não usam trava, e uma alteração troca a
+     série inteira. O ProdutoService retira os produtos alterados depois do commit; a série deles é relida do banco
+     na próxima consulta, numa única consulta para vários produtos.
+   - Uma releitura pode ter lido o banco antes de um commit cuja retirada chega enquanto ela guarda as séries. Cada
+     retirada avança uma geração: se a geração mudou desde o início da leitura, as séries lidas respondem só à
+     consulta em andamento e saem do índice, para que a retirada prevaleça. */
+public class HistoricoDePrecos {
+
+    // Marca de "sem preço" na série (nenhum preço válido é negativo).
+    private static final long SEM_PRECO = -1;
+    private static final Serie SEM_HISTORICO = new Serie(new long[0], new long[0]);
+
+    private final Map<Long, Serie> series = new ConcurrentHashMap<>();
+    // Avança a cada retirada (ver remover), antes de tirar as séries.
+    private final AtomicLong geracao = new AtomicLong();
+
+    // Carga inicial de todo o histórico, com uma consulta de projeção (sem montar entidades). Com uma retirada
+    // durante a leitura, o índice volta a ficar vazio e as séries são relidas sob demanda.
+    public void carregar(EntityManager em) {
+        long geracaoDaLeitura = geracao.get();
+        series.clear();
+        series.putAll(montarSeries(new ProdutoDao(em).buscarHistoricoDePrecos()));
+        if (geracao.get() != geracaoDaLeitura) {
+            series.clear();
+        }
+    }
+
+    // Preço do produto no instante, ou null se ele não tinha preço registrado no histórico nesse instante.
+    public BigDecimal precoEm(long idProduto, LocalDateTime instante, EntityManager em) {
+        return precosEm(List.of(idProduto), instante, em).get(idProduto);
+    }
+
+    /* Preços de vários produtos no mesmo instante. Os produtos que faltam no índice são lidos do banco com uma
+       única consulta e guardados; os que não tinham preço no instante ficam fora do resultado. */
+    public Map<Long, BigDecimal> precosEm(Collection<Long> idsProdutos, LocalDateTime instante, EntityManager em) {
+        Map<Long, Serie> consultadas = new HashMap<>();
+        List<Long> faltantes = new ArrayList<>();
+        for (Long id : idsProdutos) {
+            Serie serie = series.get(id);
+            if (serie == null) {
+                faltantes.add(id);
+            } else {
+                consultadas.put(id, serie);
+            }
+        }
+        if (!faltantes.isEmpty()) {
+            long geracaoDaLeitura = geracao.get();
+            Map<Long, Serie> lidas = montarSeries(new ProdutoDao(em).buscarHistoricoDePrecos(faltantes));
+            for (Long id : faltantes) {
+                Serie serie = lidas.getOrDefault(id, SEM_HISTORICO);
+                consultadas.put(id, serie);
+                series.put(id, serie);
+            }
+            // Guardadas antes de conferir a geração: uma retirada posterior à conferência também as encontra.
+            if (geracao.get() != geracaoDaLeitura) {
+                for (Long id : faltantes) {
+                    series.remove(id, consultadas.get(id));
+                }
+            }
+        }
+        long micros = micros(instante);
+        Map<Long, BigDecimal> precos = new HashMap<>();
+        for (Long id : idsProdutos) {
+            long centavos = consultadas.get(id).centavosEm(micros);
+            if (centavos != SEM_PRECO) {
+                precos.put(id, BigDecimal.valueOf(centavos, 2));
+            }
+        }
+        return precos;
+    }
+
+    public void remover(Collection<Long> idsProdutos) {
+        geracao.incrementAndGet();
+        idsProdutos.forEach(series::remove);
+    }
+
+    public int getProdutos() {
+        return series.size();
+    }
+
+    // Linhas (ID, preço, válido de, válido até) ordenadas por produto e início, como nas consultas do ProdutoDao.
+    private static Map<Long, Serie> montarSeries(List<Object[]> linhas) {
+        Map<Long, Serie> montadas = new HashMap<>();
+        int inicio = 0;
+        while (inicio < linhas.size()) {
+            Long id = (Long) linhas.get(inicio)[0];
+            int fim = inicio;
+            while (fim < linhas.size() && id.equals(linhas.get(fim)[0])) {
+                fim++;
+            }
+            montadas.put(id, montarSerie(linhas.subList(inicio, fim)));
+            inicio = fim;
+        }
+        return montadas;
+    }
+
+    private static Serie montarSerie(List<Object[]> intervalos) {
+        long[] inicios = new long[intervalos.size() * 2];
+        long[] centavos = new long[intervalos.size() * 2];
+        int tamanho = 0;
+        Long fimAnterior = null;
+        for (Object[] intervalo : intervalos) {
+            long validoDe = micros((LocalDateTime) intervalo[2]);
+            if (fimAnterior != null && fimAnterior < validoDe) {
+                tamanho = acrescentar(inicios, centavos, tamanho, fimAnterior, SEM_PRECO);
+            }
+            long preco = ((BigDecimal) intervalo[1]).setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+            tamanho = acrescentar(inicios, centavos, tamanho, validoDe, preco);
+            fimAnterior = intervalo[3] == null ? null : micros((LocalDateTime) intervalo[3]);
+        }
+        if (fimAnterior != null) {
+            tamanho = acrescentar(inicios, centavos, tamanho, fimAnterior, SEM_PRECO);
+        }
+        return new Serie(Arrays.copyOf(inicios, tamanho), Arrays.copyOf(centavos, tamanho));
+    }
+
+    // Duas entradas no mesmo instante (alterações no mesmo microssegundo): vale a última.
+    private static int acrescentar(long[] inicios, long[] centavos, int tamanho, long inicio, long valor) {
+        if (tamanho == 0 || inicios[tamanho - 1] != inicio) {
+            tamanho++;
+        }
+        inicios[tamanho - 1] = inicio;
+        centavos[tamanho - 1] = valor;
+        return tamanho;
+    }
+
+    // Só para ordenar e comparar instantes: o fuso não importa, desde que seja sempre o mesmo.
+    private static long micros(LocalDateTime instante) {
+        LocalDateTime truncado = instante.truncatedTo(ChronoUnit.MICROS);
+        return truncado.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + truncado.getNano() / 1_000;
+    }
+
+    private record Serie(long[] inicios, long[] centavos) {
+
+        // Último intervalo iniciado até o instante (busca binária pelo "piso").
+        long centavosEm(long instante) {
+            int posicao = Arrays.binarySearch(inicios, instante);
+            if (posicao < 0) {
+                posicao = -posicao - 2;
+            }
+            return posicao < 0 ? SEM_PRECO : centavos[posicao];
+        }
+    }
+}
@@ -1,44 +1,488 @@
 package br.com.service;
 
+import br.com.dao.PedidoCompactoDao;
 import br.com.dao.PedidoDao;
+import br.com.exception.PedidoArquivadoException;
+import br.com.model.Cliente;
+import br.com.model.LinhaDePedido;
 import br.com.model.Pedido;
+import br.com.model.PedidoCompacto;
 import br.com.model.PedidoItem;
+import br.com.model.Produto;
+import br.com.util.RoteadorDeLeitura;
+import br.com.util.UnidadeDeTrabalho;
+import br.com.vo.ItemPedidoVo;
 import jakarta.persistence.EntityManager;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 public class PedidoService {
+    private RoteadorDeLeitura roteador;
     private PedidoDao pedidoDao;
+    private PedidoCompactoDao pedidoCompactoDao;
+    private FilaDePedidos filaDePedidos;
+    private ControleDeEstoque controleDeEstoque;
+    private TabelaDePrecos tabelaDePrecos;
+    private ContadoresDeVendas contadoresDeVendas;
+    private CoocorrenciaDeProdutos coocorrencia;
+    private EsbocosDeVendas esbocosDeVendas;
 
     public PedidoService(EntityManager em){
+        this(new RoteadorDeLeitura(em));
+    }
 
-        this.pedidoDao = new PedidoDao(em);
+    // Com réplica: as consultas vão para a réplica e as alterações para o primário.
+    public PedidoService(RoteadorDeLeitura roteador){
+        this.roteador = roteador;
+        this.pedidoDao = new PedidoDao(roteador.paraEscrita());
+        this.pedidoCompactoDao = new PedidoCompactoDao(roteador.paraEscrita());
     }
 
+    /* As operações de gravação podem fazer parte de uma UnidadeDeTrabalho sobre o EntityManager de escrita: os
+       contadores, a coocorrência e os esboços só registram o pedido depois do commit, e o estoque reservado é
+       devolvido se ela for desfeita. */
     public void inserir(Pedido pedido){
-        pedidoDao.cadastrar(pedido);
+        reservarEstoque(pedido.getItens());
+        ContadoresDeVendas.Gravacao gravacao = iniciarContagem(pedido, List.of());
+        try {
+            pedidoDao.cadastrar(pedido);
+        } catch (RuntimeException e) {
+            concluirContagem(gravacao);
+            liberarEstoque(pedido.getItens());
+            throw e;
+        }
+        Pedido contado = paraContagem(pedido);
+        aoConcluir(() -> {
+            try {
+                contarPedido(contado, 1);
+            } finally {
+                concluirContagem(gravacao);
+            }
+        }, () -> {
+            concluirContagem(gravacao);
+            liberarEstoque(pedido.getItens());
+        });
+        roteador.registrarEscrita();
+    }
+
+    /* Modo compacto (ver PedidoCompacto): um único INSERT, com os itens na própria linha do pedido. O estoque é
+       reservado e os contadores, a coocorrência e os esboços são atualizados como em inserir(), a partir das
+       linhas do pedido. Como o serviço não altera pedidos compactos, a contagem do commit usa o próprio pedido:
+       numa unidade de trabalho, o que for mudado nele até lá também é gravado. */
+    public void inserirCompacto(PedidoCompacto pedido){
+        List<LinhaDePedido> linhas = pedido.getItens();
+        reservarLinhas(linhas);
+        ContadoresDeVendas.Gravacao gravacao = iniciarContagem(pedido);
+        try {
+            pedidoCompactoDao.cadastrar(pedido);
+        } catch (RuntimeException e) {
+            concluirContagem(gravacao);
+            liberarLinhas(linhas);
+            throw e;
+        }
+        aoConcluir(() -> {
+            try {
+                contarPedido(pedido);
+            } finally {
+                concluirContagem(gravacao);
+            }
+        }, () -> {
+            concluirContagem(gravacao);
+            liberarLinhas(linhas);
+        });
+        roteador.registrarEscrita();
+    }
+
+    /* Cadastra um pedido a partir de pares (ID do produto, quantidade), sem carregar cliente nem produtos: os
+       preços vêm da tabela de preços e as associações usam referências (getReference), que só guardam o ID.
+       Com a tabela aquecida, nenhum SELECT de produto é feito, qualquer que seja o número de linhas. */
+    public Pedido inserirPorIds(Long idCliente, List<ItemPedidoVo> itens){
+        if (tabelaDePrecos == null) {
+            throw new IllegalStateException("Nenhuma tabela de preços configurada para o cadastro por IDs.");
+        }
+        if (itens.isEmpty()) {
+            throw new IllegalArgumentException("O pedido deve ter ao menos um item");
+        }
+        EntityManager em = roteador.paraEscrita();
+        List<Long> idsProdutos = new ArrayList<>(itens.size());
+        for (ItemPedidoVo item : itens) {
+            idsProdutos.add(item.getIdProduto());
+        }
+        Map<Long, BigDecimal> precos = tabelaDePrecos.precos(idsProdutos, em);
+
+        Pedido pedido = new Pedido(em.getReference(Cliente.class, idCliente));
+        for (ItemPedidoVo item : itens) {
+            BigDecimal preco = precos.get(item.getIdProduto());
+            if (preco == null) {
+                throw new IllegalArgumentException("Produto não encontrado ou sem preço: " + item.getIdProduto());
+            }
+            Produto produto = em.getReference(Produto.class, item.getIdProduto());
+            pedido.adicionarItem(new PedidoItem(item.getQuantidade(), pedido, produto, preco));
+        }
+        inserir(pedido);
+        return pedido;
+    }
+
+    // Modo de entrada assíncrono: o pedido vai para a fila de gravação em lote e o futuro é completado
+    // com o ID do pedido quando a transação do lote for confirmada.
+    public CompletableFuture<Long> inserirAssincrono(Pedido pedido){
+        if (filaDePedidos == null) {
+            throw new IllegalStateException("Nenhuma fila de pedidos configurada para o modo assíncrono.");
+        }
+        reservarEstoque(pedido.getItens());
+        CompletableFuture<Long> futuro;
+        ContadoresDeVendas.Gravacao gravacao = iniciarContagem(pedido, List.of());
+        try {
+            futuro = filaDePedidos.enfileirar(pedido);
+        } catch (RuntimeException e) {
+            concluirContagem(gravacao);
+            liberarEstoque(pedido.getItens());
+            throw e;
+        }
+        if (contadoresDeVendas != null || coocorrencia != null || esbocosDeVendas != null) {
+            futuro.whenComplete((id, erro) -> {
+                try {
+                    if (erro == null) {
+                        contarPedido(pedido, 1);
+                    }
+                } finally {
+                    concluirContagem(gravacao);
+                }
+            });
+        }
+        if (controleDeEstoque != null) {
+            List<PedidoItem> itens = List.copyOf(pedido.getItens());
+            futuro.whenComplete((id, erro) -> {
+                if (erro != null) {
+                    liberarEstoque(itens);
+                }
+            });
+        }
+        return futuro;
+    }
+
+    public void setFilaDePedidos(FilaDePedidos filaDePedidos){
+        this.filaDePedidos = filaDePedidos;
+    }
+
+    // Opcional: com o controle configurado, os pedidos reservam estoque e as exclusões o devolvem.
+    public void setControleDeEstoque(ControleDeEstoque controleDeEstoque){
+        this.controleDeEstoque = controleDeEstoque;
+    }
+
+    // Necessária para inserirPorIds; deve ser a mesma instância usada pelo ProdutoService, que a mantém atualizada.
+    public void setTabelaDePrecos(TabelaDePrecos tabelaDePrecos){
+        this.tabelaDePrecos = tabelaDePrecos;
+    }
+
+    // Opcional: com os contadores configurados, cada pedido gravado atualiza os totais de vendas em memória.
+    public void setContadoresDeVendas(ContadoresDeVendas contadoresDeVendas){
+        this.contadoresDeVendas = contadoresDeVendas;
+    }
+
+    // Opcional: com a coocorrência configurada, os produtos de cada pedido gravado entram nos "comprados juntos".
+    public void setCoocorrencia(CoocorrenciaDeProdutos coocorrencia){
+        this.coocorrencia = coocorrencia;
+    }
+
+    // Opcional: com os esboços configurados, cada pedido incluído entra nas estimativas de vendas do seu dia.
+    public void setEsbocosDeVendas(EsbocosDeVendas esbocosDeVendas){
+        this.esbocosDeVendas = esbocosDeVendas;
     }
 
     public void alterar(Pedido pedido){
-        pedidoDao.atualizar(pedido);
+        recusarArquivado(pedido);
+        contarAlteracao(pedido, () -> gravarAlteracao(pedido));
+    }
+
+    private void gravarAlteracao(Pedido pedido){
+        if (controleDeEstoque == null || pedido.getId() == null) {
+            pedidoDao.atualizar(pedido);
+            roteador.registrarEscrita();
+            return;
+        }
+        // Só a diferença de quantidade de cada item (em relação ao banco) é reservada ou devolvida. Itens tirados
+        // da lista não entram na conta: a devolução deles acontece em excluirItem.
+        Map<Long, Integer> anteriores = pedidoDao.quantidadesDosItens(pedido.getId());
+        Map<Long, Long> variacoes = new HashMap<>();
+        for (PedidoItem item : pedido.getItens()) {
+            int anterior = item.getId() == null ? 0 : anteriores.getOrDefault(item.getId(), 0);
+            variacoes.merge(item.getProduto().getId(), (long) item.getQuantidade() - anterior, Long::sum);
+        }
+        Map<Long, Long> reservadas = new HashMap<>();
+        try {
+            for (Map.Entry<Long, Long> variacao : variacoes.entrySet()) {
+                if (variacao.getValue() > 0) {
+                    controleDeEstoque.reservar(variacao.getKey(), variacao.getValue());
+                    reservadas.put(variacao.getKey(), variacao.getValue());
+                }
+            }
+            pedidoDao.atualizar(pedido);
+        } catch (RuntimeException e) {
+            reservadas.forEach(controleDeEstoque::liberar);
+            throw e;
+        }
+        aoConcluir(() -> variacoes.forEach((idProduto, variacao) -> {
+            if (variacao < 0) {
+                controleDeEstoque.liberar(idProduto, -variacao);
+            }
+        }), () -> reservadas.forEach(controleDeEstoque::liberar));
+        roteador.registrarEscrita();
     }
 
     public void excluir(Pedido pedido){
-        pedidoDao.remover(pedido);
+        recusarArquivado(pedido);
+        // Os itens são lidos antes da remoção, enquanto a coleção ainda pode ser carregada.
+        List<PedidoItem> itens = controleDeEstoque == null && contadoresDeVendas == null && coocorrencia == null
+                ? List.of() : List.copyOf(pedido.getItens());
+        Pedido contado = paraContagem(pedido);
+        ContadoresDeVendas.Gravacao gravacao = iniciarContagem(contado, List.of());
+        try {
+            pedidoDao.remover(pedido);
+        } catch (RuntimeException e) {
+            concluirContagem(gravacao);
+            throw e;
+        }
+        aoConcluir(() -> {
+            try {
+                contarPedido(contado, -1);
+            } finally {
+                concluirContagem(gravacao);
+            }
+            liberarEstoque(itens);
+        }, () -> concluirContagem(gravacao));
+        roteador.registrarEscrita();
+    }
+
+    public void excluirItem(PedidoItem pedidoItem){
+        recusarArquivado(pedidoItem.getPedido());
+        contarAlteracao(pedidoItem.getPedido(), () -> pedidoDao.removerItem(pedidoItem));
+        aoConcluir(() -> liberarEstoque(List.of(pedidoItem)), null);
+        roteador.registrarEscrita();
     }
 
-    public void excluirItem(PedidoItem pedidoItem){pedidoDao.removerItem(pedidoItem); }
+    // Um pedido arquivado não está na tabela ativa: o merge criaria uma linha nova e a exclusão não acharia nenhuma.
+    private static void recusarArquivado(Pedido pedido){
+        if (pedido != null && pedido.isArquivado()) {
+            throw new PedidoArquivadoException(pedido.getId());
+        }
+    }
 
     public Pedido buscarPedidoPorId(long id){
-        return pedidoDao.buscarPorId(id);
+        return pedidoDaoDeLeitura().buscarPorId(id);
     }
 
     public List<Pedido> buscarPedidoPorPeriodo(LocalDate dataIni, LocalDate dataFim){
-        return pedidoDao.buscarPedidosPorPeriodo(dataIni, dataFim);
+        return pedidoDaoDeLeitura().buscarPedidosPorPeriodo(dataIni, dataFim);
     }
 
     public List<Pedido> buscarPedidoDeUmCliente(long id){
-        return pedidoDao.buscarPedidosDeUmCliente(id);
+        return pedidoDaoDeLeitura().buscarPedidosDeUmCliente(id);
+    }
+
+    // Variantes que percorrem o cursor da consulta: o Stream deve ser fechado após o uso e, como os itens são
+    // carregados sob demanda, percorrido dentro de uma transação.
+    public Stream<Pedido> percorrerPedidosPorPeriodo(LocalDate dataIni, LocalDate dataFim){
+        return pedidoDaoDeLeitura().percorrerPedidosPorPeriodo(dataIni, dataFim);
+    }
+
+    public Stream<Pedido> percorrerPedidosDeUmCliente(long id){
+        return pedidoDaoDeLeitura().percorrerPedidosDeUmCliente(id);
+    }
+
+    // Reserva todos os itens ou nenhum: se um produto não tiver saldo, as reservas já feitas são desfeitas.
+    private void reservarEstoque(List<PedidoItem> itens){
+        if (controleDeEstoque == null) {
+            return;
+        }
+        List<PedidoItem> reservados = new ArrayList<>();
+        try {
+            for (PedidoItem item : itens) {
+                controleDeEstoque.reservar(item.getProduto().getId(), item.getQuantidade());
+                reservados.add(item);
+            }
+        } catch (RuntimeException e) {
+            liberarEstoque(reservados);
+            throw e;
+        }
+    }
+
+    private void liberarEstoque(List<PedidoItem> itens){
+        if (controleDeEstoque == null) {
+            return;
+        }
+        for (PedidoItem item : itens) {
+            controleDeEstoque.liberar(item.getProduto().getId(), item.getQuantidade());
+        }
+    }
+
+    // Como reservarEstoque, para as linhas de um pedido compacto.
+    private void reservarLinhas(List<LinhaDePedido> linhas){
+        if (controleDeEstoque == null) {
+            return;
+        }
+        List<LinhaDePedido> reservadas = new ArrayList<>();
+        try {
+            for (LinhaDePedido linha : linhas) {
+                controleDeEstoque.reservar(linha.idProduto(), linha.quantidade());
+                reservadas.add(linha);
+            }
+        } catch (RuntimeException e) {
+            liberarLinhas(reservadas);
+            throw e;
+        }
+    }
+
+    private void liberarLinhas(List<LinhaDePedido> linhas){
+        if (controleDeEstoque == null) {
+            return;
+        }
+        for (LinhaDePedido linha : linhas) {
+            controleDeEstoque.liberar(linha.idProduto(), linha.quantidade());
+        }
+    }
+
+    /* Marca nos contadores o cliente e os produtos do pedido (mais "outrosProdutos", os que saem numa alteração)
+       como em gravação; devolve null sem contadores configurados. */
+    private ContadoresDeVendas.Gravacao iniciarContagem(Pedido pedido, Collection<Long> outrosProdutos){
+        if (contadoresDeVendas == null) {
+            return null;
+        }
+        Set<Long> idsProdutos = new HashSet<>(outrosProdutos);
+        for (PedidoItem item : pedido.getItens()) {
+            idsProdutos.add(item.getProduto().getId());
+        }
+        return contadoresDeVendas.iniciarGravacao(pedido.getCliente() == null ? null : pedido.getCliente().getId(),
+                idsProdutos);
+    }
+
+    private ContadoresDeVendas.Gravacao iniciarContagem(PedidoCompacto pedido){
+        if (contadoresDeVendas == null) {
+            return null;
+        }
+        Set<Long> idsProdutos = new HashSet<>();
+        for (LinhaDePedido linha : pedido.getItens()) {
+            idsProdutos.add(linha.idProduto());
+        }
+        return contadoresDeVendas.iniciarGravacao(pedido.getCliente() == null ? null : pedido.getCliente().getId(),
+                idsProdutos);
+    }
+
+    private void concluirContagem(ContadoresDeVendas.Gravacao gravacao){
+        if (gravacao != null) {
+            contadoresDeVendas.concluirGravacao(gravacao);
+        }
+    }
+
+    private void contarPedido(Pedido pedido, int sinal){
+        if (contadoresDeVendas != null) {
+            contadoresDeVendas.registrarPedido(pedido, sinal);
+        }
+        if (coocorrencia != null) {
+            List<Long> idsProdutos = new ArrayList<>(pedido.getItens().size());
+            for (PedidoItem item : pedido.getItens()) {
+                idsProdutos.add(item.getProduto().getId());
+            }
+            coocorrencia.registrarPedido(idsProdutos, sinal);
+        }
+        if (esbocosDeVendas != null && sinal > 0) {
+            esbocosDeVendas.registrarPedido(pedido);
+        }
+    }
+
+    private void contarPedido(PedidoCompacto pedido){
+        if (contadoresDeVendas != null) {
+            contadoresDeVendas.registrarPedido(pedido);
+        }
+        if (coocorrencia != null) {
+            List<Long> idsProdutos = new ArrayList<>(pedido.getItens().size());
+            for (LinhaDePedido linha : pedido.getItens()) {
+                idsProdutos.add(linha.idProduto());
+            }
+            coocorrencia.registrarPedido(idsProdutos, 1);
+        }
+        if (esbocosDeVendas != null) {
+            esbocosDeVendas.registrarPedido(pedido);
+        }
+    }
+
+    /* Numa alteração, o que mudou (valor total e unidades de cada produto) é medido no banco antes e depois da
+       gravação: assim os contadores acompanham exatamente o que os relatórios agrupados somariam. Para a
+       coocorrência, os produtos de antes saem e os de depois entram. */
+    private void contarAlteracao(Pedido pedido, Runnable gravacao){
+        if ((contadoresDeVendas == null && coocorrencia == null && esbocosDeVendas == null) || pedido == null || pedido.getId() == null) {
+            gravacao.run();
+            return;
+        }
+        Long id = pedido.getId();
+        // Os produtos de antes são lidos primeiro: a marcação cobre os que saem e os que entram no pedido.
+        Map<Long, Long> unidadesAnteriores = pedidoDao.unidadesPorProduto(id);
+        ContadoresDeVendas.Gravacao emAndamento = iniciarContagem(pedido, unidadesAnteriores.keySet());
+        BigDecimal valorAnterior;
+        BigDecimal valorAtual;
+        Map<Long, Long> unidadesAtuais;
+        try {
+            valorAnterior = contadoresDeVendas == null ? null : pedidoDao.valorTotalGravado(id);
+            gravacao.run();
+            // Numa unidade de trabalho, a gravação já foi enviada ao banco (flush), ainda sem commit.
+            unidadesAtuais = pedidoDao.unidadesPorProduto(id);
+            valorAtual = contadoresDeVendas == null ? null : pedidoDao.valorTotalGravado(id);
+        } catch (RuntimeException e) {
+            concluirContagem(emAndamento);
+            throw e;
+        }
+        aoConcluir(() -> {
+            try {
+                if (contadoresDeVendas != null) {
+                    contadoresDeVendas.registrarAlteracao(pedido, valorAnterior, unidadesAnteriores, valorAtual,
+                            unidadesAtuais);
+                }
+                if (coocorrencia != null && !unidadesAnteriores.keySet().equals(unidadesAtuais.keySet())) {
+                    coocorrencia.registrarPedido(unidadesAnteriores.keySet(), -1);
+                    coocorrencia.registrarPedido(unidadesAtuais.keySet(), 1);
+                }
+                if (esbocosDeVendas != null) {
+                    esbocosDeVendas.registrarAlteracao(pedido, unidadesAnteriores, unidadesAtuais);
+                }
+            } finally {
+                concluirContagem(emAndamento);
+            }
+        }, () -> concluirContagem(emAndamento));
+    }
+
+    /* Numa unidade de trabalho, o pedido só é contado no commit, mas até lá ainda pode ser alterado (e a alteração
+       é contada à parte): a contagem usa uma cópia com os itens de agora. */
+    private Pedido paraContagem(Pedido pedido){
+        if ((contadoresDeVendas == null && coocorrencia == null && esbocosDeVendas == null)
+                || !UnidadeDeTrabalho.ativa(roteador.paraEscrita())) {
+            return pedido;
+        }
+        Pedido copia = new Pedido(pedido.getCliente());
+        copia.setId(pedido.getId());
+        copia.setData(pedido.getData());
+        for (PedidoItem item : pedido.getItens()) {
+            copia.adicionarItem(new PedidoItem(item.getQuantidade(), copia, item.getProduto(), item.getPrecoUnitario()));
+        }
+        return copia;
+    }
+
+    // Sem unidade de trabalho ativa, a gravação já foi confirmada pelo DAO e "confirmada" roda na hora.
+    private void aoConcluir(Runnable confirmada, Runnable desfeita){
+        UnidadeDeTrabalho.aoConcluir(roteador.paraEscrita(), confirmada, desfeita);
+    }
+
+    private PedidoDao pedidoDaoDeLeitura(){
+        EntityManager em = roteador.paraLeitura();
+        return em == roteador.paraEscrita() ? pedidoDao : new PedidoDao(em);
     }
 }
@@ -0,0 +1,75 @@
+package br.com.service;
+
+import br.com.dao.PedidoDao;
+import br.com.model.Pedido;
+import br.com.util.RoteadorDeShards;
+import jakarta.persistence.EntityManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Equivalente ao PedidoService quando os pedidos estão particionados por cliente (ver RoteadorDeShards).
+// Mantém um EntityManager por shard durante a vida do serviço, como os demais serviços fazem com o seu.
+public class PedidoServiceParticionado implements AutoCloseable {
+
+    private final RoteadorDeShards roteador;
+    private final List<EntityManager> ems = new ArrayList<>();
+    private final List<PedidoDao> pedidoDaos = new ArrayList<>();
+
+    public PedidoServiceParticionado(RoteadorDeShards roteador) {
+        this.roteador = roteador;
+        roteador.getShards().forEach(emf -> {
+            EntityManager em = emf.createEntityManager();
+            ems.add(em);
+            pedidoDaos.add(new PedidoDao(em));
+        });
+    }
+
+    // O cliente e os produtos do pedido vêm do catálogo (outro EntityManager); depois de gravado, o pedido é
+    // desanexado para que as próximas consultas no shard carreguem as associações do próprio shard.
+    public void inserir(Pedido pedido) {
+        int indice = roteador.indiceDoShardDoCliente(pedido.getCliente().getId());
+        pedidoDaos.get(indice).cadastrar(pedido);
+        ems.get(indice).detach(pedido);
+    }
+
+    public void alterar(Pedido pedido) {
+        daoDoPedido(pedido.getId()).atualizar(pedido);
+    }
+
+    public void excluir(Pedido pedido) {
+        daoDoPedido(pedido.getId()).remover(pedido);
+    }
+
+    public Pedido buscarPedidoPorId(long id) {
+        return daoDoPedido(id).buscarPorId(id);
+    }
+
+    // Consulta todos os shards em paralelo e junta os resultados ordenados por data.
+    public List<Pedido> buscarPedidoPorPeriodo(LocalDate dataIni, LocalDate dataFim) {
+        List<Pedido> pedidos = new ArrayList<>();
+        roteador.emParalelo(pedidoDaos, dao -> dao.buscarPedidosPorPeriodo(dataIni, dataFim)).forEach(pedidos::addAll);
+        pedidos.sort(Comparator.comparing(Pedido::getData).thenComparing(Pedido::getId));
+        return pedidos;
+    }
+
+    // Todos os pedidos de um cliente estão no mesmo shard.
+    public List<Pedido> buscarPedidoDeUmCliente(long id) {
+        return daoDoCliente(id).buscarPedidosDeUmCliente(id);
+    }
+
+    @Override
+    public void close() {
+        ems.forEach(EntityManager::close);
+    }
+
+    private PedidoDao daoDoCliente(long idCliente) {
+        return pedidoDaos.get(roteador.indiceDoShardDoCliente(idCliente));
+    }
+
+    private PedidoDao daoDoPedido(long idPedido) {
+        return pedidoDaos.get(roteador.indiceDoShardDoPedido(idPedido));
+    }
+}
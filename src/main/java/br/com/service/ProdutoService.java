@@ -1,44 +1,282 @@
 package br.com.service;
 
 import br.com.dao.ProdutoDao;
+import br.com.exception.DataAccessException;
 import br.com.model.Produto;
+import br.com.util.RoteadorDeLeitura;
+import br.com.util.UnidadeDeTrabalho;
+import br.com.vo.AlteracaoDePrecoVo;
+import br.com.vo.RecomendacaoVo;
+import br.com.vo.ResultadoDeReajusteVo;
 import jakarta.persistence.EntityManager;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
 
 public class ProdutoService {
+    // Produtos por lote nas alterações de preço em massa; cada lote é um comando e uma transação.
+    public static final int PRODUTOS_POR_LOTE = 500;
+
+    private static final BigDecimal MENOS_CEM = new BigDecimal("-100");
+
+    private RoteadorDeLeitura roteador;
     private ProdutoDao produtoDao;
+    private TabelaDePrecos tabelaDePrecos;
+    private CoocorrenciaDeProdutos coocorrencia;
+    private HistoricoDePrecos historicoDePrecos;
+    private ControleDeEstoque controleDeEstoque;
+    private int produtosPorLote = PRODUTOS_POR_LOTE;
 
     public ProdutoService(EntityManager em){
-        produtoDao = new ProdutoDao(em);
+        this(new RoteadorDeLeitura(em));
+    }
+
+    // Com réplica: as consultas vão para a réplica e as alterações para o primário.
+    public ProdutoService(RoteadorDeLeitura roteador){
+        this.roteador = roteador;
+        produtoDao = new ProdutoDao(roteador.paraEscrita());
+    }
+
+    // Opcional: com a tabela configurada, os preços cadastrados, alterados e excluídos são refletidos nela.
+    public void setTabelaDePrecos(TabelaDePrecos tabelaDePrecos){
+        this.tabelaDePrecos = tabelaDePrecos;
+    }
+
+    // Necessária para recomendarPara; deve ser a mesma instância usada pelo PedidoService, que a mantém atualizada.
+    public void setCoocorrencia(CoocorrenciaDeProdutos coocorrencia){
+        this.coocorrencia = coocorrencia;
+    }
+
+    // Opcional: com o índice configurado, precoEm é respondido da memória; sem ele, com uma consulta ao histórico.
+    public void setHistoricoDePrecos(HistoricoDePrecos historicoDePrecos){
+        this.historicoDePrecos = historicoDePrecos;
+    }
+
+    // Deve ser a mesma instância usada pelo PedidoService: a reposição passa a valer também para as reservas em memória.
+    public void setControleDeEstoque(ControleDeEstoque controleDeEstoque){
+        this.controleDeEstoque = controleDeEstoque;
+    }
+
+    public void setProdutosPorLote(int produtosPorLote){
+        if (produtosPorLote < 1) {
+            throw new IllegalArgumentException("O lote deve ter ao menos um produto: " + produtosPorLote);
+        }
+        this.produtosPorLote = produtosPorLote;
     }
 
     public void inserir(Produto produto){
         produtoDao.cadastrar(produto);
+        if (tabelaDePrecos != null) {
+            aposCommit(() -> tabelaDePrecos.atualizar(produto));
+        }
+        invalidarHistorico(List.of(produto.getId()));
+        roteador.registrarEscrita();
     }
 
     public void alterar(Produto produto){
         produtoDao.atualizar(produto);
+        if (tabelaDePrecos != null) {
+            aposCommit(() -> tabelaDePrecos.atualizar(produto));
+        }
+        invalidarHistorico(List.of(produto.getId()));
+        roteador.registrarEscrita();
     }
 
     public void excluir(Produto produto){
         produtoDao.remover(produto);
+        if (tabelaDePrecos != null) {
+            aposCommit(() -> tabelaDePrecos.remover(produto.getId()));
+        }
+        if (coocorrencia != null) {
+            aposCommit(() -> coocorrencia.removerProduto(produto.getId()));
+        }
+        invalidarHistorico(List.of(produto.getId()));
+        roteador.registrarEscrita();
+    }
+
+    /* Entrada de mercadoria: soma "quantidade" ao estoque do produto, sem ler o valor gravado. Com o controle de
+       estoque configurado, a reposição passa por ele (e é gravada na hora, fora da transação corrente); sem ele, é um
+       UPDATE relativo. Devolve false se o produto não existe. */
+    public boolean reporEstoque(long idProduto, long quantidade){
+        if (quantidade <= 0) {
+            throw new IllegalArgumentException("A reposição deve ser de ao menos uma unidade: " + quantidade);
+        }
+        boolean reposto = controleDeEstoque != null
+                ? controleDeEstoque.repor(idProduto, quantidade)
+                : produtoDao.ajustarEstoque(idProduto, quantidade);
+        roteador.registrarEscrita();
+        return reposto;
+    }
+
+    /* Reajusta em "percentual" % (negativo para reduzir) os preços dos produtos da categoria, arredondados para
+       centavos. Os produtos não são carregados: um UPDATE por lote de IDs, cada um na sua transação. Alterações
+       em massa não passam pelo diário de eventos. */
+    public ResultadoDeReajusteVo reajustarPrecosDaCategoria(long idCategoria, BigDecimal percentual){
+        if (percentual.compareTo(MENOS_CEM) <= 0) {
+            throw new IllegalArgumentException("O reajuste deve ser maior que -100%: " + percentual);
+        }
+        long inicio = System.nanoTime();
+        BigDecimal fator = BigDecimal.ONE.add(percentual.movePointLeft(2));
+        List<Long> ids = produtoDao.buscarIdsDaCategoria(idCategoria);
+        int alterados = 0;
+        int lotes = 0;
+        for (int i = 0; i < ids.size(); i += produtosPorLote) {
+            List<Long> lote = ids.subList(i, Math.min(ids.size(), i + produtosPorLote));
+            alterados += produtoDao.reajustarPrecos(lote, fator);
+            lotes++;
+            if (tabelaDePrecos != null) {
+                // Os preços novos foram calculados pelo banco: saem da tabela e são relidos quando pedidos.
+                aposCommit(() -> tabelaDePrecos.remover(lote));
+            }
+            invalidarHistorico(lote);
+        }
+        roteador.registrarEscrita();
+        return new ResultadoDeReajusteVo(alterados, lotes, Duration.ofNanos(System.nanoTime() - inicio));
+    }
+
+    /* Define os preços a partir de um arquivo texto com uma linha "idProduto;preço" por produto (ex.: 15;129.90).
+       Linhas em branco e iniciadas por # são ignoradas. */
+    public ResultadoDeReajusteVo definirPrecos(Path arquivo){
+        Map<Long, BigDecimal> precos = new LinkedHashMap<>();
+        try (BufferedReader leitor = Files.newBufferedReader(arquivo, StandardCharsets.UTF_8)) {
+            String linha;
+            int numero = 0;
+            while ((linha = leitor.readLine()) != null) {
+                numero++;
+                linha = linha.strip();
+                if (linha.isEmpty() || linha.startsWith("#")) {
+                    continue;
+                }
+                String[] campos = linha.split(";");
+                try {
+                    if (campos.length != 2) {
+                        throw new NumberFormatException();
+                    }
+                    precos.put(Long.parseLong(campos[0].strip()), new BigDecimal(campos[1].strip()));
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Linha " + numero + " inválida em " + arquivo + ": " + linha);
+                }
+            }
+        } catch (IOException e) {
+            throw new DataAccessException("Erro ao ler o arquivo de preços: " + arquivo, e);
+        }
+        return definirPrecos(precos);
+    }
+
+    // Define os preços informados (ID -> preço) em lotes de UPDATEs; IDs inexistentes são ignorados.
+    public ResultadoDeReajusteVo definirPrecos(Map<Long, BigDecimal> precos){
+        precos.forEach((id, preco) -> {
+            if (preco == null || preco.signum() < 0) {
+                throw new IllegalArgumentException("Preço inválido para o produto " + id + ": " + preco);
+            }
+        });
+        long inicio = System.nanoTime();
+        List<Long> ids = new ArrayList<>(precos.keySet());
+        int alterados = 0;
+        int lotes = 0;
+        for (int i = 0; i < ids.size(); i += produtosPorLote) {
+            Map<Long, BigDecimal> lote = new LinkedHashMap<>();
+            for (Long id : ids.subList(i, Math.min(ids.size(), i + produtosPorLote))) {
+                lote.put(id, precos.get(id));
+            }
+            List<Long> gravados = produtoDao.definirPrecos(lote);
+            alterados += gravados.size();
+            lotes++;
+            if (tabelaDePrecos != null) {
+                Map<Long, BigDecimal> novos = new LinkedHashMap<>();
+                gravados.forEach(id -> novos.put(id, lote.get(id)));
+                aposCommit(() -> tabelaDePrecos.atualizar(novos));
+            }
+            invalidarHistorico(gravados);
+        }
+        roteador.registrarEscrita();
+        return new ResultadoDeReajusteVo(alterados, lotes, Duration.ofNanos(System.nanoTime() - inicio));
     }
 
     public Produto buscarProdutoPorId(long id){
-        return produtoDao.buscarPorId(id);
+        return produtoDaoDeLeitura().buscarPorId(id);
     }
 
     public List<Produto> buscarTodosOsProdutos(){
-        return produtoDao.buscarTodos();
+        return produtoDaoDeLeitura().buscarTodos();
     }
 
     public List<Produto> buscarProdutoPorNome(String nome){
-        return produtoDao.buscarPorNome(nome);
+        return produtoDaoDeLeitura().buscarPorNome(nome);
     }
 
     public List<Produto> buscarProdutosDaCategoria(long idCategoria){
-        return produtoDao.buscarPorCategoria(idCategoria);
+        return produtoDaoDeLeitura().buscarPorCategoria(idCategoria);
+    }
+
+    // Variantes que percorrem o cursor da consulta, sem montar a lista: o Stream deve ser fechado após o uso.
+    public Stream<Produto> percorrerTodosOsProdutos(){
+        return produtoDaoDeLeitura().percorrerTodos();
+    }
+
+    public Stream<Produto> percorrerProdutosPorNome(String nome){
+        return produtoDaoDeLeitura().percorrerPorNome(nome);
+    }
+
+    public Stream<Produto> percorrerProdutosDaCategoria(long idCategoria){
+        return produtoDaoDeLeitura().percorrerPorCategoria(idCategoria);
+    }
+
+    // Preço do produto no instante informado (em UTC, como o histórico), segundo o histórico de preços (null se não
+    // havia preço registrado).
+    public BigDecimal precoEm(long idProduto, LocalDateTime instante){
+        if (historicoDePrecos != null) {
+            return historicoDePrecos.precoEm(idProduto, instante, roteador.paraLeitura());
+        }
+        return produtoDaoDeLeitura().buscarPrecoEm(idProduto, instante);
+    }
+
+    // Alterações de preço (inclusive o preço do cadastro) feitas entre as duas datas, inclusive. As datas são dias do
+    // fuso local, convertidos para os instantes em UTC do histórico.
+    public List<AlteracaoDePrecoVo> buscarAlteracoesDePreco(LocalDate dataIni, LocalDate dataFim){
+        return produtoDaoDeLeitura().buscarAlteracoesDePreco(emUtc(dataIni), emUtc(dataFim.plusDays(1)));
     }
-}
 
+    // "Comprados juntos": respondido da memória, sem consulta ao banco.
+    public List<RecomendacaoVo> recomendarPara(long produtoId, int k){
+        if (coocorrencia == null) {
+            throw new IllegalStateException("Nenhuma coocorrência de produtos configurada para as recomendações.");
+        }
+        return coocorrencia.recomendarPara(produtoId, k);
+    }
+
+    private ProdutoDao produtoDaoDeLeitura(){
+        EntityManager em = roteador.paraLeitura();
+        return em == roteador.paraEscrita() ? produtoDao : new ProdutoDao(em);
+    }
+
+    // As séries alteradas saem do índice e são relidas do histórico na próxima consulta.
+    private void invalidarHistorico(List<Long> ids){
+        if (historicoDePrecos != null) {
+            aposCommit(() -> historicoDePrecos.remover(ids));
+        }
+    }
+
+    // Os caches em memória só mudam depois que a gravação é confirmada (ver UnidadeDeTrabalho).
+    private void aposCommit(Runnable acao){
+        UnidadeDeTrabalho.aposCommit(roteador.paraEscrita(), acao);
+    }
+
+    private static LocalDateTime emUtc(LocalDate dia){
+        return dia.atStartOfDay(ZoneId.systemDefault()).withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime();
+    }
+}
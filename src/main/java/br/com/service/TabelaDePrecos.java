@@ -0,0 +1,140 @@
+package br.com.service;
+
+import br.com.dao.ProdutoDao;
+import br.com.model.Produto;
+import br.com.util.MapaDeLongs;
+import jakarta.persistence.EntityManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/* Preços dos produtos em memória (ID -> preço em centavos), para montar pedidos sem carregar os produtos.
+   - Os preços ficam num MapaDeLongs: dois vetores de long, sem um BigDecimal nem um Long por produto.
+   - Muitas leituras simultâneas e poucas alterações: um ReadWriteLock deixa as leituras em paralelo.
+   - O ProdutoService mantém a tabela atualizada no cadastro, na alteração e na exclusão. Produtos que ainda não
+     estão na tabela (cadastrados por outro processo, por exemplo) são lidos do banco numa única consulta. */
+public class TabelaDePrecos {
+
+    // Marca de ausência no mapa (nenhum preço válido é negativo).
+    private static final long SEM_PRECO = -1;
+
+    private final MapaDeLongs centavos = new MapaDeLongs(1024);
+    private final ReadWriteLock trava = new ReentrantReadWriteLock();
+
+    // Carga inicial de todos os preços, com uma consulta de projeção (sem montar entidades).
+    public void carregar(EntityManager em) {
+        atualizarTodos(new ProdutoDao(em).buscarTodosOsPrecos());
+    }
+
+    // Devolve o preço do produto ou null se ele não estiver na tabela.
+    public BigDecimal preco(long idProduto) {
+        long valor;
+        trava.readLock().lock();
+        try {
+            valor = centavos.get(idProduto, SEM_PRECO);
+        } finally {
+            trava.readLock().unlock();
+        }
+        return valor == SEM_PRECO ? null : BigDecimal.valueOf(valor, 2);
+    }
+
+    /* Preços de vários produtos de uma vez. Os que faltam na tabela são buscados no banco com uma única consulta
+       e guardados; produtos inexistentes (ou sem preço) ficam fora do resultado. */
+    public Map<Long, BigDecimal> precos(Collection<Long> idsProdutos, EntityManager em) {
+        Map<Long, BigDecimal> precos = new HashMap<>();
+        Set<Long> faltantes = new HashSet<>();
+        trava.readLock().lock();
+        try {
+            for (Long id : idsProdutos) {
+                long valor = centavos.get(id, SEM_PRECO);
+                if (valor == SEM_PRECO) {
+                    faltantes.add(id);
+                } else {
+                    precos.put(id, BigDecimal.valueOf(valor, 2));
+                }
+            }
+        } finally {
+            trava.readLock().unlock();
+        }
+        if (!faltantes.isEmpty()) {
+            Map<Long, BigDecimal> lidos = new ProdutoDao(em).buscarPrecos(faltantes);
+            atualizarTodos(lidos);
+            lidos.forEach((id, preco) -> {
+                if (preco != null) {
+                    precos.put(id, preco.setScale(2, RoundingMode.HALF_UP));
+                }
+            });
+        }
+        return precos;
+    }
+
+    public void atualizar(Produto produto) {
+        if (produto.getId() == null) {
+            return;
+        }
+        trava.writeLock().lock();
+        try {
+            guardar(produto.getId(), produto.getPreco());
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    // Vários preços de uma vez (alterações em massa), com uma única aquisição da trava.
+    public void atualizar(Map<Long, BigDecimal> precos) {
+        atualizarTodos(precos);
+    }
+
+    public void remover(long idProduto) {
+        trava.writeLock().lock();
+        try {
+            centavos.remover(idProduto);
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    // Invalida vários preços de uma vez: a próxima consulta desses produtos vai ao banco (ver precos).
+    public void remover(Collection<Long> idsProdutos) {
+        trava.writeLock().lock();
+        try {
+            idsProdutos.forEach(centavos::remover);
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    public int tamanho() {
+        trava.readLock().lock();
+        try {
+            return centavos.tamanho();
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    private void atualizarTodos(Map<Long, BigDecimal> precos) {
+        trava.writeLock().lock();
+        try {
+            precos.forEach(this::guardar);
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    // Produto sem preço sai da tabela, para que a próxima consulta vá ao banco.
+    private void guardar(Long idProduto, BigDecimal preco) {
+        if (preco == null) {
+            centavos.remover(idProduto);
+        } else {
+            centavos.put(idProduto, preco.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact());
+        }
+    }
+}
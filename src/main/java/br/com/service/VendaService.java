@@ -1,30 +1,129 @@
 package br.com.service;
 
 import br.com.dao.VendaDAO;
+import br.com.util.Granularidade;
+import br.com.util.RoteadorDeLeitura;
+import br.com.util.SerieTemporal;
+import br.com.vo.EstimativaVo;
 import br.com.vo.RelatorioDeVendasVo;
 import br.com.vo.RelatorioFinanceiroVo;
+import br.com.vo.SerieDeVendasVo;
 import jakarta.persistence.EntityManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 public class VendaService {
-    private VendaDAO vendasDAO;
+    private RoteadorDeLeitura roteador;
+    private ContadoresDeVendas contadoresDeVendas;
+    private EsbocosDeVendas esbocosDeVendas;
+    private boolean comPedidosCompactos;
 
     public VendaService(EntityManager em){
-        this.vendasDAO = new VendaDAO(em);
+        this(new RoteadorDeLeitura(em));
+    }
+
+    // Com réplica: os relatórios são calculados na réplica, exceto logo após uma escrita do mesmo roteador.
+    public VendaService(RoteadorDeLeitura roteador){
+        this.roteador = roteador;
+    }
+
+    // Opcional: com os contadores, os relatórios sem período saem da memória, sem consulta ao banco (depois da carga).
+    public void setContadoresDeVendas(ContadoresDeVendas contadoresDeVendas){
+        this.contadoresDeVendas = contadoresDeVendas;
+    }
+
+    // Necessários para as estimativas; devem ser os mesmos usados pelo PedidoService, que os mantém atualizados.
+    public void setEsbocosDeVendas(EsbocosDeVendas esbocosDeVendas){
+        this.esbocosDeVendas = esbocosDeVendas;
+    }
+
+    // Opcional: soma os pedidos gravados no modo compacto (PedidoCompacto) aos relatórios calculados no banco.
+    public void setComPedidosCompactos(boolean comPedidosCompactos){
+        this.comPedidosCompactos = comPedidosCompactos;
     }
 
     public BigDecimal retornaValorTotalVendido(LocalDate dataIni, LocalDate dataFim){
-        return this.vendasDAO.retornaValorTotalVendidoEmUmPeriodo(dataIni, dataFim);
+        return vendasDAO().retornaValorTotalVendidoEmUmPeriodo(dataIni, dataFim);
     }
 
     public List<RelatorioDeVendasVo> retornaRelatorioDeVendas(){
-        return this.vendasDAO.relatorioDeVendas();
+        if (contadoresProntos()) {
+            return contadoresDeVendas.relatorioDeVendas();
+        }
+        return vendasDAO().relatorioDeVendas();
     }
 
     public List<RelatorioFinanceiroVo> retornaRelatorioFinanceiro(){
-        return this.vendasDAO.relatorioFinanceiro();
+        if (contadoresProntos()) {
+            return contadoresDeVendas.relatorioFinanceiro();
+        }
+        return vendasDAO().relatorioFinanceiro();
+    }
+
+    public List<RelatorioDeVendasVo> retornaProdutosMaisVendidos(int limite){
+        if (contadoresProntos()) {
+            return contadoresDeVendas.relatorioDeVendas(limite);
+        }
+        return vendasDAO().relatorioDeVendas(limite);
+    }
+
+    public List<RelatorioDeVendasVo> retornaProdutosMaisVendidos(LocalDate dataIni, LocalDate dataFim, int limite){
+        return vendasDAO().relatorioDeVendas(dataIni, dataFim, limite);
+    }
+
+    public List<RelatorioFinanceiroVo> retornaMelhoresClientes(int limite){
+        if (contadoresProntos()) {
+            return contadoresDeVendas.relatorioFinanceiro(limite);
+        }
+        return vendasDAO().relatorioFinanceiro(limite);
+    }
+
+    public List<RelatorioFinanceiroVo> retornaMelhoresClientes(LocalDate dataIni, LocalDate dataFim, int limite){
+        return vendasDAO().relatorioFinanceiro(dataIni, dataFim, limite);
+    }
+
+    // Série de faturamento, quantidade de pedidos e unidades por intervalo, calculada com uma única consulta.
+    // O Stream deve ser fechado após o uso (try-with-resources), pois mantém o cursor da consulta aberto.
+    public Stream<SerieDeVendasVo> retornaSerieDeVendas(LocalDate dataIni, LocalDate dataFim, Granularidade granularidade){
+        return SerieTemporal.agrupar(vendasDAO().vendasPorDia(dataIni, dataFim), granularidade, dataIni, dataFim, false);
+    }
+
+    public Stream<SerieDeVendasVo> retornaSerieDeVendasPorCategoria(LocalDate dataIni, LocalDate dataFim, Granularidade granularidade){
+        return SerieTemporal.agrupar(vendasDAO().vendasPorDiaECategoria(dataIni, dataFim), granularidade, dataIni, dataFim, true);
+    }
+
+    // Estimativas dos esboços: respondidas da memória, com o intervalo e a confiança de cada uma.
+    public EstimativaVo estimarClientesDistintos(LocalDate dataIni, LocalDate dataFim){
+        return esbocos().estimarClientesDistintos(dataIni, dataFim);
+    }
+
+    public EstimativaVo estimarQuantidadeDePedidos(LocalDate dataIni, LocalDate dataFim){
+        return esbocos().estimarPedidos(dataIni, dataFim);
+    }
+
+    public List<EstimativaVo> estimarProdutosMaisVendidos(LocalDate dataIni, LocalDate dataFim, int limite){
+        return esbocos().estimarProdutosMaisVendidos(dataIni, dataFim, limite);
+    }
+
+    private EsbocosDeVendas esbocos(){
+        if (esbocosDeVendas == null) {
+            throw new IllegalStateException("Nenhum esboço de vendas configurado para as estimativas.");
+        }
+        if (esbocosDeVendas.isEmCarga()) {
+            throw new IllegalStateException("Os esboços de vendas ainda estão sendo carregados.");
+        }
+        return esbocosDeVendas;
+    }
+
+    // Enquanto os contadores carregam em segundo plano, os relatórios continuam vindo do banco.
+    private boolean contadoresProntos(){
+        return contadoresDeVendas != null && !contadoresDeVendas.isEmCarga();
+    }
+
+    private VendaDAO vendasDAO(){
+        return new VendaDAO(roteador.paraLeitura(), comPedidosCompactos);
     }
 }
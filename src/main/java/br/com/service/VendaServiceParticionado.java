@@ -0,0 +1,109 @@
+package br.com.service;
+
+import br.com.dao.VendaDAO;
+import br.com.util.Granularidade;
+import br.com.util.RoteadorDeShards;
+import br.com.util.SerieTemporal;
+import br.com.util.TopN;
+import br.com.vo.RelatorioDeVendasVo;
+import br.com.vo.RelatorioFinanceiroVo;
+import br.com.vo.SerieDeVendasVo;
+import br.com.vo.VendaDiariaVo;
+import jakarta.persistence.EntityManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/* Relatórios do VendaService sobre pedidos particionados: cada consulta roda em todos os shards em paralelo
+   (scatter) e os agregados parciais são combinados aqui (gather).
+   - Por cliente: cada cliente está em um único shard, então o top N de cada shard já é exato e basta mesclar.
+   - Por produto: o mesmo produto vende em vários shards, então as somas parciais são combinadas antes do ranking. */
+public class VendaServiceParticionado implements AutoCloseable {
+
+    private final RoteadorDeShards roteador;
+    private final List<EntityManager> ems = new ArrayList<>();
+    private final List<VendaDAO> vendaDaos = new ArrayList<>();
+
+    public VendaServiceParticionado(RoteadorDeShards roteador) {
+        this.roteador = roteador;
+        roteador.getShards().forEach(emf -> {
+            EntityManager em = emf.createEntityManager();
+            ems.add(em);
+            vendaDaos.add(new VendaDAO(em));
+        });
+    }
+
+    public BigDecimal retornaValorTotalVendido(LocalDate dataIni, LocalDate dataFim) {
+        return roteador.emParalelo(vendaDaos, dao -> dao.retornaValorTotalVendidoEmUmPeriodo(dataIni, dataFim))
+                .stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+    }
+
+    public List<RelatorioDeVendasVo> retornaRelatorioDeVendas() {
+        List<RelatorioDeVendasVo> relatorio = new ArrayList<>(somarPorProduto(
+                roteador.emParalelo(vendaDaos, VendaDAO::relatorioDeVendas)));
+        relatorio.sort(RelatorioDeVendasVo.POR_QUANTIDADE_VENDIDA.reversed());
+        return relatorio;
+    }
+
+    public List<RelatorioDeVendasVo> retornaProdutosMaisVendidos(int limite) {
+        return TopN.mesclar(limite, RelatorioDeVendasVo.POR_QUANTIDADE_VENDIDA,
+                List.of(somarPorProduto(roteador.emParalelo(vendaDaos, VendaDAO::relatorioDeVendas))));
+    }
+
+    public List<RelatorioDeVendasVo> retornaProdutosMaisVendidos(LocalDate dataIni, LocalDate dataFim, int limite) {
+        // Sem limite por shard: um produto fora do top N de cada shard pode estar no top N geral.
+        return TopN.mesclar(limite, RelatorioDeVendasVo.POR_QUANTIDADE_VENDIDA,
+                List.of(somarPorProduto(roteador.emParalelo(vendaDaos,
+                        dao -> dao.relatorioDeVendas(dataIni, dataFim, Integer.MAX_VALUE)))));
+    }
+
+    public List<RelatorioFinanceiroVo> retornaRelatorioFinanceiro() {
+        List<RelatorioFinanceiroVo> relatorio = new ArrayList<>();
+        roteador.emParalelo(vendaDaos, VendaDAO::relatorioFinanceiro).forEach(relatorio::addAll);
+        relatorio.sort(RelatorioFinanceiroVo.POR_TOTAL_DE_PEDIDOS.reversed());
+        return relatorio;
+    }
+
+    public List<RelatorioFinanceiroVo> retornaMelhoresClientes(int limite) {
+        return TopN.mesclar(limite, RelatorioFinanceiroVo.POR_TOTAL_DE_PEDIDOS,
+                roteador.emParalelo(vendaDaos, dao -> dao.relatorioFinanceiro(limite)));
+    }
+
+    public List<RelatorioFinanceiroVo> retornaMelhoresClientes(LocalDate dataIni, LocalDate dataFim, int limite) {
+        return TopN.mesclar(limite, RelatorioFinanceiroVo.POR_TOTAL_DE_PEDIDOS,
+                roteador.emParalelo(vendaDaos, dao -> dao.relatorioFinanceiro(dataIni, dataFim, limite)));
+    }
+
+    // Os totais diários de cada shard são somados por data antes do agrupamento em intervalos.
+    public Stream<SerieDeVendasVo> retornaSerieDeVendas(LocalDate dataIni, LocalDate dataFim, Granularidade granularidade) {
+        Map<LocalDate, VendaDiariaVo> porDia = new TreeMap<>();
+        roteador.emParalelo(vendaDaos, dao -> {
+            try (Stream<VendaDiariaVo> dias = dao.vendasPorDia(dataIni, dataFim)) {
+                return dias.toList();
+            }
+        }).forEach(dias -> dias.forEach(dia -> porDia.merge(dia.getData(), dia, VendaDiariaVo::somar)));
+        return SerieTemporal.agrupar(porDia.values().stream(), granularidade, dataIni, dataFim, false);
+    }
+
+    @Override
+    public void close() {
+        ems.forEach(EntityManager::close);
+    }
+
+    private Collection<RelatorioDeVendasVo> somarPorProduto(List<List<RelatorioDeVendasVo>> parciais) {
+        Map<Long, RelatorioDeVendasVo> porProduto = new LinkedHashMap<>();
+        for (List<RelatorioDeVendasVo> parcial : parciais) {
+            for (RelatorioDeVendasVo linha : parcial) {
+                porProduto.merge(linha.getIdProduto(), linha, RelatorioDeVendasVo::somar);
+            }
+        }
+        return porProduto.values();
+    }
+}
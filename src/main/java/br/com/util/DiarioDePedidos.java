@@ -0,0 +1,246 @@
+package br.com.util;
+
+import br.com.exception.DataAccessException;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Diário local, somente de acréscimo (append-only), dos pedidos aceitos pela fila de entrada.
+// Cada pedido é gravado e sincronizado em disco (fsync) antes de o ticket ser devolvido ao chamador;
+// quando o pedido é confirmado no banco, uma linha de gravação é acrescentada. Ao reiniciar, os pedidos
+// sem confirmação são devolvidos para serem reprocessados (entrega "pelo menos uma vez").
+//
+// Formato (uma linha por evento):
+//   P|ticket|idCliente|data|idProduto:quantidade:preco,idProduto:quantidade:preco...
+//   G|ticket|idPedido   (pedido gravado no banco)
+//   D|ticket            (pedido descartado: recusado pela fila ou inválido)
+public class DiarioDePedidos implements AutoCloseable {
+
+    // Um pedido aceito pela fila, no formato em que é gravado no diário.
+    public static class Registro {
+        private final long ticket;
+        private final long idCliente;
+        private final LocalDate data;
+        private final List<Item> itens;
+
+        public Registro(long ticket, long idCliente, LocalDate data, List<Item> itens) {
+            this.ticket = ticket;
+            this.idCliente = idCliente;
+            this.data = data;
+            this.itens = itens;
+        }
+
+        public long getTicket() {
+            return ticket;
+        }
+
+        public long getIdCliente() {
+            return idCliente;
+        }
+
+        public LocalDate getData() {
+            return data;
+        }
+
+        public List<Item> getItens() {
+            return itens;
+        }
+
+        String paraLinha() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("P|").append(ticket).append('|').append(idCliente).append('|').append(data).append('|');
+            for (int i = 0; i < itens.size(); i++) {
+                Item item = itens.get(i);
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(item.idProduto).append(':').append(item.quantidade).append(':')
+                        .append(item.precoUnitario.toPlainString());
+            }
+            return sb.append('\n').toString();
+        }
+
+        static Registro deLinha(String[] campos) {
+            List<Item> itens = new ArrayList<>();
+            if (campos.length > 4 && !campos[4].isEmpty()) {
+                for (String item : campos[4].split(",")) {
+                    String[] partes = item.split(":");
+                    itens.add(new Item(Long.parseLong(partes[0]), Integer.parseInt(partes[1]), new BigDecimal(partes[2])));
+                }
+            }
+            return new Registro(Long.parseLong(campos[1]), Long.parseLong(campos[2]), LocalDate.parse(campos[3]), itens);
+        }
+    }
+
+    public static class Item {
+        private final long idProduto;
+        private final int quantidade;
+        private final BigDecimal precoUnitario;
+
+        public Item(long idProduto, int quantidade, BigDecimal precoUnitario) {
+            this.idProduto = idProduto;
+            this.quantidade = quantidade;
+            this.precoUnitario = precoUnitario;
+        }
+
+        public long getIdProduto() {
+            return idProduto;
+        }
+
+        public int getQuantidade() {
+            return quantidade;
+        }
+
+        public BigDecimal getPrecoUnitario() {
+            return precoUnitario;
+        }
+    }
+
+    private final Path arquivo;
+    private final Object travaDeSincronizacao = new Object();
+    private FileChannel canal;
+    private long posicaoEscrita; // Protegida por "this".
+    private long posicaoSincronizada; // Protegida por travaDeSincronizacao.
+    private long ultimoTicket;
+
+    public DiarioDePedidos(Path arquivo) {
+        this.arquivo = arquivo;
+    }
+
+    // Lê o diário existente, devolve os pedidos ainda não confirmados e compacta o arquivo,
+    // reescrevendo-o apenas com esses pedidos. Deve ser chamado uma vez, antes de qualquer gravação.
+    public List<Registro> abrir() {
+        try {
+            Map<Long, Registro> pendentes = new LinkedHashMap<>();
+            if (Files.exists(arquivo)) {
+                String conteudo = new String(Files.readAllBytes(arquivo), StandardCharsets.UTF_8);
+                for (String linha : conteudo.split("\n")) {
+                    lerLinha(linha, pendentes);
+                }
+            }
+
+            Path temporario = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+            try (FileChannel novo = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (Registro registro : pendentes.values()) {
+                    escrever(novo, registro.paraLinha());
+                }
+                novo.force(true);
+            }
+            Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            canal = FileChannel.open(arquivo, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            posicaoEscrita = canal.size();
+            posicaoSincronizada = posicaoEscrita;
+            return new ArrayList<>(pendentes.values());
+        } catch (IOException e) {
+            throw new DataAccessException("Erro ao abrir o diário de pedidos: " + arquivo, e);
+        }
+    }
+
+    public long getUltimoTicket() {
+        return ultimoTicket;
+    }
+
+    // Grava o pedido e só retorna depois que ele está em disco.
+    public void registrarPedido(Registro registro) {
+        sincronizarAte(anexar(registro.paraLinha()));
+    }
+
+    // Marca um lote de pedidos como gravados no banco, com uma única sincronização em disco.
+    public void registrarGravacoes(Map<Long, Long> idsDosPedidosPorTicket) {
+        if (idsDosPedidosPorTicket.isEmpty()) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        idsDosPedidosPorTicket.forEach((ticket, idPedido) -> sb.append("G|").append(ticket).append('|').append(idPedido).append('\n'));
+        sincronizarAte(anexar(sb.toString()));
+    }
+
+    public void registrarDescartes(Collection<Long> tickets) {
+        if (tickets.isEmpty()) {
+            return;
+        }
+        StringBuilder sb = new StringBuilder();
+        tickets.forEach(ticket -> sb.append("D|").append(ticket).append('\n'));
+        sincronizarAte(anexar(sb.toString()));
+    }
+
+    @Override
+    public void close() {
+        try {
+            if (canal != null) {
+                canal.force(true);
+                canal.close();
+            }
+        } catch (IOException e) {
+            throw new DataAccessException("Erro ao fechar o diário de pedidos: " + arquivo, e);
+        }
+    }
+
+    private synchronized long anexar(String linhas) {
+        try {
+            posicaoEscrita += escrever(canal, linhas);
+            return posicaoEscrita;
+        } catch (IOException e) {
+            throw new DataAccessException("Erro ao gravar no diário de pedidos: " + arquivo, e);
+        }
+    }
+
+    // Sincronização em grupo: quem chega enquanto outro thread executa o fsync espera e, na maioria das vezes,
+    // descobre que a sua linha já foi coberta por aquele fsync, sem precisar fazer outro.
+    private void sincronizarAte(long posicao) {
+        synchronized (travaDeSincronizacao) {
+            if (posicaoSincronizada >= posicao) {
+                return;
+            }
+            long alvo;
+            synchronized (this) {
+                alvo = posicaoEscrita;
+            }
+            try {
+                canal.force(false);
+            } catch (IOException e) {
+                throw new DataAccessException("Erro ao sincronizar o diário de pedidos: " + arquivo, e);
+            }
+            posicaoSincronizada = alvo;
+        }
+    }
+
+    private void lerLinha(String linha, Map<Long, Registro> pendentes) {
+        String[] campos = linha.split("\\|");
+        try {
+            long ticket = Long.parseLong(campos[1]);
+            ultimoTicket = Math.max(ultimoTicket, ticket);
+            switch (campos[0]) {
+                case "P" -> pendentes.put(ticket, Registro.deLinha(campos));
+                case "G", "D" -> pendentes.remove(ticket);
+                default -> { }
+            }
+        } catch (RuntimeException e) {
+            // Linha incompleta (ex.: queda durante a escrita da última linha): é ignorada.
+        }
+    }
+
+    private static int escrever(FileChannel canal, String texto) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(texto.getBytes(StandardCharsets.UTF_8));
+        int total = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            canal.write(buffer);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,36 @@
+package br.com.util;
+
+import br.com.vo.EstatisticasDoCacheDePlanosVo;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.query.spi.QueryEngine;
+import org.hibernate.stat.Statistics;
+
+// Acesso às estatísticas do Hibernate sobre o cache de planos de consulta, usadas para dimensionar
+// hibernate.query.plan_cache_max_size (persistence.xml).
+public class EstatisticasDeConsultas {
+
+	// As estatísticas ficam desligadas por padrão (ver JPAUtil.ESTATISTICAS); também podem ser ligadas sob demanda.
+	public static void ativar(EntityManagerFactory emf) {
+		estatisticas(emf).setStatisticsEnabled(true);
+	}
+
+	public static void zerar(EntityManagerFactory emf) {
+		estatisticas(emf).clear();
+	}
+
+	public static EstatisticasDoCacheDePlanosVo cacheDePlanos(EntityManagerFactory emf) {
+		Statistics estatisticas = estatisticas(emf);
+		Object tamanhoMaximo = emf.getProperties().get(AvailableSettings.QUERY_PLAN_CACHE_MAX_SIZE);
+		return new EstatisticasDoCacheDePlanosVo(
+				estatisticas.getQueryPlanCacheHitCount(),
+				estatisticas.getQueryPlanCacheMissCount(),
+				estatisticas.getQueries().length,
+				tamanhoMaximo == null ? QueryEngine.DEFAULT_QUERY_PLAN_MAX_COUNT : Integer.parseInt(tamanhoMaximo.toString()));
+	}
+
+	private static Statistics estatisticas(EntityManagerFactory emf) {
+		return emf.unwrap(SessionFactory.class).getStatistics();
+	}
+}
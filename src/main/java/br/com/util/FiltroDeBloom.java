@@ -0,0 +1,103 @@
+package br.com.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/* Filtro de Bloom para textos: responde "com certeza não existe" ou "talvez exista", sem guardar os textos.
+   - Cada texto liga "funcoes" bits de um vetor de "bits" posições, calculadas por hash duplo (h1 + i * h2).
+   - Tamanho e número de funções saem da quantidade esperada de elementos e da taxa de falsos positivos desejada.
+   - Thread-safe: os bits ficam num AtomicLongArray e são ligados com compareAndSet, sem travas. Não há remoção. */
+public class FiltroDeBloom {
+
+	private final AtomicLongArray palavras;
+	private final long mascara;
+	private final int funcoes;
+	private final AtomicLong bitsLigados = new AtomicLong();
+	private final AtomicLong elementos = new AtomicLong();
+
+	public FiltroDeBloom(long elementosEsperados, double taxaDeFalsosPositivos) {
+		long n = Math.max(1, elementosEsperados);
+		// m = -n ln(p) / (ln 2)^2, arredondado para a potência de 2 seguinte (índice por máscara).
+		double ideal = -n * Math.log(taxaDeFalsosPositivos) / (Math.log(2) * Math.log(2));
+		long bits = Math.max(64, Long.highestOneBit((long) Math.ceil(ideal) - 1) << 1);
+		this.palavras = new AtomicLongArray(Math.toIntExact(bits / 64));
+		this.mascara = bits - 1;
+		// k = (m / n) ln 2
+		this.funcoes = (int) Math.max(1, Math.min(16, Math.round((double) bits / n * Math.log(2))));
+	}
+
+	public void adicionar(String texto) {
+		long h1 = hash(texto);
+		long h2 = misturar(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+		for (int i = 0; i < funcoes; i++) {
+			ligar((h1 + i * h2) & mascara);
+		}
+		elementos.incrementAndGet();
+	}
+
+	// false: o texto certamente nunca foi adicionado. true: talvez tenha sido (ou é um falso positivo).
+	public boolean talvezContenha(String texto) {
+		long h1 = hash(texto);
+		long h2 = misturar(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+		for (int i = 0; i < funcoes; i++) {
+			long bit = (h1 + i * h2) & mascara;
+			if ((palavras.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/* Taxa de falsos positivos esperada no estado atual: a chance de todos os bits de um texto novo já estarem
+	   ligados, (bits ligados / bits) ^ funções. Cresce à medida que o filtro enche além do previsto. */
+	public double getTaxaDeFalsosPositivosEstimada() {
+		return Math.pow((double) bitsLigados.get() / getBits(), funcoes);
+	}
+
+	public long getBits() {
+		return mascara + 1;
+	}
+
+	public int getFuncoes() {
+		return funcoes;
+	}
+
+	public long getElementos() {
+		return elementos.get();
+	}
+
+	private void ligar(long bit) {
+		int indice = (int) (bit >>> 6);
+		long marca = 1L << bit;
+		while (true) {
+			long atual = palavras.get(indice);
+			if ((atual & marca) != 0) {
+				return;
+			}
+			if (palavras.compareAndSet(indice, atual, atual | marca)) {
+				bitsLigados.incrementAndGet();
+				return;
+			}
+		}
+	}
+
+	// FNV-1a de 64 bits sobre os bytes UTF-8, seguido de uma mistura final para espalhar os bits.
+	private static long hash(String texto) {
+		long h = 0xcbf29ce484222325L;
+		for (byte b : texto.getBytes(StandardCharsets.UTF_8)) {
+			h ^= b & 0xff;
+			h *= 0x100000001b3L;
+		}
+		return misturar(h);
+	}
+
+	private static long misturar(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
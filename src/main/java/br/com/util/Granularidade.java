@@ -0,0 +1,49 @@
+package br.com.util;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+
+// Tamanho dos intervalos de uma série temporal. As semanas seguem a ISO-8601 (começam na segunda-feira).
+public enum Granularidade {
+
+    DIA {
+        @Override
+        public LocalDate inicioDoIntervalo(LocalDate data) {
+            return data;
+        }
+
+        @Override
+        public LocalDate proximoIntervalo(LocalDate inicio) {
+            return inicio.plusDays(1);
+        }
+    },
+    SEMANA {
+        @Override
+        public LocalDate inicioDoIntervalo(LocalDate data) {
+            return data.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+
+        @Override
+        public LocalDate proximoIntervalo(LocalDate inicio) {
+            return inicio.plusWeeks(1);
+        }
+    },
+    MES {
+        @Override
+        public LocalDate inicioDoIntervalo(LocalDate data) {
+            return data.withDayOfMonth(1);
+        }
+
+        @Override
+        public LocalDate proximoIntervalo(LocalDate inicio) {
+            return inicio.plusMonths(1);
+        }
+    };
+
+    // Primeiro dia do intervalo que contém a data informada.
+    public abstract LocalDate inicioDoIntervalo(LocalDate data);
+
+    // Primeiro dia do intervalo seguinte, a partir do início de um intervalo.
+    public abstract LocalDate proximoIntervalo(LocalDate inicio);
+}
@@ -0,0 +1,76 @@
+package br.com.util;
+
+// Histograma de latências com faixas logarítmicas: cada potência de 2 é dividida em 32 subfaixas, o que limita o erro
+// relativo dos percentis a cerca de 3% usando um vetor fixo de contadores, independente da quantidade de amostras.
+// Não é thread-safe: cada thread registra no seu próprio histograma e os resultados são unidos com mesclar().
+public class HistogramaDeLatencia {
+
+	private static final int BITS_DE_PRECISAO = 6;
+	private static final int METADE = 1 << (BITS_DE_PRECISAO - 1);
+
+	private final long[] contagens = new long[(64 - BITS_DE_PRECISAO + 2) * METADE];
+	private long total;
+	private long soma;
+	private long maximo;
+
+	public void registrar(long nanos) {
+		long valor = Math.max(0, nanos);
+		contagens[indice(valor)]++;
+		total++;
+		soma += valor;
+		maximo = Math.max(maximo, valor);
+	}
+
+	public void mesclar(HistogramaDeLatencia outro) {
+		for (int i = 0; i < contagens.length; i++) {
+			contagens[i] += outro.contagens[i];
+		}
+		total += outro.total;
+		soma += outro.soma;
+		maximo = Math.max(maximo, outro.maximo);
+	}
+
+	// Valor (em nanossegundos) abaixo do qual está a fração p das amostras, ex.: percentil(0.99).
+	public long percentil(double p) {
+		if (total == 0) {
+			return 0;
+		}
+		long alvo = Math.max(1, (long) Math.ceil(p * total));
+		long acumulado = 0;
+		for (int i = 0; i < contagens.length; i++) {
+			acumulado += contagens[i];
+			if (acumulado >= alvo) {
+				return Math.min(limiteSuperior(i), maximo);
+			}
+		}
+		return maximo;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	public long getMaximo() {
+		return maximo;
+	}
+
+	public double getMedia() {
+		return total == 0 ? 0 : (double) soma / total;
+	}
+
+	// Valores pequenos têm faixa própria; acima disso, o deslocamento escolhe a potência de 2 e os bits
+	// seguintes escolhem a subfaixa.
+	private static int indice(long valor) {
+		int deslocamento = Math.max(0, 63 - Long.numberOfLeadingZeros(valor) - (BITS_DE_PRECISAO - 1));
+		return deslocamento * METADE + (int) (valor >>> deslocamento);
+	}
+
+	private static long limiteSuperior(int indice) {
+		if (indice < 2 * METADE) {
+			return indice;
+		}
+		int deslocamento = indice / METADE - 1;
+		long mantissa = indice - (long) deslocamento * METADE;
+		return ((mantissa + 1) << deslocamento) - 1;
+	}
+}
@@ -0,0 +1,101 @@
+package br.com.util;
+
+import java.util.Arrays;
+
+/* HyperLogLog: estimativa da quantidade de valores distintos (ex.: clientes de um dia) em memória fixa.
+   - O hash de cada valor escolhe um dos 2^precisao registradores pelos bits altos; o registrador guarda o maior
+     "posto" visto (posição do primeiro bit 1 no restante do hash). A média harmônica dos registradores dá a estimativa.
+   - Erro padrão relativo de 1,04 / sqrt(2^precisao): com precisão 12 (4096 registradores, 4 KB), cerca de 1,6%.
+   - Dois esboços de mesma precisão se unem pelo máximo de cada registrador: o resultado é o esboço da união,
+     o que permite somar dias em períodos sem reler os dados.
+   - Não é thread-safe: quem o compartilha sincroniza o acesso. Não há remoção. */
+public class HyperLogLog {
+
+	private final int precisao;
+	private final byte[] registradores;
+
+	public HyperLogLog(int precisao) {
+		if (precisao < 4 || precisao > 16) {
+			throw new IllegalArgumentException("A precisão do HyperLogLog deve estar entre 4 e 16: " + precisao);
+		}
+		this.precisao = precisao;
+		this.registradores = new byte[1 << precisao];
+	}
+
+	// Recria o esboço a partir de paraBytes(); a precisão vem do tamanho.
+	public static HyperLogLog deBytes(byte[] bytes) {
+		HyperLogLog esboco = new HyperLogLog(Integer.numberOfTrailingZeros(bytes.length));
+		if (esboco.registradores.length != bytes.length) {
+			throw new IllegalArgumentException("Tamanho inválido para um HyperLogLog: " + bytes.length);
+		}
+		System.arraycopy(bytes, 0, esboco.registradores, 0, bytes.length);
+		return esboco;
+	}
+
+	public void adicionar(long valor) {
+		long h = misturar(valor + 0x9E3779B97F4A7C15L);
+		int indice = (int) (h >>> (64 - precisao));
+		// Bit de guarda: o posto nunca passa de 64 - precisao + 1.
+		long resto = (h << precisao) | (1L << (precisao - 1));
+		byte posto = (byte) (Long.numberOfLeadingZeros(resto) + 1);
+		if (posto > registradores[indice]) {
+			registradores[indice] = posto;
+		}
+	}
+
+	public void unir(HyperLogLog outro) {
+		if (outro.precisao != precisao) {
+			throw new IllegalArgumentException("Esboços de precisões diferentes: " + precisao + " e " + outro.precisao);
+		}
+		for (int i = 0; i < registradores.length; i++) {
+			if (outro.registradores[i] > registradores[i]) {
+				registradores[i] = outro.registradores[i];
+			}
+		}
+	}
+
+	/* E = alfa * m^2 / soma(2^-registrador). Para cardinalidades pequenas (E <= 2,5 m com registradores vazios),
+	   a contagem linear m * ln(m / vazios) é mais precisa. */
+	public long estimar() {
+		int m = registradores.length;
+		double soma = 0;
+		int vazios = 0;
+		for (byte registrador : registradores) {
+			soma += Math.scalb(1.0, -registrador);
+			if (registrador == 0) {
+				vazios++;
+			}
+		}
+		double alfa = 0.7213 / (1 + 1.079 / m);
+		double estimativa = alfa * m * m / soma;
+		if (estimativa <= 2.5 * m && vazios > 0) {
+			estimativa = m * Math.log((double) m / vazios);
+		}
+		return Math.round(estimativa);
+	}
+
+	public double getErroPadrao() {
+		return 1.04 / Math.sqrt(registradores.length);
+	}
+
+	public int getPrecisao() {
+		return precisao;
+	}
+
+	public HyperLogLog copia() {
+		return deBytes(registradores);
+	}
+
+	public byte[] paraBytes() {
+		return Arrays.copyOf(registradores, registradores.length);
+	}
+
+	static long misturar(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+}
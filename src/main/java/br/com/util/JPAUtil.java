@@ -5,19 +5,141 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.Persistence;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
 // Classe utilitária para gerenciar a criação de EntityManager, usada para operações com o banco de dados.
 public class JPAUtil {
 
-	// Criação de uma única instância de EntityManagerFactory para gerenciar a conexão com o banco.
-	// O "PostgresPU" deve corresponder ao nome da unidade de persistência definida no arquivo persistence.xml.
-	private static final EntityManagerFactory FACTORY = Persistence
-			.createEntityManagerFactory("PostgresPU");
+	// Unidade de persistência padrão; pode ser trocada com -Dvendas.unidade=H2PU, por exemplo.
+	// O nome deve corresponder a uma unidade de persistência definida no arquivo persistence.xml.
+	private static final String UNIDADE = System.getProperty("vendas.unidade", "PostgresPU");
+
+	// Perfil de inicialização rápida (-Dvendas.inicializacao=rapida): o esquema é apenas validado
+	// (hbm2ddl=validate) em vez de inspecionado e atualizado a cada partida.
+	private static final boolean INICIALIZACAO_RAPIDA = "rapida".equals(System.getProperty("vendas.inicializacao"));
+
+	// Com -Dvendas.estatisticas=true o Hibernate coleta estatísticas (ex.: cache de planos de consulta, ver
+	// EstatisticasDeConsultas). Ficam desligadas por padrão, pois têm custo em todas as operações.
+	public static final boolean ESTATISTICAS = Boolean.getBoolean("vendas.estatisticas");
+
+	// Com -Dvendas.replica.atraso=<segundos>, as leituras do Main vão para a réplica somente leitura
+	// (PostgresReplicaPU). O valor é o atraso máximo da replicação: nesse intervalo depois de uma escrita,
+	// as leituras continuam no primário (ver RoteadorDeLeitura). Sem a propriedade, não há réplica.
+	private static final Long ATRASO_DA_REPLICA = Long.getLong("vendas.replica.atraso");
+
+	// Uma única instância de EntityManagerFactory para gerenciar a conexão com o banco. Ela não é mais criada
+	// no carregamento da classe: é montada uma vez, no primeiro uso ou em segundo plano (iniciarEmSegundoPlano).
+	private static CompletableFuture<EntityManagerFactory> factory;
+
+	// Começa a montar o EntityManagerFactory em outro thread e retorna imediatamente, para que a aplicação
+	// (ex.: o menu do Main) apareça enquanto o Hibernate inicializa.
+	public static synchronized void iniciarEmSegundoPlano() {
+		if (factory == null) {
+			factory = new CompletableFuture<>();
+			Thread inicializador = new Thread(() -> {
+				try {
+					factory.complete(criarFactory());
+				} catch (Throwable e) {
+					factory.completeExceptionally(e);
+				}
+			}, "inicializador-jpa");
+			inicializador.setDaemon(true);
+			inicializador.start();
+		}
+	}
+
+	// Retorna o EntityManagerFactory, esperando pela inicialização em andamento ou montando-o agora.
+	public static EntityManagerFactory getEntityManagerFactory() {
+		CompletableFuture<EntityManagerFactory> atual;
+		synchronized (JPAUtil.class) {
+			if (factory == null) {
+				factory = CompletableFuture.completedFuture(criarFactory());
+			}
+			atual = factory;
+		}
+		return atual.join();
+	}
 
 	// Metodo para obter um EntityManager, cada chamada cria uma nova instância de EntityManager
 	// a partir do EntityManagerFactory.
 	public static EntityManager getEntityManager() {
 
-		return FACTORY.createEntityManager();
+		return getEntityManagerFactory().createEntityManager();
+	}
+
+	public static synchronized void fechar() {
+		if (factory != null && factory.isDone() && !factory.isCompletedExceptionally()) {
+			factory.join().close();
+		}
+		factory = null;
+		if (replica != null) {
+			replica.close();
+			replica = null;
+		}
 	}
-	
+
+	// A réplica somente leitura só é conectada no primeiro uso, para não atrasar nem impedir a inicialização
+	// de quem não a utiliza.
+	private static EntityManagerFactory replica;
+
+	// EntityManager da réplica somente leitura, usado para relatórios e consultas (ver RoteadorDeLeitura).
+	public static synchronized EntityManager getEntityManagerDeLeitura() {
+		if (replica == null) {
+			replica = Persistence.createEntityManagerFactory("PostgresReplicaPU", propriedadesDaReplica());
+		}
+		return replica.createEntityManager();
+	}
+
+	// Roteador único das leituras do primário informado: com -Dvendas.replica.atraso, elas vão para a réplica.
+	// Todos os services de uma mesma sessão devem compartilhá-lo, para que uma escrita feita por qualquer um
+	// deles mande as leituras seguintes de todos para o primário.
+	public static RoteadorDeLeitura criarRoteadorDeLeitura(EntityManager primario) {
+		if (ATRASO_DA_REPLICA == null) {
+			return new RoteadorDeLeitura(primario);
+		}
+		return new RoteadorDeLeitura(primario, getEntityManagerDeLeitura(), Duration.ofSeconds(ATRASO_DA_REPLICA));
+	}
+
+	// Cria um EntityManagerFactory a partir de uma unidade do persistence.xml, apontando para outra URL.
+	// Usado quando a mesma configuração precisa ser repetida em vários bancos (ex.: shards).
+	public static EntityManagerFactory criarEntityManagerFactory(String unidade, String url) {
+		Map<String, Object> propriedades = propriedadesDoPerfil();
+		propriedades.put("javax.persistence.jdbc.url", url);
+		return Persistence.createEntityManagerFactory(unidade, propriedades);
+	}
+
+	// O diário de eventos de pedidos e produtos (br.com.evento), ativado com -Dvendas.eventos.diretorio=<dir>, só é
+	// ligado à factory principal: ele tem um único escritor por diretório, e as factories extras (shards) o
+	// disputariam.
+	private static EntityManagerFactory criarFactory() {
+		Map<String, Object> propriedades = propriedadesDoPerfil();
+		if (System.getProperty("vendas.eventos.diretorio") != null) {
+			propriedades.put("vendas.eventos.diretorio", System.getProperty("vendas.eventos.diretorio"));
+		}
+		return Persistence.createEntityManagerFactory(UNIDADE, propriedades);
+	}
+
+	// A réplica só é lida: recebe apenas as estatísticas, sem a validação do esquema do perfil rápido.
+	private static Map<String, Object> propriedadesDaReplica() {
+		Map<String, Object> propriedades = new HashMap<>();
+		if (ESTATISTICAS) {
+			propriedades.put("hibernate.generate_statistics", "true");
+		}
+		return propriedades;
+	}
+
+	private static Map<String, Object> propriedadesDoPerfil() {
+		Map<String, Object> propriedades = new HashMap<>();
+		if (INICIALIZACAO_RAPIDA) {
+			propriedades.put("hibernate.hbm2ddl.auto", "validate");
+		}
+		if (ESTATISTICAS) {
+			propriedades.put("hibernate.generate_statistics", "true");
+		}
+		return propriedades;
+	}
+
 }
@@ -0,0 +1,183 @@
+package br.com.util;
+
+import java.util.Arrays;
+
+// Mapa long -> long com endereçamento aberto (sondagem linear) sobre dois vetores primitivos: sem objetos por
+// entrada (nem Long, nem Map.Entry), ocupa cerca de 16 a 32 bytes por chave e percorre a memória sequencialmente.
+// Não é thread-safe: quem o compartilha entre threads deve protegê-lo (ver TabelaDePrecos).
+public class MapaDeLongs {
+
+	// Marca de posição livre; a chave de mesmo valor, se usada, fica fora dos vetores.
+	private static final long LIVRE = Long.MIN_VALUE;
+
+	private long[] chaves;
+	private long[] valores;
+	private int tamanho;
+	private int limite;
+	private boolean temChaveLivre;
+	private long valorDaChaveLivre;
+
+	public MapaDeLongs() {
+		this(16);
+	}
+
+	public MapaDeLongs(int capacidadeInicial) {
+		int capacidade = Integer.highestOneBit(Math.max(4, capacidadeInicial * 2 - 1)) * 2;
+		alocar(capacidade);
+	}
+
+	public long get(long chave, long padrao) {
+		if (chave == LIVRE) {
+			return temChaveLivre ? valorDaChaveLivre : padrao;
+		}
+		int mascara = chaves.length - 1;
+		for (int i = posicao(chave, mascara); ; i = (i + 1) & mascara) {
+			long atual = chaves[i];
+			if (atual == chave) {
+				return valores[i];
+			}
+			if (atual == LIVRE) {
+				return padrao;
+			}
+		}
+	}
+
+	public boolean contem(long chave) {
+		if (chave == LIVRE) {
+			return temChaveLivre;
+		}
+		int mascara = chaves.length - 1;
+		for (int i = posicao(chave, mascara); ; i = (i + 1) & mascara) {
+			long atual = chaves[i];
+			if (atual == chave) {
+				return true;
+			}
+			if (atual == LIVRE) {
+				return false;
+			}
+		}
+	}
+
+	public void put(long chave, long valor) {
+		if (chave == LIVRE) {
+			if (!temChaveLivre) {
+				tamanho++;
+			}
+			temChaveLivre = true;
+			valorDaChaveLivre = valor;
+			return;
+		}
+		int mascara = chaves.length - 1;
+		for (int i = posicao(chave, mascara); ; i = (i + 1) & mascara) {
+			long atual = chaves[i];
+			if (atual == chave) {
+				valores[i] = valor;
+				return;
+			}
+			if (atual == LIVRE) {
+				chaves[i] = chave;
+				valores[i] = valor;
+				if (++tamanho > limite) {
+					redimensionar();
+				}
+				return;
+			}
+		}
+	}
+
+	// Soma "delta" ao valor da chave (que começa em zero se não existir) e devolve o novo valor.
+	public long somar(long chave, long delta) {
+		long novo = get(chave, 0) + delta;
+		put(chave, novo);
+		return novo;
+	}
+
+	public void remover(long chave) {
+		if (chave == LIVRE) {
+			if (temChaveLivre) {
+				temChaveLivre = false;
+				tamanho--;
+			}
+			return;
+		}
+		int mascara = chaves.length - 1;
+		int i = posicao(chave, mascara);
+		while (chaves[i] != chave) {
+			if (chaves[i] == LIVRE) {
+				return;
+			}
+			i = (i + 1) & mascara;
+		}
+		tamanho--;
+		// Remoção com deslocamento: as chaves seguintes do mesmo agrupamento voltam para ocupar a lacuna,
+		// assim as buscas continuam parando na primeira posição livre (sem marcas de "removido").
+		int lacuna = i;
+		for (int j = (i + 1) & mascara; chaves[j] != LIVRE; j = (j + 1) & mascara) {
+			int ideal = posicao(chaves[j], mascara);
+			if (((j - ideal) & mascara) >= ((j - lacuna) & mascara)) {
+				chaves[lacuna] = chaves[j];
+				valores[lacuna] = valores[j];
+				lacuna = j;
+			}
+		}
+		chaves[lacuna] = LIVRE;
+	}
+
+	public int tamanho() {
+		return tamanho;
+	}
+
+	public void limpar() {
+		Arrays.fill(chaves, LIVRE);
+		temChaveLivre = false;
+		tamanho = 0;
+	}
+
+	// Percorre as entradas sem criar objetos.
+	public void paraCada(ConsumidorDeLongs consumidor) {
+		if (temChaveLivre) {
+			consumidor.aceitar(LIVRE, valorDaChaveLivre);
+		}
+		for (int i = 0; i < chaves.length; i++) {
+			if (chaves[i] != LIVRE) {
+				consumidor.aceitar(chaves[i], valores[i]);
+			}
+		}
+	}
+
+	@FunctionalInterface
+	public interface ConsumidorDeLongs {
+		void aceitar(long chave, long valor);
+	}
+
+	private void alocar(int capacidade) {
+		chaves = new long[capacidade];
+		valores = new long[capacidade];
+		Arrays.fill(chaves, LIVRE);
+		limite = capacidade / 4 * 3;
+	}
+
+	private void redimensionar() {
+		long[] chavesAntigas = chaves;
+		long[] valoresAntigos = valores;
+		alocar(chavesAntigas.length * 2);
+		int mascara = chaves.length - 1;
+		for (int i = 0; i < chavesAntigas.length; i++) {
+			long chave = chavesAntigas[i];
+			if (chave != LIVRE) {
+				int j = posicao(chave, mascara);
+				while (chaves[j] != LIVRE) {
+					j = (j + 1) & mascara;
+				}
+				chaves[j] = chave;
+				valores[j] = valoresAntigos[i];
+			}
+		}
+	}
+
+	// IDs sequenciais ficariam agrupados; a multiplicação espalha os bits antes de aplicar a máscara.
+	private static int posicao(long chave, int mascara) {
+		long h = chave * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32)) & mascara;
+	}
+}
@@ -0,0 +1,65 @@
+package br.com.util;
+
+import jakarta.persistence.EntityManager;
+
+import java.time.Duration;
+
+/* Escolhe o banco de cada operação quando existe uma réplica somente leitura do banco principal.
+   - Escritas sempre vão para o primário.
+   - Leituras vão para a réplica, exceto logo depois de uma escrita feita por este mesmo roteador (a mesma
+     unidade de trabalho): durante a janela de atraso máximo da replicação, a réplica pode ainda não ter
+     recebido a escrita, então a leitura vai para o primário ("read-your-writes").
+   Uma janela zero desliga o read-your-writes: toda leitura vai para a réplica (exceto dentro de uma
+   UnidadeDeTrabalho no primário).
+   O EntityManager da réplica é limpo antes de cada leitura: ele vive tanto quanto o roteador, e o seu cache
+   de primeiro nível devolveria entidades lidas antes das escritas replicadas desde então. */
+public class RoteadorDeLeitura implements AutoCloseable {
+
+    private final EntityManager primario;
+    private final EntityManager replica;
+    private final long atrasoMaximoDaReplicaEmNanos;
+    private volatile long instanteDaUltimaEscrita;
+    private volatile boolean houveEscrita;
+
+    // Sem réplica: leituras e escritas usam o mesmo EntityManager.
+    public RoteadorDeLeitura(EntityManager em) {
+        this(em, em, Duration.ZERO);
+    }
+
+    public RoteadorDeLeitura(EntityManager primario, EntityManager replica, Duration atrasoMaximoDaReplica) {
+        this.primario = primario;
+        this.replica = replica;
+        this.atrasoMaximoDaReplicaEmNanos = atrasoMaximoDaReplica.toNanos();
+    }
+
+    public EntityManager paraEscrita() {
+        return primario;
+    }
+
+    public EntityManager paraLeitura() {
+        // Dentro de uma UnidadeDeTrabalho, as escritas ainda não confirmadas só existem no primário.
+        if (replica != primario && UnidadeDeTrabalho.ativa(primario)) {
+            return primario;
+        }
+        if (houveEscrita && System.nanoTime() - instanteDaUltimaEscrita < atrasoMaximoDaReplicaEmNanos) {
+            return primario;
+        }
+        if (replica != primario && !replica.getTransaction().isActive()) {
+            replica.clear();
+        }
+        return replica;
+    }
+
+    public void registrarEscrita() {
+        instanteDaUltimaEscrita = System.nanoTime();
+        houveEscrita = true;
+    }
+
+    // Fecha o EntityManager da réplica; o primário pertence a quem criou o roteador.
+    @Override
+    public void close() {
+        if (replica != primario && replica.isOpen()) {
+            replica.close();
+        }
+    }
+}
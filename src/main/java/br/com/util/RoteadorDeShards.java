@@ -0,0 +1,119 @@
+package br.com.util;
+
+import br.com.exception.DataAccessException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/* Distribui os pedidos entre várias unidades de persistência (shards).
+   - Pedido e PedidoItem ficam no shard do cliente: idCliente mod N. Assim todos os pedidos de um cliente
+     ficam juntos e as consultas por cliente acessam um único banco.
+   - O catálogo (Categoria, Produto) e os clientes são cadastrados no shard 0 (onde os IDs são gerados) e
+     replicados para os demais com o mesmo ID, para que as chaves estrangeiras existam em todos os bancos.
+   - Os IDs de pedidos e itens são intercalados entre os shards (o shard i gera i+1, i+1+N, i+1+2N...),
+     então o ID do pedido também indica em qual shard ele está, sem colisão entre bancos. */
+public class RoteadorDeShards implements AutoCloseable {
+
+    private static final String[] TABELAS_PARTICIONADAS = {"pedidos", "pedido_itens"};
+
+    private final List<EntityManagerFactory> shards;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public RoteadorDeShards(List<EntityManagerFactory> shards) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("É necessário pelo menos um shard.");
+        }
+        this.shards = List.copyOf(shards);
+    }
+
+    public int quantidadeDeShards() {
+        return shards.size();
+    }
+
+    public List<EntityManagerFactory> getShards() {
+        return shards;
+    }
+
+    // Shard onde o catálogo e os clientes são cadastrados primeiro.
+    public EntityManagerFactory getShardDoCatalogo() {
+        return shards.get(0);
+    }
+
+    public int indiceDoShardDoCliente(long idCliente) {
+        return Math.floorMod(idCliente, shards.size());
+    }
+
+    public int indiceDoShardDoPedido(long idPedido) {
+        return Math.floorMod(idPedido - 1, shards.size());
+    }
+
+    /* Configura as colunas identity das tabelas particionadas para gerar IDs intercalados.
+       Deve ser executado uma vez, depois da criação do esquema e antes do primeiro pedido. Bancos que já
+       têm pedidos continuam funcionando, mas os pedidos antigos não seguem a regra do ID. */
+    public void prepararIdentidades() {
+        for (int i = 0; i < shards.size(); i++) {
+            EntityManager em = shards.get(i).createEntityManager();
+            try {
+                em.getTransaction().begin();
+                for (String tabela : TABELAS_PARTICIONADAS) {
+                    long maiorId = ((Number) em.createNativeQuery("SELECT COALESCE(MAX(id), 0) FROM " + tabela)
+                            .getSingleResult()).longValue();
+                    long proximoId = proximoIdDoShard(maiorId, i);
+                    em.createNativeQuery("ALTER TABLE " + tabela + " ALTER COLUMN id SET INCREMENT BY " + shards.size())
+                            .executeUpdate();
+                    em.createNativeQuery("ALTER TABLE " + tabela + " ALTER COLUMN id RESTART WITH " + proximoId)
+                            .executeUpdate();
+                }
+                em.getTransaction().commit();
+            } catch (Exception e) {
+                if (em.getTransaction().isActive()) {
+                    em.getTransaction().rollback();
+                }
+                throw new DataAccessException("Erro ao preparar as identidades do shard " + i, e);
+            } finally {
+                em.close();
+            }
+        }
+    }
+
+    // Executa a mesma operação em todos os alvos (um por shard) em paralelo e devolve os resultados na ordem dos alvos.
+    public <T, R> List<R> emParalelo(List<T> alvos, Function<T, R> operacao) {
+        List<Future<R>> futuros = new ArrayList<>(alvos.size());
+        for (T alvo : alvos) {
+            futuros.add(executor.submit(() -> operacao.apply(alvo)));
+        }
+        List<R> resultados = new ArrayList<>(alvos.size());
+        try {
+            for (Future<R> futuro : futuros) {
+                resultados.add(futuro.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Consulta distribuída interrompida", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof DataAccessException dae) {
+                throw dae;
+            }
+            throw new DataAccessException("Erro na consulta distribuída", e.getCause());
+        }
+        return resultados;
+    }
+
+    @Override
+    public void close() {
+        executor.close();
+    }
+
+    private long proximoIdDoShard(long maiorId, int indice) {
+        int n = shards.size();
+        long proximo = maiorId + 1;
+        return proximo + Math.floorMod(indice - (proximo - 1), n);
+    }
+}
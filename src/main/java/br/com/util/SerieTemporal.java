@@ -0,0 +1,98 @@
+package br.com.util;
+
+import br.com.vo.SerieDeVendasVo;
+import br.com.vo.VendaDiariaVo;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Agrupa os totais diários vindos do banco em intervalos (dia, semana ou mês), preenchendo com zero
+// os intervalos sem vendas. O agrupamento é feito à medida que o Stream é consumido: em nenhum momento
+// a série inteira fica em memória, apenas o intervalo corrente.
+public class SerieTemporal {
+
+    private SerieTemporal() {
+    }
+
+    // Os totais diários devem chegar ordenados por data (e por categoria antes da data, quando detalhados).
+    // Na série por categoria, cada categoria presente nos dados recebe a sua própria sequência completa de intervalos.
+    public static Stream<SerieDeVendasVo> agrupar(Stream<VendaDiariaVo> dias, Granularidade granularidade,
+                                                  LocalDate dataIni, LocalDate dataFim, boolean porCategoria) {
+        Iterator<SerieDeVendasVo> intervalos =
+                new Agrupador(dias.iterator(), granularidade, dataIni, dataFim, porCategoria);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(intervalos, Spliterator.ORDERED), false)
+                .onClose(dias::close);
+    }
+
+    private static class Agrupador implements Iterator<SerieDeVendasVo> {
+
+        private final Iterator<VendaDiariaVo> dias;
+        private final Granularidade granularidade;
+        private final LocalDate primeiroIntervalo;
+        private final LocalDate ultimoIntervalo;
+
+        private VendaDiariaVo pendente; // Próximo total diário ainda não consumido.
+        private LocalDate intervaloAtual; // Nulo quando a sequência de intervalos do grupo atual terminou.
+        private Long idCategoria;
+        private String nomeCategoria;
+
+        Agrupador(Iterator<VendaDiariaVo> dias, Granularidade granularidade, LocalDate dataIni, LocalDate dataFim,
+                  boolean porCategoria) {
+            this.dias = dias;
+            this.granularidade = granularidade;
+            this.primeiroIntervalo = granularidade.inicioDoIntervalo(dataIni);
+            this.ultimoIntervalo = granularidade.inicioDoIntervalo(dataFim);
+            this.pendente = dias.hasNext() ? dias.next() : null;
+            if (!porCategoria) {
+                // Sem detalhamento há um único grupo, que existe mesmo que não haja venda no período.
+                this.intervaloAtual = primeiroIntervalo;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return intervaloAtual != null || pendente != null;
+        }
+
+        @Override
+        public SerieDeVendasVo next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (intervaloAtual == null) {
+                // Começa a sequência de intervalos da próxima categoria.
+                intervaloAtual = primeiroIntervalo;
+                idCategoria = pendente.getIdCategoria();
+                nomeCategoria = pendente.getNomeCategoria();
+            }
+
+            BigDecimal faturamento = BigDecimal.ZERO;
+            long pedidos = 0;
+            long unidades = 0;
+            while (pendente != null
+                    && Objects.equals(pendente.getIdCategoria(), idCategoria)
+                    && granularidade.inicioDoIntervalo(pendente.getData()).equals(intervaloAtual)) {
+                faturamento = faturamento.add(pendente.getFaturamento());
+                pedidos += pendente.getQuantidadePedidos();
+                unidades += pendente.getUnidadesVendidas();
+                pendente = dias.hasNext() ? dias.next() : null;
+            }
+
+            SerieDeVendasVo intervalo =
+                    new SerieDeVendasVo(intervaloAtual, idCategoria, nomeCategoria, faturamento, pedidos, unidades);
+
+            intervaloAtual = granularidade.proximoIntervalo(intervaloAtual);
+            if (intervaloAtual.isAfter(ultimoIntervalo)) {
+                intervaloAtual = null;
+            }
+            return intervalo;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package br.com.util;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/* Agendadores das tarefas periódicas em segundo plano (gravação do estoque, verificação dos contadores, esboços,
+   arquivamento, expurgo) e das cargas iniciais: um thread daemon com nome próprio por componente.
+   Uma execução que falha é registrada no log, com a pilha completa, e a tarefa continua agendada: sem isso, o
+   ScheduledExecutorService cancelaria as execuções seguintes em silêncio. */
+public final class TarefasPeriodicas {
+
+    private static final System.Logger LOG = System.getLogger(TarefasPeriodicas.class.getName());
+
+    private TarefasPeriodicas() {
+    }
+
+    public static ScheduledExecutorService criarAgendador(String nomeDoThread) {
+        return Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, nomeDoThread);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Envolve a tarefa para o agendador: uma falha é registrada (com a descrição) e a próxima execução acontece normalmente.
+    // Serve também para as tarefas de execução única (execute), cuja falha, sem isso, só apareceria no Future.
+    public static Runnable registrandoFalhas(String descricao, Runnable tarefa) {
+        return () -> {
+            try {
+                tarefa.run();
+            } catch (RuntimeException e) {
+                LOG.log(System.Logger.Level.WARNING, "Falha na tarefa em segundo plano: " + descricao, e);
+            }
+        };
+    }
+
+    // Para o agendador e espera até 10 s pela execução em andamento; "interromper" a avisa por interrupção
+    // (tarefas longas, em lotes, que verificam o interrupt entre um lote e outro).
+    public static void encerrar(ScheduledExecutorService agendador, boolean interromper) {
+        if (agendador == null) {
+            return;
+        }
+        if (interromper) {
+            agendador.shutdownNow();
+        } else {
+            agendador.shutdown();
+        }
+        try {
+            agendador.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
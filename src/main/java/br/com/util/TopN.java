@@ -0,0 +1,60 @@
+package br.com.util;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+// Mantém em memória apenas os N maiores elementos vistos até o momento, segundo um comparador.
+// Internamente é um heap de mínimo limitado a N elementos: a raiz é sempre o "pior" do ranking,
+// então cada novo elemento custa O(log N) e a memória não cresce com o volume de dados.
+// Útil para mesclar resultados parciais (ex.: relatórios vindos de consultas diferentes).
+public class TopN<T> {
+
+    private final int limite;
+    private final Comparator<? super T> comparador;
+    private final PriorityQueue<T> heap;
+
+    public TopN(int limite, Comparator<? super T> comparador) {
+        if (limite <= 0) {
+            throw new IllegalArgumentException("O limite do ranking deve ser maior que zero: " + limite);
+        }
+        this.limite = limite;
+        this.comparador = comparador;
+        this.heap = new PriorityQueue<>(limite, comparador);
+    }
+
+    public void adicionar(T elemento) {
+        if (heap.size() < limite) {
+            heap.add(elemento);
+        } else if (comparador.compare(elemento, heap.peek()) > 0) {
+            // O novo elemento é melhor que o pior do ranking: substitui a raiz.
+            heap.poll();
+            heap.add(elemento);
+        }
+    }
+
+    public void adicionarTodos(Iterable<? extends T> elementos) {
+        for (T elemento : elementos) {
+            adicionar(elemento);
+        }
+    }
+
+    // Retorna o ranking em ordem decrescente (o maior primeiro).
+    public List<T> resultado() {
+        List<T> resultado = new ArrayList<>(heap);
+        resultado.sort(comparador.reversed());
+        return resultado;
+    }
+
+    // Mescla vários resultados parciais em um único ranking com os N maiores.
+    public static <T> List<T> mesclar(int limite, Comparator<? super T> comparador,
+                                      Collection<? extends Collection<? extends T>> parciais) {
+        TopN<T> topN = new TopN<>(limite, comparador);
+        for (Collection<? extends T> parcial : parciais) {
+            topN.adicionarTodos(parcial);
+        }
+        return topN.resultado();
+    }
+}
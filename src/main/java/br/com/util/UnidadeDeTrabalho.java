@@ -0,0 +1,100 @@
+package br.com.util;
+
+import br.com.exception.DataAccessException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityTransaction;
+import jakarta.transaction.Status;
+import jakarta.transaction.Synchronization;
+import org.hibernate.Session;
+
+import java.util.function.Supplier;
+
+/* Agrupa várias operações de DAOs e services sobre o mesmo EntityManager em uma única transação:
+     UnidadeDeTrabalho.executar(em, () -> {
+         pedidoService.inserir(pedido);
+         produtoService.alterar(produto);
+     });
+   - Os DAOs executam cada operação por aqui: sem transação ativa, a operação tem a sua própria (begin/commit,
+     como antes); dentro de uma unidade de trabalho, ela só entra na transação de fora, que é confirmada uma vez
+     no final. Uma unidade de trabalho dentro de outra também só entra na de fora.
+   - Cada operação aninhada termina com um flush: as consultas seguintes (inclusive as nativas e as que não
+     disparam o flush automático) já veem o que foi gravado, e um erro de restrição aparece na operação que o
+     causou. Uma falha aninhada marca a transação para ser desfeita, mesmo que a exceção seja tratada no meio.
+   - Desfeita a unidade, o EntityManager é limpo (clear): as entidades gerenciadas guardariam o estado que não foi
+     gravado (IDs gerados, alterações) e um próximo flush tentaria gravá-lo fora da unidade.
+   - Efeitos fora do banco (contadores em memória, estoque, caches) devem ser aplicados com aoConcluir/aposCommit,
+     para que só valham se a transação for confirmada. */
+public final class UnidadeDeTrabalho {
+
+    private UnidadeDeTrabalho() {
+    }
+
+    public static void executar(EntityManager em, Runnable trabalho) {
+        executar(em, () -> {
+            trabalho.run();
+            return null;
+        });
+    }
+
+    public static <T> T executar(EntityManager em, Supplier<T> trabalho) {
+        EntityTransaction transacao = em.getTransaction();
+        if (transacao.isActive()) {
+            try {
+                T resultado = trabalho.get();
+                em.flush();
+                return resultado;
+            } catch (RuntimeException e) {
+                if (transacao.isActive()) {
+                    transacao.setRollbackOnly();
+                }
+                throw e;
+            }
+        }
+        transacao.begin();
+        try {
+            T resultado = trabalho.get();
+            if (transacao.getRollbackOnly()) {
+                throw new DataAccessException("Unidade de trabalho desfeita: uma das operações falhou", null);
+            }
+            transacao.commit();
+            return resultado;
+        } catch (RuntimeException e) {
+            if (transacao.isActive()) {
+                transacao.rollback();
+            }
+            em.clear();
+            throw e;
+        }
+    }
+
+    public static boolean ativa(EntityManager em) {
+        return em.getTransaction().isActive();
+    }
+
+    /* Sem transação ativa, aposCommit roda na hora (a operação já foi confirmada pelo próprio DAO). Dentro de uma
+       unidade de trabalho, roda depois do commit; se a transação for desfeita, roda aposRollback (se houver). */
+    public static void aoConcluir(EntityManager em, Runnable aposCommit, Runnable aposRollback) {
+        if (!ativa(em)) {
+            aposCommit.run();
+            return;
+        }
+        em.unwrap(Session.class).getTransaction().registerSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    aposCommit.run();
+                } else if (aposRollback != null) {
+                    aposRollback.run();
+                }
+            }
+        });
+    }
+
+    public static void aposCommit(EntityManager em, Runnable acao) {
+        aoConcluir(em, acao, null);
+    }
+}
@@ -0,0 +1,54 @@
+package br.com.vo;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Alteração de preço de um produto: o preço anterior é nulo no cadastro; o nome é nulo se o produto foi excluído.
+public class AlteracaoDePrecoVo {
+
+    private Long idProduto;
+    private String nomeProduto;
+    private BigDecimal precoAnterior;
+    private BigDecimal precoNovo;
+    private LocalDateTime instante;
+
+    public AlteracaoDePrecoVo(Long idProduto, String nomeProduto, BigDecimal precoAnterior, BigDecimal precoNovo,
+                              LocalDateTime instante) {
+        this.idProduto = idProduto;
+        this.nomeProduto = nomeProduto;
+        this.precoAnterior = precoAnterior;
+        this.precoNovo = precoNovo;
+        this.instante = instante;
+    }
+
+    public Long getIdProduto() {
+        return idProduto;
+    }
+
+    public String getNomeProduto() {
+        return nomeProduto;
+    }
+
+    public BigDecimal getPrecoAnterior() {
+        return precoAnterior;
+    }
+
+    public BigDecimal getPrecoNovo() {
+        return precoNovo;
+    }
+
+    public LocalDateTime getInstante() {
+        return instante;
+    }
+
+    @Override
+    public String toString() {
+        return "AlteracaoDePrecoVo{" +
+                "idProduto=" + idProduto +
+                ", nomeProduto='" + nomeProduto + '\'' +
+                ", precoAnterior=" + precoAnterior +
+                ", precoNovo=" + precoNovo +
+                ", instante=" + instante +
+                '}';
+    }
+}
@@ -0,0 +1,45 @@
+package br.com.vo;
+
+// Fotografia do cache de planos de consulta do Hibernate (consultas já interpretadas e traduzidas para SQL).
+public class EstatisticasDoCacheDePlanosVo {
+
+    private long acertos;
+    private long falhas;
+    private int consultasDistintas;
+    private int tamanhoMaximo;
+
+    public EstatisticasDoCacheDePlanosVo(long acertos, long falhas, int consultasDistintas, int tamanhoMaximo) {
+        this.acertos = acertos;
+        this.falhas = falhas;
+        this.consultasDistintas = consultasDistintas;
+        this.tamanhoMaximo = tamanhoMaximo;
+    }
+
+    public long getAcertos() {
+        return acertos;
+    }
+
+    public long getFalhas() {
+        return falhas;
+    }
+
+    public double getTaxaDeAcerto() {
+        long total = acertos + falhas;
+        return total == 0 ? 0 : (double) acertos / total;
+    }
+
+    public int getConsultasDistintas() {
+        return consultasDistintas;
+    }
+
+    public int getTamanhoMaximo() {
+        return tamanhoMaximo;
+    }
+
+    @Override
+    public String toString() {
+        return "EstatisticasDoCacheDePlanosVo [acertos=" + acertos + ", falhas=" + falhas
+                + ", taxaDeAcerto=" + String.format("%.1f%%", getTaxaDeAcerto() * 100)
+                + ", consultasDistintas=" + consultasDistintas + ", tamanhoMaximo=" + tamanhoMaximo + "]";
+    }
+}
@@ -0,0 +1,63 @@
+package br.com.vo;
+
+// Fotografia do filtro de Bloom dos CPFs e de quantas consultas ao banco ele evitou no cadastro de clientes.
+public class EstatisticasDoFiltroDeCpfsVo {
+
+    private long cpfs;
+    private long bits;
+    private int funcoes;
+    private double taxaDeFalsosPositivosEstimada;
+    private long consultasEvitadas;
+    private long falsosPositivos;
+
+    public EstatisticasDoFiltroDeCpfsVo(long cpfs, long bits, int funcoes, double taxaDeFalsosPositivosEstimada,
+                                        long consultasEvitadas, long falsosPositivos) {
+        this.cpfs = cpfs;
+        this.bits = bits;
+        this.funcoes = funcoes;
+        this.taxaDeFalsosPositivosEstimada = taxaDeFalsosPositivosEstimada;
+        this.consultasEvitadas = consultasEvitadas;
+        this.falsosPositivos = falsosPositivos;
+    }
+
+    public long getCpfs() {
+        return cpfs;
+    }
+
+    public long getBits() {
+        return bits;
+    }
+
+    public int getFuncoes() {
+        return funcoes;
+    }
+
+    // Calculada pela ocupação dos bits do filtro.
+    public double getTaxaDeFalsosPositivosEstimada() {
+        return taxaDeFalsosPositivosEstimada;
+    }
+
+    // CPFs novos que o filtro descartou sem consultar o banco.
+    public long getConsultasEvitadas() {
+        return consultasEvitadas;
+    }
+
+    // CPFs novos que o filtro apontou como "talvez cadastrados", obrigando a consulta ao banco.
+    public long getFalsosPositivos() {
+        return falsosPositivos;
+    }
+
+    // Entre os CPFs novos cadastrados, a fração que o filtro não conseguiu descartar.
+    public double getTaxaDeFalsosPositivosObservada() {
+        long novos = consultasEvitadas + falsosPositivos;
+        return novos == 0 ? 0 : (double) falsosPositivos / novos;
+    }
+
+    @Override
+    public String toString() {
+        return "EstatisticasDoFiltroDeCpfsVo [cpfs=" + cpfs + ", bits=" + bits + ", funcoes=" + funcoes
+                + ", taxaEstimada=" + String.format("%.3f%%", taxaDeFalsosPositivosEstimada * 100)
+                + ", consultasEvitadas=" + consultasEvitadas + ", falsosPositivos=" + falsosPositivos
+                + ", taxaObservada=" + String.format("%.3f%%", getTaxaDeFalsosPositivosObservada() * 100) + "]";
+    }
+}
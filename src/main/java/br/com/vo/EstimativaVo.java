@@ -0,0 +1,54 @@
+package br.com.vo;
+
+// Valor aproximado de um esboço (EsbocosDeVendas) com o intervalo em que o valor real está com a confiança
+// informada. Nas estimativas por produto, idProduto identifica o produto; nas contagens, é nulo.
+public class EstimativaVo {
+
+    private Long idProduto;
+    private long estimativa;
+    private long limiteInferior;
+    private long limiteSuperior;
+    private double confianca;
+
+    public EstimativaVo(long estimativa, long limiteInferior, long limiteSuperior, double confianca) {
+        this(null, estimativa, limiteInferior, limiteSuperior, confianca);
+    }
+
+    public EstimativaVo(Long idProduto, long estimativa, long limiteInferior, long limiteSuperior, double confianca) {
+        this.idProduto = idProduto;
+        this.estimativa = estimativa;
+        this.limiteInferior = limiteInferior;
+        this.limiteSuperior = limiteSuperior;
+        this.confianca = confianca;
+    }
+
+    public Long getIdProduto() {
+        return idProduto;
+    }
+
+    public long getEstimativa() {
+        return estimativa;
+    }
+
+    public long getLimiteInferior() {
+        return limiteInferior;
+    }
+
+    public long getLimiteSuperior() {
+        return limiteSuperior;
+    }
+
+    public double getConfianca() {
+        return confianca;
+    }
+
+    @Override
+    public String toString() {
+        return "EstimativaVo{" +
+                (idProduto != null ? "idProduto=" + idProduto + ", " : "") +
+                "estimativa=" + estimativa +
+                ", intervalo=[" + limiteInferior + ", " + limiteSuperior + "]" +
+                ", confianca=" + String.format("%.0f%%", confianca * 100) +
+                '}';
+    }
+}
@@ -0,0 +1,29 @@
+package br.com.vo;
+
+// Linha de um pedido informada só pelo ID do produto e pela quantidade.
+public class ItemPedidoVo {
+
+    private Long idProduto;
+    private int quantidade;
+
+    public ItemPedidoVo(Long idProduto, int quantidade) {
+        this.idProduto = idProduto;
+        this.quantidade = quantidade;
+    }
+
+    public Long getIdProduto() {
+        return idProduto;
+    }
+
+    public int getQuantidade() {
+        return quantidade;
+    }
+
+    @Override
+    public String toString() {
+        return "ItemPedidoVo{" +
+                "idProduto=" + idProduto +
+                ", quantidade=" + quantidade +
+                '}';
+    }
+}
@@ -0,0 +1,64 @@
+package br.com.vo;
+
+// Fotografia das métricas da fila de entrada de pedidos em um dado momento.
+public class MetricasDaFilaVo {
+
+    private int profundidade;
+    private int capacidade;
+    private long pedidosGravados;
+    private long pedidosComFalha;
+    private long lotesGravados;
+    private int ultimoLote;
+    private int maiorLote;
+
+    public MetricasDaFilaVo(int profundidade, int capacidade, long pedidosGravados, long pedidosComFalha,
+                            long lotesGravados, int ultimoLote, int maiorLote) {
+        this.profundidade = profundidade;
+        this.capacidade = capacidade;
+        this.pedidosGravados = pedidosGravados;
+        this.pedidosComFalha = pedidosComFalha;
+        this.lotesGravados = lotesGravados;
+        this.ultimoLote = ultimoLote;
+        this.maiorLote = maiorLote;
+    }
+
+    public int getProfundidade() {
+        return profundidade;
+    }
+
+    public int getCapacidade() {
+        return capacidade;
+    }
+
+    public long getPedidosGravados() {
+        return pedidosGravados;
+    }
+
+    public long getPedidosComFalha() {
+        return pedidosComFalha;
+    }
+
+    public long getLotesGravados() {
+        return lotesGravados;
+    }
+
+    public double getTamanhoMedioDoLote() {
+        return lotesGravados == 0 ? 0 : (double) pedidosGravados / lotesGravados;
+    }
+
+    public int getUltimoLote() {
+        return ultimoLote;
+    }
+
+    public int getMaiorLote() {
+        return maiorLote;
+    }
+
+    @Override
+    public String toString() {
+        return "MetricasDaFilaVo [profundidade=" + profundidade + "/" + capacidade
+                + ", pedidosGravados=" + pedidosGravados + ", pedidosComFalha=" + pedidosComFalha
+                + ", lotesGravados=" + lotesGravados + ", tamanhoMedioDoLote=" + String.format("%.1f", getTamanhoMedioDoLote())
+                + ", ultimoLote=" + ultimoLote + ", maiorLote=" + maiorLote + "]";
+    }
+}
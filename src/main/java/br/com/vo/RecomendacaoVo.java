@@ -0,0 +1,37 @@
+package br.com.vo;
+
+// Produto comprado junto com outro: em quantos pedidos os dois aparecem e a fração dos pedidos do primeiro
+// que também têm este (confiança).
+public class RecomendacaoVo {
+
+    private Long idProduto;
+    private long pedidosEmComum;
+    private double confianca;
+
+    public RecomendacaoVo(Long idProduto, long pedidosEmComum, double confianca) {
+        this.idProduto = idProduto;
+        this.pedidosEmComum = pedidosEmComum;
+        this.confianca = confianca;
+    }
+
+    public Long getIdProduto() {
+        return idProduto;
+    }
+
+    public long getPedidosEmComum() {
+        return pedidosEmComum;
+    }
+
+    public double getConfianca() {
+        return confianca;
+    }
+
+    @Override
+    public String toString() {
+        return "RecomendacaoVo{" +
+                "idProduto=" + idProduto +
+                ", pedidosEmComum=" + pedidosEmComum +
+                ", confianca=" + String.format("%.2f", confianca) +
+                '}';
+    }
+}
@@ -8,18 +8,54 @@ package br.com.vo;
   expondo apenas os dados necessários.*/
 
 import java.time.LocalDate;
+import java.util.Comparator;
 
 public class RelatorioDeVendasVo {
-	
+
+	// Ordena pela quantidade vendida; usado para montar os rankings (top N).
+	public static final Comparator<RelatorioDeVendasVo> POR_QUANTIDADE_VENDIDA =
+			Comparator.comparing(RelatorioDeVendasVo::getQuantidadeVendida);
+	// Mesma ordem do ORDER BY das consultas: maior quantidade primeiro e, no empate, o menor ID.
+	public static final Comparator<RelatorioDeVendasVo> RANKING = POR_QUANTIDADE_VENDIDA
+			.thenComparing(RelatorioDeVendasVo::getIdProduto, Comparator.reverseOrder());
+
+	private Long idProduto;
 	private String nomeProduto;
 	private Long quantidadeVendida;
 	private LocalDate dataUltimaVenda;
 	
 	public RelatorioDeVendasVo(String nomeProduto, Long quantidadeVendida, LocalDate dataUltimaVenda) {
+		this(null, nomeProduto, quantidadeVendida, dataUltimaVenda);
+	}
+
+	public RelatorioDeVendasVo(Long idProduto, String nomeProduto, Long quantidadeVendida, LocalDate dataUltimaVenda) {
+		this.idProduto = idProduto;
 		this.nomeProduto = nomeProduto;
 		this.quantidadeVendida = quantidadeVendida;
 		this.dataUltimaVenda = dataUltimaVenda;
 	}
+
+	// Soma os resultados parciais do mesmo produto (ex.: vindos de shards diferentes).
+	public RelatorioDeVendasVo somar(RelatorioDeVendasVo outro) {
+		LocalDate ultimaVenda = dataUltimaVenda.isAfter(outro.dataUltimaVenda) ? dataUltimaVenda : outro.dataUltimaVenda;
+		return new RelatorioDeVendasVo(idProduto, nomeProduto, quantidadeVendida + outro.quantidadeVendida, ultimaVenda);
+	}
+
+	public Long getIdProduto() {
+		return idProduto;
+	}
+
+	public String getNomeProduto() {
+		return nomeProduto;
+	}
+
+	public Long getQuantidadeVendida() {
+		return quantidadeVendida;
+	}
+
+	public LocalDate getDataUltimaVenda() {
+		return dataUltimaVenda;
+	}
 	
 	@Override
 	public String toString() {
@@ -8,14 +8,59 @@ package br.com.vo;
   expondo apenas os dados necessários.*/
 
 import java.math.BigDecimal;
+import java.util.Comparator;
 
 public class RelatorioFinanceiroVo {
+
+    // Ordena pelo total comprado; usado para montar os rankings (top N).
+    public static final Comparator<RelatorioFinanceiroVo> POR_TOTAL_DE_PEDIDOS =
+            Comparator.comparing(RelatorioFinanceiroVo::getTotalPedidosDoCliente);
+    // Mesma ordem do ORDER BY das consultas: maior total primeiro e, no empate, o menor ID.
+    public static final Comparator<RelatorioFinanceiroVo> RANKING = POR_TOTAL_DE_PEDIDOS
+            .thenComparing(RelatorioFinanceiroVo::getIdCliente, Comparator.reverseOrder());
+
+    Long idCliente;
     String nomeCliente;
     BigDecimal totalPedidosDoCliente;
+    // Preenchida só pelas consultas que também contam os pedidos (ex.: ContadoresDeVendas); nula nas demais.
+    Long quantidadePedidos;
 
     public RelatorioFinanceiroVo(String nomeCliente, BigDecimal totalPedidosDoCliente) {
+        this(null, nomeCliente, totalPedidosDoCliente);
+    }
+
+    public RelatorioFinanceiroVo(Long idCliente, String nomeCliente, BigDecimal totalPedidosDoCliente) {
+        this(idCliente, nomeCliente, totalPedidosDoCliente, null);
+    }
+
+    public RelatorioFinanceiroVo(Long idCliente, String nomeCliente, BigDecimal totalPedidosDoCliente, Long quantidadePedidos) {
+        this.idCliente = idCliente;
         this.nomeCliente = nomeCliente;
         this.totalPedidosDoCliente = totalPedidosDoCliente;
+        this.quantidadePedidos = quantidadePedidos;
+    }
+
+    // Soma os resultados parciais do mesmo cliente (ex.: pedidos ativos e arquivados).
+    public RelatorioFinanceiroVo somar(RelatorioFinanceiroVo outro) {
+        Long quantidade = quantidadePedidos == null || outro.quantidadePedidos == null
+                ? null : quantidadePedidos + outro.quantidadePedidos;
+        return new RelatorioFinanceiroVo(idCliente, nomeCliente, totalPedidosDoCliente.add(outro.totalPedidosDoCliente), quantidade);
+    }
+
+    public Long getIdCliente() {
+        return idCliente;
+    }
+
+    public String getNomeCliente() {
+        return nomeCliente;
+    }
+
+    public BigDecimal getTotalPedidosDoCliente() {
+        return totalPedidosDoCliente;
+    }
+
+    public Long getQuantidadePedidos() {
+        return quantidadePedidos;
     }
 
     @Override
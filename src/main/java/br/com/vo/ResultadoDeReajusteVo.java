@@ -0,0 +1,38 @@
+package br.com.vo;
+
+import java.time.Duration;
+
+// Resultado de uma alteração de preços em massa (ProdutoService): produtos alterados, lotes gravados e tempo total.
+public class ResultadoDeReajusteVo {
+
+    private int produtosAlterados;
+    private int lotes;
+    private Duration duracao;
+
+    public ResultadoDeReajusteVo(int produtosAlterados, int lotes, Duration duracao) {
+        this.produtosAlterados = produtosAlterados;
+        this.lotes = lotes;
+        this.duracao = duracao;
+    }
+
+    public int getProdutosAlterados() {
+        return produtosAlterados;
+    }
+
+    public int getLotes() {
+        return lotes;
+    }
+
+    public Duration getDuracao() {
+        return duracao;
+    }
+
+    @Override
+    public String toString() {
+        return "ResultadoDeReajusteVo{" +
+                "produtosAlterados=" + produtosAlterados +
+                ", lotes=" + lotes +
+                ", duracao=" + duracao.toMillis() + " ms" +
+                '}';
+    }
+}
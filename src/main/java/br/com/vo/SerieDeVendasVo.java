@@ -0,0 +1,58 @@
+package br.com.vo;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Um ponto da série temporal de vendas: os totais de um intervalo (dia, semana ou mês).
+// Quando a série é detalhada por categoria, idCategoria e nomeCategoria vêm preenchidos.
+public class SerieDeVendasVo {
+
+    private LocalDate inicioDoIntervalo;
+    private Long idCategoria;
+    private String nomeCategoria;
+    private BigDecimal faturamento;
+    private long quantidadePedidos;
+    private long unidadesVendidas;
+
+    public SerieDeVendasVo(LocalDate inicioDoIntervalo, Long idCategoria, String nomeCategoria,
+                           BigDecimal faturamento, long quantidadePedidos, long unidadesVendidas) {
+        this.inicioDoIntervalo = inicioDoIntervalo;
+        this.idCategoria = idCategoria;
+        this.nomeCategoria = nomeCategoria;
+        this.faturamento = faturamento;
+        this.quantidadePedidos = quantidadePedidos;
+        this.unidadesVendidas = unidadesVendidas;
+    }
+
+    public LocalDate getInicioDoIntervalo() {
+        return inicioDoIntervalo;
+    }
+
+    public Long getIdCategoria() {
+        return idCategoria;
+    }
+
+    public String getNomeCategoria() {
+        return nomeCategoria;
+    }
+
+    public BigDecimal getFaturamento() {
+        return faturamento;
+    }
+
+    public long getQuantidadePedidos() {
+        return quantidadePedidos;
+    }
+
+    public long getUnidadesVendidas() {
+        return unidadesVendidas;
+    }
+
+    @Override
+    public String toString() {
+        return "SerieDeVendasVo [inicio=" + inicioDoIntervalo
+                + (nomeCategoria != null ? ", categoria=" + nomeCategoria : "")
+                + ", faturamento=" + faturamento + ", pedidos=" + quantidadePedidos
+                + ", unidades=" + unidadesVendidas + "]";
+    }
+}
@@ -0,0 +1,61 @@
+package br.com.vo;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+// Totais de vendas de um único dia (opcionalmente de uma única categoria), como retornados pelo banco.
+// É a menor granularidade consultada; semanas e meses são montados a partir destes totais.
+public class VendaDiariaVo {
+
+    private LocalDate data;
+    private Long idCategoria;
+    private String nomeCategoria;
+    private BigDecimal faturamento;
+    private long quantidadePedidos;
+    private long unidadesVendidas;
+
+    public VendaDiariaVo(LocalDate data, BigDecimal faturamento, Long quantidadePedidos, Long unidadesVendidas) {
+        this(data, null, null, faturamento, quantidadePedidos, unidadesVendidas);
+    }
+
+    public VendaDiariaVo(LocalDate data, Long idCategoria, String nomeCategoria, BigDecimal faturamento,
+                         Long quantidadePedidos, Long unidadesVendidas) {
+        this.data = data;
+        this.idCategoria = idCategoria;
+        this.nomeCategoria = nomeCategoria;
+        // Pedidos sem itens chegam com as somas nulas (LEFT JOIN).
+        this.faturamento = faturamento != null ? faturamento : BigDecimal.ZERO;
+        this.quantidadePedidos = quantidadePedidos != null ? quantidadePedidos : 0;
+        this.unidadesVendidas = unidadesVendidas != null ? unidadesVendidas : 0;
+    }
+
+    // Soma os totais do mesmo dia (e categoria) vindos de fontes diferentes (ex.: shards, pedidos arquivados).
+    public VendaDiariaVo somar(VendaDiariaVo outro) {
+        return new VendaDiariaVo(data, idCategoria, nomeCategoria, faturamento.add(outro.faturamento),
+                quantidadePedidos + outro.quantidadePedidos, unidadesVendidas + outro.unidadesVendidas);
+    }
+
+    public LocalDate getData() {
+        return data;
+    }
+
+    public Long getIdCategoria() {
+        return idCategoria;
+    }
+
+    public String getNomeCategoria() {
+        return nomeCategoria;
+    }
+
+    public BigDecimal getFaturamento() {
+        return faturamento;
+    }
+
+    public long getQuantidadePedidos() {
+        return quantidadePedidos;
+    }
+
+    public long getUnidadesVendidas() {
+        return unidadesVendidas;
+    }
+}
@@ -0,0 +1,250 @@
+import br.com.dao.ArquivoDao;
+import br.com.dao.PedidoDao;
+import br.com.dao.VendaDAO;
+import br.com.exception.PedidoArquivadoException;
+import br.com.model.*;
+import br.com.service.ArquivamentoDePedidos;
+import br.com.service.PedidoService;
+import br.com.vo.RelatorioDeVendasVo;
+import br.com.vo.RelatorioFinanceiroVo;
+import br.com.vo.VendaDiariaVo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Period;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArquivamentoDePedidosTest {
+    private static final LocalDate HOJE = LocalDate.now();
+    private static final LocalDate ANO_PASSADO = HOJE.minusDays(400);
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private Cliente fran;
+    private Cliente joao;
+    private Produto celular;
+    private Produto capa;
+
+    @BeforeEach
+    public void setup() {
+        emf = Persistence.createEntityManagerFactory("PostgresPU", ContadorDeComandos.propriedades());
+        em = emf.createEntityManager();
+
+        Categoria categoria = new Categoria("CELULARES");
+        fran = new Cliente("Fran", "123456");
+        joao = new Cliente("João", "654321");
+        celular = new Produto("Xiaomi Redmi", "O preferido", new BigDecimal("800.00"), categoria);
+        capa = new Produto("Capa", "Silicone", new BigDecimal("50.00"), categoria);
+        em.getTransaction().begin();
+        em.persist(categoria);
+        em.persist(fran);
+        em.persist(joao);
+        em.persist(celular);
+        em.persist(capa);
+        em.getTransaction().commit();
+
+        PedidoService pedidoService = new PedidoService(em);
+        // Três pedidos antigos (dois em um mesmo dia) e dois recentes.
+        pedidoService.inserir(pedido(fran, ANO_PASSADO, 2, 1));
+        pedidoService.inserir(pedido(joao, ANO_PASSADO, 1, 0));
+        pedidoService.inserir(pedido(fran, ANO_PASSADO.plusDays(1), 0, 4));
+        pedidoService.inserir(pedido(fran, HOJE, 1, 2));
+        pedidoService.inserir(pedido(joao, HOJE, 0, 1));
+        em.clear();
+    }
+
+    @AfterEach
+    public void limparBanco() {
+        em.getTransaction().begin();
+
+        em.createQuery("delete from PedidoItemArquivado ia").executeUpdate();
+        em.createQuery("delete from PedidoArquivado pa").executeUpdate();
+        em.createQuery("delete from MarcaDeArquivamento m").executeUpdate();
+        em.createQuery("delete from PedidoItem ip").executeUpdate();
+        em.createQuery("delete from Pedido pd").executeUpdate();
+        em.createQuery("delete from Produto p").executeUpdate();
+        em.createQuery("delete from Categoria c").executeUpdate();
+        em.createQuery("delete from Cliente c").executeUpdate();
+
+        em.getTransaction().commit();
+    }
+
+    @Test
+    public void consultasIncluemPedidosArquivados() {
+        VendaDAO vendaDAO = new VendaDAO(em);
+        PedidoDao pedidoDao = new PedidoDao(em);
+        List<String> vendasAntes = textos(vendaDAO.relatorioDeVendas());
+        List<String> financeiroAntes = textos(vendaDAO.relatorioFinanceiro());
+        List<String> topAntes = textos(vendaDAO.relatorioDeVendas(ANO_PASSADO, HOJE, 1));
+        List<String> diasAntes = dias(vendaDAO.vendasPorDia(ANO_PASSADO, HOJE));
+        List<String> categoriasAntes = dias(vendaDAO.vendasPorDiaECategoria(ANO_PASSADO, HOJE));
+        BigDecimal totalAntes = vendaDAO.retornaValorTotalVendidoEmUmPeriodo(ANO_PASSADO, HOJE);
+        Long idAntigo = pedidoDao.buscarPedidosPorPeriodo(ANO_PASSADO, ANO_PASSADO).get(0).getId();
+
+        ArquivamentoDePedidos arquivamento = new ArquivamentoDePedidos(emf, Period.ofYears(1), 2, Duration.ZERO);
+        assertEquals(3, arquivamento.arquivar());
+        // Nada mais a mover até o próximo corte.
+        assertEquals(0, arquivamento.arquivar());
+        em.clear();
+
+        assertEquals(2L, em.createQuery("select count(p) from Pedido p", Long.class).getSingleResult());
+        assertEquals(3L, em.createQuery("select count(p) from PedidoArquivado p", Long.class).getSingleResult());
+
+        assertEquals(vendasAntes, textos(vendaDAO.relatorioDeVendas()));
+        assertEquals(financeiroAntes, textos(vendaDAO.relatorioFinanceiro()));
+        assertEquals(topAntes, textos(vendaDAO.relatorioDeVendas(ANO_PASSADO, HOJE, 1)));
+        assertEquals(diasAntes, dias(vendaDAO.vendasPorDia(ANO_PASSADO, HOJE)));
+        assertEquals(categoriasAntes, dias(vendaDAO.vendasPorDiaECategoria(ANO_PASSADO, HOJE)));
+        assertEquals(0, totalAntes.compareTo(vendaDAO.retornaValorTotalVendidoEmUmPeriodo(ANO_PASSADO, HOJE)));
+
+        assertEquals(5, pedidoDao.buscarPedidosPorPeriodo(ANO_PASSADO, HOJE).size());
+        List<Pedido> pedidosDaFran = pedidoDao.buscarPedidosDeUmCliente(fran.getId());
+        assertEquals(3, pedidosDaFran.size());
+        assertEquals(ANO_PASSADO, pedidosDaFran.get(0).getData());
+
+        Pedido arquivado = pedidoDao.buscarPorId(idAntigo);
+        assertNotNull(arquivado);
+        assertEquals(ANO_PASSADO, arquivado.getData());
+        assertEquals(2, arquivado.getItens().size());
+        assertEquals(new BigDecimal("1650.00"), arquivado.getValorTotal().setScale(2));
+    }
+
+    @Test
+    public void pedidoArquivadoNaoPodeSerAlteradoNemExcluido() {
+        Long idAntigo = new PedidoDao(em).buscarPedidosPorPeriodo(ANO_PASSADO, ANO_PASSADO).get(0).getId();
+        new ArquivamentoDePedidos(emf, Period.ofYears(1), 100, Duration.ZERO).arquivar();
+        em.clear();
+
+        PedidoService pedidoService = new PedidoService(em);
+        Pedido arquivado = pedidoService.buscarPedidoPorId(idAntigo);
+        assertTrue(arquivado.isArquivado());
+        assertThrows(PedidoArquivadoException.class, () -> pedidoService.alterar(arquivado));
+        assertThrows(PedidoArquivadoException.class, () -> pedidoService.excluir(arquivado));
+        assertThrows(PedidoArquivadoException.class, () -> pedidoService.excluirItem(arquivado.getItens().get(0)));
+
+        // Nada foi gravado na tabela ativa.
+        assertEquals(2L, em.createQuery("select count(p) from Pedido p", Long.class).getSingleResult());
+        assertFalse(pedidoService.buscarPedidoPorPeriodo(HOJE, HOJE).get(0).isArquivado());
+    }
+
+    @Test
+    public void periodoRecenteNaoConsultaOArquivo() {
+        new ArquivamentoDePedidos(emf, Period.ofYears(1), 100, Duration.ZERO).arquivar();
+        em.clear();
+
+        Statistics estatisticas = emf.unwrap(SessionFactory.class).getStatistics();
+        estatisticas.setStatisticsEnabled(true);
+        estatisticas.clear();
+        List<Pedido> recentes = new PedidoDao(em).buscarPedidosPorPeriodo(HOJE.minusDays(7), HOJE);
+        assertEquals(2, recentes.size());
+        // A data de corte vem da memória, atualizada pelo arquivamento; a única consulta é a da tabela ativa.
+        assertEquals(1, estatisticas.getQueryExecutionCount());
+    }
+
+    @Test
+    public void topNComArquivoLeSoAsPrimeirasLinhasDeCadaTabela() {
+        new ArquivamentoDePedidos(emf, Period.ofYears(1), 100, Duration.ZERO).arquivar();
+        em.clear();
+        VendaDAO vendaDAO = new VendaDAO(em);
+        ArquivoDao arquivoDao = new ArquivoDao(em);
+
+        // Ativos: capa 3, celular 1. Arquivados: capa 5, celular 3. A capa (8) passa do teto (1 + 3): uma consulta
+        // limitada por tabela, sem completar chaves nem ler os relatórios inteiros.
+        List<String> vendas = textos(vendaDAO.relatorioDeVendas().subList(0, 1));
+        List<String> financeiro = textos(vendaDAO.relatorioFinanceiro().subList(0, 1));
+        arquivoDao.dataDeCorte();
+        ContadorDeComandos.assertComandos(2, () -> assertEquals(vendas, textos(vendaDAO.relatorioDeVendas(1))));
+        arquivoDao.dataDeCorte();
+        ContadorDeComandos.assertComandos(2, () -> assertEquals(financeiro,
+                textos(vendaDAO.relatorioFinanceiro(ANO_PASSADO, HOJE, 1))));
+
+        // Cinco fones recentes: o fone entra nas primeiras linhas só da tabela ativa e o celular só nas do arquivo;
+        // cada um é completado na outra tabela (uma consulta "IN" cada) e a capa (8) ainda passa do teto (3 + 3).
+        Produto fone = novoProduto("Fone");
+        new PedidoService(em).inserir(pedido(joao, HOJE, fone, 5));
+        em.clear();
+        List<String> comFone = textos(vendaDAO.relatorioDeVendas().subList(0, 1));
+        arquivoDao.dataDeCorte();
+        ContadorDeComandos.assertComandos(4, () -> assertEquals(comFone,
+                textos(vendaDAO.relatorioDeVendas(ANO_PASSADO, HOJE, 1))));
+    }
+
+    @Test
+    public void topNSemVerificacaoCalculaORelatorioInteiro() {
+        // Arquivados: celular 6, capa 5. Ativos: fone 4, capa 3. A capa é a segunda nas duas tabelas e a primeira na
+        // soma (8): empata com o teto (3 + 5), então a mescla não garante que nenhuma chave não vista a supere.
+        PedidoService pedidoService = new PedidoService(em);
+        pedidoService.inserir(pedido(joao, ANO_PASSADO, 3, 0));
+        Produto fone = novoProduto("Fone");
+        pedidoService.inserir(pedido(joao, HOJE, fone, 4));
+        new ArquivamentoDePedidos(emf, Period.ofYears(1), 100, Duration.ZERO).arquivar();
+        em.clear();
+        VendaDAO vendaDAO = new VendaDAO(em);
+        ArquivoDao arquivoDao = new ArquivoDao(em);
+        List<String> esperado = textos(vendaDAO.relatorioDeVendas().subList(0, 1));
+
+        // Custo da verificação que falha: as duas consultas limitadas, uma consulta "IN" por tabela (celular na
+        // ativa, fone no arquivo) e os dois relatórios inteiros do período.
+        arquivoDao.dataDeCorte();
+        ContadorDeComandos.assertComandos(6, () -> assertEquals(esperado,
+                textos(vendaDAO.relatorioDeVendas(ANO_PASSADO, HOJE, 1))));
+        assertEquals(capa.getId() + ":8:" + HOJE, esperado.getFirst());
+    }
+
+    private Produto novoProduto(String nome) {
+        Produto produto = new Produto(nome, nome, new BigDecimal("100.00"), celular.getCategoria());
+        em.getTransaction().begin();
+        em.persist(produto);
+        em.getTransaction().commit();
+        return produto;
+    }
+
+    private Pedido pedido(Cliente cliente, LocalDate data, Produto produto, int quantidade) {
+        Pedido pedido = new Pedido(cliente);
+        pedido.setData(data);
+        pedido.adicionarItem(new PedidoItem(quantidade, pedido, produto));
+        return pedido;
+    }
+
+    private Pedido pedido(Cliente cliente, LocalDate data, int celulares, int capas) {
+        Pedido pedido = new Pedido(cliente);
+        pedido.setData(data);
+        if (celulares > 0) {
+            pedido.adicionarItem(new PedidoItem(celulares, pedido, celular));
+        }
+        if (capas > 0) {
+            pedido.adicionarItem(new PedidoItem(capas, pedido, capa));
+        }
+        return pedido;
+    }
+
+    private static List<String> textos(List<?> linhas) {
+        return linhas.stream().map(linha -> {
+            if (linha instanceof RelatorioDeVendasVo venda) {
+                return venda.getIdProduto() + ":" + venda.getQuantidadeVendida() + ":" + venda.getDataUltimaVenda();
+            }
+            RelatorioFinanceiroVo financeiro = (RelatorioFinanceiroVo) linha;
+            return financeiro.getIdCliente() + ":" + financeiro.getTotalPedidosDoCliente().stripTrailingZeros().toPlainString();
+        }).toList();
+    }
+
+    private static List<String> dias(Stream<VendaDiariaVo> vendas) {
+        try (vendas) {
+            return vendas.map(dia -> dia.getData() + ":" + dia.getIdCategoria() + ":"
+                    + dia.getFaturamento().stripTrailingZeros().toPlainString() + ":"
+                    + dia.getQuantidadePedidos() + ":" + dia.getUnidadesVendidas()).toList();
+        }
+    }
+}
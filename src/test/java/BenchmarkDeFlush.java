@@ -0,0 +1,111 @@
+import br.com.model.*;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.hibernate.engine.spi.ManagedEntity;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/* Mede o custo do flush e a memória ocupada por um contexto de persistência grande (pedidos com seus itens e
+   produtos gerenciados), no H2. Não é um teste do JUnit: é executado à parte, por exemplo com
+   mvn test-compile exec:java -Dexec.mainClass=BenchmarkDeFlush -Dexec.classpathScope=test
+   Parâmetros opcionais: quantidade de pedidos, itens por pedido e repetições do flush. */
+public class BenchmarkDeFlush {
+
+    public static void main(String[] args) {
+        int quantidadeDePedidos = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int itensPorPedido = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int repeticoes = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("H2PU", Map.of(
+                "javax.persistence.jdbc.url", "jdbc:h2:mem:benchmark-flush;DB_CLOSE_DELAY=-1",
+                "hibernate.show_sql", "false",
+                "hibernate.jdbc.batch_size", "50"));
+        try {
+            System.out.println("Entidades enriquecidas: " + ManagedEntity.class.isAssignableFrom(Pedido.class));
+            popular(emf, quantidadeDePedidos, itensPorPedido);
+
+            EntityManager em = emf.createEntityManager();
+            long memoriaAntes = memoriaUsada();
+            List<Pedido> pedidos = em.createQuery(
+                    "SELECT DISTINCT p FROM Pedido p JOIN FETCH p.itens i JOIN FETCH i.produto", Pedido.class)
+                    .getResultList();
+            long memoriaDepois = memoriaUsada();
+            int entidades = pedidos.size() * (itensPorPedido + 1);
+            System.out.printf("Contexto: %d pedidos, ~%d entidades gerenciadas, %.1f MB (%.0f bytes por entidade)%n",
+                    pedidos.size(), entidades, (memoriaDepois - memoriaAntes) / 1_048_576.0,
+                    (double) (memoriaDepois - memoriaAntes) / entidades);
+
+            em.getTransaction().begin();
+            System.out.printf("Flush sem alterações: %.2f ms%n", medirFlush(em, repeticoes));
+
+            // Altera 1% dos pedidos a cada rodada: o flush precisa encontrar poucas entidades sujas entre muitas.
+            int passo = 100;
+            long inicio = System.nanoTime();
+            for (int r = 0; r < repeticoes; r++) {
+                for (int i = r % passo; i < pedidos.size(); i += passo) {
+                    PedidoItem item = pedidos.get(i).getItens().get(0);
+                    item.setQuantidade(item.getQuantidade() + 1);
+                }
+                em.flush();
+            }
+            System.out.printf("Flush com 1%% de pedidos alterados: %.2f ms%n",
+                    (System.nanoTime() - inicio) / 1_000_000.0 / repeticoes);
+            em.getTransaction().rollback();
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    private static void popular(EntityManagerFactory emf, int quantidadeDePedidos, int itensPorPedido) {
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        Categoria categoria = new Categoria("Benchmark");
+        em.persist(categoria);
+        Cliente cliente = new Cliente("Cliente do benchmark", "000");
+        em.persist(cliente);
+        Produto[] produtos = new Produto[100];
+        for (int i = 0; i < produtos.length; i++) {
+            produtos[i] = new Produto("Produto " + i, "Descrição longa do produto " + i + " ".repeat(200),
+                    new BigDecimal(10 + i), categoria);
+            em.persist(produtos[i]);
+        }
+        for (int p = 0; p < quantidadeDePedidos; p++) {
+            Pedido pedido = new Pedido(cliente);
+            for (int i = 0; i < itensPorPedido; i++) {
+                pedido.adicionarItem(new PedidoItem(i + 1, pedido, produtos[(p + i) % produtos.length]));
+            }
+            em.persist(pedido);
+            if (p % 1_000 == 999) {
+                em.flush();
+                em.clear();
+                cliente = em.getReference(Cliente.class, cliente.getId());
+                for (int i = 0; i < produtos.length; i++) {
+                    produtos[i] = em.getReference(Produto.class, produtos[i].getId());
+                }
+            }
+        }
+        em.getTransaction().commit();
+        em.close();
+    }
+
+    private static double medirFlush(EntityManager em, int repeticoes) {
+        em.flush();
+        long inicio = System.nanoTime();
+        for (int r = 0; r < repeticoes; r++) {
+            em.flush();
+        }
+        return (System.nanoTime() - inicio) / 1_000_000.0 / repeticoes;
+    }
+
+    private static long memoriaUsada() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,142 @@
+import br.com.dao.PedidoCompactoDao;
+import br.com.dao.VendaDAO;
+import br.com.model.*;
+import br.com.service.PedidoService;
+import br.com.vo.VendaDiariaVo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/* Compara a gravação e a leitura de pedidos pequenos nos dois mapeamentos: Pedido (uma linha por item em
+   pedido_itens) e PedidoCompacto (itens em uma coluna do pedido), no H2. Não é um teste do JUnit: é executado à
+   parte, por exemplo com
+   mvn test-compile exec:java -Dexec.mainClass=BenchmarkDePedidosCompactos -Dexec.classpathScope=test
+   Parâmetros opcionais: quantidade de pedidos, itens por pedido e leituras por ID. */
+public class BenchmarkDePedidosCompactos {
+
+    public static void main(String[] args) {
+        int quantidadeDePedidos = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int itensPorPedido = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+        int leituras = args.length > 2 ? Integer.parseInt(args[2]) : 5_000;
+
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("H2PU", Map.of(
+                "javax.persistence.jdbc.url", "jdbc:h2:mem:benchmark-compactos;DB_CLOSE_DELAY=-1",
+                "hibernate.show_sql", "false"));
+        try {
+            Cliente cliente = popularCatalogo(emf);
+            EntityManager catalogo = emf.createEntityManager();
+            Produto[] produtos = catalogo.createQuery("SELECT p FROM Produto p ORDER BY p.id", Produto.class)
+                    .getResultList().toArray(new Produto[0]);
+            catalogo.close();
+
+            // Aquecimento: as primeiras centenas de pedidos de cada modo pagam a carga de classes e o JIT.
+            gravar(emf, cliente, produtos, 500, itensPorPedido, false);
+            gravar(emf, cliente, produtos, 500, itensPorPedido, true);
+
+            for (boolean compacto : new boolean[]{false, true}) {
+                String modo = compacto ? "Compacto   " : "Normalizado";
+                long inicio = System.nanoTime();
+                List<Long> ids = gravar(emf, cliente, produtos, quantidadeDePedidos, itensPorPedido, compacto);
+                double segundos = (System.nanoTime() - inicio) / 1e9;
+                System.out.printf("%s | gravação: %,.0f pedidos/s%n", modo, quantidadeDePedidos / segundos);
+
+                Random aleatorio = new Random(42);
+                inicio = System.nanoTime();
+                long itensLidos = 0;
+                EntityManager em = emf.createEntityManager();
+                for (int i = 0; i < leituras; i++) {
+                    Long id = ids.get(aleatorio.nextInt(ids.size()));
+                    itensLidos += compacto
+                            ? em.find(PedidoCompacto.class, id).getItens().size()
+                            : em.find(Pedido.class, id).getItens().size();
+                    em.clear();
+                }
+                em.close();
+                System.out.printf("%s | leitura por ID com itens: %.1f µs por pedido (%d itens)%n", modo,
+                        (System.nanoTime() - inicio) / 1_000.0 / leituras, itensLidos);
+
+                em = emf.createEntityManager();
+                inicio = System.nanoTime();
+                LocalDate hoje = LocalDate.now();
+                // Normalizado: agrupado pelo banco. Compacto: projeção normalizada somada em memória.
+                VendaDiariaVo dia;
+                if (compacto) {
+                    dia = new PedidoCompactoDao(em).vendasPorDia(hoje, hoje).getFirst();
+                } else {
+                    try (Stream<VendaDiariaVo> dias = new VendaDAO(em).vendasPorDia(hoje, hoje)) {
+                        dia = dias.findFirst().orElseThrow();
+                    }
+                }
+                System.out.printf("%s | vendas do dia: %.1f ms (%d pedidos, %d unidades)%n", modo,
+                        (System.nanoTime() - inicio) / 1_000_000.0, dia.getQuantidadePedidos(), dia.getUnidadesVendidas());
+                em.close();
+            }
+
+            ConversorDeLinhasDePedido conversor = new ConversorDeLinhasDePedido();
+            List<LinhaDePedido> exemplo = new ArrayList<>();
+            for (int i = 0; i < itensPorPedido; i++) {
+                exemplo.add(new LinhaDePedido(produtos[i].getId(), i + 1, produtos[i].getPreco()));
+            }
+            System.out.printf("Coluna de itens de um pedido com %d itens: %d bytes%n", itensPorPedido,
+                    conversor.convertToDatabaseColumn(exemplo).length);
+        } finally {
+            emf.close();
+        }
+    }
+
+    // Um pedido por transação, como no cadastro feito pela API.
+    private static List<Long> gravar(EntityManagerFactory emf, Cliente cliente, Produto[] produtos,
+                                     int quantidadeDePedidos, int itensPorPedido, boolean compacto) {
+        EntityManager em = emf.createEntityManager();
+        PedidoService pedidoService = new PedidoService(em);
+        Cliente referencia = em.getReference(Cliente.class, cliente.getId());
+        List<Long> ids = new ArrayList<>(quantidadeDePedidos);
+        for (int p = 0; p < quantidadeDePedidos; p++) {
+            if (compacto) {
+                PedidoCompacto pedido = new PedidoCompacto(referencia);
+                for (int i = 0; i < itensPorPedido; i++) {
+                    pedido.adicionarItem(produtos[(p + i) % produtos.length], i + 1);
+                }
+                pedidoService.inserirCompacto(pedido);
+                ids.add(pedido.getId());
+            } else {
+                Pedido pedido = new Pedido(referencia);
+                for (int i = 0; i < itensPorPedido; i++) {
+                    Produto produto = em.getReference(Produto.class, produtos[(p + i) % produtos.length].getId());
+                    pedido.adicionarItem(new PedidoItem(i + 1, pedido, produto, produtos[(p + i) % produtos.length].getPreco()));
+                }
+                pedidoService.inserir(pedido);
+                ids.add(pedido.getId());
+            }
+            if (p % 1_000 == 999) {
+                em.clear();
+                referencia = em.getReference(Cliente.class, cliente.getId());
+            }
+        }
+        em.close();
+        return ids;
+    }
+
+    private static Cliente popularCatalogo(EntityManagerFactory emf) {
+        EntityManager em = emf.createEntityManager();
+        em.getTransaction().begin();
+        Categoria categoria = new Categoria("Benchmark");
+        em.persist(categoria);
+        Cliente cliente = new Cliente("Cliente do benchmark", "000");
+        em.persist(cliente);
+        for (int i = 0; i < 100; i++) {
+            em.persist(new Produto("Produto " + i, "Descrição do produto " + i, new BigDecimal(10 + i), categoria));
+        }
+        em.getTransaction().commit();
+        em.close();
+        return cliente;
+    }
+}
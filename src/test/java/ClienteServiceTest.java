@@ -0,0 +1,103 @@
+import br.com.exception.CpfJaCadastradoException;
+import br.com.model.Cliente;
+import br.com.service.ClienteService;
+import br.com.util.FiltroDeBloom;
+import br.com.vo.EstatisticasDoFiltroDeCpfsVo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClienteServiceTest {
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private ClienteService clienteService;
+
+    @BeforeEach
+    public void setup() {
+        emf = Persistence.createEntityManagerFactory("PostgresPU");
+        em = emf.createEntityManager();
+        clienteService = new ClienteService(em);
+    }
+
+    @AfterEach
+    public void limparBanco() {
+        em.getTransaction().begin();
+        em.createQuery("delete from Cliente c").executeUpdate();
+        em.getTransaction().commit();
+    }
+
+    @Test
+    public void cadastrarEBuscarClientePorCpf() {
+        Cliente cliente = new Cliente("Fran", "111.222.333-44");
+        clienteService.inserir(cliente);
+
+        Cliente encontrado = clienteService.buscarClientePorCpf("111.222.333-44");
+        assertNotNull(encontrado);
+        assertEquals(cliente.getId(), encontrado.getId());
+        assertNull(clienteService.buscarClientePorCpf("999.999.999-99"));
+
+        // Sem o filtro, o CPF repetido é encontrado pela consulta.
+        assertThrows(CpfJaCadastradoException.class, () -> clienteService.inserir(new Cliente("Outra", "111.222.333-44")));
+    }
+
+    @Test
+    public void filtroReconstruidoRecusaCpfExistenteEDispensaConsultaDeCpfNovo() {
+        em.getTransaction().begin();
+        for (int i = 0; i < 500; i++) {
+            em.persist(new Cliente("Cliente " + i, String.format("%011d", i)));
+        }
+        em.getTransaction().commit();
+
+        ClienteService servico = new ClienteService(emf.createEntityManager());
+        servico.reconstruirFiltroDeCpfs();
+        assertEquals(500, servico.estatisticasDoFiltroDeCpfs().getCpfs());
+
+        assertThrows(CpfJaCadastradoException.class, () -> servico.inserir(new Cliente("Repetido", String.format("%011d", 42))));
+        for (int i = 500; i < 1500; i++) {
+            servico.inserir(new Cliente("Cliente " + i, String.format("%011d", i)));
+        }
+
+        EstatisticasDoFiltroDeCpfsVo estatisticas = servico.estatisticasDoFiltroDeCpfs();
+        assertEquals(1500, estatisticas.getCpfs());
+        assertEquals(1000, estatisticas.getConsultasEvitadas() + estatisticas.getFalsosPositivos());
+        // Filtro dimensionado para 1% de falsos positivos, ainda longe da lotação.
+        assertTrue(estatisticas.getTaxaDeFalsosPositivosObservada() < 0.05, estatisticas.toString());
+        assertTrue(estatisticas.getTaxaDeFalsosPositivosEstimada() < 0.01, estatisticas.toString());
+        // O CPF cadastrado depois da reconstrução também passa a ser recusado.
+        assertThrows(CpfJaCadastradoException.class, () -> servico.inserir(new Cliente("Repetido", String.format("%011d", 1200))));
+    }
+
+    @Test
+    public void indiceUnicoRecusaCpfQueOFiltroNaoConhece() {
+        clienteService.reconstruirFiltroDeCpfs();
+        // Cadastrado por fora do service (como outro processo faria): o filtro não fica sabendo.
+        em.getTransaction().begin();
+        em.persist(new Cliente("Externo", "55566677788"));
+        em.getTransaction().commit();
+
+        assertThrows(CpfJaCadastradoException.class, () -> clienteService.inserir(new Cliente("Duplicado", "55566677788")));
+        clienteService.inserir(new Cliente("Novo", "12312312312"));
+        assertNotNull(clienteService.buscarClientePorCpf("12312312312"));
+    }
+
+    @Test
+    public void filtroDeBloomNaoTemFalsoNegativo() {
+        FiltroDeBloom filtro = new FiltroDeBloom(10_000, 0.01);
+        for (int i = 0; i < 10_000; i++) {
+            filtro.adicionar("cpf-" + i);
+        }
+        int falsosPositivos = 0;
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filtro.talvezContenha("cpf-" + i));
+            if (filtro.talvezContenha("outro-" + i)) {
+                falsosPositivos++;
+            }
+        }
+        assertTrue(falsosPositivos < 200, "falsos positivos: " + falsosPositivos);
+    }
+}
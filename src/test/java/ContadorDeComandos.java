@@ -0,0 +1,172 @@
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/* Conta os comandos SQL que o Hibernate envia ao banco durante um trecho de teste (StatementInspector).
+   - O EntityManagerFactory precisa ser criado com ContadorDeComandos.propriedades().
+   - medir() abre uma medição no thread atual; comandos de outros threads (ex.: FilaDePedidos) não entram.
+   - A medição é a unidade de trabalho do detector de N+1: um mesmo SELECT (mesma forma, ignorando os valores
+     literais e o tamanho das listas IN) executado várias vezes aponta para um carregamento preguiçoso em laço.
+     Cada execução guarda o local da chamada: o primeiro método do projeto na pilha (ex.: Pedido.toString). */
+public class ContadorDeComandos implements StatementInspector {
+
+    // A partir de quantas execuções iguais um SELECT é tratado como N+1.
+    public static final int REPETICOES_DE_N_MAIS_UM = 3;
+
+    private static final ContadorDeComandos INSTANCIA = new ContadorDeComandos();
+    private static final ThreadLocal<Medicao> MEDICAO = new ThreadLocal<>();
+
+    private static final Pattern TEXTO = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMERO = Pattern.compile("\\b\\d+(\\.\\d+)?\\b");
+    private static final Pattern LISTA = Pattern.compile("\\(\\s*\\?(\\s*,\\s*\\?)*\\s*\\)");
+    private static final Pattern ESPACOS = Pattern.compile("\\s+");
+    private static final Set<String> FORA_DO_PROJETO = Set.of("java.", "jdk.", "sun.", "jakarta.", "org.hibernate.",
+            "org.h2.", "org.postgresql.", "net.bytebuddy.", "org.junit.", "org.apache.maven.");
+
+    // Comando executado: o SQL, a forma normalizada e o local da chamada.
+    public record Comando(String sql, String forma, String local) {
+    }
+
+    public static class Medicao implements AutoCloseable {
+        private final Medicao anterior;
+        private final List<Comando> comandos = new ArrayList<>();
+
+        private Medicao(Medicao anterior) {
+            this.anterior = anterior;
+        }
+
+        private void registrar(Comando comando) {
+            comandos.add(comando);
+            if (anterior != null) {
+                anterior.registrar(comando);
+            }
+        }
+
+        public List<Comando> getComandos() {
+            return comandos;
+        }
+
+        public int getTotal() {
+            return comandos.size();
+        }
+
+        public int getSelects() {
+            return contar("select");
+        }
+
+        public int getInserts() {
+            return contar("insert");
+        }
+
+        public int getUpdates() {
+            return contar("update");
+        }
+
+        public int getDeletes() {
+            return contar("delete");
+        }
+
+        // Formas de SELECT executadas "limite" vezes ou mais, com os locais de cada execução.
+        public Map<String, List<String>> repeticoes(int limite) {
+            Map<String, List<String>> locaisPorForma = new LinkedHashMap<>();
+            for (Comando comando : comandos) {
+                if (comando.forma().startsWith("select")) {
+                    locaisPorForma.computeIfAbsent(comando.forma(), forma -> new ArrayList<>()).add(comando.local());
+                }
+            }
+            locaisPorForma.values().removeIf(locais -> locais.size() < limite);
+            return locaisPorForma;
+        }
+
+        public void assertSemNMaisUm() {
+            Map<String, List<String>> repeticoes = repeticoes(REPETICOES_DE_N_MAIS_UM);
+            if (!repeticoes.isEmpty()) {
+                StringBuilder mensagem = new StringBuilder("Possível N+1:");
+                repeticoes.forEach((forma, locais) -> mensagem.append("\n  ").append(locais.size()).append("x ")
+                        .append(forma).append("\n     em ").append(String.join(", ", Set.copyOf(locais))));
+                fail(mensagem.toString());
+            }
+        }
+
+        @Override
+        public void close() {
+            if (MEDICAO.get() == this) {
+                MEDICAO.set(anterior);
+            }
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder texto = new StringBuilder(getTotal() + " comandos:");
+            comandos.forEach(comando -> texto.append("\n  ").append(comando.sql()).append("  [").append(comando.local()).append("]"));
+            return texto.toString();
+        }
+
+        private int contar(String tipo) {
+            return (int) comandos.stream().filter(comando -> comando.forma().startsWith(tipo)).count();
+        }
+    }
+
+    // Propriedades para Persistence.createEntityManagerFactory(unidade, ContadorDeComandos.propriedades()).
+    public static Map<String, Object> propriedades() {
+        return Map.of(AvailableSettings.STATEMENT_INSPECTOR, INSTANCIA);
+    }
+
+    // Inicia uma medição no thread atual (use com try-with-resources). Medições aninhadas também contam na externa.
+    public static Medicao medir() {
+        Medicao medicao = new Medicao(MEDICAO.get());
+        MEDICAO.set(medicao);
+        return medicao;
+    }
+
+    public static Medicao medir(Runnable operacao) {
+        try (Medicao medicao = medir()) {
+            operacao.run();
+            return medicao;
+        }
+    }
+
+    // Falha se a operação não executar exatamente "esperado" comandos ou se houver N+1.
+    public static Medicao assertComandos(int esperado, Runnable operacao) {
+        Medicao medicao = medir(operacao);
+        assertEquals(esperado, medicao.getTotal(), medicao.toString());
+        medicao.assertSemNMaisUm();
+        return medicao;
+    }
+
+    static String forma(String sql) {
+        String forma = TEXTO.matcher(sql).replaceAll("?");
+        forma = NUMERO.matcher(forma).replaceAll("?");
+        forma = LISTA.matcher(forma).replaceAll("(?)");
+        return ESPACOS.matcher(forma).replaceAll(" ").trim().toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public String inspect(String sql) {
+        Medicao medicao = MEDICAO.get();
+        if (medicao != null) {
+            medicao.registrar(new Comando(sql, forma(sql), localDaChamada()));
+        }
+        return sql;
+    }
+
+    private static String localDaChamada() {
+        return StackWalker.getInstance().walk(quadros -> quadros
+                .filter(quadro -> !quadro.getClassName().equals(ContadorDeComandos.class.getName())
+                        && !quadro.getMethodName().startsWith("$$_hibernate")
+                        && FORA_DO_PROJETO.stream().noneMatch(quadro.getClassName()::startsWith))
+                .findFirst()
+                .map(quadro -> quadro.getClassName() + "." + quadro.getMethodName() + ":" + quadro.getLineNumber())
+                .orElse("?"));
+    }
+}
@@ -0,0 +1,230 @@
+import br.com.dao.VendaDAO;
+import br.com.model.*;
+import br.com.service.ContadoresDeVendas;
+import br.com.service.ExpurgoDePedidosExcluidos;
+import br.com.service.PedidoService;
+import br.com.service.VendaService;
+import br.com.vo.RelatorioDeVendasVo;
+import br.com.vo.RelatorioFinanceiroVo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ContadoresDeVendasTest {
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private ContadoresDeVendas contadores;
+    private PedidoService pedidoService;
+    private VendaDAO vendaDAO;
+    private List<Produto> produtos;
+    private List<Cliente> clientes;
+
+    @BeforeEach
+    public void setup() {
+        emf = Persistence.createEntityManagerFactory("PostgresPU", ContadorDeComandos.propriedades());
+        em = emf.createEntityManager();
+        vendaDAO = new VendaDAO(em);
+        popularBancoDeDados();
+
+        contadores = new ContadoresDeVendas(emf, Duration.ofHours(1));
+        contadores.carregar();
+        pedidoService = new PedidoService(em);
+        pedidoService.setContadoresDeVendas(contadores);
+    }
+
+    @AfterEach
+    public void limparBanco() {
+        contadores.close();
+        // Pedidos excluídos só saem do banco pelo expurgo.
+        new ExpurgoDePedidosExcluidos(emf, 100, Duration.ZERO).expurgar();
+        em.getTransaction().begin();
+
+        em.createQuery("delete from PedidoItem ip").executeUpdate();
+        em.createQuery("delete from Pedido pd").executeUpdate();
+        em.createQuery("delete from Produto p").executeUpdate();
+        em.createQuery("delete from Categoria c").executeUpdate();
+        em.createQuery("delete from Cliente c").executeUpdate();
+
+        em.getTransaction().commit();
+    }
+
+    @Test
+    public void relatoriosSaemDosContadoresSemSql() {
+        // Pedido gravado antes da carga e outro depois, pelo PedidoService.
+        Pedido pedido = new Pedido(clientes.get(1));
+        pedido.adicionarItem(new PedidoItem(3, pedido, produtos.get(2)));
+        pedido.adicionarItem(new PedidoItem(1, pedido, produtos.get(0)));
+        pedidoService.inserir(pedido);
+
+        VendaService vendaService = new VendaService(em);
+        vendaService.setContadoresDeVendas(contadores);
+        ContadorDeComandos.assertComandos(0, () -> {
+            vendaService.retornaRelatorioDeVendas();
+            vendaService.retornaRelatorioFinanceiro();
+            vendaService.retornaProdutosMaisVendidos(2);
+            vendaService.retornaMelhoresClientes(1);
+        });
+
+        assertIguaisAoBanco();
+        assertEquals(textos(vendaDAO.relatorioDeVendas(2)), textos(contadores.relatorioDeVendas(2)));
+        assertEquals(textos(vendaDAO.relatorioFinanceiro(1)), textos(contadores.relatorioFinanceiro(1)));
+        assertEquals(2L, contadores.relatorioFinanceiro().getFirst().getQuantidadePedidos());
+    }
+
+    @Test
+    public void alteracoesEExclusoesAtualizamOsContadores() {
+        Pedido pedido = new Pedido(clientes.get(0));
+        PedidoItem celular = new PedidoItem(2, pedido, produtos.get(0));
+        PedidoItem mouse = new PedidoItem(5, pedido, produtos.get(1));
+        pedido.adicionarItem(celular);
+        pedido.adicionarItem(mouse);
+        pedidoService.inserir(pedido);
+        assertIguaisAoBanco();
+
+        pedido.removerItem(celular);
+        celular.setQuantidade(7);
+        pedido.adicionarItem(celular);
+        pedidoService.alterar(pedido);
+        assertIguaisAoBanco();
+
+        // Como na opção 17 do Main: o valor total é recalculado (alterar) e o item é apagado (excluirItem).
+        pedido.removerItem(mouse);
+        pedidoService.alterar(pedido);
+        pedidoService.excluirItem(mouse);
+        assertIguaisAoBanco();
+
+        pedidoService.excluir(pedido);
+        // A data da última venda não recua na exclusão; as unidades e os valores, sim.
+        assertEquals(textos(vendaDAO.relatorioFinanceiro()), textos(contadores.relatorioFinanceiro()));
+        contadores.verificar();
+        assertIguaisAoBanco();
+    }
+
+    @Test
+    public void verificacaoCorrigePedidosGravadosPorFora() {
+        em.getTransaction().begin();
+        Pedido externo = new Pedido(clientes.get(1));
+        externo.setData(LocalDate.now().plusDays(3));
+        externo.adicionarItem(new PedidoItem(4, externo, produtos.get(1)));
+        em.persist(externo);
+        em.getTransaction().commit();
+        assertNotEquals(textos(vendaDAO.relatorioFinanceiro()), textos(contadores.relatorioFinanceiro()));
+
+        // Um cliente e um produto corrigidos; na segunda rodada, nada a corrigir.
+        assertEquals(2, contadores.verificar());
+        assertEquals(0, contadores.verificar());
+        assertEquals(2, contadores.getCorrecoes());
+        assertIguaisAoBanco();
+
+    }
+
+    @Test
+    public void verificacaoAdiaApenasQuemTemGravacaoEmAndamento() {
+        em.getTransaction().begin();
+        Pedido externo = new Pedido(clientes.get(0));
+        externo.adicionarItem(new PedidoItem(4, externo, produtos.get(1)));
+        em.persist(externo);
+        em.getTransaction().commit();
+
+        // O cliente está em gravação: só o produto é corrigido agora; o cliente, na rodada seguinte.
+        ContadoresDeVendas.Gravacao gravacao = contadores.iniciarGravacao(clientes.get(0).getId(), List.of());
+        assertEquals(1, contadores.verificar());
+        contadores.concluirGravacao(gravacao);
+        assertEquals(1, contadores.verificar());
+        assertIguaisAoBanco();
+    }
+
+    @Test
+    public void nomeDeClienteReferenciadoVemDoBanco() {
+        EntityManager outro = emf.createEntityManager();
+        PedidoService servico = new PedidoService(outro);
+        servico.setContadoresDeVendas(contadores);
+        Pedido pedido = new Pedido(outro.getReference(Cliente.class, clientes.get(0).getId()));
+        pedido.adicionarItem(new PedidoItem(1, pedido, outro.find(Produto.class, produtos.get(0).getId())));
+        servico.inserir(pedido);
+        outro.close();
+
+        RelatorioFinanceiroVo totais = contadores.relatorioFinanceiro().stream()
+                .filter(linha -> linha.getIdCliente().equals(clientes.get(0).getId())).findFirst().orElseThrow();
+        assertEquals("Fran", totais.getNomeCliente());
+    }
+
+    @Test
+    public void pedidosSimultaneosNaoPerdemContagem() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> tarefas = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                tarefas.add(executor.submit(() -> {
+                    EntityManager emDoThread = emf.createEntityManager();
+                    PedidoService servico = new PedidoService(emDoThread);
+                    servico.setContadoresDeVendas(contadores);
+                    for (int i = 0; i < 25; i++) {
+                        Cliente cliente = emDoThread.getReference(Cliente.class, clientes.get(i % 2).getId());
+                        Produto produto = emDoThread.find(Produto.class, produtos.get(i % 3).getId());
+                        Pedido pedido = new Pedido(cliente);
+                        pedido.adicionarItem(new PedidoItem(1 + i % 4, pedido, produto));
+                        servico.inserir(pedido);
+                    }
+                    emDoThread.close();
+                    return null;
+                }));
+            }
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertIguaisAoBanco();
+        assertEquals(0, contadores.verificar());
+    }
+
+    private void assertIguaisAoBanco() {
+        assertEquals(textos(vendaDAO.relatorioDeVendas()), textos(contadores.relatorioDeVendas()));
+        assertEquals(textos(vendaDAO.relatorioFinanceiro()), textos(contadores.relatorioFinanceiro()));
+    }
+
+    private static List<String> textos(List<?> linhas) {
+        return linhas.stream().map(linha -> {
+            if (linha instanceof RelatorioDeVendasVo venda) {
+                return venda.getIdProduto() + ":" + venda.getQuantidadeVendida() + ":" + venda.getDataUltimaVenda();
+            }
+            RelatorioFinanceiroVo financeiro = (RelatorioFinanceiroVo) linha;
+            return financeiro.getIdCliente() + ":" + financeiro.getTotalPedidosDoCliente().stripTrailingZeros().toPlainString();
+        }).toList();
+    }
+
+    private void popularBancoDeDados() {
+        Categoria categoria = new Categoria("INFORMATICA");
+        produtos = List.of(
+                new Produto("Notebook", "Notebook 14", new BigDecimal("3500.00"), categoria),
+                new Produto("Mouse", "Mouse sem fio", new BigDecimal("45.90"), categoria),
+                new Produto("Teclado", "Teclado mecânico", new BigDecimal("130.00"), categoria));
+        clientes = List.of(new Cliente("Fran", "123456"), new Cliente("Celso", "987654"));
+
+        em.getTransaction().begin();
+        em.persist(categoria);
+        produtos.forEach(em::persist);
+        clientes.forEach(em::persist);
+        Pedido antigo = new Pedido(clientes.get(1));
+        antigo.setData(LocalDate.now().minusDays(10));
+        antigo.adicionarItem(new PedidoItem(2, antigo, produtos.get(2)));
+        em.persist(antigo);
+        em.getTransaction().commit();
+    }
+}
@@ -0,0 +1,228 @@
+import br.com.exception.EstoqueInsuficienteException;
+import br.com.model.*;
+import br.com.service.ControleDeEstoque;
+import br.com.service.PedidoService;
+import br.com.service.ProdutoService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ControleDeEstoqueTest {
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private ControleDeEstoque controleDeEstoque;
+    private Produto produto;
+    private Cliente cliente;
+
+    @BeforeEach
+    public void setup() {
+        emf = Persistence.createEntityManagerFactory("PostgresPU");
+        em = emf.createEntityManager();
+        // Intervalos longos: nos testes, a gravação e a reconciliação são chamadas explicitamente.
+        controleDeEstoque = new ControleDeEstoque(emf, Duration.ofHours(1), Duration.ofHours(1));
+
+        Categoria categoria = new Categoria("CELULARES");
+        produto = new Produto("Xiaomi Redmi", "O preferido", new BigDecimal("800"), categoria);
+        cliente = new Cliente("Fulano", "123456");
+
+        em.getTransaction().begin();
+        em.persist(categoria);
+        em.persist(produto);
+        em.persist(cliente);
+        em.getTransaction().commit();
+    }
+
+    @AfterEach
+    public void limparBanco() {
+        controleDeEstoque.close();
+        em.getTransaction().begin();
+
+        em.createQuery("delete from PedidoItem ip").executeUpdate();
+        em.createQuery("delete from Pedido pd").executeUpdate();
+        em.createQuery("delete from Produto p").executeUpdate();
+        em.createQuery("delete from Categoria c").executeUpdate();
+        em.createQuery("delete from Cliente c").executeUpdate();
+
+        em.getTransaction().commit();
+        em.close();
+        // Os atendentes simultâneos abrem várias conexões no pool desta factory: fechá-la as devolve ao banco.
+        emf.close();
+    }
+
+    @Test
+    public void naoReservarAlemDoEstoqueComAtendentesSimultaneos() throws Exception {
+        definirEstoqueNoBanco(1000);
+
+        List<Future<Boolean>> tentativas = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 4000; i++) {
+                tentativas.add(executor.submit(() -> {
+                    try {
+                        controleDeEstoque.reservar(produto.getId(), 1);
+                        return true;
+                    } catch (EstoqueInsuficienteException e) {
+                        return false;
+                    }
+                }));
+            }
+        }
+        long aceitas = 0;
+        for (Future<Boolean> tentativa : tentativas) {
+            if (tentativa.get()) {
+                aceitas++;
+            }
+        }
+
+        assertEquals(1000, aceitas);
+        assertEquals(0, controleDeEstoque.disponivel(produto.getId()));
+
+        controleDeEstoque.gravarPendentes();
+        assertEquals(0L, estoqueNoBanco());
+    }
+
+    @Test
+    public void naoVenderAlemDoEstoqueComPedidosSimultaneosDoMesmoProduto() throws Exception {
+        definirEstoqueNoBanco(200);
+
+        // Cada atendente com o seu EntityManager e o seu PedidoService, todos com o mesmo controle de estoque.
+        List<Future<Integer>> atendentes = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 8; i++) {
+                atendentes.add(executor.submit(() -> {
+                    EntityManager emDoAtendente = emf.createEntityManager();
+                    try {
+                        PedidoService pedidoService = new PedidoService(emDoAtendente);
+                        pedidoService.setControleDeEstoque(controleDeEstoque);
+                        int cadastrados = 0;
+                        for (int j = 0; j < 50; j++) {
+                            Pedido pedido = new Pedido(emDoAtendente.getReference(Cliente.class, cliente.getId()));
+                            pedido.adicionarItem(new PedidoItem(1, pedido,
+                                    emDoAtendente.getReference(Produto.class, produto.getId()), produto.getPreco()));
+                            try {
+                                pedidoService.inserir(pedido);
+                                cadastrados++;
+                            } catch (EstoqueInsuficienteException e) {
+                                // Recusado: o estoque acabou.
+                            }
+                        }
+                        return cadastrados;
+                    } finally {
+                        emDoAtendente.close();
+                    }
+                }));
+            }
+        }
+        int cadastrados = 0;
+        for (Future<Integer> atendente : atendentes) {
+            cadastrados += atendente.get();
+        }
+
+        assertEquals(200, cadastrados);
+        assertEquals(200L, em.createQuery("SELECT COUNT(p) FROM Pedido p", Long.class).getSingleResult());
+        assertEquals(0, controleDeEstoque.disponivel(produto.getId()));
+        controleDeEstoque.gravarPendentes();
+        assertEquals(0L, estoqueNoBanco());
+    }
+
+    @Test
+    public void reporEstoquePeloProdutoService() {
+        definirEstoqueNoBanco(2);
+        ProdutoService produtoService = new ProdutoService(em);
+        produtoService.setControleDeEstoque(controleDeEstoque);
+        controleDeEstoque.reservar(produto.getId(), 2);
+
+        assertTrue(produtoService.reporEstoque(produto.getId(), 10));
+        assertEquals(10, controleDeEstoque.disponivel(produto.getId()));
+        // A reposição já está no banco; só a reserva ainda não foi gravada.
+        assertEquals(12L, estoqueNoBanco());
+        assertEquals(0, controleDeEstoque.reconciliar());
+        assertEquals(10L, estoqueNoBanco());
+
+        assertFalse(produtoService.reporEstoque(produto.getId() + 1000, 10));
+        assertThrows(IllegalArgumentException.class, () -> produtoService.reporEstoque(produto.getId(), 0));
+
+        // Sem o controle, a reposição é só o UPDATE relativo.
+        assertTrue(new ProdutoService(em).reporEstoque(produto.getId(), 5));
+        assertEquals(15L, estoqueNoBanco());
+    }
+
+    @Test
+    public void reservarAoCadastrarPedidoEDevolverAoAlterarEExcluirItem() {
+        definirEstoqueNoBanco(15);
+        PedidoService pedidoService = new PedidoService(em);
+        pedidoService.setControleDeEstoque(controleDeEstoque);
+
+        Pedido pedido = new Pedido(cliente);
+        PedidoItem item = new PedidoItem(10, pedido, produto);
+        pedido.adicionarItem(item);
+        pedidoService.inserir(pedido);
+        assertEquals(5, controleDeEstoque.disponivel(produto.getId()));
+
+        Pedido semSaldo = new Pedido(cliente);
+        semSaldo.adicionarItem(new PedidoItem(10, semSaldo, produto));
+        assertThrows(EstoqueInsuficienteException.class, () -> pedidoService.inserir(semSaldo));
+        assertNull(semSaldo.getId());
+        assertEquals(5, controleDeEstoque.disponivel(produto.getId()));
+
+        // Mesma sequência do Main para alterar a quantidade: só a diferença (10 -> 4) volta ao estoque.
+        pedido.removerItem(item);
+        item.setQuantidade(4);
+        pedido.adicionarItem(item);
+        pedidoService.alterar(pedido);
+        assertEquals(11, controleDeEstoque.disponivel(produto.getId()));
+
+        pedido.removerItem(item);
+        pedidoService.alterar(pedido);
+        pedidoService.excluirItem(item);
+        assertEquals(15, controleDeEstoque.disponivel(produto.getId()));
+
+        controleDeEstoque.gravarPendentes();
+        assertEquals(15L, estoqueNoBanco());
+    }
+
+    @Test
+    public void reconciliarAjustaAlteracaoFeitaDiretamenteNoBanco() {
+        definirEstoqueNoBanco(10);
+        controleDeEstoque.reservar(produto.getId(), 3);
+        controleDeEstoque.gravarPendentes();
+
+        // Reposição feita fora da aplicação.
+        em.getTransaction().begin();
+        em.createQuery("UPDATE Produto p SET p.estoque = p.estoque + 50 WHERE p.id = :id")
+                .setParameter("id", produto.getId())
+                .executeUpdate();
+        em.getTransaction().commit();
+
+        assertEquals(1, controleDeEstoque.reconciliar());
+        assertEquals(57, controleDeEstoque.disponivel(produto.getId()));
+        assertEquals(0, controleDeEstoque.reconciliar());
+    }
+
+    private void definirEstoqueNoBanco(long estoque) {
+        em.getTransaction().begin();
+        em.createQuery("UPDATE Produto p SET p.estoque = :estoque WHERE p.id = :id")
+                .setParameter("estoque", estoque)
+                .setParameter("id", produto.getId())
+                .executeUpdate();
+        em.getTransaction().commit();
+    }
+
+    private Long estoqueNoBanco() {
+        return em.createQuery("SELECT p.estoque FROM Produto p WHERE p.id = :id", Long.class)
+                .setParameter("id", produto.getId())
+                .getSingleResult();
+    }
+}
@@ -0,0 +1,219 @@
+import br.com.model.*;
+import br.com.service.CoocorrenciaDeProdutos;
+import br.com.service.ExpurgoDePedidosExcluidos;
+import br.com.service.PedidoService;
+import br.com.service.ProdutoService;
+import br.com.vo.RecomendacaoVo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CoocorrenciaDeProdutosTest {
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private Cliente cliente;
+    private List<Produto> produtos;
+
+    @BeforeEach
+    public void setup() {
+        emf = Persistence.createEntityManagerFactory("PostgresPU", ContadorDeComandos.propriedades());
+        em = emf.createEntityManager();
+
+        Categoria categoria = new Categoria("INFORMATICA");
+        cliente = new Cliente("Fran", "123456");
+        produtos = new ArrayList<>();
+        em.getTransaction().begin();
+        em.persist(categoria);
+        em.persist(cliente);
+        for (int i = 0; i < 40; i++) {
+            Produto produto = new Produto("Produto " + i, "Descrição " + i, new BigDecimal("10.00"), categoria);
+            em.persist(produto);
+            produtos.add(produto);
+        }
+        em.getTransaction().commit();
+    }
+
+    @AfterEach
+    public void limparBanco() {
+        // Pedidos excluídos só saem do banco pelo expurgo.
+        new ExpurgoDePedidosExcluidos(emf, 100, Duration.ZERO).expurgar();
+        em.getTransaction().begin();
+
+        em.createQuery("delete from PedidoItem ip").executeUpdate();
+        em.createQuery("delete from Pedido pd").executeUpdate();
+        em.createQuery("delete from Produto p").executeUpdate();
+        em.createQuery("delete from Categoria c").executeUpdate();
+        em.createQuery("delete from Cliente c").executeUpdate();
+
+        em.getTransaction().commit();
+    }
+
+    @Test
+    public void recomendaOsProdutosMaisCompradosJuntos() {
+        // Notebook (0) com mouse (1) em três pedidos e com teclado (2) em um; o mouse repetido conta uma vez.
+        gravar(0, 1, 1);
+        gravar(0, 1);
+        gravar(0, 1, 2);
+        gravar(3);
+
+        CoocorrenciaDeProdutos coocorrencia = new CoocorrenciaDeProdutos();
+        coocorrencia.carregar(em);
+        ProdutoService produtoService = new ProdutoService(em);
+        produtoService.setCoocorrencia(coocorrencia);
+
+        List<RecomendacaoVo> recomendacoes = produtoService.recomendarPara(id(0), 5);
+        assertEquals(List.of(id(1), id(2)), ids(recomendacoes));
+        assertEquals(3, recomendacoes.get(0).getPedidosEmComum());
+        assertEquals(1.0, recomendacoes.get(0).getConfianca(), 1e-9);
+        assertEquals(1.0 / 3, recomendacoes.get(1).getConfianca(), 1e-9);
+        assertEquals(1, produtoService.recomendarPara(id(0), 1).size());
+        assertTrue(produtoService.recomendarPara(id(3), 5).isEmpty());
+        assertEquals(3, coocorrencia.pares());
+
+        // A recomendação não vai ao banco.
+        ContadorDeComandos.assertComandos(0, () -> produtoService.recomendarPara(id(2), 5));
+
+        assertThrows(IllegalStateException.class, () -> new ProdutoService(em).recomendarPara(id(0), 5));
+    }
+
+    @Test
+    public void pedidosGravadosAtualizamOsPares() {
+        gravar(0, 1);
+        CoocorrenciaDeProdutos coocorrencia = new CoocorrenciaDeProdutos();
+        coocorrencia.carregar(em);
+        PedidoService pedidoService = new PedidoService(em);
+        pedidoService.setCoocorrencia(coocorrencia);
+
+        Pedido pedido = pedido(0, 2, 3);
+        pedidoService.inserir(pedido);
+        assertIgualACargaDoBanco(coocorrencia);
+
+        // Como na opção 17 do Main: o item sai da lista, o pedido é alterado e o item é apagado.
+        PedidoItem removido = pedido.getItens().get(2);
+        pedido.removerItem(removido);
+        pedidoService.alterar(pedido);
+        pedidoService.excluirItem(removido);
+        assertIgualACargaDoBanco(coocorrencia);
+        assertEquals(List.of(id(1), id(2)), ids(coocorrencia.recomendarPara(id(0), 5)));
+
+        pedidoService.excluir(pedido);
+        assertIgualACargaDoBanco(coocorrencia);
+        assertEquals(List.of(id(1)), ids(coocorrencia.recomendarPara(id(0), 5)));
+
+        coocorrencia.removerProduto(id(1));
+        assertTrue(coocorrencia.recomendarPara(id(0), 5).isEmpty());
+        assertEquals(0, coocorrencia.pares());
+    }
+
+    @Test
+    public void removerProdutoReaproveitaAPosicao() {
+        CoocorrenciaDeProdutos coocorrencia = new CoocorrenciaDeProdutos();
+        coocorrencia.registrarPedido(List.of(id(0), id(1), id(2)), 1);
+        coocorrencia.registrarPedido(List.of(id(2), id(3)), 1);
+        assertEquals(4, coocorrencia.produtos());
+
+        // O produto do meio sai e o último ocupa a posição dele: os demais continuam consultáveis.
+        coocorrencia.removerProduto(id(1));
+        assertEquals(3, coocorrencia.produtos());
+        assertEquals(List.of(id(0), id(3)), ids(coocorrencia.recomendarPara(id(2), 5)));
+        assertEquals(List.of(id(2)), ids(coocorrencia.recomendarPara(id(3), 5)));
+        assertTrue(coocorrencia.recomendarPara(id(1), 5).isEmpty());
+
+        coocorrencia.registrarPedido(List.of(id(3), id(4)), 1);
+        assertEquals(4, coocorrencia.produtos());
+        assertEquals(List.of(id(2), id(4)), ids(coocorrencia.recomendarPara(id(3), 5)));
+        assertEquals(3, coocorrencia.pares());
+
+        coocorrencia.removerProduto(id(4));
+        coocorrencia.removerProduto(id(0));
+        assertEquals(2, coocorrencia.produtos());
+        assertEquals(List.of(id(3)), ids(coocorrencia.recomendarPara(id(2), 5)));
+    }
+
+    @Test
+    public void cargaParalelaIgualASequencialEConsultaRapida() {
+        Random aleatorio = new Random(42);
+        em.getTransaction().begin();
+        for (int p = 0; p < 400; p++) {
+            Pedido pedido = new Pedido(cliente);
+            int itens = 2 + aleatorio.nextInt(5);
+            for (int i = 0; i < itens; i++) {
+                // Produtos de índice baixo aparecem mais, como num catálogo real.
+                int indice = (int) Math.min(produtos.size() - 1, Math.abs(aleatorio.nextGaussian()) * 10);
+                pedido.adicionarItem(new PedidoItem(1, pedido, produtos.get(indice)));
+            }
+            em.persist(pedido);
+        }
+        em.getTransaction().commit();
+
+        CoocorrenciaDeProdutos sequencial = new CoocorrenciaDeProdutos(Integer.MAX_VALUE);
+        sequencial.carregar(em);
+        // Faixas de poucos itens: a carga é dividida em muitas tarefas de fork-join.
+        CoocorrenciaDeProdutos paralela = new CoocorrenciaDeProdutos(16);
+        paralela.carregar(em);
+
+        assertEquals(sequencial.pares(), paralela.pares());
+        for (Produto produto : produtos) {
+            assertEquals(textos(sequencial.recomendarPara(produto.getId(), 40)),
+                    textos(paralela.recomendarPara(produto.getId(), 40)));
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            paralela.recomendarPara(produtos.get(i % produtos.size()).getId(), 10);
+        }
+        long inicio = System.nanoTime();
+        int consultas = 10_000;
+        for (int i = 0; i < consultas; i++) {
+            paralela.recomendarPara(produtos.get(i % produtos.size()).getId(), 10);
+        }
+        long mediaEmNanos = (System.nanoTime() - inicio) / consultas;
+        assertTrue(mediaEmNanos < 1_000_000, "Recomendação levou " + mediaEmNanos + " ns em média");
+    }
+
+    private void assertIgualACargaDoBanco(CoocorrenciaDeProdutos coocorrencia) {
+        CoocorrenciaDeProdutos doBanco = new CoocorrenciaDeProdutos();
+        doBanco.carregar(em);
+        assertEquals(doBanco.pares(), coocorrencia.pares());
+        for (Produto produto : produtos.subList(0, 5)) {
+            assertEquals(textos(doBanco.recomendarPara(produto.getId(), 10)),
+                    textos(coocorrencia.recomendarPara(produto.getId(), 10)));
+        }
+    }
+
+    private void gravar(int... indices) {
+        em.getTransaction().begin();
+        em.persist(pedido(indices));
+        em.getTransaction().commit();
+    }
+
+    private Pedido pedido(int... indices) {
+        Pedido pedido = new Pedido(cliente);
+        for (int indice : indices) {
+            pedido.adicionarItem(new PedidoItem(1, pedido, produtos.get(indice)));
+        }
+        return pedido;
+    }
+
+    private Long id(int indice) {
+        return produtos.get(indice).getId();
+    }
+
+    private static List<Long> ids(List<RecomendacaoVo> recomendacoes) {
+        return recomendacoes.stream().map(RecomendacaoVo::getIdProduto).toList();
+    }
+
+    private static List<String> textos(List<RecomendacaoVo> recomendacoes) {
+        return recomendacoes.stream().map(r -> r.getIdProduto() + ":" + r.getPedidosEmComum()).toList();
+    }
+}
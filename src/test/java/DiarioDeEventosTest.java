@@ -0,0 +1,198 @@
+import br.com.evento.DiarioDeEventos;
+import br.com.evento.EntidadeDoEvento;
+import br.com.evento.Evento;
+import br.com.evento.IntegradorDeEventos;
+import br.com.evento.LeitorDeEventos;
+import br.com.evento.TipoDeEvento;
+import br.com.model.*;
+import br.com.service.ExpurgoDePedidosExcluidos;
+import br.com.service.PedidoService;
+import br.com.service.ProdutoService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiarioDeEventosTest {
+    @TempDir
+    Path diretorio;
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+
+    @BeforeEach
+    public void setup() {
+        emf = Persistence.createEntityManagerFactory("PostgresPU",
+                Map.of(IntegradorDeEventos.DIRETORIO, diretorio.toString()));
+        em = emf.createEntityManager();
+    }
+
+    @AfterEach
+    public void limparBanco() {
+        // Pedidos excluídos só saem do banco pelo expurgo.
+        new ExpurgoDePedidosExcluidos(emf, 100, Duration.ZERO).expurgar();
+        em.getTransaction().begin();
+
+        em.createQuery("delete from PedidoItem ip").executeUpdate();
+        em.createQuery("delete from Pedido pd").executeUpdate();
+        em.createQuery("delete from HistoricoDePreco h").executeUpdate();
+        em.createQuery("delete from Produto p").executeUpdate();
+        em.createQuery("delete from Categoria c").executeUpdate();
+        em.createQuery("delete from Cliente c").executeUpdate();
+
+        em.getTransaction().commit();
+        em.close();
+        // Fecha o diário e libera a trava do diretório.
+        emf.close();
+    }
+
+    @Test
+    public void registrarAlteracoesConfirmadasDePedidosEProdutos() {
+        Categoria categoria = new Categoria("CELULARES");
+        Cliente cliente = new Cliente("Fran", "123456");
+        em.getTransaction().begin();
+        em.persist(categoria);
+        em.persist(cliente);
+        em.getTransaction().commit();
+
+        ProdutoService produtoService = new ProdutoService(em);
+        Produto produto = new Produto("Xiaomi Redmi", "O preferido", new BigDecimal("800.10"), categoria);
+        produtoService.inserir(produto);
+
+        // Transação desfeita: nada chega ao diário.
+        em.getTransaction().begin();
+        em.persist(new Produto("Descartado", null, BigDecimal.ONE, categoria));
+        em.getTransaction().rollback();
+        em.clear();
+
+        Pedido pedido = new Pedido(cliente);
+        pedido.adicionarItem(new PedidoItem(3, pedido, produto));
+        new PedidoService(em).inserir(pedido);
+
+        produto.setPreco(new BigDecimal("750"));
+        produtoService.alterar(produto);
+
+        try (LeitorDeEventos leitor = new LeitorDeEventos(diretorio)) {
+            List<Evento> eventos = leitor.ler(100);
+            assertEquals(4, eventos.size(), eventos.toString());
+
+            assertEquals(EntidadeDoEvento.PRODUTO, eventos.get(0).getEntidade());
+            assertEquals(TipoDeEvento.INCLUSAO, eventos.get(0).getTipo());
+            assertEquals(80010, eventos.get(0).getValorEmCentavos());
+            assertEquals(categoria.getId(), eventos.get(0).getIdRelacionado());
+
+            assertEquals(EntidadeDoEvento.PEDIDO, eventos.get(1).getEntidade());
+            assertEquals(pedido.getId(), eventos.get(1).getId());
+            assertEquals(cliente.getId(), eventos.get(1).getIdRelacionado());
+            assertEquals(240030, eventos.get(1).getValorEmCentavos());
+
+            Evento item = eventos.get(2);
+            assertEquals(EntidadeDoEvento.PEDIDO_ITEM, item.getEntidade());
+            assertEquals(pedido.getId(), item.getIdRelacionado());
+            assertEquals(produto.getId(), item.getIdSecundario());
+            assertEquals(3, item.getQuantidade());
+
+            assertEquals(TipoDeEvento.ALTERACAO, eventos.get(3).getTipo());
+            assertEquals(75000, eventos.get(3).getValorEmCentavos());
+            for (int i = 0; i < eventos.size(); i++) {
+                assertEquals(i, eventos.get(i).getOffset());
+            }
+
+            // Acompanhamento incremental: só o que foi gravado depois da última leitura. A exclusão é lógica: só o
+            // pedido é marcado, e os itens saem depois, pelo expurgo, sem eventos.
+            new PedidoService(em).excluir(em.find(Pedido.class, pedido.getId()));
+            List<Evento> novos = leitor.aguardar(100, Duration.ofSeconds(1));
+            assertEquals(1, novos.size(), novos.toString());
+            assertEquals(TipoDeEvento.EXCLUSAO, novos.get(0).getTipo());
+            assertEquals(EntidadeDoEvento.PEDIDO, novos.get(0).getEntidade());
+            assertEquals(5, leitor.getOffset());
+        }
+    }
+
+    @Test
+    public void registrarAlteracoesDePrecoEmMassa() {
+        Categoria categoria = new Categoria("CELULARES");
+        em.getTransaction().begin();
+        em.persist(categoria);
+        em.getTransaction().commit();
+        ProdutoService produtoService = new ProdutoService(em);
+        Produto primeiro = new Produto("Xiaomi Redmi", null, new BigDecimal("800.00"), categoria);
+        Produto segundo = new Produto("Moto G", null, new BigDecimal("1000.00"), categoria);
+        produtoService.inserir(primeiro);
+        produtoService.inserir(segundo);
+
+        // Um produto por lote: um evento de alteração por produto, gravado no commit de cada lote.
+        produtoService.setProdutosPorLote(1);
+        produtoService.reajustarPrecosDaCategoria(categoria.getId(), new BigDecimal("10"));
+        produtoService.definirPrecos(Map.of(primeiro.getId(), new BigDecimal("500.00")));
+
+        try (LeitorDeEventos leitor = new LeitorDeEventos(diretorio)) {
+            List<Evento> alteracoes = leitor.ler(100).stream()
+                    .filter(evento -> evento.getTipo() == TipoDeEvento.ALTERACAO).toList();
+            assertEquals(3, alteracoes.size(), alteracoes.toString());
+            assertEquals(Map.of(primeiro.getId(), 88000L, segundo.getId(), 110000L), Map.of(
+                    alteracoes.get(0).getId(), alteracoes.get(0).getValorEmCentavos(),
+                    alteracoes.get(1).getId(), alteracoes.get(1).getValorEmCentavos()));
+            assertEquals(categoria.getId(), alteracoes.get(0).getIdRelacionado());
+            assertEquals(primeiro.getId(), alteracoes.get(2).getId());
+            assertEquals(50000, alteracoes.get(2).getValorEmCentavos());
+        }
+    }
+
+    @Test
+    public void recusarSegundoEscritorNoMesmoDiretorio() {
+        Path outro = diretorio.resolve("disputado");
+        DiarioDeEventos primeiro = new DiarioDeEventos(outro, 4, Duration.ZERO);
+        assertThrows(IllegalStateException.class, () -> new DiarioDeEventos(outro, 4, Duration.ZERO));
+        primeiro.close();
+        // A tentativa recusada não deixou canal aberto com a trava: o diretório pode ser reaberto.
+        new DiarioDeEventos(outro, 4, Duration.ZERO).close();
+    }
+
+    @Test
+    public void segmentosRetencaoEPosicaoDoConsumidor() throws Exception {
+        // Diário próprio (outro diretório), com segmentos de 4 eventos.
+        Path outro = diretorio.resolve("segmentado");
+        DiarioDeEventos diario = new DiarioDeEventos(outro, 4, Duration.ofMillis(50));
+        for (long id = 1; id <= 10; id++) {
+            diario.registrar(TipoDeEvento.INCLUSAO, EntidadeDoEvento.PRODUTO, id, 0, 0, id * 100, 0);
+        }
+
+        try (LeitorDeEventos consumidor = new LeitorDeEventos(outro, "faturamento")) {
+            assertEquals(6, consumidor.ler(6).size());
+            consumidor.confirmar();
+        }
+        // Reaberto: o escritor continua do próximo offset e o consumidor da posição confirmada.
+        diario.close();
+        diario = new DiarioDeEventos(outro, 4, Duration.ofMillis(50));
+        assertEquals(10, diario.getProximoOffset());
+        try (LeitorDeEventos consumidor = new LeitorDeEventos(outro, "faturamento")) {
+            assertEquals(6, consumidor.getOffset());
+            List<Evento> restantes = consumidor.ler(100);
+            assertEquals(4, restantes.size());
+            assertEquals(1000, restantes.getLast().getValorEmCentavos());
+        }
+
+        // Segmentos [0..3] e [4..7] já passaram da retenção; o atual [8..11] é mantido.
+        Thread.sleep(100);
+        assertEquals(2, diario.aplicarRetencao());
+        try (LeitorDeEventos desdeOInicio = new LeitorDeEventos(outro)) {
+            assertEquals(8, desdeOInicio.primeiroOffsetDisponivel());
+            List<Evento> eventos = desdeOInicio.ler(100);
+            assertEquals(8, eventos.getFirst().getOffset());
+            assertEquals(2, eventos.size());
+        }
+        diario.close();
+    }
+}
@@ -0,0 +1,211 @@
+import br.com.dao.VendaDAO;
+import br.com.model.*;
+import br.com.service.EsbocosDeVendas;
+import br.com.service.PedidoService;
+import br.com.service.VendaService;
+import br.com.util.CountMin;
+import br.com.util.HyperLogLog;
+import br.com.vo.EstimativaVo;
+import br.com.vo.RelatorioDeVendasVo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EsbocosDeVendasTest {
+    private static final LocalDate HOJE = LocalDate.now();
+    private static final LocalDate ONTEM = HOJE.minusDays(1);
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private EsbocosDeVendas esbocos;
+    private PedidoService pedidoService;
+    private VendaService vendaService;
+    private List<Cliente> clientes;
+    private List<Produto> produtos;
+
+    @BeforeEach
+    public void setup() {
+        emf = Persistence.createEntityManagerFactory("PostgresPU", ContadorDeComandos.propriedades());
+        em = emf.createEntityManager();
+
+        Categoria categoria = new Categoria("INFORMATICA");
+        produtos = List.of(
+                new Produto("Notebook", "Notebook 14", new BigDecimal("3500.00"), categoria),
+                new Produto("Mouse", "Mouse sem fio", new BigDecimal("45.90"), categoria),
+                new Produto("Teclado", "Teclado mecânico", new BigDecimal("130.00"), categoria));
+        clientes = List.of(new Cliente("Fran", "123456"), new Cliente("Celso", "987654"), new Cliente("Ana", "555555"));
+        em.getTransaction().begin();
+        em.persist(categoria);
+        produtos.forEach(em::persist);
+        clientes.forEach(em::persist);
+        em.getTransaction().commit();
+
+        esbocos = new EsbocosDeVendas(emf, Duration.ofHours(1));
+        pedidoService = new PedidoService(em);
+        pedidoService.setEsbocosDeVendas(esbocos);
+        vendaService = new VendaService(em);
+        vendaService.setEsbocosDeVendas(esbocos);
+    }
+
+    @AfterEach
+    public void limparBanco() {
+        em.getTransaction().begin();
+
+        em.createQuery("delete from EsbocoDeVendas e").executeUpdate();
+        em.createQuery("delete from PedidoItem ip").executeUpdate();
+        em.createQuery("delete from Pedido pd").executeUpdate();
+        em.createQuery("delete from Produto p").executeUpdate();
+        em.createQuery("delete from Categoria c").executeUpdate();
+        em.createQuery("delete from Cliente c").executeUpdate();
+
+        em.getTransaction().commit();
+    }
+
+    @Test
+    public void pedidosGravadosEntramNasEstimativas() {
+        inserir(clientes.get(0), ONTEM, 1, 5, 0);
+        inserir(clientes.get(1), ONTEM, 0, 2, 1);
+        inserir(clientes.get(0), HOJE, 2, 0, 3);
+        Pedido pedido = inserir(clientes.get(2), HOJE, 0, 1, 0);
+
+        // Alteração: só as unidades acrescentadas entram no esboço.
+        PedidoItem item = pedido.getItens().get(0);
+        pedido.removerItem(item);
+        item.setQuantidade(4);
+        pedido.adicionarItem(item);
+        pedidoService.alterar(pedido);
+
+        // Com poucos valores, o HyperLogLog usa a contagem linear e acerta o número exato.
+        ContadorDeComandos.assertComandos(0, () -> {
+            assertEquals(3, vendaService.estimarClientesDistintos(ONTEM, HOJE).getEstimativa());
+            assertEquals(2, vendaService.estimarClientesDistintos(HOJE, HOJE).getEstimativa());
+            assertEquals(4, vendaService.estimarQuantidadeDePedidos(ONTEM, HOJE).getEstimativa());
+        });
+        EstimativaVo clientesDoPeriodo = vendaService.estimarClientesDistintos(ONTEM, HOJE);
+        assertTrue(clientesDoPeriodo.getLimiteInferior() <= 3 && clientesDoPeriodo.getLimiteSuperior() >= 3);
+        assertEquals(0.95, clientesDoPeriodo.getConfianca());
+
+        assertEquals(exatos(ONTEM, HOJE, 2), textos(vendaService.estimarProdutosMaisVendidos(ONTEM, HOJE, 2)));
+        assertEquals(exatos(HOJE, HOJE, 3), textos(vendaService.estimarProdutosMaisVendidos(HOJE, HOJE, 3)));
+        assertEquals(0, vendaService.estimarQuantidadeDePedidos(HOJE.plusDays(1), HOJE.plusDays(9)).getEstimativa());
+
+        assertThrows(IllegalStateException.class, () -> new VendaService(em).estimarClientesDistintos(ONTEM, HOJE));
+    }
+
+    @Test
+    public void esbocosGravadosEReconstruidosDoBanco() {
+        inserir(clientes.get(0), ONTEM, 1, 5, 0);
+        inserir(clientes.get(1), HOJE, 0, 2, 1);
+        inserir(clientes.get(2), HOJE, 3, 0, 1);
+
+        assertEquals(2, esbocos.gravar());
+        assertEquals(0, esbocos.gravar());
+
+        EsbocosDeVendas carregados = new EsbocosDeVendas(emf, Duration.ofHours(1));
+        carregados.carregar();
+        assertIguais(esbocos, carregados);
+
+        EsbocosDeVendas reconstruidos = new EsbocosDeVendas(emf, Duration.ofHours(1));
+        reconstruidos.reconstruir(ONTEM, HOJE);
+        assertIguais(esbocos, reconstruidos);
+        assertEquals(exatos(ONTEM, HOJE, 3), textos(reconstruidos.estimarProdutosMaisVendidos(ONTEM, HOJE, 3)));
+    }
+
+    @Test
+    public void diasSemEsbocoSaoPreenchidosDoBanco() {
+        inserir(clientes.get(0), ONTEM, 1, 5, 0);
+        inserir(clientes.get(1), HOJE, 0, 2, 1);
+        assertEquals(2, esbocos.gravar());
+        em.getTransaction().begin();
+        em.createQuery("delete from EsbocoDeVendas e where e.data = :data").setParameter("data", HOJE).executeUpdate();
+        em.getTransaction().commit();
+
+        EsbocosDeVendas preenchidos = new EsbocosDeVendas(emf, Duration.ofHours(1));
+        preenchidos.carregar();
+        assertEquals(1, preenchidos.preencherDiasSemEsboco());
+        assertEquals(0, preenchidos.preencherDiasSemEsboco());
+        assertIguais(esbocos, preenchidos);
+    }
+
+    @Test
+    public void grandesVolumesDentroDoErroDeclarado() {
+        // 100 mil clientes distintos: 60 mil em cada esboço, 20 mil em comum.
+        HyperLogLog primeiro = new HyperLogLog(EsbocosDeVendas.PRECISAO);
+        HyperLogLog segundo = new HyperLogLog(EsbocosDeVendas.PRECISAO);
+        for (long id = 0; id < 60_000; id++) {
+            primeiro.adicionar(id);
+        }
+        for (long id = 40_000; id < 100_000; id++) {
+            segundo.adicionar(id);
+        }
+        HyperLogLog copia = HyperLogLog.deBytes(primeiro.paraBytes());
+        assertEquals(primeiro.estimar(), copia.estimar());
+        primeiro.unir(segundo);
+        double erro = Math.abs(primeiro.estimar() - 100_000) / 100_000.0;
+        assertTrue(erro < 3 * primeiro.getErroPadrao(), "Erro de " + erro);
+
+        // Frequências concentradas em poucos produtos (Zipf): as estimativas nunca ficam abaixo do real
+        // e passam dele em no máximo o erro declarado.
+        CountMin produtos = new CountMin(EsbocosDeVendas.LARGURA, EsbocosDeVendas.PROFUNDIDADE);
+        long[] reais = new long[2_000];
+        Random aleatorio = new Random(7);
+        for (int i = 0; i < 200_000; i++) {
+            int produto = (int) Math.min(reais.length - 1, Math.floor(1 / (aleatorio.nextDouble() + 1e-3)));
+            reais[produto]++;
+            produtos.adicionar(produto, 1);
+        }
+        CountMin recuperado = CountMin.deBytes(produtos.paraBytes());
+        int acimaDoErro = 0;
+        for (int produto = 0; produto < reais.length; produto++) {
+            long estimativa = recuperado.estimar(produto);
+            assertTrue(estimativa >= reais[produto]);
+            if (estimativa - reais[produto] > recuperado.getErroMaximo()) {
+                acimaDoErro++;
+            }
+        }
+        assertTrue(acimaDoErro <= reais.length * (1 - recuperado.getConfianca()), acimaDoErro + " acima do erro");
+    }
+
+    private Pedido inserir(Cliente cliente, LocalDate data, int notebooks, int mouses, int teclados) {
+        Pedido pedido = new Pedido(cliente);
+        pedido.setData(data);
+        int[] quantidades = {notebooks, mouses, teclados};
+        for (int i = 0; i < quantidades.length; i++) {
+            if (quantidades[i] > 0) {
+                pedido.adicionarItem(new PedidoItem(quantidades[i], pedido, produtos.get(i)));
+            }
+        }
+        pedidoService.inserir(pedido);
+        return pedido;
+    }
+
+    private void assertIguais(EsbocosDeVendas esperados, EsbocosDeVendas obtidos) {
+        for (LocalDate dia : List.of(ONTEM, HOJE)) {
+            assertEquals(esperados.estimarClientesDistintos(dia, dia).getEstimativa(),
+                    obtidos.estimarClientesDistintos(dia, dia).getEstimativa());
+            assertEquals(esperados.estimarPedidos(dia, dia).getEstimativa(), obtidos.estimarPedidos(dia, dia).getEstimativa());
+            assertEquals(textos(esperados.estimarProdutosMaisVendidos(dia, dia, 3)),
+                    textos(obtidos.estimarProdutosMaisVendidos(dia, dia, 3)));
+        }
+    }
+
+    private List<String> exatos(LocalDate dataIni, LocalDate dataFim, int limite) {
+        List<RelatorioDeVendasVo> exatos = new VendaDAO(em).relatorioDeVendas(dataIni, dataFim, limite);
+        return exatos.stream().map(venda -> venda.getIdProduto() + ":" + venda.getQuantidadeVendida()).toList();
+    }
+
+    private static List<String> textos(List<EstimativaVo> estimativas) {
+        return estimativas.stream().map(estimativa -> estimativa.getIdProduto() + ":" + estimativa.getEstimativa()).toList();
+    }
+}
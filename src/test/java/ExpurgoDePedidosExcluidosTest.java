@@ -0,0 +1,127 @@
+import br.com.model.*;
+import br.com.service.ExpurgoDePedidosExcluidos;
+import br.com.service.PedidoService;
+import br.com.service.VendaService;
+import br.com.vo.RelatorioDeVendasVo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpurgoDePedidosExcluidosTest {
+    private static final LocalDate HOJE = LocalDate.now();
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private PedidoService pedidoService;
+    private Cliente cliente;
+    private List<Produto> produtos;
+
+    @BeforeEach
+    public void setup() {
+        emf = Persistence.createEntityManagerFactory("PostgresPU", ContadorDeComandos.propriedades());
+        em = emf.createEntityManager();
+
+        Categoria categoria = new Categoria("INFORMATICA");
+        cliente = new Cliente("Fran", "123456");
+        produtos = new ArrayList<>();
+        em.getTransaction().begin();
+        em.persist(categoria);
+        em.persist(cliente);
+        for (int i = 0; i < 3; i++) {
+            Produto produto = new Produto("Produto " + i, "Descrição " + i, new BigDecimal("10.00"), categoria);
+            em.persist(produto);
+            produtos.add(produto);
+        }
+        em.getTransaction().commit();
+        pedidoService = new PedidoService(em);
+    }
+
+    @AfterEach
+    public void limparBanco() {
+        new ExpurgoDePedidosExcluidos(emf, 100, Duration.ZERO).expurgar();
+        em.getTransaction().begin();
+
+        em.createQuery("delete from PedidoItem ip").executeUpdate();
+        em.createQuery("delete from Pedido pd").executeUpdate();
+        em.createQuery("delete from Produto p").executeUpdate();
+        em.createQuery("delete from Categoria c").executeUpdate();
+        em.createQuery("delete from Cliente c").executeUpdate();
+
+        em.getTransaction().commit();
+    }
+
+    @Test
+    public void exclusaoLogicaNaoDependeDosItensESomeDasConsultas() {
+        Pedido pequeno = inserir(1);
+        Pedido grande = inserir(300);
+        Pedido mantido = inserir(2);
+        em.clear();
+
+        // Pedido desanexado (como vem da API): um SELECT e um UPDATE, com 1 ou 300 itens.
+        ContadorDeComandos.assertComandos(2, () -> pedidoService.excluir(pequeno));
+        ContadorDeComandos.assertComandos(2, () -> pedidoService.excluir(grande));
+        assertTrue(grande.isExcluido());
+
+        assertNull(pedidoService.buscarPedidoPorId(grande.getId()));
+        assertEquals(List.of(mantido.getId()),
+                pedidoService.buscarPedidoPorPeriodo(HOJE, HOJE).stream().map(Pedido::getId).toList());
+        assertEquals(List.of(mantido.getId()),
+                pedidoService.buscarPedidoDeUmCliente(cliente.getId()).stream().map(Pedido::getId).toList());
+
+        VendaService vendaService = new VendaService(em);
+        assertEquals(0, new BigDecimal("20.00").compareTo(vendaService.retornaValorTotalVendido(HOJE, HOJE)));
+        List<RelatorioDeVendasVo> relatorio = vendaService.retornaRelatorioDeVendas();
+        assertEquals(2, relatorio.stream().mapToLong(RelatorioDeVendasVo::getQuantidadeVendida).sum());
+
+        // Até o expurgo, as linhas continuam no banco.
+        assertEquals(3, contar("SELECT COUNT(*) FROM pedidos"));
+        assertEquals(303, contar("SELECT COUNT(*) FROM pedido_itens"));
+    }
+
+    @Test
+    public void expurgoRemoveOsExcluidosEmLotes() {
+        List<Pedido> pedidos = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            pedidos.add(inserir(i + 1));
+        }
+        for (int i = 0; i < 5; i++) {
+            pedidoService.excluir(pedidos.get(i));
+        }
+
+        ExpurgoDePedidosExcluidos expurgo = new ExpurgoDePedidosExcluidos(emf, 2, Duration.ofMillis(10));
+        // Lotes de 2, 2 e 1 pedidos.
+        ContadorDeComandos.Medicao medicao = ContadorDeComandos.medir(() -> assertEquals(5, expurgo.expurgar()));
+        assertEquals(9, medicao.getTotal());
+        assertEquals(6, medicao.getDeletes());
+        assertEquals(5, expurgo.getPedidosExpurgados());
+        assertEquals(0, expurgo.expurgar());
+
+        assertEquals(1, contar("SELECT COUNT(*) FROM pedidos"));
+        assertEquals(6, contar("SELECT COUNT(*) FROM pedido_itens"));
+        assertNotNull(pedidoService.buscarPedidoPorId(pedidos.get(5).getId()));
+    }
+
+    private Pedido inserir(int itens) {
+        Pedido pedido = new Pedido(cliente);
+        for (int i = 0; i < itens; i++) {
+            pedido.adicionarItem(new PedidoItem(1, pedido, produtos.get(i % produtos.size())));
+        }
+        pedidoService.inserir(pedido);
+        return pedido;
+    }
+
+    private long contar(String sql) {
+        return ((Number) em.createNativeQuery(sql).getSingleResult()).longValue();
+    }
+}
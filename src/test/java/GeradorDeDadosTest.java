@@ -0,0 +1,106 @@
+import br.com.GeradorDeDados;
+import br.com.dao.VendaDAO;
+import br.com.model.Cliente;
+import br.com.vo.RelatorioDeVendasVo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GeradorDeDadosTest {
+    private static final LocalDate FIM = LocalDate.of(2024, 12, 31);
+
+    @Test
+    public void mesmoConteudoComQualquerNumeroDeThreads() {
+        List<String> sequencial = gerarEResumir("gerador-sequencial", 1);
+        List<String> paralelo = gerarEResumir("gerador-paralelo", 4);
+        assertEquals(sequencial, paralelo);
+    }
+
+    @Test
+    public void distribuicoesComConcentracaoESazonalidade() {
+        EntityManagerFactory emf = banco("gerador-distribuicoes");
+        try {
+            GeradorDeDados.Resumo resumo = new GeradorDeDados(parametros(4)).gerar(emf);
+            assertEquals(5_000, resumo.pedidos());
+            assertTrue(resumo.itens() > 5_000 && resumo.itens() <= 5_000 * 8L);
+
+            EntityManager em = emf.createEntityManager();
+            assertEquals(5_000L, em.createQuery("select count(p) from Pedido p", Long.class).getSingleResult());
+            assertEquals(resumo.itens(), em.createQuery("select count(i) from PedidoItem i", Long.class).getSingleResult());
+
+            // Zipf: o produto mais vendido vende muito mais que a mediana dos produtos.
+            List<RelatorioDeVendasVo> ranking = new VendaDAO(em).relatorioDeVendas();
+            long primeiro = ranking.get(0).getQuantidadeVendida();
+            long mediana = ranking.get(ranking.size() / 2).getQuantidadeVendida();
+            assertTrue(primeiro > 10 * mediana, primeiro + " x " + mediana);
+
+            // Sazonalidade: dezembro acima de junho e sábados acima de terças.
+            List<LocalDate> datas = em.createQuery("select p.data from Pedido p", LocalDate.class).getResultList();
+            assertTrue(contar(datas, 12) > 1.5 * contar(datas, 6));
+            assertTrue(datas.stream().filter(d -> d.getDayOfWeek() == DayOfWeek.SATURDAY).count()
+                    > datas.stream().filter(d -> d.getDayOfWeek() == DayOfWeek.TUESDAY).count());
+
+            // As colunas identity continuam depois dos IDs gerados: o cadastro pelo JPA segue funcionando.
+            em.getTransaction().begin();
+            Cliente cliente = new Cliente("Depois da geração", "99999999999");
+            em.persist(cliente);
+            em.getTransaction().commit();
+            assertEquals(501L, cliente.getId());
+            em.close();
+        } finally {
+            emf.close();
+        }
+    }
+
+    private List<String> gerarEResumir(String nome, int threads) {
+        EntityManagerFactory emf = banco(nome);
+        try {
+            new GeradorDeDados(parametros(threads)).gerar(emf);
+            EntityManager em = emf.createEntityManager();
+            try {
+                return em.createQuery("select p.id, p.data, p.cliente.id, p.valorTotal, "
+                                + "(select count(i) from PedidoItem i where i.pedido = p) from Pedido p order by p.id", Object[].class)
+                        .getResultList().stream().map(Arrays::toString).toList();
+            } finally {
+                em.close();
+            }
+        } finally {
+            emf.close();
+        }
+    }
+
+    private static Properties parametros(int threads) {
+        Properties parametros = new Properties();
+        parametros.setProperty("categorias", "5");
+        parametros.setProperty("produtos", "200");
+        parametros.setProperty("clientes", "500");
+        parametros.setProperty("pedidos", "5000");
+        parametros.setProperty("dataFim", FIM.toString());
+        parametros.setProperty("dias", "365");
+        parametros.setProperty("semente", "42");
+        parametros.setProperty("threads", String.valueOf(threads));
+        parametros.setProperty("lote", "250");
+        return parametros;
+    }
+
+    // Banco H2 próprio por teste, para os IDs gerados não dependerem dos outros testes.
+    private static EntityManagerFactory banco(String nome) {
+        return Persistence.createEntityManagerFactory("H2PU", Map.of(
+                "javax.persistence.jdbc.url", "jdbc:h2:mem:" + nome + ";DB_CLOSE_DELAY=-1",
+                "hibernate.show_sql", "false"));
+    }
+
+    private static long contar(List<LocalDate> datas, int mes) {
+        return datas.stream().filter(d -> d.getMonthValue() == mes).count();
+    }
+}
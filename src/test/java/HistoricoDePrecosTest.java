@@ -0,0 +1,139 @@
+import br.com.model.Categoria;
+import br.com.model.Produto;
+import br.com.service.HistoricoDePrecos;
+import br.com.service.ProdutoService;
+import br.com.vo.AlteracaoDePrecoVo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HistoricoDePrecosTest {
+    private static final LocalDate HOJE = LocalDate.now();
+
+    private EntityManager em;
+    private ProdutoService produtoService;
+    private Categoria categoria;
+
+    @BeforeEach
+    public void setup() {
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("PostgresPU", ContadorDeComandos.propriedades());
+        em = emf.createEntityManager();
+        categoria = new Categoria("INFORMATICA");
+        em.getTransaction().begin();
+        em.persist(categoria);
+        em.getTransaction().commit();
+        produtoService = new ProdutoService(em);
+    }
+
+    @AfterEach
+    public void limparBanco() {
+        em.clear();
+        em.getTransaction().begin();
+
+        em.createQuery("delete from HistoricoDePreco h").executeUpdate();
+        em.createQuery("delete from Produto p").executeUpdate();
+        em.createQuery("delete from Categoria c").executeUpdate();
+
+        em.getTransaction().commit();
+    }
+
+    @Test
+    public void cadaAlteracaoDePrecoFechaUmIntervaloEAbreOutro() throws InterruptedException {
+        Produto mouse = new Produto("Mouse", "Mouse sem fio", new BigDecimal("50.00"), categoria);
+        produtoService.inserir(mouse);
+        LocalDateTime aos50 = instanteSeguinte();
+
+        mouse.setPreco(new BigDecimal("45.00"));
+        produtoService.alterar(mouse);
+        LocalDateTime aos45 = instanteSeguinte();
+
+        // Alteração sem mudança de preço: nenhuma linha nova no histórico.
+        mouse.setNome("Mouse óptico");
+        produtoService.alterar(mouse);
+
+        produtoService.reajustarPrecosDaCategoria(categoria.getId(), new BigDecimal("10"));
+        LocalDateTime aos49 = instanteSeguinte();
+
+        produtoService.definirPrecos(Map.of(mouse.getId(), new BigDecimal("60.00")));
+        LocalDateTime aos60 = instanteSeguinte();
+
+        produtoService.excluir(produtoService.buscarProdutoPorId(mouse.getId()));
+
+        // Consulta no banco (sem índice) e no índice em memória: as mesmas respostas.
+        HistoricoDePrecos indice = new HistoricoDePrecos();
+        indice.carregar(em);
+        assertEquals(1, indice.getProdutos());
+        ProdutoService comIndice = new ProdutoService(em);
+        comIndice.setHistoricoDePrecos(indice);
+        for (ProdutoService service : List.of(produtoService, comIndice)) {
+            assertNull(service.precoEm(mouse.getId(), aos50.minusDays(1)));
+            assertEquals(0, new BigDecimal("50.00").compareTo(service.precoEm(mouse.getId(), aos50)));
+            assertEquals(0, new BigDecimal("45.00").compareTo(service.precoEm(mouse.getId(), aos45)));
+            assertEquals(0, new BigDecimal("49.50").compareTo(service.precoEm(mouse.getId(), aos49)));
+            assertEquals(0, new BigDecimal("60.00").compareTo(service.precoEm(mouse.getId(), aos60)));
+            // Produto excluído: o último intervalo foi fechado.
+            assertNull(service.precoEm(mouse.getId(), LocalDateTime.now(ZoneOffset.UTC).plusDays(1)));
+        }
+
+        List<AlteracaoDePrecoVo> alteracoes = produtoService.buscarAlteracoesDePreco(HOJE, HOJE);
+        assertEquals(4, alteracoes.size());
+        assertNull(alteracoes.get(0).getPrecoAnterior());
+        assertEquals(0, new BigDecimal("50.00").compareTo(alteracoes.get(1).getPrecoAnterior()));
+        assertEquals(0, new BigDecimal("45.00").compareTo(alteracoes.get(1).getPrecoNovo()));
+        assertEquals(0, new BigDecimal("49.50").compareTo(alteracoes.get(3).getPrecoAnterior()));
+        assertEquals(0, new BigDecimal("60.00").compareTo(alteracoes.get(3).getPrecoNovo()));
+        assertTrue(produtoService.buscarAlteracoesDePreco(HOJE.minusDays(2), HOJE.minusDays(1)).isEmpty());
+    }
+
+    @Test
+    public void indiceReleDoBancoOsProdutosAlteradosDepoisDoCommit() throws InterruptedException {
+        HistoricoDePrecos indice = new HistoricoDePrecos();
+        indice.carregar(em);
+        produtoService.setHistoricoDePrecos(indice);
+
+        Produto teclado = new Produto("Teclado", "Teclado mecânico", new BigDecimal("200.00"), categoria);
+        Produto monitor = new Produto("Monitor", "Monitor 24\"", new BigDecimal("900.00"), categoria);
+        produtoService.inserir(teclado);
+        produtoService.inserir(monitor);
+        LocalDateTime antes = instanteSeguinte();
+
+        // Uma consulta para os dois produtos; as seguintes são respondidas da memória.
+        ContadorDeComandos.assertComandos(1, () -> assertEquals(2, indice.precosEm(
+                List.of(teclado.getId(), monitor.getId()), antes, em).size()));
+        ContadorDeComandos.assertComandos(0, () -> assertEquals(0,
+                new BigDecimal("200.00").compareTo(produtoService.precoEm(teclado.getId(), antes))));
+
+        teclado.setPreco(new BigDecimal("180.00"));
+        produtoService.alterar(teclado);
+        LocalDateTime depois = instanteSeguinte();
+
+        // O teclado saiu do índice e é relido; o monitor continua em memória.
+        ContadorDeComandos.assertComandos(1, () -> {
+            assertEquals(0, new BigDecimal("200.00").compareTo(produtoService.precoEm(teclado.getId(), antes)));
+            assertEquals(0, new BigDecimal("180.00").compareTo(produtoService.precoEm(teclado.getId(), depois)));
+            assertEquals(0, new BigDecimal("900.00").compareTo(produtoService.precoEm(monitor.getId(), depois)));
+        });
+        assertTrue(indice.precosEm(List.of(-1L), depois, em).isEmpty());
+    }
+
+    // Um instante (em UTC, como o histórico) depois da última gravação, para que as consultas não caiam no mesmo
+    // microssegundo.
+    private static LocalDateTime instanteSeguinte() throws InterruptedException {
+        Thread.sleep(2);
+        LocalDateTime instante = LocalDateTime.now(ZoneOffset.UTC);
+        Thread.sleep(2);
+        return instante;
+    }
+}
@@ -0,0 +1,215 @@
+import br.com.model.*;
+import br.com.service.ContadoresDeVendas;
+import br.com.service.CoocorrenciaDeProdutos;
+import br.com.service.EsbocosDeVendas;
+import br.com.service.PedidoService;
+import br.com.service.VendaService;
+import br.com.util.Granularidade;
+import br.com.vo.RecomendacaoVo;
+import br.com.vo.RelatorioDeVendasVo;
+import br.com.vo.RelatorioFinanceiroVo;
+import br.com.vo.SerieDeVendasVo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PedidoCompactoTest {
+    private static final LocalDate HOJE = LocalDate.now();
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private PedidoService pedidoService;
+    private Cliente cliente;
+    private List<Produto> produtos;
+
+    @BeforeEach
+    public void setup() {
+        emf = Persistence.createEntityManagerFactory("PostgresPU", ContadorDeComandos.propriedades());
+        em = emf.createEntityManager();
+
+        Categoria informatica = new Categoria("INFORMATICA");
+        Categoria games = new Categoria("GAMES");
+        cliente = new Cliente("Fran", "123456");
+        produtos = new ArrayList<>();
+        em.getTransaction().begin();
+        em.persist(informatica);
+        em.persist(games);
+        em.persist(cliente);
+        produtos.add(new Produto("Notebook", "Notebook", new BigDecimal("3000.00"), informatica));
+        produtos.add(new Produto("Mouse", "Mouse", new BigDecimal("50.00"), informatica));
+        produtos.add(new Produto("PS5", "PS5", new BigDecimal("4000.00"), games));
+        produtos.forEach(em::persist);
+        em.getTransaction().commit();
+        pedidoService = new PedidoService(em);
+    }
+
+    @AfterEach
+    public void limparBanco() {
+        em.getTransaction().begin();
+
+        em.createQuery("delete from EsbocoDeVendas e").executeUpdate();
+        em.createQuery("delete from PedidoCompacto pc").executeUpdate();
+        em.createQuery("delete from PedidoItem ip").executeUpdate();
+        em.createQuery("delete from Pedido pd").executeUpdate();
+        em.createQuery("delete from Produto p").executeUpdate();
+        em.createQuery("delete from Categoria c").executeUpdate();
+        em.createQuery("delete from Cliente c").executeUpdate();
+
+        em.getTransaction().commit();
+    }
+
+    @Test
+    public void conversorGravaAsLinhasEmPoucosBytes() {
+        ConversorDeLinhasDePedido conversor = new ConversorDeLinhasDePedido();
+        List<LinhaDePedido> linhas = List.of(
+                new LinhaDePedido(1_000_000L, 2, new BigDecimal("19.90")),
+                new LinhaDePedido(999_997L, 1, new BigDecimal("4000.00")),
+                new LinhaDePedido(5L, 300, 0L));
+
+        byte[] dados = conversor.convertToDatabaseColumn(linhas);
+        assertTrue(dados.length <= 20, "Tamanho gravado: " + dados.length);
+        assertEquals(linhas, conversor.convertToEntityAttribute(dados));
+
+        assertEquals(List.of(), conversor.convertToEntityAttribute(conversor.convertToDatabaseColumn(List.of())));
+        assertThrows(IllegalArgumentException.class, () -> conversor.convertToEntityAttribute(new byte[]{9, 0}));
+        assertThrows(IllegalArgumentException.class, () -> conversor.convertToEntityAttribute(new byte[]{1, 2, 4}));
+    }
+
+    @Test
+    public void pedidoCompactoEGravadoELidoComUmComando() {
+        Pedido normal = new Pedido(cliente);
+        PedidoCompacto compacto = new PedidoCompacto(cliente);
+        for (Produto produto : produtos) {
+            normal.adicionarItem(new PedidoItem(2, normal, produto));
+            compacto.adicionarItem(produto, 2);
+        }
+        assertEquals(0, normal.getValorTotal().compareTo(compacto.getValorTotal()));
+
+        // Normalizado: o pedido e um INSERT por item. Compacto: só o pedido.
+        ContadorDeComandos.assertComandos(4, () -> pedidoService.inserir(normal));
+        ContadorDeComandos.assertComandos(1, () -> pedidoService.inserirCompacto(compacto));
+        em.clear();
+
+        ContadorDeComandos.assertComandos(2, () -> em.find(Pedido.class, normal.getId()).getItens().size());
+        ContadorDeComandos.assertComandos(1, () -> {
+            PedidoCompacto lido = em.find(PedidoCompacto.class, compacto.getId());
+            assertEquals(compacto.getItens(), lido.getItens());
+            assertEquals(0, compacto.getValorTotal().compareTo(lido.getValorTotal()));
+        });
+
+        // A lista é substituída a cada alteração: o pedido lido e não alterado não gera UPDATE no commit.
+        em.getTransaction().begin();
+        PedidoCompacto lido = em.find(PedidoCompacto.class, compacto.getId());
+        ContadorDeComandos.assertComandos(0, () -> em.flush());
+        lido.removerItem(lido.getItens().getFirst());
+        ContadorDeComandos.assertComandos(1, () -> em.flush());
+        em.getTransaction().commit();
+        em.clear();
+        assertEquals(2, em.find(PedidoCompacto.class, compacto.getId()).getItens().size());
+    }
+
+    @Test
+    public void relatoriosSomamOsPedidosCompactosQuandoConfigurados() {
+        Pedido normal = new Pedido(cliente);
+        normal.adicionarItem(new PedidoItem(1, normal, produtos.get(0)));
+        pedidoService.inserir(normal);
+        PedidoCompacto compacto = new PedidoCompacto(cliente);
+        compacto.adicionarItem(produtos.get(0), 2);
+        compacto.adicionarItem(produtos.get(1), 1);
+        compacto.adicionarItem(produtos.get(2), 1);
+        pedidoService.inserirCompacto(compacto);
+        pedidoService.inserirCompacto(new PedidoCompacto(cliente));
+
+        VendaService somenteNormais = new VendaService(em);
+        assertEquals(0, new BigDecimal("3000.00").compareTo(somenteNormais.retornaValorTotalVendido(HOJE, HOJE)));
+
+        VendaService vendaService = new VendaService(em);
+        vendaService.setComPedidosCompactos(true);
+        assertEquals(0, new BigDecimal("13050.00").compareTo(vendaService.retornaValorTotalVendido(HOJE, HOJE)));
+
+        List<RelatorioDeVendasVo> maisVendidos = vendaService.retornaProdutosMaisVendidos(HOJE, HOJE, 1);
+        assertEquals(1, maisVendidos.size());
+        assertEquals("Notebook", maisVendidos.getFirst().getNomeProduto());
+        assertEquals(3L, maisVendidos.getFirst().getQuantidadeVendida());
+        assertEquals(3, vendaService.retornaRelatorioDeVendas().size());
+
+        RelatorioFinanceiroVo financeiro = vendaService.retornaMelhoresClientes(1).getFirst();
+        assertEquals(0, new BigDecimal("13050.00").compareTo(financeiro.getTotalPedidosDoCliente()));
+
+        try (Stream<SerieDeVendasVo> serie = vendaService.retornaSerieDeVendas(HOJE, HOJE, Granularidade.DIA)) {
+            SerieDeVendasVo dia = serie.toList().getFirst();
+            assertEquals(0, new BigDecimal("13050.00").compareTo(dia.getFaturamento()));
+            assertEquals(3, dia.getQuantidadePedidos());
+            assertEquals(5, dia.getUnidadesVendidas());
+        }
+        try (Stream<SerieDeVendasVo> serie = vendaService.retornaSerieDeVendasPorCategoria(HOJE, HOJE, Granularidade.DIA)) {
+            List<SerieDeVendasVo> categorias = serie.toList();
+            assertEquals(2, categorias.size());
+            SerieDeVendasVo informatica = categorias.stream()
+                    .filter(c -> "INFORMATICA".equals(c.getNomeCategoria())).findFirst().orElseThrow();
+            assertEquals(0, new BigDecimal("9050.00").compareTo(informatica.getFaturamento()));
+            assertEquals(2, informatica.getQuantidadePedidos());
+            assertEquals(4, informatica.getUnidadesVendidas());
+        }
+    }
+
+    @Test
+    public void pedidosCompactosAtualizamContadoresCoocorrenciaEEsbocos() {
+        ContadoresDeVendas contadores = new ContadoresDeVendas(emf, Duration.ofHours(1));
+        CoocorrenciaDeProdutos coocorrencia = new CoocorrenciaDeProdutos();
+        EsbocosDeVendas esbocos = new EsbocosDeVendas(emf, Duration.ofHours(1));
+        pedidoService.setContadoresDeVendas(contadores);
+        pedidoService.setCoocorrencia(coocorrencia);
+        pedidoService.setEsbocosDeVendas(esbocos);
+
+        Pedido normal = new Pedido(cliente);
+        normal.adicionarItem(new PedidoItem(1, normal, produtos.get(0)));
+        pedidoService.inserir(normal);
+        PedidoCompacto compacto = new PedidoCompacto(cliente);
+        compacto.adicionarItem(produtos.get(0), 2);
+        compacto.adicionarItem(produtos.get(1), 1);
+        pedidoService.inserirCompacto(compacto);
+        PedidoCompacto semCliente = new PedidoCompacto();
+        semCliente.adicionarItem(produtos.get(1), 1);
+        semCliente.adicionarItem(produtos.get(2), 1);
+        pedidoService.inserirCompacto(semCliente);
+
+        List<RelatorioDeVendasVo> vendas = contadores.relatorioDeVendas();
+        assertEquals(List.of(3L, 2L, 1L), vendas.stream().map(RelatorioDeVendasVo::getQuantidadeVendida).toList());
+        RelatorioFinanceiroVo financeiro = contadores.relatorioFinanceiro().getFirst();
+        assertEquals(0, new BigDecimal("9050.00").compareTo(financeiro.getTotalPedidosDoCliente()));
+        // O banco (somando os pedidos compactos, inclusive o sem cliente) confere com a memória.
+        assertEquals(0, contadores.verificar());
+
+        assertEquals(List.of(produtos.get(1).getId()), recomendados(coocorrencia, produtos.get(0)));
+        assertEquals(List.of(produtos.get(0).getId(), produtos.get(2).getId()),
+                recomendados(coocorrencia, produtos.get(1)).stream().sorted().toList());
+        coocorrencia.carregar(em);
+        assertEquals(List.of(produtos.get(1).getId()), recomendados(coocorrencia, produtos.get(0)));
+        assertEquals(2, coocorrencia.pares());
+
+        // Os IDs dos pedidos compactos não se confundem com os de Pedido, nem na memória nem na reconstrução.
+        assertEquals(3, esbocos.estimarPedidos(HOJE, HOJE).getEstimativa());
+        assertEquals(1, esbocos.estimarClientesDistintos(HOJE, HOJE).getEstimativa());
+        esbocos.reconstruir(HOJE, HOJE);
+        assertEquals(3, esbocos.estimarPedidos(HOJE, HOJE).getEstimativa());
+        assertEquals(1, esbocos.estimarClientesDistintos(HOJE, HOJE).getEstimativa());
+        esbocos.close();
+    }
+
+    private static List<Long> recomendados(CoocorrenciaDeProdutos coocorrencia, Produto produto) {
+        return coocorrencia.recomendarPara(produto.getId(), 5).stream().map(RecomendacaoVo::getIdProduto).toList();
+    }
+}
@@ -0,0 +1,138 @@
+import br.com.model.*;
+import br.com.service.CatalogoReplicado;
+import br.com.service.PedidoServiceParticionado;
+import br.com.service.VendaServiceParticionado;
+import br.com.util.JPAUtil;
+import br.com.util.RoteadorDeShards;
+import br.com.vo.RelatorioDeVendasVo;
+import br.com.vo.RelatorioFinanceiroVo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PedidoServiceParticionadoTest {
+    private static final int QUANTIDADE_DE_SHARDS = 3;
+
+    private List<EntityManagerFactory> shards;
+    private RoteadorDeShards roteador;
+    private PedidoServiceParticionado pedidoService;
+    private VendaServiceParticionado vendaService;
+    private List<Cliente> clientes;
+    private Produto celular;
+    private Produto videogame;
+
+    @BeforeEach
+    public void setup() {
+        // Cada shard é um banco H2 em memória independente.
+        String prefixo = "shard-" + UUID.randomUUID();
+        shards = new ArrayList<>();
+        for (int i = 0; i < QUANTIDADE_DE_SHARDS; i++) {
+            shards.add(JPAUtil.criarEntityManagerFactory("H2PU", "jdbc:h2:mem:" + prefixo + "-" + i + ";DB_CLOSE_DELAY=-1"));
+        }
+        roteador = new RoteadorDeShards(shards);
+        roteador.prepararIdentidades();
+
+        popularCatalogo(new CatalogoReplicado(roteador));
+
+        pedidoService = new PedidoServiceParticionado(roteador);
+        vendaService = new VendaServiceParticionado(roteador);
+    }
+
+    @AfterEach
+    public void fecharShards() {
+        pedidoService.close();
+        vendaService.close();
+        roteador.close();
+        shards.forEach(EntityManagerFactory::close);
+    }
+
+    @Test
+    public void cadastrarPedidoNoShardDoCliente() {
+        for (Cliente cliente : clientes) {
+            Pedido pedido = new Pedido(cliente);
+            pedido.adicionarItem(new PedidoItem(1, pedido, celular));
+            pedidoService.inserir(pedido);
+
+            assertEquals(roteador.indiceDoShardDoCliente(cliente.getId()), roteador.indiceDoShardDoPedido(pedido.getId()));
+            assertEquals(1, contarPedidos(roteador.indiceDoShardDoCliente(cliente.getId()), cliente.getId()));
+            assertNotNull(pedidoService.buscarPedidoPorId(pedido.getId()));
+            assertEquals(1, pedidoService.buscarPedidoDeUmCliente(cliente.getId()).size());
+        }
+    }
+
+    @Test
+    public void consultarPedidosPorPeriodoEmTodosOsShards() {
+        for (Cliente cliente : clientes) {
+            Pedido pedido = new Pedido(cliente);
+            pedido.adicionarItem(new PedidoItem(1, pedido, celular));
+            pedidoService.inserir(pedido);
+        }
+
+        List<Pedido> pedidos = pedidoService.buscarPedidoPorPeriodo(LocalDate.now(), LocalDate.now());
+        assertEquals(clientes.size(), pedidos.size());
+    }
+
+    @Test
+    public void mesclarRelatoriosDosShards() {
+        // O mesmo produto vende em todos os shards: o total precisa ser somado entre eles.
+        int quantidade = 1;
+        for (Cliente cliente : clientes) {
+            Pedido pedido = new Pedido(cliente);
+            pedido.adicionarItem(new PedidoItem(quantidade++, pedido, celular));
+            pedido.adicionarItem(new PedidoItem(1, pedido, videogame));
+            pedidoService.inserir(pedido);
+        }
+
+        List<RelatorioDeVendasVo> produtos = vendaService.retornaProdutosMaisVendidos(1);
+        assertEquals(1, produtos.size());
+        assertEquals("Xiaomi Redmi", produtos.getFirst().getNomeProduto());
+        assertEquals(10L, produtos.getFirst().getQuantidadeVendida());
+
+        List<RelatorioFinanceiroVo> melhores = vendaService.retornaMelhoresClientes(2);
+        assertEquals(2, melhores.size());
+        assertEquals(clientes.getLast().getId(), melhores.getFirst().getIdCliente());
+
+        BigDecimal total = vendaService.retornaValorTotalVendido(LocalDate.now(), LocalDate.now());
+        assertEquals(0, new BigDecimal("40000").compareTo(total));
+    }
+
+    private long contarPedidos(int indiceDoShard, long idCliente) {
+        EntityManager em = shards.get(indiceDoShard).createEntityManager();
+        try {
+            return em.createQuery("SELECT COUNT(p) FROM Pedido p WHERE p.cliente.id = :id", Long.class)
+                    .setParameter("id", idCliente)
+                    .getSingleResult();
+        } finally {
+            em.close();
+        }
+    }
+
+    private void popularCatalogo(CatalogoReplicado catalogo) {
+        Categoria celulares = new Categoria("CELULARES");
+        Categoria videogames = new Categoria("VIDEOGAMES");
+        catalogo.inserir(celulares);
+        catalogo.inserir(videogames);
+
+        celular = new Produto("Xiaomi Redmi", "O preferido", new BigDecimal("800"), celulares);
+        videogame = new Produto("PS5", "Playstation 5", new BigDecimal("8000"), videogames);
+        catalogo.inserir(celular);
+        catalogo.inserir(videogame);
+
+        clientes = new ArrayList<>();
+        for (String nome : List.of("Fran", "Celso", "Ana", "Bruno")) {
+            Cliente cliente = new Cliente(nome, "cpf-" + nome);
+            catalogo.inserir(cliente);
+            clientes.add(cliente);
+        }
+    }
+}
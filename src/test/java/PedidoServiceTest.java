@@ -1,23 +1,41 @@
 import br.com.dao.ClienteDao;
 import br.com.dao.ProdutoDao;
 import br.com.model.*;
+import br.com.service.ExpurgoDePedidosExcluidos;
+import br.com.service.FilaDePedidos;
 import br.com.service.PedidoService;
+import br.com.service.ProdutoService;
+import br.com.service.TabelaDePrecos;
+import br.com.util.DiarioDePedidos;
+import br.com.util.EstatisticasDeConsultas;
+import br.com.vo.ItemPedidoVo;
 import br.com.vo.RelatorioDeVendasVo;
 import br.com.vo.RelatorioFinanceiroVo;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.Persistence;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 public class PedidoServiceTest {
+    private EntityManagerFactory emf;
     private EntityManager em;
     private PedidoService pedidoService;
     private ProdutoDao produtoDao;
@@ -25,7 +43,7 @@ public class PedidoServiceTest {
 
     @BeforeEach
     public void setup() {
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("PostgresPU");
+        emf = Persistence.createEntityManagerFactory("PostgresPU", ContadorDeComandos.propriedades());
         em = emf.createEntityManager();
 
         pedidoService = new PedidoService(em);
@@ -35,13 +53,16 @@ public class PedidoServiceTest {
 
     @AfterEach
     public void limparBanco() {
+        // Pedidos excluídos só saem do banco pelo expurgo.
+        new ExpurgoDePedidosExcluidos(emf, 100, Duration.ZERO).expurgar();
         em.getTransaction().begin();
 
         em.createQuery("delete from PedidoItem ip").executeUpdate();
         em.createQuery("delete from Pedido pd").executeUpdate();
+        em.createQuery("delete from HistoricoDePreco h").executeUpdate();
         em.createQuery("delete from Produto p").executeUpdate();
         em.createQuery("delete from Categoria c").executeUpdate();
-        //em.createQuery("delete from Cliente c").executeUpdate();
+        em.createQuery("delete from Cliente c").executeUpdate();
 
         em.getTransaction().commit();
     }
@@ -63,6 +84,24 @@ public class PedidoServiceTest {
         assertNotNull(em.find(Pedido.class, pedido.getId()));
     }
 
+    @Test
+    public void adicionarItensSemDuplicarNaLista() {
+        Produto produto = em.createQuery("SELECT p FROM Produto p", Produto.class).setMaxResults(1).getSingleResult();
+        Cliente cliente = em.createQuery("SELECT c FROM Cliente c", Cliente.class).setMaxResults(1).getSingleResult();
+
+        // O construtor do item já aponta para o pedido; cada item deve entrar na lista uma única vez.
+        Pedido pedido = new Pedido(cliente);
+        for (int i = 0; i < 500; i++) {
+            pedido.adicionarItem(new PedidoItem(1, pedido, produto));
+        }
+        assertEquals(500, pedido.getItens().size());
+        assertEquals(0, produto.getPreco().multiply(BigDecimal.valueOf(500)).compareTo(pedido.getValorTotal()));
+
+        pedidoService.inserir(pedido);
+        em.clear();
+        assertEquals(500, em.find(Pedido.class, pedido.getId()).getItens().size());
+    }
+
     @Test
     public void cadastrarProdutoComPrecoZero() {
         Categoria categoria = new Categoria("BRINDES");
@@ -220,6 +259,210 @@ public class PedidoServiceTest {
         assertEquals(2, pedidosCliente.size());
     }
 
+    @Test
+    public void listarPedidosDoPeriodoSemNMaisUm() {
+        List<Produto> produtos = em.createQuery("SELECT p FROM Produto p", Produto.class).getResultList();
+        List<Cliente> clientes = em.createQuery("SELECT c FROM Cliente c", Cliente.class).getResultList();
+        for (int i = 0; i < 6; i++) {
+            Pedido pedido = new Pedido(clientes.get(i % clientes.size()));
+            pedido.adicionarItem(new PedidoItem(1, pedido, produtos.get(i % produtos.size())));
+            pedido.adicionarItem(new PedidoItem(2, pedido, produtos.get((i + 1) % produtos.size())));
+            pedidoService.inserir(pedido);
+        }
+        em.clear();
+
+        // Pedido.toString lê o cliente, os itens e o produto de cada item: tudo em lotes, não um SELECT por pedido.
+        ContadorDeComandos.Medicao medicao = ContadorDeComandos.assertComandos(4, () -> pedidoService
+                .buscarPedidoPorPeriodo(LocalDate.now(), LocalDate.now())
+                .forEach(Pedido::toString));
+        assertEquals(4, medicao.getSelects());
+    }
+
+    @Test
+    public void detectarNMaisUmComOLocalDaChamada() {
+        List<Long> ids = em.createQuery("SELECT p.id FROM Produto p", Long.class).getResultList();
+        em.clear();
+
+        ContadorDeComandos.Medicao medicao = ContadorDeComandos.medir(() -> ids.forEach(id -> em.find(Produto.class, id)));
+        assertEquals(ids.size(), medicao.getSelects());
+        List<String> locais = medicao.repeticoes(ContadorDeComandos.REPETICOES_DE_N_MAIS_UM).values().iterator().next();
+        assertTrue(locais.getFirst().startsWith("PedidoServiceTest."), locais.toString());
+        assertThrows(AssertionError.class, medicao::assertSemNMaisUm);
+    }
+
+    @Test
+    public void cadastrarPedidosPelaFilaAssincrona(@TempDir Path diretorio) throws Exception {
+        Produto produto = em.createQuery("SELECT p FROM Produto p", Produto.class).setMaxResults(1).getSingleResult();
+        Cliente cliente = em.createQuery("SELECT c FROM Cliente c", Cliente.class).setMaxResults(1).getSingleResult();
+
+        try (FilaDePedidos fila = new FilaDePedidos(emf, diretorio.resolve("pedidos.diario"), 100, 10, Duration.ofSeconds(1))) {
+            fila.iniciar();
+            pedidoService.setFilaDePedidos(fila);
+
+            List<CompletableFuture<Long>> futuros = new ArrayList<>();
+            for (int i = 1; i <= 5; i++) {
+                Pedido pedido = new Pedido(cliente);
+                pedido.adicionarItem(new PedidoItem(i, pedido, produto));
+                futuros.add(pedidoService.inserirAssincrono(pedido));
+            }
+
+            for (CompletableFuture<Long> futuro : futuros) {
+                assertNotNull(em.find(Pedido.class, futuro.get(10, TimeUnit.SECONDS)));
+            }
+            assertEquals(5, fila.metricas().getPedidosGravados());
+            assertEquals(0, fila.metricas().getProfundidade());
+        }
+    }
+
+    @Test
+    public void encerrarFilaEnquantoUmPedidoEntra(@TempDir Path diretorio) throws Exception {
+        Produto produto = em.createQuery("SELECT p FROM Produto p", Produto.class).setMaxResults(1).getSingleResult();
+        Cliente cadastrado = em.createQuery("SELECT c FROM Cliente c", Cliente.class).setMaxResults(1).getSingleResult();
+        Path arquivo = diretorio.resolve("pedidos.diario");
+
+        // O ID do cliente é lido depois de a fila conferir que está ativa e antes de o pedido entrar nela: aqui a
+        // leitura espera a liberação, e o close() acontece nesse intervalo.
+        CountDownLatch lendoCliente = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        Cliente cliente = new Cliente(cadastrado.getNome(), cadastrado.getCpf()) {
+            @Override
+            public Long getId() {
+                lendoCliente.countDown();
+                try {
+                    liberar.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.getId();
+            }
+        };
+        cliente.setId(cadastrado.getId());
+        Pedido pedido = new Pedido(cliente);
+        pedido.adicionarItem(new PedidoItem(1, pedido, produto));
+
+        FilaDePedidos fila = new FilaDePedidos(emf, arquivo, 100, 10, Duration.ofSeconds(1));
+        fila.iniciar();
+        CompletableFuture<CompletableFuture<Long>> aceito = CompletableFuture.supplyAsync(() -> fila.enfileirar(pedido));
+        assertTrue(lendoCliente.await(10, TimeUnit.SECONDS));
+        CompletableFuture<Void> encerramento = CompletableFuture.runAsync(fila::close);
+        try {
+            // Tempo para o gravador ver a fila vazia (ele a consulta a cada 100 ms) caso o close() não esperasse.
+            Thread.sleep(500);
+            assertFalse(encerramento.isDone());
+        } finally {
+            liberar.countDown();
+        }
+
+        // O pedido que estava entrando foi aceito, gravado antes do fim do close() e não ficou pendente no diário.
+        Long id = aceito.get(10, TimeUnit.SECONDS).get(10, TimeUnit.SECONDS);
+        encerramento.get(10, TimeUnit.SECONDS);
+        assertNotNull(em.find(Pedido.class, id));
+        assertThrows(IllegalStateException.class, () -> fila.enfileirar(pedido));
+        try (DiarioDePedidos diario = new DiarioDePedidos(arquivo)) {
+            assertTrue(diario.abrir().isEmpty());
+        }
+    }
+
+    @Test
+    public void reprocessarPedidosPendentesDoDiario(@TempDir Path diretorio) throws Exception {
+        Produto produto = em.createQuery("SELECT p FROM Produto p", Produto.class).setMaxResults(1).getSingleResult();
+        Cliente cliente = em.createQuery("SELECT c FROM Cliente c", Cliente.class).setMaxResults(1).getSingleResult();
+
+        // Simula uma queda: o primeiro pedido foi confirmado no banco, o segundo ficou só no diário.
+        Path arquivo = diretorio.resolve("pedidos.diario");
+        Files.writeString(arquivo,
+                "P|1|" + cliente.getId() + "|" + LocalDate.now() + "|" + produto.getId() + ":2:800\n"
+                + "G|1|999\n"
+                + "P|2|" + cliente.getId() + "|" + LocalDate.now() + "|" + produto.getId() + ":3:800\n");
+
+        try (FilaDePedidos fila = new FilaDePedidos(emf, arquivo, 100, 10, Duration.ofSeconds(1))) {
+            fila.iniciar();
+            long limite = System.currentTimeMillis() + 10_000;
+            while (fila.metricas().getPedidosGravados() < 1 && System.currentTimeMillis() < limite) {
+                Thread.sleep(20);
+            }
+            assertEquals(1, fila.metricas().getPedidosGravados());
+        }
+
+        List<Pedido> pedidos = pedidoService.buscarPedidoDeUmCliente(cliente.getId());
+        assertEquals(1, pedidos.size());
+        assertEquals(0, new BigDecimal("2400").compareTo(pedidos.getFirst().getValorTotal()));
+    }
+
+    @Test
+    public void descartarDoDiarioApenasPedidosRecusadosPeloBanco(@TempDir Path diretorio) throws Exception {
+        Cliente cliente = em.createQuery("SELECT c FROM Cliente c", Cliente.class).setMaxResults(1).getSingleResult();
+
+        // O produto não existe: a chave estrangeira recusa o pedido, e gravá-lo de novo daria o mesmo erro.
+        Path arquivo = diretorio.resolve("pedidos.diario");
+        Files.writeString(arquivo, "P|1|" + cliente.getId() + "|" + LocalDate.now() + "|" + Long.MAX_VALUE + ":1:800\n");
+
+        try (FilaDePedidos fila = new FilaDePedidos(emf, arquivo, 100, 10, Duration.ofSeconds(1))) {
+            fila.iniciar();
+            long limite = System.currentTimeMillis() + 10_000;
+            while (fila.metricas().getPedidosComFalha() < 1 && System.currentTimeMillis() < limite) {
+                Thread.sleep(20);
+            }
+            assertEquals(1, fila.metricas().getPedidosComFalha());
+        }
+        assertTrue(Files.readString(arquivo).contains("D|1\n"));
+    }
+
+    @Test
+    public void cadastrarPedidoPorIdsSemCarregarProdutos() {
+        Categoria categoria = new Categoria("ATACADO");
+        List<Produto> produtos = new ArrayList<>();
+        em.getTransaction().begin();
+        em.persist(categoria);
+        for (int i = 0; i < 200; i++) {
+            Produto produto = new Produto("Produto " + i, null, new BigDecimal(i + 1).add(new BigDecimal("0.99")), categoria);
+            em.persist(produto);
+            produtos.add(produto);
+        }
+        em.getTransaction().commit();
+        Long idCliente = em.createQuery("SELECT c.id FROM Cliente c", Long.class).setMaxResults(1).getSingleResult();
+
+        TabelaDePrecos tabelaDePrecos = new TabelaDePrecos();
+        EntityManager emDoPedido = emf.createEntityManager();
+        tabelaDePrecos.carregar(emDoPedido);
+        PedidoService servico = new PedidoService(emDoPedido);
+        servico.setTabelaDePrecos(tabelaDePrecos);
+
+        List<ItemPedidoVo> itens = new ArrayList<>();
+        BigDecimal totalEsperado = BigDecimal.ZERO;
+        for (Produto produto : produtos) {
+            itens.add(new ItemPedidoVo(produto.getId(), 2));
+            totalEsperado = totalEsperado.add(produto.getPreco().multiply(new BigDecimal(2)));
+        }
+
+        Statistics estatisticas = emf.unwrap(SessionFactory.class).getStatistics();
+        EstatisticasDeConsultas.ativar(emf);
+        EstatisticasDeConsultas.zerar(emf);
+        Pedido pedido = servico.inserirPorIds(idCliente, itens);
+
+        // Só os INSERTs: nenhum produto (nem o cliente) foi carregado e nenhuma consulta foi executada.
+        assertEquals(0, estatisticas.getEntityStatistics(Produto.class.getName()).getLoadCount());
+        assertEquals(0, estatisticas.getEntityStatistics(Cliente.class.getName()).getLoadCount());
+        assertEquals(0, estatisticas.getQueryExecutionCount());
+        assertEquals(201, estatisticas.getEntityInsertCount());
+        assertEquals(0, totalEsperado.compareTo(pedido.getValorTotal()));
+        emDoPedido.close();
+
+        em.clear();
+        assertEquals(200, em.find(Pedido.class, pedido.getId()).getItens().size());
+
+        // Alteração de preço pelo ProdutoService chega à tabela; produto desconhecido é recusado.
+        ProdutoService produtoService = new ProdutoService(em);
+        produtoService.setTabelaDePrecos(tabelaDePrecos);
+        Produto primeiro = produtoService.buscarProdutoPorId(produtos.get(0).getId());
+        primeiro.setPreco(new BigDecimal("5.50"));
+        produtoService.alterar(primeiro);
+        assertEquals(new BigDecimal("5.50"), tabelaDePrecos.preco(primeiro.getId()));
+        pedidoService.setTabelaDePrecos(tabelaDePrecos);
+        assertThrows(IllegalArgumentException.class,
+                () -> pedidoService.inserirPorIds(idCliente, List.of(new ItemPedidoVo(-1L, 1))));
+    }
+
     private void popularBancoDeDados() {
         Categoria celulares = new Categoria("CELULARES");
         Categoria videogames = new Categoria("VIDEOGAMES");
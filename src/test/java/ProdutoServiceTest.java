@@ -2,15 +2,26 @@ import br.com.dao.CategoriaDao;
 import br.com.model.Categoria;
 import br.com.model.Produto;
 import br.com.service.ProdutoService;
+import br.com.service.TabelaDePrecos;
+import br.com.util.JPAUtil;
+import br.com.util.RoteadorDeLeitura;
+import br.com.vo.ResultadoDeReajusteVo;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.Persistence;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -22,7 +33,7 @@ public class ProdutoServiceTest {
     @BeforeEach
     public void setup() {
         // Configura a conexão com o banco de dados PostgreSQL
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("PostgresPU"); // Verifique seu persistence.xml
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("PostgresPU", ContadorDeComandos.propriedades()); // Verifique seu persistence.xml
         em = emf.createEntityManager();
 
         produtoService = new ProdutoService(em);
@@ -32,6 +43,7 @@ public class ProdutoServiceTest {
     public void limparBanco() {
         em.getTransaction().begin();
 
+        em.createQuery("delete from HistoricoDePreco h").executeUpdate();
         em.createQuery("delete from Produto p").executeUpdate();
         em.createQuery("delete from Categoria c").executeUpdate();
 
@@ -112,6 +124,85 @@ public class ProdutoServiceTest {
         assertFalse(produtos.isEmpty());
     }
 
+    @Test
+    public void cadastrarEAlterarProdutoComComandosContados() {
+        Categoria celulares = new Categoria("CELULARES");
+        em.getTransaction().begin();
+        em.persist(celulares);
+        em.getTransaction().commit();
+
+        Produto celular = new Produto("Xiaomi Redmi", "O preferido", new BigDecimal("800"), celulares);
+        // O INSERT do produto e os dois comandos do histórico de preços (fechar e abrir o intervalo vigente).
+        ContadorDeComandos.assertComandos(3, () -> produtoService.inserir(celular));
+
+        // Produto desanexado: o merge lê a linha antes de gravar a alteração.
+        em.clear();
+        celular.setPreco(new BigDecimal("750"));
+        ContadorDeComandos.Medicao alteracao = ContadorDeComandos.assertComandos(4, () -> produtoService.alterar(celular));
+        assertEquals(2, alteracao.getUpdates());
+    }
+
+    @Test
+    public void lerDaReplicaOuDoPrimarioConformeAJanelaDeReplicacao() {
+        // Dois bancos H2 independentes: como não há replicação entre eles, um produto só é encontrado na
+        // "réplica" se a leitura for desviada para o primário.
+        String prefixo = "replica-" + UUID.randomUUID();
+        EntityManagerFactory primarioEmf = JPAUtil.criarEntityManagerFactory("H2PU", "jdbc:h2:mem:" + prefixo + "-primario;DB_CLOSE_DELAY=-1");
+        EntityManagerFactory replicaEmf = JPAUtil.criarEntityManagerFactory("H2PU", "jdbc:h2:mem:" + prefixo + "-replica;DB_CLOSE_DELAY=-1");
+        try {
+            EntityManager primario = primarioEmf.createEntityManager();
+            EntityManager replica = replicaEmf.createEntityManager();
+
+            Categoria celulares = new Categoria("CELULARES");
+            primario.getTransaction().begin();
+            primario.persist(celulares);
+            primario.getTransaction().commit();
+
+            ProdutoService lerSuasEscritas = new ProdutoService(new RoteadorDeLeitura(primario, replica, Duration.ofMinutes(1)));
+            Produto celular = new Produto("Xiaomi Redmi", "O preferido", new BigDecimal("800"), celulares);
+            lerSuasEscritas.inserir(celular);
+            assertNotNull(lerSuasEscritas.buscarProdutoPorId(celular.getId()));
+
+            ProdutoService sempreNaReplica = new ProdutoService(new RoteadorDeLeitura(primario, replica, Duration.ZERO));
+            Produto teclado = new Produto("Teclado", "Teclado de computador", new BigDecimal("130"), celulares);
+            sempreNaReplica.inserir(teclado);
+            assertNull(sempreNaReplica.buscarProdutoPorId(teclado.getId()));
+        } finally {
+            primarioEmf.close();
+            replicaEmf.close();
+        }
+    }
+
+    @Test
+    public void leituraNaReplicaNaoDevolveEntidadesAntigasDoCache() {
+        String prefixo = "replica-" + UUID.randomUUID();
+        EntityManagerFactory primarioEmf = JPAUtil.criarEntityManagerFactory("H2PU", "jdbc:h2:mem:" + prefixo + "-primario;DB_CLOSE_DELAY=-1");
+        EntityManagerFactory replicaEmf = JPAUtil.criarEntityManagerFactory("H2PU", "jdbc:h2:mem:" + prefixo + "-replica;DB_CLOSE_DELAY=-1");
+        try (RoteadorDeLeitura roteador = new RoteadorDeLeitura(primarioEmf.createEntityManager(),
+                replicaEmf.createEntityManager(), Duration.ZERO)) {
+            // Outro EntityManager da réplica faz o papel da replicação: grava o produto e, depois, o novo preço.
+            EntityManager replicacao = replicaEmf.createEntityManager();
+            Produto monitor = new Produto("Monitor", "Monitor de 24 polegadas", new BigDecimal("900"), new Categoria("MONITORES"));
+            replicacao.getTransaction().begin();
+            replicacao.persist(monitor.getCategoria());
+            replicacao.persist(monitor);
+            replicacao.getTransaction().commit();
+
+            ProdutoService produtoService = new ProdutoService(roteador);
+            assertEquals(0, new BigDecimal("900").compareTo(produtoService.buscarProdutoPorId(monitor.getId()).getPreco()));
+
+            replicacao.getTransaction().begin();
+            monitor.setPreco(new BigDecimal("850"));
+            replicacao.getTransaction().commit();
+            replicacao.close();
+
+            assertEquals(0, new BigDecimal("850").compareTo(produtoService.buscarProdutoPorId(monitor.getId()).getPreco()));
+        } finally {
+            primarioEmf.close();
+            replicaEmf.close();
+        }
+    }
+
     @Test
     public void buscarProdutosPorCategoria() {
         Categoria celulares = new Categoria("CELULARES");
@@ -126,5 +217,92 @@ public class ProdutoServiceTest {
         assertFalse(produtos.isEmpty());
     }
 
+    @Test
+    public void reajustarPrecosDaCategoriaEmLotes() {
+        Categoria celulares = new Categoria("CELULARES");
+        Categoria capas = new Categoria("CAPAS");
+        List<Produto> produtos = new ArrayList<>();
+        em.getTransaction().begin();
+        em.persist(celulares);
+        em.persist(capas);
+        for (int i = 0; i < 7; i++) {
+            BigDecimal preco = new BigDecimal("10.00").add(BigDecimal.valueOf(i * 333, 2));
+            Produto produto = new Produto("Celular " + i, "Modelo " + i, preco, celulares);
+            em.persist(produto);
+            produtos.add(produto);
+        }
+        Produto capa = new Produto("Capa", "Silicone", new BigDecimal("50.00"), capas);
+        em.persist(capa);
+        em.getTransaction().commit();
+        em.clear();
+
+        TabelaDePrecos tabelaDePrecos = new TabelaDePrecos();
+        tabelaDePrecos.carregar(em);
+        produtoService.setTabelaDePrecos(tabelaDePrecos);
+        produtoService.setProdutosPorLote(3);
+
+        // Os IDs da categoria e, para cada um dos 3 lotes, um UPDATE e os dois comandos do histórico de preços.
+        ResultadoDeReajusteVo[] resultado = new ResultadoDeReajusteVo[1];
+        ContadorDeComandos.Medicao medicao = ContadorDeComandos.assertComandos(10,
+                () -> resultado[0] = produtoService.reajustarPrecosDaCategoria(celulares.getId(), new BigDecimal("10")));
+        assertEquals(6, medicao.getUpdates());
+        assertEquals(7, resultado[0].getProdutosAlterados());
+        assertEquals(3, resultado[0].getLotes());
+
+        // 16.66 * 1.1 = 18.326, arredondado para centavos.
+        // Na tabela de preços, os preços do lote foram invalidados e são relidos na próxima consulta.
+        Long id = produtos.get(2).getId();
+        assertNull(tabelaDePrecos.preco(id));
+        assertEquals(new BigDecimal("18.33"), tabelaDePrecos.precos(List.of(id), em).get(id));
+        assertEquals(new BigDecimal("18.33"), em.find(Produto.class, id).getPreco());
+        assertEquals(new BigDecimal("50.00"), em.find(Produto.class, capa.getId()).getPreco());
+
+        // Produto já carregado no EntityManager: é relido, e um merge posterior não volta ao preço antigo.
+        Produto carregado = em.find(Produto.class, produtos.get(0).getId());
+        produtoService.reajustarPrecosDaCategoria(celulares.getId(), new BigDecimal("-50"));
+        assertEquals(new BigDecimal("5.50"), carregado.getPreco());
+        carregado.setNome("Celular renomeado");
+        produtoService.alterar(carregado);
+        em.clear();
+        assertEquals(new BigDecimal("5.50"), em.find(Produto.class, carregado.getId()).getPreco());
+
+        assertThrows(IllegalArgumentException.class,
+                () -> produtoService.reajustarPrecosDaCategoria(celulares.getId(), new BigDecimal("-100")));
+    }
+
+    @Test
+    public void definirPrecosDeUmArquivo(@TempDir Path diretorio) throws IOException {
+        Categoria celulares = new Categoria("CELULARES");
+        Produto celular = new Produto("Xiaomi Redmi", "O preferido", new BigDecimal("800"), celulares);
+        Produto teclado = new Produto("Teclado", "Teclado de computador", new BigDecimal("130"), celulares);
+        em.getTransaction().begin();
+        em.persist(celulares);
+        em.persist(celular);
+        em.persist(teclado);
+        em.getTransaction().commit();
+
+        TabelaDePrecos tabelaDePrecos = new TabelaDePrecos();
+        produtoService.setTabelaDePrecos(tabelaDePrecos);
+        produtoService.setProdutosPorLote(2);
+
+        Path arquivo = diretorio.resolve("precos.csv");
+        Files.writeString(arquivo, "# idProduto;preço\n"
+                + celular.getId() + ";749.90\n"
+                + "\n"
+                + teclado.getId() + "; 99.00\n"
+                + "999999999;10.00\n");
+        ResultadoDeReajusteVo resultado = produtoService.definirPrecos(arquivo);
+        assertEquals(2, resultado.getProdutosAlterados());
+        assertEquals(2, resultado.getLotes());
+        assertNotNull(resultado.getDuracao());
 
+        assertEquals(new BigDecimal("749.90"), celular.getPreco());
+        em.clear();
+        assertEquals(new BigDecimal("99.00"), em.find(Produto.class, teclado.getId()).getPreco());
+        assertEquals(new BigDecimal("749.90"), tabelaDePrecos.preco(celular.getId()));
+        assertNull(tabelaDePrecos.preco(999999999L));
+
+        Files.writeString(arquivo, celular.getId() + ";dez reais\n");
+        assertThrows(IllegalArgumentException.class, () -> produtoService.definirPrecos(arquivo));
+    }
 }
@@ -0,0 +1,145 @@
+import br.com.http.ServidorHttp;
+import br.com.model.Cliente;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServidorHttpTest {
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private ServidorHttp servidor;
+    private HttpClient cliente;
+    private String base;
+
+    @BeforeEach
+    public void setup() throws Exception {
+        emf = Persistence.createEntityManagerFactory("PostgresPU");
+        em = emf.createEntityManager();
+
+        // Poucas conexões com o banco de propósito: as requisições excedentes esperam a vez no semáforo.
+        servidor = new ServidorHttp(emf, 4);
+        servidor.iniciar(0);
+        base = "http://localhost:" + servidor.getPorta();
+        cliente = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+    }
+
+    @AfterEach
+    public void limparBanco() {
+        servidor.parar();
+
+        em.getTransaction().begin();
+
+        em.createQuery("delete from PedidoItem ip").executeUpdate();
+        em.createQuery("delete from Pedido pd").executeUpdate();
+        em.createQuery("delete from HistoricoDePreco h").executeUpdate();
+        em.createQuery("delete from Produto p").executeUpdate();
+        em.createQuery("delete from Categoria c").executeUpdate();
+        em.createQuery("delete from Cliente c").executeUpdate();
+
+        em.getTransaction().commit();
+    }
+
+    @Test
+    public void cadastrarEConsultarProdutoPelaApi() throws Exception {
+        HttpResponse<String> categoria = enviar("POST", "/categorias", "{\"nome\": \"CELULARES\"}");
+        assertEquals(201, categoria.statusCode());
+        long idCategoria = id(categoria.body());
+
+        HttpResponse<String> produto = enviar("POST", "/produtos",
+                "{\"nome\": \"Xiaomi \\\"Redmi\\\"\", \"descricao\": \"O preferido\", \"preco\": 800.50, \"idCategoria\": " + idCategoria + "}");
+        assertEquals(201, produto.statusCode());
+        long idProduto = id(produto.body());
+
+        HttpResponse<String> lista = enviar("GET", "/produtos?categoria=" + idCategoria, null);
+        assertEquals(200, lista.statusCode());
+        assertTrue(lista.body().startsWith("[{\"id\":" + idProduto), lista.body());
+        assertTrue(lista.body().contains("\"nome\":\"Xiaomi \\\"Redmi\\\"\""), lista.body());
+        assertTrue(lista.body().contains("\"preco\":800.5"), lista.body());
+
+        assertEquals(404, enviar("GET", "/produtos/" + (idProduto + 1000), null).statusCode());
+        assertEquals(404, enviar("GET", "/inexistente", null).statusCode());
+        assertEquals(400, enviar("POST", "/categorias", "{\"nome\": ").statusCode());
+        assertEquals(400, enviar("GET", "/pedidos", null).statusCode());
+    }
+
+    @Test
+    public void cadastrarPedidoEConsultarMetricas() throws Exception {
+        em.getTransaction().begin();
+        Cliente comprador = new Cliente("Fulano", "123456");
+        em.persist(comprador);
+        em.getTransaction().commit();
+
+        long idCategoria = id(enviar("POST", "/categorias", "{\"nome\": \"VIDEOGAMES\"}").body());
+        long idProduto = id(enviar("POST", "/produtos",
+                "{\"nome\": \"PS5\", \"preco\": 3000, \"estoque\": 1, \"idCategoria\": " + idCategoria + "}").body());
+
+        String corpoDoPedido = "{\"idCliente\": " + comprador.getId()
+                + ", \"itens\": [{\"idProduto\": " + idProduto + ", \"quantidade\": 2}]}";
+        assertEquals(409, enviar("POST", "/pedidos", corpoDoPedido).statusCode());
+        assertEquals(204, enviar("POST", "/produtos/" + idProduto + "/estoque", "{\"quantidade\": 1}").statusCode());
+        assertEquals(404, enviar("POST", "/produtos/" + (idProduto + 1000) + "/estoque", "{\"quantidade\": 1}").statusCode());
+
+        HttpResponse<String> pedido = enviar("POST", "/pedidos", corpoDoPedido);
+        assertEquals(201, pedido.statusCode(), pedido.body());
+        long idPedido = id(pedido.body());
+
+        HttpResponse<String> consulta = enviar("GET", "/pedidos/" + idPedido, null);
+        assertEquals(200, consulta.statusCode());
+        assertTrue(consulta.body().contains("\"valorTotal\":6000"), consulta.body());
+
+        // A lista é escrita enquanto o cursor é percorrido, e os itens de cada pedido são carregados no meio dela.
+        HttpResponse<String> doCliente = enviar("GET", "/pedidos?cliente=" + comprador.getId(), null);
+        assertEquals(200, doCliente.statusCode());
+        assertTrue(doCliente.body().contains("\"idProduto\":" + idProduto), doCliente.body());
+
+        HttpResponse<String> metricas = enviar("GET", "/metricas", null);
+        assertTrue(metricas.body().contains("\"rota\":\"POST /pedidos\",\"total\":2"), metricas.body());
+        assertTrue(metricas.body().contains("\"rota\":\"GET /pedidos/{id}\",\"total\":1"), metricas.body());
+    }
+
+    @Test
+    public void atenderMilRequisicoesSimultaneas() throws Exception {
+        enviar("POST", "/categorias", "{\"nome\": \"INFORMATICA\"}");
+
+        List<Future<HttpResponse<String>>> respostas = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 1000; i++) {
+                respostas.add(executor.submit(() -> enviar("GET", "/categorias", null)));
+            }
+        }
+        for (Future<HttpResponse<String>> resposta : respostas) {
+            assertEquals(200, resposta.get().statusCode());
+            assertTrue(resposta.get().body().contains("INFORMATICA"));
+        }
+    }
+
+    private HttpResponse<String> enviar(String metodo, String caminho, String corpo) throws Exception {
+        HttpRequest requisicao = HttpRequest.newBuilder(URI.create(base + caminho))
+                .method(metodo, corpo == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(corpo))
+                .build();
+        return cliente.send(requisicao, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private long id(String json) {
+        Matcher matcher = Pattern.compile("\"id\":(\\d+)").matcher(json);
+        assertTrue(matcher.find(), json);
+        return Long.parseLong(matcher.group(1));
+    }
+}
@@ -0,0 +1,169 @@
+import br.com.dao.ClienteDao;
+import br.com.exception.DataAccessException;
+import br.com.model.*;
+import br.com.service.ContadoresDeVendas;
+import br.com.service.PedidoService;
+import br.com.service.ProdutoService;
+import br.com.util.UnidadeDeTrabalho;
+import br.com.vo.RelatorioDeVendasVo;
+import br.com.vo.RelatorioFinanceiroVo;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.Persistence;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UnidadeDeTrabalhoTest {
+    private static final LocalDate HOJE = LocalDate.now();
+
+    private EntityManagerFactory emf;
+    private EntityManager em;
+    private Statistics estatisticas;
+    private ContadoresDeVendas contadores;
+    private PedidoService pedidoService;
+    private ProdutoService produtoService;
+    private Cliente cliente;
+    private List<Produto> produtos;
+
+    @BeforeEach
+    public void setup() {
+        Map<String, Object> propriedades = new HashMap<>(ContadorDeComandos.propriedades());
+        propriedades.put("hibernate.generate_statistics", "true");
+        emf = Persistence.createEntityManagerFactory("PostgresPU", propriedades);
+        em = emf.createEntityManager();
+        estatisticas = emf.unwrap(SessionFactory.class).getStatistics();
+
+        Categoria categoria = new Categoria("INFORMATICA");
+        cliente = new Cliente("Fran", "123456");
+        produtos = new ArrayList<>();
+        em.getTransaction().begin();
+        em.persist(categoria);
+        em.persist(cliente);
+        for (int i = 0; i < 3; i++) {
+            Produto produto = new Produto("Produto " + i, "Descrição " + i, new BigDecimal("10.00"), categoria);
+            em.persist(produto);
+            produtos.add(produto);
+        }
+        em.getTransaction().commit();
+
+        contadores = new ContadoresDeVendas(emf, Duration.ofHours(1));
+        contadores.carregar();
+        pedidoService = new PedidoService(em);
+        pedidoService.setContadoresDeVendas(contadores);
+        produtoService = new ProdutoService(em);
+    }
+
+    @AfterEach
+    public void limparBanco() {
+        contadores.close();
+        em.clear();
+        em.getTransaction().begin();
+
+        em.createQuery("delete from PedidoItem ip").executeUpdate();
+        em.createQuery("delete from Pedido pd").executeUpdate();
+        em.createQuery("delete from HistoricoDePreco h").executeUpdate();
+        em.createQuery("delete from Produto p").executeUpdate();
+        em.createQuery("delete from Categoria c").executeUpdate();
+        em.createQuery("delete from Cliente c").executeUpdate();
+
+        em.getTransaction().commit();
+    }
+
+    @Test
+    public void variasOperacoesDeServicesEmUmUnicoCommit() {
+        estatisticas.clear();
+        List<String> aposCommit = new ArrayList<>();
+        Pedido pedido = new Pedido(cliente);
+
+        UnidadeDeTrabalho.executar(em, () -> {
+            for (Produto produto : produtos) {
+                pedido.adicionarItem(new PedidoItem(1, pedido, produto));
+            }
+            pedidoService.inserir(pedido);
+            for (PedidoItem item : List.copyOf(pedido.getItens())) {
+                item.setQuantidade(item.getQuantidade() + 1);
+                pedidoService.alterar(pedido);
+            }
+            produtos.getFirst().setPreco(new BigDecimal("12.00"));
+            produtoService.alterar(produtos.getFirst());
+
+            // Os contadores e os efeitos registrados só valem depois do commit.
+            UnidadeDeTrabalho.aposCommit(em, () -> aposCommit.add("confirmada"));
+            assertTrue(aposCommit.isEmpty());
+            assertTrue(contadores.relatorioFinanceiro().isEmpty());
+        });
+
+        assertEquals(1, estatisticas.getTransactionCount());
+        assertEquals(List.of("confirmada"), aposCommit);
+        RelatorioFinanceiroVo totais = contadores.relatorioFinanceiro().getFirst();
+        assertEquals(0, pedido.getValorTotal().compareTo(totais.getTotalPedidosDoCliente()));
+        assertEquals(6, contadores.relatorioDeVendas().stream().mapToLong(RelatorioDeVendasVo::getQuantidadeVendida).sum());
+
+        em.clear();
+        assertEquals(6, pedidoService.buscarPedidoPorId(pedido.getId()).getItens().stream()
+                .mapToInt(PedidoItem::getQuantidade).sum());
+        assertEquals(0, new BigDecimal("12.00").compareTo(produtoService.buscarProdutoPorId(produtos.getFirst().getId()).getPreco()));
+
+        // Fora de uma unidade de trabalho, cada operação continua com a sua própria transação.
+        estatisticas.clear();
+        pedidoService.inserir(new Pedido(cliente));
+        UnidadeDeTrabalho.aposCommit(em, () -> aposCommit.add("imediata"));
+        assertEquals(1, estatisticas.getTransactionCount());
+        assertEquals(List.of("confirmada", "imediata"), aposCommit);
+    }
+
+    @Test
+    public void falhaDesfazTodasAsOperacoes() {
+        Pedido pedido = new Pedido(cliente);
+        pedido.adicionarItem(new PedidoItem(2, pedido, produtos.get(0)));
+
+        assertThrows(IllegalStateException.class, () -> UnidadeDeTrabalho.executar(em, () -> {
+            pedidoService.inserir(pedido);
+            produtos.get(1).setPreco(new BigDecimal("99.00"));
+            produtoService.alterar(produtos.get(1));
+            throw new IllegalStateException("Falha no meio do fluxo");
+        }));
+        assertFalse(UnidadeDeTrabalho.ativa(em));
+        // O EntityManager é limpo junto com o rollback: nada do que foi desfeito continua gerenciado.
+        assertFalse(em.contains(pedido));
+        assertFalse(em.contains(produtos.get(1)));
+
+        assertTrue(pedidoService.buscarPedidoPorPeriodo(HOJE, HOJE).isEmpty());
+        assertEquals(0, new BigDecimal("10.00").compareTo(produtoService.buscarProdutoPorId(produtos.get(1).getId()).getPreco()));
+        assertTrue(contadores.relatorioFinanceiro().isEmpty());
+    }
+
+    @Test
+    public void unidadeAninhadaEntraNaDeForaEFalhaTratadaAindaDesfaz() {
+        estatisticas.clear();
+        UnidadeDeTrabalho.executar(em, () -> UnidadeDeTrabalho.executar(em, () -> pedidoService.inserir(new Pedido(cliente))));
+        assertEquals(1, estatisticas.getTransactionCount());
+
+        Pedido pedido = new Pedido(cliente);
+        DataAccessException erro = assertThrows(DataAccessException.class, () -> UnidadeDeTrabalho.executar(em, () -> {
+            pedidoService.inserir(pedido);
+            try {
+                new ClienteDao(em).cadastrar(new Cliente("Outra Fran", cliente.getCpf()));
+            } catch (DataAccessException cpfRepetido) {
+                // Tratada aqui, mas a transação já foi marcada para ser desfeita.
+            }
+        }));
+        assertTrue(erro.getMessage().contains("desfeita"), erro.getMessage());
+
+        em.clear();
+        assertEquals(1, pedidoService.buscarPedidoPorPeriodo(HOJE, HOJE).size());
+    }
+}
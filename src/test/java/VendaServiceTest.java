@@ -1,7 +1,13 @@
 import br.com.dao.*;
 import br.com.model.*;
+import br.com.service.VendaService;
+import br.com.util.EstatisticasDeConsultas;
+import br.com.util.Granularidade;
+import br.com.util.TopN;
+import br.com.vo.EstatisticasDoCacheDePlanosVo;
 import br.com.vo.RelatorioDeVendasVo;
 import br.com.vo.RelatorioFinanceiroVo;
+import br.com.vo.SerieDeVendasVo;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.Persistence;
@@ -12,6 +18,7 @@ import org.junit.jupiter.api.Test;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -22,7 +29,7 @@ public class VendaServiceTest {
     @BeforeEach
     public void setup() {
         // Configura a conexão com o banco de dados PostgreSQL
-        EntityManagerFactory emf = Persistence.createEntityManagerFactory("PostgresPU"); // Verifique seu persistence.xml
+        EntityManagerFactory emf = Persistence.createEntityManagerFactory("PostgresPU", ContadorDeComandos.propriedades()); // Verifique seu persistence.xml
         em = emf.createEntityManager();
 
         vendaDAO = new VendaDAO(em);
@@ -39,6 +46,7 @@ public class VendaServiceTest {
         em.createQuery("delete from Pedido pd").executeUpdate();
         em.createQuery("delete from Produto p").executeUpdate();
         em.createQuery("delete from Categoria c").executeUpdate();
+        em.createQuery("delete from Cliente c").executeUpdate();
 
         em.getTransaction().commit();
     }
@@ -64,6 +72,108 @@ public class VendaServiceTest {
         assertFalse(relatorio.isEmpty());
     }
 
+    @Test
+    public void retornarProdutosMaisVendidos() {
+        List<RelatorioDeVendasVo> ranking = vendaDAO.relatorioDeVendas(2);
+        assertEquals(2, ranking.size());
+        assertEquals("PS5", ranking.getFirst().getNomeProduto());
+        assertEquals(40L, ranking.getFirst().getQuantidadeVendida());
+    }
+
+    @Test
+    public void retornarProdutosMaisVendidosForaDoPeriodo() {
+        LocalDate ontem = LocalDate.now().minusDays(1);
+        List<RelatorioDeVendasVo> ranking = vendaDAO.relatorioDeVendas(ontem, ontem, 10);
+        assertTrue(ranking.isEmpty());
+    }
+
+    @Test
+    public void retornarMelhoresClientesDoPeriodo() {
+        List<RelatorioFinanceiroVo> ranking = vendaDAO.relatorioFinanceiro(LocalDate.now(), LocalDate.now(), 1);
+        assertEquals(1, ranking.size());
+        assertEquals(0, new BigDecimal("356000").compareTo(ranking.getFirst().getTotalPedidosDoCliente()));
+    }
+
+    @Test
+    public void relatoriosExecutamUmaConsultaCada() {
+        // A data de corte do arquivamento fica em memória (relida do banco a cada ArquivoDao.VALIDADE_DO_CORTE): com
+        // ela lida logo antes, cada relatório é só a consulta agregada (nada arquivado: o arquivo não é lido).
+        ArquivoDao arquivoDao = new ArquivoDao(em);
+        arquivoDao.dataDeCorte();
+        ContadorDeComandos.assertComandos(1, () -> vendaDAO.relatorioDeVendas(3));
+        arquivoDao.dataDeCorte();
+        ContadorDeComandos.assertComandos(1, () -> vendaDAO.relatorioFinanceiro(LocalDate.now(), LocalDate.now(), 1));
+        arquivoDao.dataDeCorte();
+        ContadorDeComandos.assertComandos(1, () -> vendaDAO.retornaValorTotalVendidoEmUmPeriodo(LocalDate.now(), LocalDate.now()));
+    }
+
+    @Test
+    public void mesclarRankingsParciais() {
+        List<RelatorioDeVendasVo> parcial1 = List.of(
+                new RelatorioDeVendasVo(1L, "A", 10L, LocalDate.now()),
+                new RelatorioDeVendasVo(2L, "B", 3L, LocalDate.now()));
+        List<RelatorioDeVendasVo> parcial2 = List.of(
+                new RelatorioDeVendasVo(3L, "C", 7L, LocalDate.now()),
+                new RelatorioDeVendasVo(4L, "D", 1L, LocalDate.now()));
+
+        List<RelatorioDeVendasVo> ranking = TopN.mesclar(3, RelatorioDeVendasVo.POR_QUANTIDADE_VENDIDA,
+                List.of(parcial1, parcial2));
+
+        assertEquals(List.of("A", "C", "B"), ranking.stream().map(RelatorioDeVendasVo::getNomeProduto).toList());
+    }
+
+    @Test
+    public void retornarSerieMensalPreenchendoMesesSemVendas() {
+        VendaService vendaService = new VendaService(em);
+        LocalDate hoje = LocalDate.now();
+
+        List<SerieDeVendasVo> serie;
+        try (Stream<SerieDeVendasVo> stream = vendaService.retornaSerieDeVendas(hoje.minusMonths(2), hoje, Granularidade.MES)) {
+            serie = stream.toList();
+        }
+
+        assertEquals(3, serie.size());
+        assertEquals(0, serie.get(0).getQuantidadePedidos());
+        assertEquals(0, serie.get(1).getQuantidadePedidos());
+        SerieDeVendasVo mesAtual = serie.get(2);
+        assertEquals(hoje.withDayOfMonth(1), mesAtual.getInicioDoIntervalo());
+        assertEquals(0, new BigDecimal("356000").compareTo(mesAtual.getFaturamento()));
+        assertEquals(2, mesAtual.getQuantidadePedidos());
+        assertEquals(52, mesAtual.getUnidadesVendidas());
+    }
+
+    @Test
+    public void retornarSerieDiariaPorCategoria() {
+        VendaService vendaService = new VendaService(em);
+        LocalDate hoje = LocalDate.now();
+
+        List<SerieDeVendasVo> serie;
+        try (Stream<SerieDeVendasVo> stream = vendaService.retornaSerieDeVendasPorCategoria(hoje.minusDays(1), hoje, Granularidade.DIA)) {
+            serie = stream.toList();
+        }
+
+        // Três categorias com venda, cada uma com dois dias (ontem zerado e hoje).
+        assertEquals(6, serie.size());
+        assertEquals(3, serie.stream().filter(s -> s.getUnidadesVendidas() > 0).count());
+    }
+
+    @Test
+    public void reutilizarPlanosDasConsultasNomeadas() {
+        EntityManagerFactory emf = em.getEntityManagerFactory();
+        EstatisticasDeConsultas.ativar(emf);
+        EstatisticasDeConsultas.zerar(emf);
+
+        for (int i = 0; i < 5; i++) {
+            vendaDAO.relatorioDeVendas(3);
+            vendaDAO.relatorioFinanceiro(3);
+        }
+
+        // Só a primeira execução de cada relatório traduz a consulta; as demais reaproveitam o plano.
+        EstatisticasDoCacheDePlanosVo cache = EstatisticasDeConsultas.cacheDePlanos(emf);
+        assertTrue(cache.getAcertos() >= 8, cache.toString());
+        assertTrue(cache.getFalhas() <= 2, cache.toString());
+    }
+
     private void popularBancoDeDados() {
         // Popula o banco de dados real com dados para o teste
         Categoria celulares = new Categoria("CELULARES");